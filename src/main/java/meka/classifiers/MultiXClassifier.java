@@ -21,6 +21,8 @@
 package meka.classifiers;
 
 import weka.classifiers.Classifier;
+import weka.core.BatchPredictor;
+import weka.core.Instances;
 import weka.core.OptionHandler;
 
 /**
@@ -30,7 +32,7 @@ import weka.core.OptionHandler;
  * @version $Revision$
  */
 public interface MultiXClassifier
-		extends Classifier, OptionHandler {
+		extends Classifier, OptionHandler, BatchPredictor {
 
 	/**
 	 * Set debugging mode.
@@ -60,4 +62,16 @@ public interface MultiXClassifier
 	 * @return      the model
 	 */
 	public String getModel();
+
+	/**
+	 * Returns the predictions for a batch of instances, one row per instance, each as
+	 * #distributionForInstance(Instance) would return it.
+	 * Classifiers which can predict a batch more efficiently than one instance at a time should override
+	 * this method, and return true from #implementsMoreEfficientBatchPrediction().
+	 *
+	 * @param D		the instances to predict
+	 * @return		the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	public double[][] distributionsForInstances(Instances D) throws Exception;
 }
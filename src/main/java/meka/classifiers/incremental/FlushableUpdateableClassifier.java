@@ -0,0 +1,41 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * FlushableUpdateableClassifier.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.classifiers.incremental;
+
+import weka.classifiers.UpdateableClassifier;
+
+/**
+ * Interface for updateable classifiers that may hold back some of the instances they are updated with (e.g., to update
+ * their model with them as a micro-batch), until they are flushed. IncrementalEvaluation flushes them at the end of
+ * each stream.
+ *
+ * @version October 2026
+ */
+public interface FlushableUpdateableClassifier
+  extends UpdateableClassifier {
+
+	/**
+	 * Updates the model with the instances held back so far, if any.
+	 *
+	 * @throws Exception	if the model cannot be updated
+	 */
+	public void flushUpdates() throws Exception;
+}
@@ -25,10 +25,12 @@ import meka.classifiers.multilabel.Evaluation;
 import weka.core.converters.AbstractFileSaver;
 import weka.core.converters.ArffSaver;
 import weka.core.converters.ConverterUtils;
+import weka.core.converters.ConverterUtils.DataSource;
 
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
 import java.util.Enumeration;
 
@@ -66,6 +68,12 @@ public class IncrementalEvaluation {
 	public static Result evaluateModel(MultiXClassifier h, String options[]) throws Exception {
 		boolean needPrebuiltModel = false;
 
+		// Stream the training data (rather than load it all), for streaming evaluation?
+		boolean streaming = Utils.getFlag("streaming", options);
+
+		// Fading factor of the streaming evaluation
+		double fading = OptionUtils.parse(options, "fading", 0.99);
+
 		// Load data for non-incremental testing
 		Instances test = null;
 		if (Utils.getOptionPos('T', options) > -1) {
@@ -76,15 +84,27 @@ public class IncrementalEvaluation {
 
 		// Load training data
 		Instances train = null;
+		DataSource trainSource = null;
+		Instances trainHeader = null;
 		if (Utils.getOptionPos('t', options) > -1) {
-			train = Evaluation.loadDataset(options, 't');
-			MLUtils.prepareData(train);
+			if (streaming) {
+				trainSource = new DataSource(Utils.getOption('t', options));
+				trainHeader = trainSource.getStructure();
+			}
+			else {
+				train = Evaluation.loadDataset(options, 't');
+				trainHeader = train;
+			}
+			MLUtils.prepareData(trainHeader);
 			needPrebuiltModel = false;  // we can build a model with training data
 		}
 
 		// output predictions to file?
 		String predictions = Utils.getOption("predictions", options);
 
+		// output the samples of the streaming evaluation to file?
+		String samples = Utils.getOption("samples", options);
+
 		// suppress evaluation?
 		boolean doEval = !Utils.getFlag("no-eval", options);
 
@@ -120,8 +140,8 @@ public class IncrementalEvaluation {
 			if (data.length > 1) {
 				dataHeader = (Instances) data[1];
 				String msg;
-				if (train != null) {
-					msg = train.equalHeadersMsg(dataHeader);
+				if (trainHeader != null) {
+					msg = trainHeader.equalHeadersMsg(dataHeader);
 					if (msg != null)
 						throw new IllegalArgumentException("New training data is not compatible with training header stored in '" + lname + "':\n" + msg);
 				}
@@ -139,8 +159,8 @@ public class IncrementalEvaluation {
 			throw new IllegalArgumentException("Options require a prebuilt model, but none available!");
 
 		if (h.getDebug()) {
-			if (train != null)
-				System.out.println(":- Dataset -: " + MLUtils.getDatasetName(train) + "\tL=" + train.classIndex() + "");
+			if (trainHeader != null)
+				System.out.println(":- Dataset -: " + MLUtils.getDatasetName(trainHeader) + "\tL=" + trainHeader.classIndex() + "");
 			if (test != null)
 				System.out.println(":- Test -: " + MLUtils.getDatasetName(test) + "\tL=" + test.classIndex() + "");
 		}
@@ -148,6 +168,35 @@ public class IncrementalEvaluation {
 		Utils.checkForRemainingOptions(options);
 
 		Result result = null;
+		if (!samples.isEmpty() && (trainSource == null || !doEval))
+			System.err.println("Samples are only output by streaming evaluation, ignoring: " + samples);
+		if (trainSource != null) {
+			if (doEval) {
+				AbstractFileSaver saver = null;
+				if (!samples.isEmpty()) {
+					saver = ConverterUtils.getSaverForFile(samples);
+					if (saver == null) {
+						System.err.println("Failed to determine saver for '" + samples + "', using " + ArffSaver.class.getName());
+						saver = new ArffSaver();
+					}
+					saver.setFile(new File(samples));
+				}
+				result = evaluateModelPrequentialStreaming(h, trainHeader, trainSource, nWin, rLabeled, Top, Vop, fading, saver);
+				if (saver != null)
+					System.out.println("Samples saved to: " + samples);
+			}
+			else {
+				Instances init = new Instances(trainHeader, 0); 	// initial window
+				while (init.numInstances() < nWin && trainSource.hasMoreElements(trainHeader))
+					init.add(trainSource.nextElement(trainHeader));
+				h.buildClassifier(init);
+				for (Instance inst: init)
+					((UpdateableClassifier) h).updateClassifier(inst);
+				while (trainSource.hasMoreElements(trainHeader))
+					((UpdateableClassifier) h).updateClassifier(trainSource.nextElement(trainHeader));
+				flush(h);
+			}
+		}
 		if (train != null) {
 			if (doEval) {
 				result = evaluateModelPrequentialBasic(h, train, nWin, rLabeled, Top, Vop);
@@ -157,6 +206,7 @@ public class IncrementalEvaluation {
 				h.buildClassifier(init);
 				for (Instance inst: train)
 					((UpdateableClassifier) h).updateClassifier(inst);
+				flush(h);
 			}
 		}
 		if (test != null && doEval) {
@@ -166,7 +216,7 @@ public class IncrementalEvaluation {
 		}
 
 		if (dname != null) {
-			dataHeader = new Instances(train, 0);
+			dataHeader = new Instances(trainHeader, 0);
 			SerializationHelper.writeAll(dname, new Object[]{h, dataHeader});
 		}
 
@@ -338,13 +388,14 @@ public class IncrementalEvaluation {
 
 			// Calibrate threshold for next window
 			if (Top.equals("PCutL")) {
-				t = ThresholdUtils.calibrateThresholds(result.predictions,MLUtils.labelCardinalities(result.actuals));
+				t = ThresholdUtils.calibrateThresholds(result,MLUtils.labelCardinalities(result.store),Evaluation.getNumThreads(h));
 			}
 			else {
-				Arrays.fill(t,ThresholdUtils.calibrateThreshold(result.predictions,MLUtils.labelCardinality(result.allTrueValues())));
+				Arrays.fill(t,ThresholdUtils.calibrateThreshold(result,MLUtils.labelCardinality(result.store)));
 			}
 
 		}
+		flush(h);
 
 		if (h.getDebug()) {
 			System.out.println("--------------------------------------------------------------------------------");
@@ -361,7 +412,7 @@ public class IncrementalEvaluation {
 		result.setInfo("Options", Arrays.toString(h.getOptions()));
 		result.setInfo("Additional Info", h.toString());
 		result.setInfo("Dataset", MLUtils.getDatasetName(D));
-		result.output = Result.getStats(result,Vop);
+		result.output = Result.getStats(result,Vop,Evaluation.getNumThreads(h));
 		result.setMeasurement("Results sampled over time", Result.getResultsAsInstances(samples));
 
 		return result;
@@ -560,7 +611,11 @@ public class IncrementalEvaluation {
 
 		}
 
-		result.output = Result.getStats(result,Vop);
+		long before_flush = System.currentTimeMillis();
+		flush(h);
+		train_time += (System.currentTimeMillis()-before_flush);
+
+		result.output = Result.getStats(result,Vop,Evaluation.getNumThreads(h));
 		result.setMeasurement("Results sampled over time", Result.getResultsAsInstances(samples));
 
 		result.vals.put("Test time",(test_time)/1000.0);
@@ -571,6 +626,194 @@ public class IncrementalEvaluation {
 	}
 
 
+	/**
+	 * Prequential Evaluation (streaming) - as #evaluateModelPrequentialBasic, but without storing the predictions.
+	 * @see #evaluateModelPrequentialStreaming(MultiXClassifier, Instances, DataSource, int, double, String, String, double, AbstractFileSaver)
+	 */
+	public static Result evaluateModelPrequentialStreaming(MultiXClassifier h, Instances D, int windowSize, double rLabeled, String Top, String Vop, double fadingFactor, AbstractFileSaver samples) throws Exception {
+		return evaluateModelPrequentialStreaming(h, new Instances(D, 0), new DataSource(D), windowSize, rLabeled, Top, Vop, fadingFactor, samples);
+	}
+
+	/**
+	 * Prequential Evaluation (streaming) - Test/Label/Update cycle as #evaluateModelPrequentialBasic, but reading the stream one
+	 * instance at a time and keeping only StreamingMetrics of the predictions, so that memory does not grow with the length of the
+	 * stream. Each sample (one per window) gives the metrics since the start of evaluation, over the last window, and faded; the
+	 * samples are written out (incrementally) as they are taken, rather than kept, and the Result only holds the final (cumulative)
+	 * metrics. Multi-label only.
+	 * @param	h	Multilabel Classifier
+	 * @param	header	the structure of the stream (with the class index set)
+	 * @param 	source	stream
+	 * @param	windowSize	sampling frequency (of evaluation statistics), and size of the sliding window
+	 * @param	rLabeled	labelled-ness (1.0 by default)
+	 * @param	Top	threshold option
+	 * @param	Vop	verbosity option
+	 * @param	fadingFactor	fading factor, in (0,1]
+	 * @param	samples	the saver (with its file set) to write the samples to, one instance each; null to only print them (when debugging)
+	 */
+	public static Result evaluateModelPrequentialStreaming(MultiXClassifier h, Instances header, DataSource source, int windowSize, double rLabeled, String Top, String Vop, double fadingFactor, AbstractFileSaver samples) throws Exception {
+
+		if (h.getDebug())
+			System.out.println(":- Classifier -: "+h.getClass().getName()+": "+Arrays.toString(h.getOptions()));
+
+		int L = header.classIndex();
+
+		if (h instanceof MultiTargetClassifier || Evaluation.isMT(header))
+			throw new Exception("[Error] Streaming evaluation is for multi-label data only!");
+
+		Result result = new Result(L);
+
+		long train_time = 0;
+		long test_time = 0;
+
+		result.setInfo("Supervision",String.valueOf(rLabeled));
+
+		Instances D_init = new Instances(header,windowSize); 	// initial window
+		while (D_init.numInstances() < windowSize && source.hasMoreElements(header))
+			D_init.add(source.nextElement(header));
+
+		if (h.getDebug()) {
+			System.out.println("Training classifier on initial window (of size "+windowSize+") ...");
+		}
+
+		train_time = System.nanoTime();
+		h.buildClassifier(D_init); 										// initial classifier
+		train_time = System.nanoTime() - train_time;
+
+		if (h.getDebug()) {
+			System.out.println("Proceeding to Test/Label/Update cycle on remaining instances ...");
+		}
+
+		result.setInfo("Classifier",h.getClass().getName());
+		result.setInfo("Options",Arrays.toString(h.getOptions()));
+		result.setInfo("Additional Info",h.toString());
+		result.setInfo("Dataset",MLUtils.getDatasetName(header));
+		result.setInfo("Verbosity",Vop);
+		result.setInfo("Type","ML");
+		double t = 0.5;
+		try {
+			t = Double.parseDouble(Top);
+		} catch(Exception e) {
+			System.err.println("[WARNING] Only a single threshold can be chosen for this kind of evaluation; Using "+t);
+		}
+		result.setInfo("Threshold", String.valueOf(t));
+
+		StreamingMetrics all = new StreamingMetrics(L);
+		StreamingMetrics window = new StreamingMetrics(L, windowSize);
+		StreamingMetrics faded = new StreamingMetrics(L, fadingFactor);
+		int numSamples = 0;
+		int ypred[] = new int[L];
+
+		int i = 0;
+		for(; source.hasMoreElements(header); i++) {
+
+			Instance x = source.nextElement(header);
+			Instance x_ = (Instance)x.copy(); 		// copy
+
+			/*
+			 * TEST
+			 */
+			long before_test = System.nanoTime();
+			double y[] = h.distributionForInstance(x_);
+			long after_test = System.nanoTime();
+			test_time += (after_test-before_test);
+			int ytrue[] = MLUtils.toIntArray(x,L);
+			for(int j = 0; j < L; j++)
+				ypred[j] = (y[j] >= t) ? 1 : 0;
+			all.add(ytrue,ypred);
+			window.add(ytrue,ypred);
+			faded.add(ytrue,ypred);
+
+			/*
+			 * LABEL BECOMES AVAILABLE ?
+			 * (on a copy: the source may hand out the instances of a dataset)
+			 */
+			if ( rLabeled >= 0.5 ) {
+				x = MLUtils.setLabelsMissing((Instance)x.copy(),L);
+			}
+
+			/*
+			 * UPDATE
+			 * (The classifier will have to decide if it wants to deal with unlabelled instances.)
+			 */
+			long before = System.nanoTime();
+			((UpdateableClassifier)h).updateClassifier(x);
+			long after = System.nanoTime();
+			train_time += (after-before);
+
+			/*
+			 * RECORD MEASUREMENT
+			 */
+			if (i % windowSize == (windowSize-1)) {
+				HashMap<String,Object> eval_sample = getStreamingStats(all,"");
+				eval_sample.putAll(getStreamingStats(window," (sliding window)"));
+				eval_sample.putAll(getStreamingStats(faded," (fading factor)"));
+				eval_sample.put("Test time",(test_time)/1e9);
+				eval_sample.put("Build time",(train_time)/1e9);
+				eval_sample.put("Total time",(test_time+train_time)/1e9);
+				eval_sample.put("Instances",(double)i);
+				eval_sample.put("Samples",(double)(++numSamples));
+				if (samples != null) {
+					ArrayList<HashMap<String,Object>> sample = new ArrayList<HashMap<String,Object>>();
+					sample.add(eval_sample);
+					Instances row = Result.getResultsAsInstances(sample);
+					if (numSamples == 1) {
+						samples.setRetrieval(AbstractFileSaver.INCREMENTAL);
+						samples.setStructure(new Instances(row,0));
+					}
+					samples.writeIncremental(row.instance(0));
+				}
+				if (h.getDebug()) {
+					System.out.print("Sample (#"+numSamples+") of performance at "+i+" instances:");
+					for (String m : measures)
+						System.out.print(" "+m+" "+Utils.doubleToString((Double)eval_sample.get(m),6,4));
+					System.out.println("");
+				}
+			}
+
+		}
+
+		long before_flush = System.nanoTime();
+		flush(h);
+		train_time += (System.nanoTime()-before_flush);
+
+		// (closes the file)
+		if (samples != null && numSamples > 0)
+			samples.writeIncremental(null);
+
+		result.output = getStreamingStats(all,"");
+
+		result.vals.put("Test time",(test_time)/1e9);
+		result.vals.put("Build time",(train_time)/1e9);
+		result.vals.put("Total time",(test_time+train_time)/1e9);
+		result.vals.put("Total instances tested",(double)i);
+
+		return result;
+	}
+
+	/**
+	 * Flush - passes on to h the instances it may still be holding back at the end of the stream (e.g., the last
+	 * micro-batch of BaggingMLUpdateable), if it is a FlushableUpdateableClassifier.
+	 */
+	public static void flush(Object h) throws Exception {
+		if (h instanceof FlushableUpdateableClassifier)
+			((FlushableUpdateableClassifier)h).flushUpdates();
+	}
+
+	/**
+	 * GetStreamingStats - the statistics of StreamingMetrics, named as in MLEvalUtils#getMLStats (with a suffix).
+	 */
+	private static HashMap<String,Object> getStreamingStats(StreamingMetrics m, String suffix) {
+		HashMap<String,Object> results = new LinkedHashMap<String,Object>();
+		results.put("Number of test instances (N)"+suffix	,m.size());
+		results.put("Accuracy"+suffix						,m.P_Accuracy());
+		results.put("Jaccard index"+suffix					,m.P_Accuracy());
+		results.put("Hamming score"+suffix					,m.P_Hamming());
+		results.put("Exact match"+suffix					,m.P_ExactMatch());
+		results.put("F1 (micro averaged)"+suffix			,m.P_FmicroAvg());
+		results.put("F1 (macro averaged by label)"+suffix	,m.P_FmacroAvgL());
+		return results;
+	}
+
 	public static void printOptions(Enumeration e) {
 
 		// Evaluation Options
@@ -594,6 +837,12 @@ public class IncrementalEvaluation {
 		text.append("\tSets the threshold to use.\n");
 		text.append("-verbosity <verbosity level>\n");
 		text.append("\tSpecify more/less evaluation output.\n");
+		text.append("-streaming\n");
+		text.append("\tReads the dataset one instance at a time, and evaluates without storing the predictions (multi-label only).\n");
+		text.append("-fading <fading factor>\n");
+		text.append("\tSets the fading factor of the streaming evaluation; default: 0.99.\n");
+		text.append("-samples <name of output file for samples>\n");
+		text.append("\tSets the file to write the samples of the streaming evaluation to, as they are taken (one per window).\n");
 		// Multilabel Options
 		text.append("\n\nClassifier Options:\n\n");
 		while (e.hasMoreElements()) {
@@ -17,13 +17,21 @@ package meka.classifiers.multilabel;
 
 import Jama.Matrix;
 import meka.classifiers.multilabel.NN.AbstractNeuralNet;
+import meka.core.A;
+import meka.core.DenseMatrix;
 import meka.core.MLUtils;
 import meka.core.MatrixUtils;
+import meka.core.OptionUtils;
 import weka.core.Instance;
 import weka.core.Instances;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @TEMP
@@ -46,6 +54,18 @@ public class BPNN extends AbstractNeuralNet {
 	protected Random r = null;
 	protected Matrix dW_[] = null;
 
+	/** the number of instances per (mini-)batch; 1 = update on each instance in turn */
+	protected int m_MiniBatchSize = 1;
+
+	/** the buffers for a full batch, and for the last (smaller) batch of an epoch */
+	protected transient MiniBatch m_Batch = null;
+	protected transient MiniBatch m_LastBatch = null;
+
+	/** flat copies of the weights, their momentum, and their gradient, for training in mini-batches */
+	protected transient DenseMatrix m_Wd[] = null;
+	protected transient DenseMatrix m_dWd[] = null;
+	protected transient DenseMatrix m_Gd[] = null;
+
 	public BPNN() {
 		// different default for now
 		m_E = 100;			
@@ -175,6 +195,8 @@ public class BPNN extends AbstractNeuralNet {
 	 * Update - A single training epoch.
 	 */
 	public double update(double X_[][], double Y_[][]) throws Exception {
+		if (m_MiniBatchSize > 1)
+			return updateBatches(X_,Y_);
 		int N = X_.length;
 		double E = 0.0;
 		for(int i = 0; i < N; i++) {
@@ -183,6 +205,196 @@ public class BPNN extends AbstractNeuralNet {
 		return E;
 	}
 
+	/**
+	 * MiniBatch - the activations and error terms of each layer for a batch of instances, reused from batch to batch.
+	 */
+	protected static class MiniBatch {
+
+		/** the number of instances */
+		final int b;
+
+		/** Z[l] the activations of layer l (Z[0] the input), with a bias column, except for the output layer Z[nW] */
+		final DenseMatrix Z[];
+
+		/** P[l] the weighted inputs to layer l+1 (the output layer is activated in place, P[nW-1] == Z[nW]) */
+		final DenseMatrix P[];
+
+		/** dZ[l] the error terms of layer l (without bias) */
+		final DenseMatrix dZ[];
+
+		/** E[l] the errors propagated back to hidden layer l (with bias) */
+		final DenseMatrix E[];
+
+		/** the targets */
+		final DenseMatrix T;
+
+		MiniBatch(int b, DenseMatrix W[]) {
+			int nW = W.length;
+			this.b = b;
+			Z = new DenseMatrix[nW+1];
+			P = new DenseMatrix[nW];
+			dZ = new DenseMatrix[nW+1];
+			E = new DenseMatrix[nW];
+			for(int l = 0; l < nW; l++) {
+				Z[l] = new DenseMatrix(b, W[l].rows);
+				P[l] = new DenseMatrix(b, W[l].cols);
+				dZ[l+1] = new DenseMatrix(b, W[l].cols);
+				if (l > 0)
+					E[l] = new DenseMatrix(b, W[l].rows);
+			}
+			Z[nW] = P[nW-1];
+			T = new DenseMatrix(b, W[nW-1].cols);
+		}
+
+		/** whether these buffers are for b instances and weights W */
+		boolean fits(int b, DenseMatrix W[]) {
+			if (this.b != b || P.length != W.length)
+				return false;
+			for(int l = 0; l < W.length; l++) {
+				if (Z[l].cols != W[l].rows || P[l].cols != W[l].cols)
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/** The buffers for a batch of b instances */
+	private MiniBatch miniBatch(int b) {
+		if (b == m_MiniBatchSize) {
+			if (m_Batch == null || !m_Batch.fits(b, m_Wd))
+				m_Batch = new MiniBatch(b, m_Wd);
+			return m_Batch;
+		}
+		if (m_LastBatch == null || !m_LastBatch.fits(b, m_Wd))
+			m_LastBatch = new MiniBatch(b, m_Wd);
+		return m_LastBatch;
+	}
+
+	/** copy Jama matrices M into flat matrices D (made if necessary), or back (if toJama) */
+	private static DenseMatrix[] copy(Matrix M[], DenseMatrix D[], boolean toJama) {
+		if (D == null || D.length != M.length)
+			D = new DenseMatrix[M.length];
+		for(int l = 0; l < M.length; l++) {
+			double M_[][] = M[l].getArray();
+			if (D[l] == null || D[l].rows != M_.length || D[l].cols != M_[0].length)
+				D[l] = new DenseMatrix(M_.length, M_[0].length);
+			for(int i = 0; i < M_.length; i++) {
+				if (toJama)
+					System.arraycopy(D[l].data, i * D[l].cols, M_[i], 0, D[l].cols);
+				else
+					System.arraycopy(M_[i], 0, D[l].data, i * D[l].cols, D[l].cols);
+			}
+		}
+		return D;
+	}
+
+	/**
+	 * Update Batches - A single training epoch in mini-batches of (at most) m_MiniBatchSize instances, taken in a random order.
+	 * The weights are updated with the gradient of each batch, averaged over its instances.
+	 */
+	protected double updateBatches(double X_[][], double Y_[][]) throws Exception {
+		int N = X_.length;
+		if (r == null)
+			r = new Random(m_Seed);
+
+		m_Wd = copy(W, m_Wd, false);
+		m_dWd = copy(dW_, m_dWd, false);
+		if (m_Gd == null || m_Gd.length != m_Wd.length)
+			m_Gd = new DenseMatrix[m_Wd.length];
+		for(int l = 0; l < m_Wd.length; l++) {
+			if (m_Gd[l] == null || m_Gd[l].rows != m_Wd[l].rows || m_Gd[l].cols != m_Wd[l].cols)
+				m_Gd[l] = new DenseMatrix(m_Wd[l].rows, m_Wd[l].cols);
+		}
+
+		int order[] = A.make_sequence(N);
+		A.shuffle(order, r);
+		ExecutorService executor = getExecutor();
+		double E = 0.0;
+		for(int start = 0; start < N; start += m_MiniBatchSize) {
+			MiniBatch batch = miniBatch(Math.min(m_MiniBatchSize, N - start));
+			DenseMatrix X = batch.Z[0];
+			DenseMatrix T = batch.T;
+			for(int i = 0; i < batch.b; i++) {
+				int n = order[start + i];
+				X.data[i * X.cols] = 1.0;
+				System.arraycopy(X_[n], 0, X.data, i * X.cols + 1, X.cols - 1);
+				System.arraycopy(Y_[n], 0, T.data, i * T.cols, T.cols);
+			}
+			E += backPropagate(batch, executor);
+		}
+
+		copy(W, m_Wd, true);
+		copy(dW_, m_dWd, true);
+		return E;
+	}
+
+	/**
+	 * Back Propagate - Do one round of Back Propagation on a mini-batch (in its buffers), updating the flat weights.
+	 * @return	the sum, over the instances of the batch, of the (root of the) sum of squared errors
+	 */
+	protected double backPropagate(MiniBatch m, ExecutorService executor) {
+		int nW = m_Wd.length;
+		int b = m.b;
+
+		// forward
+		for(int l = 0; l < nW; l++) {
+			MatrixUtils.multiply(m.Z[l], m_Wd[l], m.P[l], executor);
+			if (l < nW-1) {
+				DenseMatrix Z = m.Z[l+1];
+				DenseMatrix P = m.P[l];
+				for(int i = 0; i < b; i++) {
+					Z.data[i * Z.cols] = 1.0;
+					for(int j = 0; j < P.cols; j++) {
+						Z.data[i * Z.cols + j + 1] = MatrixUtils.sigma(P.data[i * P.cols + j]);
+					}
+				}
+			}
+			else
+				MatrixUtils.sigmaEquals(m.P[l]);
+		}
+
+		// error terms (output)
+		DenseMatrix Y = m.Z[nW];
+		DenseMatrix D = m.dZ[nW];
+		double SSE = 0.0;
+		for(int i = 0; i < b; i++) {
+			double sse = 0.0;
+			for(int j = 0; j < Y.cols; j++) {
+				int k = i * Y.cols + j;
+				double e = m.T.data[k] - Y.data[k];
+				sse += e * e;
+				D.data[k] = MatrixUtils.dsigma(Y.data[k]) * e;
+			}
+			SSE += Math.sqrt(sse);
+		}
+
+		// error terms (hidden)
+		for(int l = nW-1; l > 0; l--) {
+			DenseMatrix E = MatrixUtils.multiplyTranspose(m.dZ[l+1], m_Wd[l], m.E[l], executor);
+			DenseMatrix Z = m.Z[l];
+			D = m.dZ[l];
+			for(int i = 0; i < b; i++) {
+				for(int j = 0; j < D.cols; j++) {
+					D.data[i * D.cols + j] = MatrixUtils.dsigma(Z.data[i * Z.cols + j + 1]) * E.data[i * E.cols + j + 1];
+				}
+			}
+		}
+
+		// weight derivatives (with momentum), and update
+		double rate = m_R / b;
+		for(int l = 0; l < nW; l++) {
+			double g[] = MatrixUtils.transposeMultiply(m.Z[l], m.dZ[l+1], m_Gd[l], executor).data;
+			double w[] = m_Wd[l].data;
+			double d[] = m_dWd[l].data;
+			for(int k = 0; k < w.length; k++) {
+				d[k] = g[k] * rate + d[k] * m_M;
+				w[k] += d[k];
+			}
+		}
+
+		return SSE;
+	}
+
 	/**
 	 * Forward Pass - Given input x_, get output y_.
 	 * @param	x_	input
@@ -222,9 +434,9 @@ public class BPNN extends AbstractNeuralNet {
 			if (getDebug())
 				System.out.print("DO: ["+i+"] "+ MatrixUtils.getDim(Z[i - 1].getArray())+" * "+ MatrixUtils.getDim(W[i - 1].getArray())+" => ");
 
-			Matrix A_z = Z[i-1].times(W[i-1]);									// 					A = X * W1 		= Z[n-1] * W[n-1]	 
-			Z[i] = MatrixUtils.sigma(A_z);
-			Z[i] = MatrixUtils.addBias(Z[i]);											// ACTIVATIONS      Z[n] = sigma(A)	=
+			Matrix A_z = new Matrix(MatrixUtils.multiply(Z[i-1].getArray(), W[i-1].getArray(), getExecutor()));	// A = X * W1 		= Z[n-1] * W[n-1]	 
+			MatrixUtils.sigmaEquals(A_z.getArray());
+			Z[i] = MatrixUtils.addBias(A_z);											// ACTIVATIONS      Z[n] = sigma(A)	=
 
 			if (getDebug())
 				System.out.println("==: "+ MatrixUtils.getDim(A_z.getArray()));
@@ -233,10 +445,11 @@ public class BPNN extends AbstractNeuralNet {
 		// output layer
 		if (getDebug())
 			System.out.print("DX: ["+i+"] "+ MatrixUtils.getDim(Z[i - 1].getArray())+" * "+ MatrixUtils.getDim(W[i - 1].getArray())+" => ");
-		Matrix A_y = Z[i-1].times(W[i-1]);			// 					A = X * W1 		= Z[n-1] * W[n-1]	 
+		Matrix A_y = new Matrix(MatrixUtils.multiply(Z[i-1].getArray(), W[i-1].getArray(), getExecutor()));	// A = X * W1 		= Z[n-1] * W[n-1]	 
 		if (getDebug())
 			System.out.println("==: "+ MatrixUtils.getDim(A_y.getArray()));
-		Z[numW] = MatrixUtils.sigma(A_y);					// ACTIVATIONS      Z[n] = sigma(A)	=
+		MatrixUtils.sigmaEquals(A_y.getArray());
+		Z[numW] = A_y;										// ACTIVATIONS      Z[n] = sigma(A)	=
 
 		return Z;
 	}
@@ -272,12 +485,12 @@ public class BPNN extends AbstractNeuralNet {
 		// Error terms (output)
 		Matrix E_y = T.minus(Z[nW]);												// ERROR
 
-		dZ[nW] = MatrixUtils.dsigma(Z[nW]).arrayTimes(E_y);
+		dZ[nW] = MatrixUtils.dsigma(Z[nW]).arrayTimesEquals(E_y);
 
 		// Error terms (hidden) *NEW*
 		for(int i = nW-1; i > 0; i--) {
-			Matrix E = dZ[i+1].times(W[i].transpose());
-			dZ[i] = MatrixUtils.dsigma(Z[i]).arrayTimes(E);
+			Matrix E = new Matrix(MatrixUtils.multiplyTranspose(dZ[i+1].getArray(), W[i].getArray(), getExecutor()));
+			dZ[i] = MatrixUtils.dsigma(Z[i]).arrayTimesEquals(E);
 			dZ[i] = new Matrix(MatrixUtils.removeBias(dZ[i].getArray()));
 		}
 
@@ -289,7 +502,7 @@ public class BPNN extends AbstractNeuralNet {
 		// Weight derivatives
 		Matrix dW[] = new Matrix[nW];
 		for(int i = 0; i < nW; i++) {
-			dW[i] = (Z[i].transpose().times(m_R).times(dZ[i+1])) .plus (dW_[i].times(m_M));
+			dW[i] = new Matrix(MatrixUtils.transposeMultiply(Z[i].times(m_R).getArray(), dZ[i+1].getArray(), getExecutor())).plusEquals(dW_[i].times(m_M));
 		}
 
 		// Weight update
@@ -306,6 +519,43 @@ public class BPNN extends AbstractNeuralNet {
 		return SSE;
 	}
 
+	public int getMiniBatchSize() {
+		return m_MiniBatchSize;
+	}
+
+	public void setMiniBatchSize(int b) {
+		if (b >= 1)
+			m_MiniBatchSize = b;
+		else
+			System.err.println("Mini-batch size must be >= 1, provided: " + b);
+	}
+
+	public String miniBatchSizeTipText() {
+		return "The number of instances per mini-batch (shuffled each epoch, with the gradient averaged over the batch); 1 to update on each instance in turn, in the order of the data.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		OptionUtils.addOption(result, miniBatchSizeTipText(), "1", "mini-batch-size");
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setMiniBatchSize(OptionUtils.parse(options, "mini-batch-size", 1));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		OptionUtils.add(result, "mini-batch-size", getMiniBatchSize());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
 	public static void main(String args[]) throws Exception {
 		ProblemTransformationMethod.evaluation(new BPNN(), args);
 	}
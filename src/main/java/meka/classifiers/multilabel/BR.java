@@ -28,13 +28,21 @@ import weka.core.Instances;
 import weka.core.Drawable;
 import meka.core.MultiLabelDrawable;
 import meka.core.MLUtils;
-import meka.core.F;
+import meka.core.InstancesView;
+import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.core.RevisionUtils;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.Callable;
 
-public class BR extends ProblemTransformationMethod implements MultiLabelDrawable {
+public class BR extends ProblemTransformationMethod implements MultiLabelDrawable, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = -5390512540469007904L;
@@ -42,6 +50,9 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 	protected Classifier m_MultiClassifiers[] = null;
 	protected Instances m_InstancesTemplates[] = null; 
 
+	/** the number of threads to use for training the label models. */
+	protected int m_NumThreads = getDefaultNumThreads();
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -56,27 +67,33 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 	}
 
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 		testCapabilities(D);
 	  	
-		int L = D.classIndex();
+		final int L = D.classIndex();
 
 		if(getDebug()) System.out.print("Creating "+L+" models ("+m_Classifier.getClass().getName()+"): ");
 		m_MultiClassifiers = AbstractClassifier.makeCopies(m_Classifier,L);
-		m_InstancesTemplates = new Instances[L];
 
+		List<Callable<Instances>> jobs = new ArrayList<>(L);
 		for(int j = 0; j < L; j++) {
+			final int k = j;
+			jobs.add(new Callable<Instances>() {
+				public Instances call() throws Exception {
+					//Select only class attribute 'j' (a view of D, which is only read, so it can be shared between the jobs)
+					Instances D_j = InstancesView.keepLabels(D,L,new int[]{k});
+					D_j.setClassIndex(0);
 
-			//Select only class attribute 'j'
-			Instances D_j = F.keepLabels(new Instances(D),L,new int[]{j});
-			D_j.setClassIndex(0);
-
-			//Build the classifier for that class
-			m_MultiClassifiers[j].buildClassifier(D_j);
-			if(getDebug()) System.out.print(" " + (D_j.classAttribute().name()));
+					//Build the classifier for that class
+					m_MultiClassifiers[k].buildClassifier(D_j);
+					if(getDebug()) System.out.print(" " + (D_j.classAttribute().name()));
 
-			m_InstancesTemplates[j] = new Instances(D_j, 0);
+					return new Instances(D_j, 0);
+				}
+			});
 		}
+
+		m_InstancesTemplates = ThreadUtils.executeAll(jobs, m_NumThreads).toArray(new Instances[L]);
 	}
 
 	@Override
@@ -98,6 +115,100 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 		return y;
 	}
 
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return usesDistributionForInstanceOf(BR.class);
+	}
+
+	/**
+	 * Predicts a batch of instances: the batch is transformed once per label, and each label model predicts
+	 * the whole batch (in turn using the batch prediction of the base classifier, if available).
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		int L = D.classIndex();
+		int N = D.numInstances();
+
+		double Y[][] = new double[N][L];
+
+		for (int j = 0; j < L; j++) {
+			Instances D_j = InstancesView.keepLabels(D,L,new int[]{j});
+			D_j.setClassIndex(0);
+			double P[][] = MLUtils.distributionsForInstances(m_MultiClassifiers[j],D_j);
+			for (int i = 0; i < N; i++) {
+				Y[i][j] = P[i][1];
+			}
+		}
+
+		return Y;
+	}
+
+	/**
+	 * Returns the default number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	protected int getDefaultNumThreads() {
+		return ThreadUtils.SEQUENTIAL;
+	}
+
+	/**
+	 * Sets the number of threads to use for training the label models.
+	 *
+	 * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value))
+			m_NumThreads = value;
+	}
+
+	/**
+	 * Returns the number of threads to use for training the label models.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return 		tip text for this property suitable for
+	 * 			displaying in the GUI or for listing the options.
+	 */
+	public String numThreadsTipText() {
+		return "The number of threads to use for training the label models; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		OptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), "num-threads");
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setNumThreads(OptionUtils.parse(options, "num-threads", getDefaultNumThreads()));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		OptionUtils.add(result, "num-threads", getNumThreads());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
 	/**
 	 * Returns the type of graph representing
 	 * the object.
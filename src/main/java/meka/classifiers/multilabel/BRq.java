@@ -15,16 +15,19 @@
 
 package meka.classifiers.multilabel;
 
+import meka.core.InstancesView;
+import meka.core.MLUtils;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.*;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * BRq.java - Random Subspace ('quick') Version.
@@ -36,7 +39,7 @@ import java.util.*;
  * @author 	Jesse Read (jmr30@cs.waikato.ac.nz)
  * @version January 2009
  */
-public class BRq extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler {
+public class BRq extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = 398261703726763108L;
@@ -51,6 +54,9 @@ public class BRq extends ProblemTransformationMethod implements Randomizable, Te
 
 	protected Classifier m_MultiClassifiers[] = null;
 
+	/** the number of threads to use for training the label models. */
+	protected int m_NumThreads = ThreadUtils.SEQUENTIAL;
+
 	/**
 	 * Description to display in the GUI.
 	 *
@@ -82,55 +88,53 @@ public class BRq extends ProblemTransformationMethod implements Randomizable, Te
 	}
 
 	@Override
-	public void buildClassifier(Instances data) throws Exception {
+	public void buildClassifier(final Instances data) throws Exception {
 		testCapabilities(data);
 
-		int c = data.classIndex();
+		final int c = data.classIndex();
 
 		if(getDebug()) System.out.print("-: Creating "+c+" models ("+m_Classifier.getClass().getName()+"): ");
 		m_MultiClassifiers = AbstractClassifier.makeCopies(m_Classifier,c);
 
-		Instances sub_data = null;
-
+		List<Callable<Instances>> jobs = new ArrayList<>(c);
 		for(int i = 0; i < c; i++) {
 
-			int indices[][] = new int[c][c - 1];
-			for(int j = 0, k = 0; j < c; j++) {
-				if(j != i) {
-					indices[i][k++] = j;
-				}
-			}
-
-			//Select only class attribute 'i'
-			Remove FilterRemove = new Remove();
-			FilterRemove.setAttributeIndicesArray(indices[i]);
-			FilterRemove.setInputFormat(data);
-			FilterRemove.setInvertSelection(true);
-			sub_data = Filter.useFilter(data, FilterRemove);
-			sub_data.setClassIndex(0);
-			/* BEGIN downsample for this link */
-			sub_data.randomize(m_Random);
-			int numToRemove = sub_data.numInstances() - (int)Math.round(sub_data.numInstances() * m_DownSampleRatio);
-			for(int m = 0, removed = 0; m < sub_data.numInstances(); m++) {
-				if (sub_data.instance(m).classValue() <= 0.0) {
-					sub_data.instance(m).setClassMissing();
-					if (++removed >= numToRemove)
-						break;
+			final int k = i;
+			// (the shuffles are drawn here, in turn, so the result does not depend on the number of threads)
+			final int swaps[] = MLUtils.drawRandomization(data.numInstances(), m_Random);
+
+			jobs.add(new Callable<Instances>() {
+				public Instances call() throws Exception {
+					//Select only class attribute 'i' (a view of data; the instances taken out below get their own values)
+					Instances sub_data = InstancesView.keepLabels(data,c,new int[]{k});
+					sub_data.setClassIndex(0);
+					/* BEGIN downsample for this link */
+					MLUtils.randomize(sub_data,swaps);
+					int numToRemove = sub_data.numInstances() - (int)Math.round(sub_data.numInstances() * m_DownSampleRatio);
+					for(int m = 0, removed = 0; m < sub_data.numInstances(); m++) {
+						if (sub_data.instance(m).classValue() <= 0.0) {
+							sub_data.instance(m).setClassMissing();
+							if (++removed >= numToRemove)
+								break;
+						}
+					}
+					sub_data.deleteWithMissingClass();
+					/* END downsample for this link */
+
+					//Build the classifier for that class
+					m_MultiClassifiers[k].buildClassifier(sub_data);
+					if(getDebug()) System.out.print(" " + (k+1));
+
+					return new Instances(sub_data, 0);
 				}
-			}
-			sub_data.deleteWithMissingClass();
-			/* END downsample for this link */
-
-
-			//Build the classifier for that class
-			m_MultiClassifiers[i].buildClassifier(sub_data);
-			if(getDebug()) System.out.print(" " + (i+1));
-
+			});
 		}
 
+		List<Instances> templates = ThreadUtils.executeAll(jobs, m_NumThreads);
+
 		if(getDebug()) System.out.println(" :-");
 
-		m_InstancesTemplate = new Instances(sub_data, 0);
+		m_InstancesTemplate = templates.get(c - 1);
 
 	}
 
@@ -197,11 +201,27 @@ public class BRq extends ProblemTransformationMethod implements Randomizable, Te
 		return "The down sample ratio.";
 	}
 
+	@Override
+	public void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value))
+			m_NumThreads = value;
+	}
+
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads to use for training the label models; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\tSets the downsampling ratio\n\tdefault: 0.75\n\t(% of original)", "P", 1, "-P <value>"));
 		result.addElement(new Option("\tThe seed value for randomization\n\tdefault: 0", "S", 1, "-S <value>"));
+		OptionUtils.addOption(result, numThreadsTipText(), "" + ThreadUtils.SEQUENTIAL, "num-threads");
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -210,6 +230,7 @@ public class BRq extends ProblemTransformationMethod implements Randomizable, Te
 	public void setOptions(String[] options) throws Exception {
 		setDownSampleRatio(OptionUtils.parse(options, 'P', 0.75));
 		setSeed(OptionUtils.parse(options, 'S', 0));
+		setNumThreads(OptionUtils.parse(options, "num-threads", ThreadUtils.SEQUENTIAL));
 		super.setOptions(options);
 	}
 
@@ -218,6 +239,7 @@ public class BRq extends ProblemTransformationMethod implements Randomizable, Te
 		List<String> result = new ArrayList<>();
 		OptionUtils.add(result, 'P', getDownSampleRatio());
 		OptionUtils.add(result, 'S', getSeed());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
@@ -139,12 +139,42 @@ public class CC extends ProblemTransformationMethod
 
 		for(int j : m_Chain) {
 			// h_j : x,pa_j -> y_j
-			y[j] = nodes[j].classify((Instance)x.copy(),y); 
+			y[j] = nodes[j].classify(x,y);
 		}
 
 		return y;
 	}
 
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return usesDistributionForInstanceOf(CC.class);
+	}
+
+	/**
+	 * Predicts a batch of instances: following the chain, each node transforms the whole batch once
+	 * (with the predictions of its parents so far) and predicts it in one go.
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		int L = D.classIndex();
+		int N = D.numInstances();
+		double Y[][] = new double[N][L];
+
+		for(int j : m_Chain) {
+			// h_j : X,pa_j -> y_j
+			double P[][] = nodes[j].distributions(D,Y);
+			for(int i = 0; i < N; i++) {
+				Y[i][j] = Utils.maxIndex(P[i]);
+			}
+		}
+
+		return Y;
+	}
+
 	/**
 	 * SampleForInstance.
 	 * predict y[j] stochastically rather than deterministically (as with distributionForInstance(Instance x)).
@@ -189,10 +219,10 @@ public class CC extends ProblemTransformationMethod
 		double y[] = new double[L];
 
 		for(int j : m_Chain) {
-			double p[] = nodes[j].distribution(t_[j],y);               // e.g., [0.4, 0.6]
+			nodes[j].updateTransform(t_[j],y); 						   // set the parents sampled so far
+			double p[] = nodes[j].distributionT(t_[j]);                // e.g., [0.4, 0.6]
 			y[j] = A.samplePMF(p,r);                                   // e.g., 0
 			confidences[j] = p[(int)y[j]];                             // e.g., 0.4
-			nodes[j].updateTransform(t_[j],y); 						   // need to update the transform #SampleForInstance(x,r)
 		}
 
 		return y;
@@ -230,7 +260,7 @@ public class CC extends ProblemTransformationMethod
 
 		for(int j : m_Chain) {
 			// h_j : x,pa_j -> y_j
-			double d[] = nodes[j].distribution((Instance)x.copy(),path);  // <-- posterior distribution
+			double d[] = nodes[j].distribution(x,path);                   // <-- posterior distribution
 			int k = (int)Math.round(path[j]);                             // <-- value of interest
 			p[j] = d[k];                                                  // <-- p(y_j==k) i.e., 'confidence'
 			//y[j] = path[j];
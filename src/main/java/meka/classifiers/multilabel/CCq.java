@@ -16,8 +16,11 @@
 package meka.classifiers.multilabel;
 
 import meka.core.A;
+import meka.core.F;
 import meka.core.MLUtils;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.*;
@@ -25,6 +28,7 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * The Classifier Chains  Method - Random Subspace ('quick') Version.
@@ -33,7 +37,7 @@ import java.util.*;
  * @author Jesse Read (jesse@tsc.uc3m.es)
  * @version January 2009
  */
-public class CCq extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler {
+public class CCq extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = 7881602808389873411L;
@@ -49,6 +53,9 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 	/** The number of classes*/
 	protected int m_NumClasses = -1;
 
+	/** the number of threads to use for training the links */
+	protected int m_NumThreads = ThreadUtils.SEQUENTIAL;
+
 	protected QLink root = null;
 
 	protected class QLink {
@@ -60,6 +67,8 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 		private int excld[]; // to contain the indices to delete
 		private int j = 0; //@temp
 
+		private int swaps[]; // the shuffle for downsampling
+
 		public QLink(int chain[], int j, Instances train) throws Exception {
 			this.j = j;
 
@@ -72,22 +81,32 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 
 			this.classifier = AbstractClassifier.forName(getClassifier().getClass().getName(),((AbstractClassifier)getClassifier()).getOptions());
 
-			Instances new_train = new Instances(train);
+			// draw the shuffle now, in chain order, so the links can be built in any order (see #build(Instances))
+			this.swaps = MLUtils.drawRandomization(train.numInstances(), m_Random);
+
+			if(j+1 < chain.length) 
+				next = new QLink(chain, ++j, train);
+		}
+
+		/**
+		 * Build - train the classifier of this link (independently of the other links, since they use the true label values).
+		 * @param	train	the training data (not modified)
+		 */
+		private void build(Instances train) throws Exception {
 
 			// delete all except one (leaving a binary problem)
 			if(getDebug()) System.out.print(" "+this.index);
-			new_train.setClassIndex(-1); 
-			// delete all the attributes (and track where our index ends up)
-			int c_index = chain[j]; 
+			Instances new_train = F.remove(train, excld, false);
+			// (and track where our index ends up)
+			int c_index = this.index; 
 			for(int i = excld.length-1; i >= 0; i--) {
-				new_train.deleteAttributeAt(excld[i]);
 				if (excld[i] < this.index)
 					c_index--; 
 			}
 			new_train.setClassIndex(c_index); 
 
 			/* BEGIN downsample for this link */
-			new_train.randomize(m_Random);
+			MLUtils.randomize(new_train,swaps);
 			int numToRemove = new_train.numInstances() - (int)Math.round(new_train.numInstances() * m_DownSampleRatio);
 			for(int i = 0, removed = 0; i < new_train.numInstances(); i++) {
 				if (new_train.instance(i).classValue() <= 0.0) {
@@ -102,10 +121,7 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 			_template = new Instances(new_train,0);
 
 			this.classifier.buildClassifier(new_train);
-			new_train = null;
-
-			if(j+1 < chain.length) 
-				next = new QLink(chain, ++j, train);
+			swaps = null;
 		}
 
 		private void classify(Instance test) throws Exception {
@@ -192,11 +208,27 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 		return "The down sample ratio (0-1).";
 	}
 
+	@Override
+	public void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value))
+			m_NumThreads = value;
+	}
+
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads to use for training the links of the chain; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\tSets the downsampling ratio        \n\tdefault: 0.75\t(of original)", "P", 1, "-P <value>"));
 		result.addElement(new Option("\tThe seed value for randomization\n\tdefault: 0", "S", 1, "-S <value>"));
+		OptionUtils.addOption(result, numThreadsTipText(), "" + ThreadUtils.SEQUENTIAL, "num-threads");
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -205,6 +237,7 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 	public void setOptions(String[] options) throws Exception {
 		setDownSampleRatio(OptionUtils.parse(options, 'P', 0.75));
 		setSeed(OptionUtils.parse(options, 'S', 0));
+		setNumThreads(OptionUtils.parse(options, "num-threads", ThreadUtils.SEQUENTIAL));
 		super.setOptions(options);
 	}
 
@@ -213,13 +246,14 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 		List<String> result = new ArrayList<>();
 		OptionUtils.add(result, 'P', getDownSampleRatio());
 		OptionUtils.add(result, 'S', getSeed());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 
 	}
 
 	@Override
-	public void buildClassifier(Instances Train) throws Exception {
+	public void buildClassifier(final Instances Train) throws Exception {
 	  	testCapabilities(Train);
 	  	
 		this.m_NumClasses = Train.classIndex();
@@ -228,6 +262,18 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 	  	A.shuffle(indices,new Random(m_S));
 		if(getDebug()) System.out.print(":- Chain (");
 		root = new QLink(indices,0,Train);
+
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumClasses);
+		for(QLink link = root; link != null; link = link.next) {
+			final QLink q = link;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					q.build(Train);
+					return null;
+				}
+			});
+		}
+		ThreadUtils.executeAll(jobs, m_NumThreads);
 		if (getDebug()) System.out.println(" ) -:");
 	}
 
@@ -17,6 +17,8 @@ package meka.classifiers.multilabel;
 
 import meka.core.A;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.*;
@@ -24,17 +26,26 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * CDN.java - Conditional Dependency Networks.
  * A fully connected undirected network, each node (label) is connected to each other node (label). Each node is a binary classifier that predicts p(y_j|x,y_1,...,y_{j-1},y_{j-1},...,y_L). Inference is done using Gibbs sampling over I iterations. The final I_c iterations are used to collected the marginal probabilities, which becomes the prediction y[].
  * <br>
+ * Several independent chains can be run (each with its own random number generator, seeded from the main one), in parallel if more than one thread is used;
+ * the marginals are then averaged over the chains. With several chains, the burn-in can stop early, as soon as the chains agree (by the potential scale reduction factor, R-hat, of each label).
+ * With several chains and threads, a batch of instances is predicted in parallel (the result is the same as predicting them one by one).
+ * The caller's instance is not modified (each chain samples on its own copy).
+ * <br>
+ * See also: Gelman and Rubin. <i>Inference from Iterative Simulation Using Multiple Sequences</i>. Statistical Science 7(4). 1992.
+ * <br>
  * See: Yuhong Guoand and Suicheng Gu. <i>Multi-Label Classification Using Conditional Dependency Networks</i>. IJCAI '11. 2011.
  * <br>
  * @author 	Jesse Read
  * @version	November 2012
  */
-public class CDN extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler {
+public class CDN extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = -4571133392057899417L;
@@ -46,6 +57,18 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 	protected int I = 1000;	// total iterations
 	protected int I_c = 100;	// collection iterations
 
+	/** the number of (independent) chains */
+	protected int m_Chains = 1;
+
+	/** the R-hat below which burn-in stops (0 = never stop early) */
+	protected double m_MaxRHat = 0.0;
+
+	/** the number of threads to use */
+	protected int m_NumThreads = ThreadUtils.SEQUENTIAL;
+
+	/** the executor for sampling in parallel */
+	protected transient ExecutorService m_Executor = null;
+
 	@Override
 	public void buildClassifier(Instances D) throws Exception {
 		testCapabilities(D);
@@ -59,11 +82,13 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		// Build L probabilistic models, each to predict Y_i | X, Y_{-y}; save the templates.
 		for(int j = 0; j < L; j++) {
 			// X = [Y[0],...,Y[j-1],Y[j+1],...,Y[L],X]
-			D_templates[j] = new Instances(D);
-			D_templates[j].setClassIndex(j);
+			Instances D_j = new Instances(D);
+			D_j.setClassIndex(j);
 			// train H[j] : X -> Y
 			h[j] = AbstractClassifier.forName(getClassifier().getClass().getName(),((AbstractClassifier)getClassifier()).getOptions());
-			h[j].buildClassifier(D_templates[j]);
+			h[j].buildClassifier(D_j);
+			// keep only the header
+			D_templates[j] = new Instances(D_j,0);
 		}
 	}
 
@@ -90,45 +115,240 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 	}
 	*/
 
-	@Override
-	public double[] distributionForInstance(Instance x) throws Exception {
+	/**
+	 * Sample - the Gibbs step for label j: sample y_j ~ p(y_j | x, y_{-j}).
+	 * Here the state of the chain is kept in (the label values of) x, which is modified.
+	 * @param	x	the instance (owned by the chain)
+	 * @param	y	the current label values (owned by the chain)
+	 * @param	j	the label
+	 * @param	r	the random number generator of the chain
+	 * @return	the new value of y_j
+	 */
+	protected double sample(Instance x, double y[], int j, Random r) throws Exception {
+		// x = [x,y[1],...,y[j-1],y[j+1],...,y[L]]
+		x.setDataset(D_templates[j]);
+		// q = h_j(x)    i.e. p(y_j | x)
+		double dist[] = h[j].distributionForInstance(x);
+		int k = A.samplePMF(dist,r);
+		x.setValue(j,k);
+		return k;
+	}
 
-		int L = x.classIndex();
-		//ArrayList<double[]> collection = new ArrayList<double[]>(100);
+	/**
+	 * Chain - a Gibbs chain for one instance, on its own copy of it.
+	 */
+	protected class Chain {
 
-		double y[] = new double[L];		// for collectiing marginal
-		int sequence[] = A.make_sequence(L);
+		/** the instance */
+		protected Instance x;
 
-		double likelihood[] = new double[L];
+		/** the current label values */
+		protected double y[];
 
-		for(int i = 0; i < I; i++) {
-			Collections.shuffle(Arrays.asList(sequence));
-			for(int j : sequence) {
-				// x = [x,y[1],...,y[j-1],y[j+1],...,y[L]]
-				x.setDataset(D_templates[j]);
-				// q = h_j(x)    i.e. p(y_j | x)
-
-				double dist[] = h[j].distributionForInstance(x);
-				int k = A.samplePMF(dist,m_R);
-				x.setValue(j,k);
-				likelihood[j] = dist[k];
-				// likelihood
-				double s = Utils.sum(likelihood);
-				// collect  // and where is is good 
-				if (i > (I - I_c)) {
-					y[j] += x.value(j);
+		/** the random number generator */
+		protected Random r;
+
+		/** the sums of the label values collected */
+		protected double marg[];
+
+		/** the sums (and sums of squares) of the label values in the last run */
+		protected double sum[], sumSq[];
+
+		public Chain(Instance x, int L, Random r) {
+			this.x = (Instance)x.copy();
+			this.r = r;
+			y = new double[L];
+			marg = new double[L];
+			sum = new double[L];
+			sumSq = new double[L];
+		}
+
+		/**
+		 * Run - n sweeps over the labels.
+		 * @param	collect	whether to collect the marginals (else still burning in)
+		 */
+		public void run(int n, boolean collect) throws Exception {
+			int L = y.length;
+			Arrays.fill(sum,0.0);
+			Arrays.fill(sumSq,0.0);
+			for(int i = 0; i < n; i++) {
+				for(int j = 0; j < L; j++) {
+					y[j] = sample(x,y,j,r);
+					sum[j] += y[j];
+					sumSq[j] += y[j] * y[j];
+					if (collect)
+						marg[j] += y[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * RHat - the largest potential scale reduction factor over the labels, of the last n sweeps of the chains.
+	 * @return	R-hat (infinite if some label is constant within each chain, but not across them)
+	 */
+	protected static double rHat(Chain chains[], int n) {
+		int M = chains.length;
+		int L = chains[0].y.length;
+		double max = 1.0;
+		for(int j = 0; j < L; j++) {
+			double mean = 0.0;
+			double W = 0.0;
+			for(Chain c : chains) {
+				double m = c.sum[j] / n;
+				mean += m;
+				W += (c.sumSq[j] - n * m * m) / (n - 1);
+			}
+			mean /= M;
+			W /= M;
+			double B = 0.0;
+			for(Chain c : chains) {
+				double m = c.sum[j] / n;
+				B += (m - mean) * (m - mean);
+			}
+			B = B * n / (M - 1);
+			if (W <= 0.0) {
+				if (B > 0.0)
+					return Double.POSITIVE_INFINITY;
+				continue;
+			}
+			double V = (n - 1.0) / n * W + B / n;
+			max = Math.max(max, Math.sqrt(V / W));
+		}
+		return max;
+	}
+
+	/**
+	 * Run - n sweeps of each chain, in parallel or not.
+	 */
+	protected void run(Chain chains[], final int n, final boolean collect, boolean parallel) throws Exception {
+		if (!parallel) {
+			for(Chain c : chains) {
+				c.run(n,collect);
+			}
+			return;
+		}
+		List<Callable<Object>> jobs = new ArrayList<>(chains.length);
+		for(final Chain c : chains) {
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					c.run(n,collect);
+					return null;
 				}
-				// else still burning in
+			});
+		}
+		ThreadUtils.executeAll(jobs, getExecutor());
+	}
+
+	/**
+	 * Random number generators for the chains of the next instance: m_R itself for a single chain, else seeded from it.
+	 */
+	protected Random[] nextRandoms() {
+		if (m_Chains <= 1)
+			return new Random[]{m_R};
+		Random r[] = new Random[m_Chains];
+		for(int c = 0; c < m_Chains; c++) {
+			r[c] = new Random(m_R.nextLong());
+		}
+		return r;
+	}
+
+	/**
+	 * Gibbs - run the chains for x, and return the marginals.
+	 * @param	x			the instance (not modified)
+	 * @param	r			the random number generator of each chain
+	 * @param	parallel	whether to run the chains in parallel
+	 */
+	protected double[] gibbs(Instance x, Random r[], boolean parallel) throws Exception {
+
+		int L = x.classIndex();
+		int M = r.length;
+		Chain chains[] = new Chain[M];
+		for(int c = 0; c < M; c++) {
+			chains[c] = new Chain(x,L,r[c]);
+		}
+
+		// burn in (checking convergence after each block of as many sweeps as will be collected)
+		int burnIn = Math.min(I, Math.max(0, I - I_c + 1));
+		int block = (M > 1 && m_MaxRHat > 0.0) ? Math.max(2, I - burnIn) : burnIn;
+		for(int i = 0; i < burnIn; ) {
+			int n = Math.min(block, burnIn - i);
+			run(chains,n,false,parallel);
+			i += n;
+			if (i < burnIn && n > 1 && rHat(chains,n) <= m_MaxRHat) {
+				if (getDebug()) System.out.println("Converged after "+i+" iterations");
+				break;
 			}
 		}
+
+		// collect
+		run(chains,I - burnIn,true,parallel);
+
 		// finish, calculate marginals
+		double y[] = new double[L];
 		for(int j = 0; j < L; j++) {
-			y[j] /= I_c;
+			for(Chain c : chains) {
+				y[j] += c.marg[j];
+			}
+			y[j] /= (I_c * M);
 		}
 
 		return y;
 	}
 
+	@Override
+	public double[] distributionForInstance(Instance x) throws Exception {
+		return gibbs(x,nextRandoms(),m_Chains > 1 && isMultiThreaded());
+	}
+
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return m_Chains > 1 && isMultiThreaded() && usesDistributionForInstanceOf(CDN.class);
+	}
+
+	/**
+	 * Predicts a batch of instances in parallel (each running its chains sequentially).
+	 * The random number generators are drawn in the order of the instances, so the result is the same as predicting them one by one.
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		List<Callable<double[]>> jobs = new ArrayList<>(D.numInstances());
+		for(int i = 0; i < D.numInstances(); i++) {
+			final Instance x = D.instance(i);
+			final Random r[] = nextRandoms();
+			jobs.add(new Callable<double[]>() {
+				public double[] call() throws Exception {
+					return gibbs(x,r,false);
+				}
+			});
+		}
+		return ThreadUtils.executeAll(jobs, getExecutor()).toArray(new double[0][]);
+	}
+
+	/**
+	 * Returns whether to run the chains (and the instances of a batch) in parallel.
+	 *
+	 * @return		true if multi-threaded
+	 */
+	protected boolean isMultiThreaded() {
+		return ThreadUtils.isMultiThreaded(m_NumThreads);
+	}
+
+	/**
+	 * Returns the executor for sampling in parallel (creating it if necessary).
+	 *
+	 * @return		the executor
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if (m_Executor == null)
+			m_Executor = ThreadUtils.newExecutor(ThreadUtils.getActualNumThreads(m_NumThreads, ThreadUtils.getAvailableProcessors()));
+		return m_Executor;
+	}
+
 	protected int m_S = 0;
 
 	@Override
@@ -181,11 +401,83 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		return "The number of collection iterations.";
 	}
 
+	/**
+	 * GetChains - Get the number of chains.
+	 */
+	public int getChains() {
+		return m_Chains;
+	}
+
+	/**
+	 * SetChains - Sets the number of chains (at least 1).
+	 */
+	public void setChains(int c) {
+		if (c >= 1)
+			m_Chains = c;
+		else
+			System.err.println("Number of chains must be >= 1, provided: " + c);
+	}
+
+	public String chainsTipText() {
+		return "The number of independent Gibbs chains (the marginals are averaged over them).";
+	}
+
+	/**
+	 * GetMaxRHat - Get the R-hat at which burn-in stops.
+	 */
+	public double getMaxRHat() {
+		return m_MaxRHat;
+	}
+
+	/**
+	 * SetMaxRHat - Sets the R-hat at which burn-in stops (0 = never stop early).
+	 */
+	public void setMaxRHat(double r) {
+		if (r >= 0.0)
+			m_MaxRHat = r;
+		else
+			System.err.println("Maximum R-hat must be >= 0, provided: " + r);
+	}
+
+	public String maxRHatTipText() {
+		return "Stop burning in as soon as the R-hat of every label across the chains is at most this value (e.g., 1.1), checked every I_c iterations; needs at least 2 chains; 0 = never stop early.";
+	}
+
+	/**
+	 * Sets the number of threads to use.
+	 *
+	 * @param value	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public synchronized void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value)) {
+			m_NumThreads = value;
+			m_Executor = null;
+		}
+	}
+
+	/**
+	 * Returns the number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads to use for running the chains (or, for a batch, the instances) in parallel, if there are several chains; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\t"+iTipText()+"\n\tdefault: 1000", "I", 1, "-I <value>"));
 		result.addElement(new Option("\t"+icTipText()+"\n\tdefault: 100", "Ic", 1, "-Ic <value>"));
+		OptionUtils.addOption(result, chainsTipText(), "1", "chains");
+		OptionUtils.addOption(result, maxRHatTipText(), "0.0", "max-rhat");
+		OptionUtils.addOption(result, numThreadsTipText(), "" + ThreadUtils.SEQUENTIAL, "num-threads");
 		result.addElement(new Option("\t"+seedTipText(), "S", 1, "-S <value>"));
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
@@ -195,6 +487,9 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 	public void setOptions(String[] options) throws Exception {
 		setI(OptionUtils.parse(options, 'I', 1000));
 		setIc(OptionUtils.parse(options, "Ic", 100));
+		setChains(OptionUtils.parse(options, "chains", 1));
+		setMaxRHat(OptionUtils.parse(options, "max-rhat", 0.0));
+		setNumThreads(OptionUtils.parse(options, "num-threads", ThreadUtils.SEQUENTIAL));
 		setSeed(OptionUtils.parse(options, 'S', 0));
 		super.setOptions(options);
 	}
@@ -204,6 +499,9 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		List<String> result = new ArrayList<>();
 		OptionUtils.add(result, 'I', getI());
 		OptionUtils.add(result, "Ic", getIc());
+		OptionUtils.add(result, "chains", getChains());
+		OptionUtils.add(result, "max-rhat", getMaxRHat());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		OptionUtils.add(result, 'S', getSeed());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
@@ -20,6 +20,7 @@ import meka.classifiers.multilabel.cc.Trellis;
 import meka.core.A;
 import meka.core.OptionUtils;
 import meka.core.StatUtils;
+import meka.core.ThreadUtils;
 import weka.core.*;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
@@ -75,7 +76,7 @@ public class CDT extends CDN {
 
 		/* Rearrange the Trellis */
 		if (!m_DependencyMetric.equals("None"))
-			trel = CT.orderTrellis(trel,StatUtils.margDepMatrix(D,m_DependencyMetric),m_R);
+			trel = CT.orderTrellis(trel,StatUtils.margDepMatrix(D,m_DependencyMetric,ThreadUtils.isMultiThreaded(m_NumThreads) ? getExecutor() : null),m_R);
 
 		/*
 		 * Build Trellis
@@ -97,35 +98,12 @@ public class CDT extends CDN {
 
 	}
 
+	/**
+	 * Sample - the Gibbs step for label j, given the values y of its neighbours in the trellis (the state of the chain is kept in y).
+	 */
 	@Override
-	public double[] distributionForInstance(Instance x) throws Exception {
-
-		int L = x.classIndex();
-		double y[] = new double[L];			// for sampling
-		double y_marg[] = new double[L];	// for collectiing marginal
-
-		int sequence[] = A.make_sequence(L);
-
-		double likelihood[] = new double[L];
-
-		for(int i = 0; i < I; i++) {
-			Collections.shuffle(Arrays.asList(sequence));
-			for(int j : sequence) {
-				// sample
-				y[j] = nodes[j].sample(x,y,m_R);
-				// collect marginals
-				if (i > (I - I_c)) {
-					y_marg[j] += y[j];
-				}
-				// else still burning in
-			}
-		}
-		// finish, calculate marginals
-		for(int j = 0; j < L; j++) {
-			y_marg[j] /= I_c;
-		}
-
-		return y_marg;
+	protected double sample(Instance x, double y[], int j, Random r) throws Exception {
+		return nodes[j].sample(x,y,r);
 	}
 
 	/* NOTE: these options in common with CT */
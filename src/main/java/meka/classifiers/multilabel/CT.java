@@ -6,6 +6,7 @@ import meka.core.OptionUtils;
 import weka.core.*;
 import meka.core.A;
 import meka.core.StatUtils;
+import meka.core.ThreadUtils;
 import weka.core.TechnicalInformation;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
@@ -75,7 +76,7 @@ public class CT extends MCC implements TechnicalInformationHandler {
 		 * If specified, try and reorder the nodes in the trellis (i.e., get a superior structure)
 		 */
 		if (m_Is > 0) {
-			double I[][] =  StatUtils.margDepMatrix(D,m_DependencyMetric);
+			double I[][] =  StatUtils.margDepMatrix(D,m_DependencyMetric,ThreadUtils.isMultiThreaded(m_NumThreads) ? getExecutor() : null);
 
 			/*
 			 * Get dependency Matrix
@@ -65,6 +65,9 @@ public class DBPNN extends AbstractDeepNeuralNet implements TechnicalInformation
 		dbm = new DBM(ops);
 		dbm.setE(m_E);
 		((DBM)dbm).setH(m_H, m_N);
+		dbm.setExecutor(getExecutor());
+		dbm.setShuffle(m_Shuffle);
+		dbm.setPersistent(m_Persistent);
 
 		long before = System.currentTimeMillis();
 		dbm.train(X_,m_H); // batch train
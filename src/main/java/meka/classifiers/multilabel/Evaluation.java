@@ -17,9 +17,12 @@ package meka.classifiers.multilabel;
 
 import meka.classifiers.MultiXClassifier;
 import meka.classifiers.multitarget.MultiTargetClassifier;
+import meka.core.Folds;
 import meka.core.MLEvalUtils;
 import meka.core.MLUtils;
 import meka.core.Result;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -273,7 +276,7 @@ public class Evaluation {
 						if (top.startsWith("PCut")) {
 							// if PCut is specified we need the training data,
 							// so that we can calibrate the threshold!
-							t = MLEvalUtils.getThreshold(r.predictions, D_train, top);
+							t = MLEvalUtils.getThreshold(r, D_train, top, getNumThreads(h));
 						}
 						r = evaluateModel(h, D_test, t, voption);
 					}
@@ -400,13 +403,26 @@ public class Evaluation {
 		}
 		else if (h instanceof MultiLabelClassifier) {
 			r.setInfo("Type","ML");
-			r.setInfo("Threshold",MLEvalUtils.getThreshold(r.predictions,D_train,top)); // <-- only relevant to ML (for now), but we'll put it in here in any case
+			r.setInfo("Threshold",MLEvalUtils.getThreshold(r,D_train,top,getNumThreads(h))); // <-- only relevant to ML (for now), but we'll put it in here in any case
 		}
 		r.setInfo("Verbosity",vop);
-		r.output = Result.getStats(r, vop);
+		r.output = Result.getStats(r, vop, getNumThreads(h));
 		return r;
 	}
 
+	/**
+	 * GetNumThreads - the number of threads to calibrate the thresholds and gather the statistics of an evaluation of h with:
+	 * that of h, if it is a ThreadLimiter, otherwise sequential execution.
+	 * @param	h	the classifier evaluated
+	 * @return	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public static int getNumThreads(Object h) {
+		if (h instanceof ThreadLimiter)
+			return ((ThreadLimiter)h).getNumThreads();
+		else
+			return ThreadUtils.SEQUENTIAL;
+	}
+
 	/**
 	 * EvaluateModel - Assume 'h' is already built, test it on 'D_test', threshold it according to 'top', verbosity 'vop'.
 	 * @param	h		a multi-dim. classifier
@@ -425,7 +441,7 @@ public class Evaluation {
 		}
 		r.setInfo("Threshold",tal);
 		r.setInfo("Verbosity",vop);
-		r.output = Result.getStats(r, vop);
+		r.output = Result.getStats(r, vop, getNumThreads(h));
 		return r;
 	}
 
@@ -465,10 +481,25 @@ public class Evaluation {
 	 * @return	Result	raw prediction data with evaluation statistics included.
 	 */
 	public static Result cvModel(MultiLabelClassifier h, Instances D, int numFolds, String top, String vop, Map<Integer,Object[]> perFold) throws Exception {
+		return cvModel(h, D, new Folds(D.numInstances(), numFolds), top, vop, perFold);
+	}
+
+	/**
+	 * CVModel - Train and evaluate on each of the given folds of D (the train/test sets of a fold are built only when it is evaluated).
+	 * @param	h		 a multi-output classifier
+	 * @param	D      	 test data Instances
+	 * @param	folds	 the folds (of D), e.g., Folds.stratified(D,10,r)
+	 * @param	top    	 Threshold OPtion (pertains to multi-label data only)
+	 * @param	vop    	Verbosity OPtion (which measures do we want to calculate/output)
+	 * @param   perFold  the per fold data (0: train Instances, 1: test Instances, 2: Results), ignored if null
+	 * @return	Result	raw prediction data with evaluation statistics included.
+	 */
+	public static Result cvModel(MultiLabelClassifier h, Instances D, Folds folds, String top, String vop, Map<Integer,Object[]> perFold) throws Exception {
+		int numFolds = folds.numFolds();
 		Result r_[] = new Result[numFolds];
 		for(int i = 0; i < numFolds; i++) {
-			Instances D_train = D.trainCV(numFolds,i);
-			Instances D_test = D.testCV(numFolds,i);
+			Instances D_train = folds.train(D,i);
+			Instances D_test = folds.test(D,i);
 			if (h.getDebug()) System.out.println(":- Fold ["+i+"/"+numFolds+"] -: "+MLUtils.getDatasetName(D)+"\tL="+D.classIndex()+"\tD(t:T)=("+D_train.numInstances()+":"+D_test.numInstances()+")\tLC(t:T)="+Utils.roundDouble(MLUtils.labelCardinality(D_train,D.classIndex()),2)+":"+Utils.roundDouble(MLUtils.labelCardinality(D_test,D.classIndex()),2)+")");
 			r_[i] = evaluateModel(h, D_train, D_test); // <-- should not run stats yet!
 			if (perFold != null)
@@ -488,7 +519,7 @@ public class Evaluation {
 			}
 		}
 		r.setInfo("Verbosity",vop);
-		r.output = Result.getStats(r, vop);
+		r.output = Result.getStats(r, vop, getNumThreads(h));
 		// Need to reset this because of CV
 		r.setValue("Number of training instances",D.numInstances());
 		r.setValue("Number of test instances",D.numInstances());
@@ -586,9 +617,10 @@ public class Evaluation {
 		else if (h instanceof MultiLabelClassifier) {
 			result.setInfo("Type","ML");
 		}
-		result.setInfo("Threshold",MLEvalUtils.getThreshold(result.predictions,D_train,top)); // <-- only relevant to ML (for now), but we'll put it in here in any case
+		result.setInfo("Threshold",MLEvalUtils.getThreshold(result,D_train,top,ThreadUtils.ALL)); // <-- only relevant to ML (for now), but we'll put it in here in any case
 		result.setInfo("Verbosity",vop);
-		result.output = Result.getStats(result, vop);
+		// (threaded evaluation: the thresholds are calibrated, and the statistics gathered, in parallel, too)
+		result.output = Result.getStats(result, vop, ThreadUtils.ALL);
 		return result;
 	}
 
@@ -604,23 +636,63 @@ public class Evaluation {
 		Result result = new Result(D_test.numInstances(),L);
 
 		if(h.getDebug()) System.out.print(":- Evaluate ");
-		for (int i = 0, c = 0; i < D_test.numInstances(); i++) {
+		if (h.implementsMoreEfficientBatchPrediction()) {
+			// predict in batches of (at most) the classifier's batch size
+			int N = D_test.numInstances();
+			int n = N;
+			try {
+				n = Integer.parseInt(h.getBatchSize());
+			}
+			catch (Exception e) {
+				// use a single batch
+			}
+			if (n <= 0)
+				n = N;
+			for (int start = 0, c = 0; start < N; start += n) {
+
+				if(h.getDebug()) { int t = start*50/N; if(t > c) { System.out.print("#"); c = t; } }
+
+				// No cheating allowed; clear all class information
+				Instances B = new Instances(D_test, Math.min(n, N - start));
+				for (int i = start; i < start + n && i < N; i++) {
+					B.add(D_test.instance(i));
+					Instance x = B.lastInstance();
+					for(int v = 0; v < L; v++)
+						x.setValue(v,0.0);
+				}
 
-			if(h.getDebug()) { int t = i*50/D_test.numInstances(); if(t > c) { System.out.print("#"); c = t; } }
+				// Get and store rankings
+				double Y[][] = h.distributionsForInstances(B);
+				for (int i = 0; i < Y.length; i++) {
+					double y[] = Y[i];
+					// Cut off any [no-longer-needed] probabalistic information from MT classifiers.
+					if (h instanceof MultiTargetClassifier)
+						y = Arrays.copyOfRange(y, L, L*2);
 
-			// No cheating allowed; clear all class information
-			Instance x = (Instance)(D_test.instance(i)).copy();
-			for(int v = 0; v < D_test.classIndex(); v++)
-				x.setValue(v,0.0);
+					// Store the result
+					result.addResult(y,D_test.instance(start + i));
+				}
+			}
+		}
+		else {
+			for (int i = 0, c = 0; i < D_test.numInstances(); i++) {
+
+				if(h.getDebug()) { int t = i*50/D_test.numInstances(); if(t > c) { System.out.print("#"); c = t; } }
 
-			// Get and store ranking
-			double y[] = h.distributionForInstance(x);
-			// Cut off any [no-longer-needed] probabalistic information from MT classifiers.
-			if (h instanceof MultiTargetClassifier)
-                            y = Arrays.copyOfRange(y, L, L*2);
+				// No cheating allowed; clear all class information
+				Instance x = (Instance)(D_test.instance(i)).copy();
+				for(int v = 0; v < D_test.classIndex(); v++)
+					x.setValue(v,0.0);
 
-			// Store the result
-			result.addResult(y,D_test.instance(i));
+				// Get and store ranking
+				double y[] = h.distributionForInstance(x);
+				// Cut off any [no-longer-needed] probabalistic information from MT classifiers.
+				if (h instanceof MultiTargetClassifier)
+					y = Arrays.copyOfRange(y, L, L*2);
+
+				// Store the result
+				result.addResult(y,D_test.instance(i));
+			}
 		}
 		if(h.getDebug()) System.out.println(":-");
 
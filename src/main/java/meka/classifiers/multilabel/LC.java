@@ -18,12 +18,15 @@ package meka.classifiers.multilabel;
 import java.util.HashMap;
 import java.util.Map;
 
+import weka.core.BatchPredictor;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Drawable;
 import weka.core.OptionHandler;
 import weka.core.RevisionUtils;
+import weka.core.Utils;
 
+import meka.core.LabelSet;
 import meka.core.MultiLabelDrawable;
 import meka.core.PSUtils;
 
@@ -40,6 +43,12 @@ public class LC extends ProblemTransformationMethod implements OptionHandler, Mu
 	/** for serialization. */
 	private static final long serialVersionUID = -2726090581435923988L;
 
+	/** the labelset of each class value of the template (decoded once, rather than on every prediction) */
+	protected transient LabelSet m_LabelSets[] = null;
+
+	/** the template that m_LabelSets was decoded from */
+	protected transient Instances m_LabelSetsTemplate = null;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -87,7 +96,64 @@ public class LC extends ProblemTransformationMethod implements OptionHandler, Mu
 
 		y[(int)m_Classifier.classifyInstance(x_)] = 1.0;
 
-		return PSUtils.convertDistribution(y,L,m_InstancesTemplate);
+		return PSUtils.recombination(y,L,labelSets());
+	}
+
+	/**
+	 * LabelSets - the labelset of each class value of the current template (decoded on first use after training).
+	 */
+	protected synchronized LabelSet[] labelSets() {
+		Instances T = m_InstancesTemplate;
+		if (m_LabelSetsTemplate != T) {
+			m_LabelSets = PSUtils.makeLabelSetMap(T);
+			m_LabelSetsTemplate = T;
+		}
+		return m_LabelSets;
+	}
+
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return usesDistributionForInstanceOf(LC.class);
+	}
+
+	/**
+	 * Predicts a batch of instances: the batch is converted once, and predicted in one go if the base classifier
+	 * implements batch prediction (taking the argmax of its distribution), else instance by instance.
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		int L = D.classIndex();
+		int N = D.numInstances();
+		double Y[][] = new double[N][];
+
+		//if there is only one class (as for e.g. in some hier. mtds) predict it
+		if(L == 1) {
+			for (int i = 0; i < N; i++)
+				Y[i] = new double[]{1.0};
+			return Y;
+		}
+
+		Instances D_ = PSUtils.convertInstances(D,L,m_InstancesTemplate);
+
+		boolean batch = (m_Classifier instanceof BatchPredictor) && ((BatchPredictor)m_Classifier).implementsMoreEfficientBatchPrediction();
+		double P[][] = batch ? ((BatchPredictor)m_Classifier).distributionsForInstances(D_) : null;
+		LabelSet labelSets[] = labelSets();
+
+		for (int i = 0; i < N; i++) {
+			//Get a classification
+			double y[] = new double[D_.numClasses()];
+			if (batch)
+				y[Utils.maxIndex(P[i])] = 1.0;
+			else
+				y[(int)m_Classifier.classifyInstance(D_.instance(i))] = 1.0;
+			Y[i] = PSUtils.recombination(y,L,labelSets);
+		}
+
+		return Y;
 	}
 
 	/**
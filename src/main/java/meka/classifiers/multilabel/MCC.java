@@ -15,10 +15,14 @@
 
 package meka.classifiers.multilabel;
 
+import meka.classifiers.multilabel.cc.CNode;
+import meka.classifiers.multilabel.cc.ChainSearch.Path;
 import weka.core.TechnicalInformation.*;
 import weka.core.*;
 import meka.core.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * MCC.java - CC with Monte Carlo optimisation. 
@@ -30,19 +34,31 @@ import java.util.*;
  * There we used a faster implementation, full of ugly hacks, but it got broken when I updated CC.java.<br>
  * This version extends CC, and thus is a bit cleaner, but for some reason inference is quite slower than expected with high m_Iy.
  *
+ * With more than one thread, the candidate chains (at train time) are built and rated in parallel, in batches;
+ * the candidates are still accepted in the order they were proposed, so the resulting chain is the same as with one thread.
+ * The samples (at test time) are split into independent streams, each with its own random number generator (seeded from the
+ * main one), so the result is reproducible for a given number of threads.
+ * Within a stream, the distribution of each node is computed only once per chain prefix already sampled.
+ * <br>
  * TODO Option for hold-out set, instead of training and testing on training data (internally).
  *
  * @see meka.classifiers.multilabel.CC
  * @author Jesse Read
  * @version	March 2015
  */
-public class MCC extends CC implements TechnicalInformationHandler, MultiTargetCapable {
+public class MCC extends CC implements TechnicalInformationHandler, MultiTargetCapable, ThreadLimiter {
 
 	private static final long serialVersionUID = 5085402586815030939L;
 	protected int m_Is = 0;
 	protected int m_Iy = 10;
 	protected String m_Payoff = "Exact match";
 
+	/** the number of threads to use */
+	protected int m_NumThreads = ThreadUtils.SEQUENTIAL;
+
+	/** the executor for sampling in parallel */
+	protected transient ExecutorService m_Executor = null;
+
 	/**
 	 * Payoff - Return a default score of h evaluated on D.
 	 * @param	h	a classifier
@@ -85,26 +101,29 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 			double w = payoff(h,new Instances(D));
 			if (getDebug()) System.out.println("h_{t="+0+"} := "+Arrays.toString(s)); //+"; w = "+w);
 
+			// the swaps do not depend on the chain, so they can be drawn in advance
+			int swaps[][] = new int[m_Is][];
 			for(int t = 0; t < m_Is; t++) {
+				swaps[t] = drawSwap(L,m_R);
+			}
 
-				// propose a chain s' by swapping two elements in s
-				int s_[] = Arrays.copyOf(A.swap(s,m_R),s.length);
-
-				// build h'
-				CC h_ = CCUtils.buildCC(s_,D,m_Classifier);
-
-				// rate h'
-				double w_ = payoff(h_,new Instances(D));
-
-				// accept h' over h ? 
-				if (w_ > w) {
-					w = w_;
-					s = s_;
-					h = h_;
-					if (getDebug()) System.out.println("h_{t="+(t+1)+"} := "+Arrays.toString(s)); //+"; w = "+w);
-					//if (getDebug()) System.out.print("& "+Utils.doubleToString(likelihood(h_,new Instances(D),1),8,2));
-					//if (getDebug()) System.out.print("& "+Utils.doubleToString(likelihood(h_,new Instances(D),2),8,2));
-					//if (getDebug()) System.out.println("& "+Utils.doubleToString(likelihood(h_,new Instances(D),5),8,2));
+			int numThreads = getActualNumThreads(m_Is);
+			int t = 0;
+			while (t < m_Is) {
+
+				// propose chains s' by swapping two elements in s, build h' and rate it (as many as threads)
+				List<Candidate> candidates = rateCandidates(s,swaps,t,Math.min(numThreads,m_Is-t),D);
+
+				// accept h' over h ? (in order; the candidates after an accepted one were proposed from the old s)
+				for(Candidate c : candidates) {
+					t++;
+					if (c.w > w) {
+						w = c.w;
+						s = c.s;
+						h = c.h;
+						if (getDebug()) System.out.println("h_{t="+t+"} := "+Arrays.toString(s)); //+"; w = "+w);
+						break;
+					}
 				}
 			}
 		}
@@ -114,6 +133,143 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		super.buildClassifier(D);
 	}
 
+	/**
+	 * DrawSwap - draw two (different) positions to swap in a chain of length L, as A.swap(int[], Random) would.
+	 * @return	the positions, or an empty array if L is 1
+	 */
+	protected static int[] drawSwap(int L, Random r) {
+		if (L == 1)
+			return new int[0];
+		int a = r.nextInt(L);
+		int b = r.nextInt(L-1);
+		return new int[]{a, (a==b) ? L-1 : b};
+	}
+
+	/**
+	 * Candidate - a chain s, the classifier h built on it, and its payoff w.
+	 */
+	protected static class Candidate {
+		int s[];
+		CC h;
+		double w;
+	}
+
+	/**
+	 * RateCandidates - build and rate the n candidate chains s with swaps[t], ..., swaps[t+n-1] applied (each on its own).
+	 * @return	the candidates, in order
+	 */
+	protected List<Candidate> rateCandidates(int s[], int swaps[][], int t, int n, final Instances D) throws Exception {
+		List<Callable<Candidate>> jobs = new ArrayList<>(n);
+		for(int i = 0; i < n; i++) {
+			final int s_[] = Arrays.copyOf(s,s.length);
+			if (swaps[t+i].length > 0)
+				A.swap(s_,swaps[t+i][0],swaps[t+i][1]);
+			jobs.add(new Callable<Candidate>() {
+				public Candidate call() throws Exception {
+					Candidate c = new Candidate();
+					c.s = s_;
+					// build h'
+					c.h = CCUtils.buildCC(s_,D,m_Classifier);
+					// rate h'
+					c.w = payoff(c.h,new Instances(D));
+					return c;
+				}
+			});
+		}
+		if (n == 1)
+			return ThreadUtils.executeAll(jobs, ThreadUtils.SEQUENTIAL);
+		return ThreadUtils.executeAll(jobs, getExecutor());
+	}
+
+	/**
+	 * Sampler - draws label vectors y ~ p(y|x) from the chain, with its own (pre-transformed) templates for x.
+	 * The distribution of each node is kept for each chain prefix sampled so far, so that it is computed only once
+	 * per prefix (samples tend to share their first labels, and are often repeated entirely).
+	 * The samples (and the random numbers consumed) are the same as with CC#sampleForInstanceFast(Instance[], Random).
+	 */
+	protected static class Sampler {
+
+		/** the nodes, indexed by label */
+		protected CNode nodes[];
+
+		/** the chain */
+		protected int chain[];
+
+		/** the templates, see CC#getTransformTemplates(Instance) */
+		protected Instance t_[];
+
+		/** the root of the prefix tree */
+		protected Prefix root = new Prefix();
+
+		/** the number of node evaluations */
+		protected long evaluations = 0;
+
+		public Sampler(CNode nodes[], int chain[], Instance t_[]) {
+			this.nodes = nodes;
+			this.chain = chain;
+			this.t_ = t_;
+		}
+
+		/**
+		 * Sample - draw y, and store p(y_j|x,y_pa(j)) in p[j].
+		 */
+		public double[] sample(Random r, double p[]) throws Exception {
+			int L = t_.length;
+			double y[] = new double[L];
+			Prefix q = root;
+			for(int j : chain) {
+				if (q.d == null) {
+					nodes[j].updateTransform(t_[j],y); 				// set the parents sampled so far
+					q.d = nodes[j].distributionT(t_[j]);			// e.g., [0.4, 0.6]
+					q.next = new Prefix[q.d.length];
+					evaluations++;
+				}
+				int k = A.samplePMF(q.d,r);							// e.g., 0
+				y[j] = k;
+				p[j] = q.d[k];										// e.g., 0.4
+				if (q.next[k] == null)
+					q.next[k] = new Prefix();
+				q = q.next[k];
+			}
+			return y;
+		}
+	}
+
+	/**
+	 * Prefix - a node of the prefix tree of a Sampler: the distribution of the next node in the chain, and the prefixes that extend it.
+	 */
+	protected static class Prefix {
+		double d[] = null;
+		Prefix next[] = null;
+	}
+
+	/**
+	 * Sample - draw n samples for x, and return the first with the highest p(y|x), if it is higher than w.
+	 * @return	the path of that sample, or null if none is higher than w
+	 */
+	protected Path sample(Instance x, int n, Random r, double w) throws Exception {
+		int L = x.classIndex();
+		Sampler sampler = new Sampler(nodes,m_Chain,this.getTransformTemplates(x));
+		double p_[] = new double[L];
+		Path best = null;
+		for(int t = 0; t < n; t++) {
+			double y_[] = sampler.sample(r,p_); 					// propose y' by sampling i.i.d.
+			double w_  = A.product(p_); 							// rate y' as w'  --- TODO allow for command-line option
+			if (w_ > w) { 											// accept ?
+				if (getDebug()) System.out.println("y' = "+Arrays.toString(y_)+", :"+w_);
+				w = w_;
+				if (best == null)
+					best = new Path(L);
+				System.arraycopy(y_,0,best.y,0,L);
+				System.arraycopy(p_,0,best.p,0,L);
+				best.w = w_;
+			}
+		}
+		if (best != null)
+			best.evaluations = sampler.evaluations;
+		return best;
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
 
@@ -123,26 +279,35 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 
 		// T > 0
 		if (m_Iy > 0) {
-			//double yT[] = CCUtils.RandomSearchaa(this,x,m_Iy,m_R,y0);
 
 			double w  = A.product(this.probabilityForInstance(x,y));	// p(y|x)
 
-			Instance t_[] = this.getTransformTemplates(x);
-
-			//System.out.println("----");
-			//System.out.println("p0("+Arrays.toString(y)+") = "+Arrays.toString(h.getConfidences())+", w="+w);
-			for(int t = 0; t < m_Iy; t++) {
-				double y_[] = this.sampleForInstanceFast(t_,m_R); 	    // propose y' by sampling i.i.d.
-				//double y_[] = this.sampleForInstance(x,m_R); 	    // propose y' by sampling i.i.d.
-				//double p_[] = h.getConfidences();                   //
-				double w_  = A.product(this.getConfidences()); 		// rate y' as w'  --- TODO allow for command-line option
-				//System.out.println("p("+Arrays.toString(y_)+") = "+Arrays.toString(p_)+", w="+w_);
-				if (w_ > w) { 										// accept ? 
-					if (getDebug()) System.out.println("y' = "+Arrays.toString(y_)+", :"+w_);
-					w = w_;
-					//y = y_;
-					y = Arrays.copyOf(y_,y_.length);
-					//System.out.println("* ACCEPT *");
+			int numThreads = getActualNumThreads(m_Iy);
+			if (numThreads == ThreadUtils.SEQUENTIAL) {
+				Path best = sample(x,m_Iy,m_R,w);
+				if (best != null)
+					y = best.y;
+				return y;
+			}
+
+			// split the samples into streams, each with its own random number generator (and templates)
+			List<Callable<Path>> jobs = new ArrayList<>(numThreads);
+			for(int i = 0; i < numThreads; i++) {
+				final int n = m_Iy / numThreads + ((i < m_Iy % numThreads) ? 1 : 0);
+				final Random r = new Random(m_R.nextLong());
+				final Instance x_ = (Instance)x.copy();
+				final double w0 = w;
+				jobs.add(new Callable<Path>() {
+					public Path call() throws Exception {
+						return sample(x_,n,r,w0);
+					}
+				});
+			}
+			// the best over all streams (the earliest, among equals)
+			for(Path best : ThreadUtils.executeAll(jobs, getExecutor())) {
+				if (best != null && best.w > w) {
+					w = best.w;
+					y = best.y;
 				}
 			}
 		}
@@ -150,12 +315,34 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		return y;
 	}
 
+	/**
+	 * Returns the number of candidate chains to rate, or of sample streams to draw, at the same time.
+	 *
+	 * @param max	the number of candidates/samples
+	 * @return		the number of threads (at most max), 1 = sequentially
+	 */
+	protected int getActualNumThreads(int max) {
+		return ThreadUtils.getActualNumThreads(m_NumThreads, max);
+	}
+
+	/**
+	 * Returns the executor for building/sampling in parallel (creating it if necessary).
+	 *
+	 * @return		the executor
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if (m_Executor == null)
+			m_Executor = ThreadUtils.newExecutor(ThreadUtils.getActualNumThreads(m_NumThreads, ThreadUtils.getAvailableProcessors()));
+		return m_Executor;
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\t"+chainIterationsTipText()+"\n\tdefault: 0", "Is", 1, "-Is <value>"));
 		result.addElement(new Option("\t"+inferenceIterationsTipText()+"\n\tdefault: 10", "Iy", 1, "-Iy <value>"));
 		result.addElement(new Option("\t"+payoffTipText()+"\n\tdefault: Exact match", "P", 1, "-P <value>"));
+		OptionUtils.addOption(result, numThreadsTipText(), "" + ThreadUtils.SEQUENTIAL, "num-threads");
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -165,6 +352,7 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		setChainIterations(OptionUtils.parse(options, "Is", 0));
 		setInferenceIterations(OptionUtils.parse(options, "Iy", 10));
 		setPayoff(OptionUtils.parse(options, 'P', "Exact match"));
+		setNumThreads(OptionUtils.parse(options, "num-threads", ThreadUtils.SEQUENTIAL));
 		super.setOptions(options);
 	}
 
@@ -174,6 +362,7 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		OptionUtils.add(result, "Is", getChainIterations());
 		OptionUtils.add(result, "Iy", getInferenceIterations());
 		OptionUtils.add(result, 'P', getPayoff());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
@@ -220,6 +409,33 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		return "Sets the payoff function. Any of those listed in regular evaluation output will do (e.g., 'Exact match').";
 	}
 
+	/**
+	 * Sets the number of threads to use.
+	 *
+	 * @param value	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public synchronized void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value)) {
+			m_NumThreads = value;
+			m_Executor = null;
+		}
+	}
+
+	/**
+	 * Returns the number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads to use for building and rating the candidate chains, and for sampling; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	@Override
 	public String globalInfo() {
 		return "Classifier Chains with Monte Carlo optimization. " + "For more information see:\n" + getTechnicalInformation().toString();
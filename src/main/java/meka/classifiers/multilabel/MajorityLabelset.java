@@ -15,11 +15,16 @@
 
 package meka.classifiers.multilabel;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
 
 import weka.core.Instance;
 import weka.core.Instances;
-import meka.core.MLUtils;
+import meka.core.LabelSet;
+import meka.core.LabelSetCounter;
+import meka.core.OptionUtils;
 import meka.classifiers.multitarget.MultiTargetClassifier;
 import weka.core.RevisionUtils;
 
@@ -36,10 +41,13 @@ public class MajorityLabelset extends AbstractMultiLabelClassifier implements Mu
 	private static final long serialVersionUID = -5932291001079843869L;
 	
 	protected double prediction[] = null;
-	protected HashMap<String,Double> classFreqs = new HashMap<String,Double>();
+	protected LabelSetCounter classFreqs = new LabelSetCounter();
 
 	protected double maxValue = 0.0;
 
+	/** the maximum number of label combinations to count (0 = all) */
+	protected int m_Capacity = 0;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -51,26 +59,81 @@ public class MajorityLabelset extends AbstractMultiLabelClassifier implements Mu
 	}
 
 	protected void updateCount(Instance x, int L) {
-		String y = MLUtils.toBitString(x,L);
+		LabelSet y = LabelSetCounter.encode(x,L);
 
-		if (classFreqs.containsKey(y)) {
-			double freq = classFreqs.get(y)+x.weight();
-			classFreqs.put(y, freq);
+		if (classFreqs.contains(y)) {
+			double freq = classFreqs.add(y, x.weight());
 			if (maxValue < freq) {
 				maxValue = freq;
-				this.prediction = MLUtils.fromBitString(y);
+				this.prediction = LabelSetCounter.decode(y,L);
 			}
 		} else {
-			classFreqs.put(y, x.weight());
+			classFreqs.add(y, x.weight());
 		}
 	}
 
+	/**
+	 * Returns the maximum number of label combinations to keep counts of.
+	 *
+	 * @return 		the capacity, 0 = all of them
+	 */
+	public int getCapacity() {
+		return m_Capacity;
+	}
+
+	/**
+	 * Sets the maximum number of label combinations to keep counts of (with the Space-Saving algorithm, see
+	 * LabelSetCounter). A negative capacity is reported on stderr and ignored.
+	 *
+	 * @param capacity 	the capacity, 0 = all of them (exact counts)
+	 */
+	public void setCapacity(int capacity) {
+		if (capacity >= 0)
+			m_Capacity = capacity;
+		else
+			System.err.println("Capacity must be >= 0, provided: " + capacity);
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return 		tip text for this property suitable for
+	 * 			displaying in the GUI or for listing the options.
+	 */
+	public String capacityTipText() {
+		return "The maximum number of label combinations to keep counts of (the least frequent is replaced by a new one, and its count taken as an overestimate); 0 to count all of them exactly.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		OptionUtils.addOption(result, capacityTipText(), "0", "capacity");
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setCapacity(OptionUtils.parse(options, "capacity", 0));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		OptionUtils.add(result, "capacity", getCapacity());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
 	@Override
 	public void buildClassifier(Instances D) throws Exception {
 		testCapabilities(D);
 	  	
 		int L = D.classIndex();
 		this.prediction = new double[L];
+		this.classFreqs = new LabelSetCounter(m_Capacity);
+		this.maxValue = 0.0;
 
 		for(int i = 0; i < D.numInstances(); i++) {
 			updateCount(D.instance(i),L);
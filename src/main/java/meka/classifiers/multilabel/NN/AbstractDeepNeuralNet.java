@@ -17,6 +17,7 @@ package meka.classifiers.multilabel.NN;
 
 import meka.core.OptionUtils;
 import weka.core.Option;
+import weka.core.Utils;
 
 import java.util.*;
 
@@ -31,6 +32,12 @@ public abstract class AbstractDeepNeuralNet extends AbstractNeuralNet  {
 
 	protected int m_N = 2;
 
+	/** draw the RBMs' batches afresh at each epoch */
+	protected boolean m_Shuffle = false;
+
+	/** train the RBMs with persistent contrastive divergence */
+	protected boolean m_Persistent = false;
+
 	public int getN() { 
 		return m_N;
 	}
@@ -43,10 +50,36 @@ public abstract class AbstractDeepNeuralNet extends AbstractNeuralNet  {
 		return "The number of RBMs.";
 	}
 
+	public boolean getShuffle() {
+		return m_Shuffle;
+	}
+
+	public void setShuffle(boolean shuffle) {
+		m_Shuffle = shuffle;
+	}
+
+	public String shuffleTipText() {
+		return "Whether to draw the batches for training the RBMs afresh (in a random order) at each epoch, rather than taking them in the order of the data.";
+	}
+
+	public boolean getPersistent() {
+		return m_Persistent;
+	}
+
+	public void setPersistent(boolean persistent) {
+		m_Persistent = persistent;
+	}
+
+	public String persistentTipText() {
+		return "Whether to train the RBMs with persistent contrastive divergence (the negative phase continues the same Gibbs chains from one update to the next).";
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\tSets the number of RBMs\n\tdefault: 2", "N", 1, "-N <value>"));
+		OptionUtils.addFlag(result, shuffleTipText(), "shuffle");
+		OptionUtils.addFlag(result, persistentTipText(), "persistent");
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -54,6 +87,8 @@ public abstract class AbstractDeepNeuralNet extends AbstractNeuralNet  {
 	@Override
 	public void setOptions(String[] options) throws Exception {
 		setN(OptionUtils.parse(options, 'N', 2));
+		setShuffle(Utils.getFlag("shuffle", options));
+		setPersistent(Utils.getFlag("persistent", options));
 		super.setOptions(options);
 	}
 
@@ -61,6 +96,8 @@ public abstract class AbstractDeepNeuralNet extends AbstractNeuralNet  {
 	public String [] getOptions() {
 	  	List<String> result = new ArrayList<>();
 		OptionUtils.add(result, 'N', getN());
+		OptionUtils.add(result, "shuffle", getShuffle());
+		OptionUtils.add(result, "persistent", getPersistent());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
@@ -17,17 +17,20 @@ package meka.classifiers.multilabel.NN;
 
 import meka.classifiers.multilabel.ProblemTransformationMethod;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.core.Option;
 import weka.core.Randomizable;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * AbstractNeuralNet.java - Provides common options, constants, and other functions for NNs.
  * @author Jesse Read
  * @version December 2012
  */
-public abstract class AbstractNeuralNet extends ProblemTransformationMethod implements Randomizable {
+public abstract class AbstractNeuralNet extends ProblemTransformationMethod implements Randomizable, ThreadLimiter {
 
 	private static final long serialVersionUID = 5534606285449062819L;
 
@@ -46,6 +49,12 @@ public abstract class AbstractNeuralNet extends ProblemTransformationMethod impl
 	/** random seed */
 	protected int m_Seed = 0;
 
+	/** the number of threads for the matrix products */
+	protected int m_NumThreads = ThreadUtils.SEQUENTIAL;
+
+	/** the executor for the matrix products (if multi-threaded) */
+	protected transient ExecutorService m_Executor = null;
+
 	public void setH(int h) { 
 		m_H = h;
 	}
@@ -108,6 +117,46 @@ public abstract class AbstractNeuralNet extends ProblemTransformationMethod impl
 		return "The seed value for randomizing the data.";
 	}
 
+	/**
+	 * Sets the number of threads to use.
+	 *
+	 * @param value	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public synchronized void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value)) {
+			m_NumThreads = value;
+			m_Executor = null;
+		}
+	}
+
+	/**
+	 * Returns the number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads to use for computing the (larger) matrix products in parallel; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
+	/**
+	 * Returns the executor for computing matrix products in parallel (creating it if necessary).
+	 *
+	 * @return		the executor, or null for sequential execution
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if (!ThreadUtils.isMultiThreaded(m_NumThreads))
+			return null;
+		if (m_Executor == null)
+			m_Executor = ThreadUtils.newExecutor(ThreadUtils.getActualNumThreads(m_NumThreads, ThreadUtils.getAvailableProcessors()));
+		return m_Executor;
+	}
+
 	@Override
 	public String toString() {
 		return "h="+getH()+", E="+getE();
@@ -120,6 +169,7 @@ public abstract class AbstractNeuralNet extends ProblemTransformationMethod impl
 		result.addElement(new Option("\tSets the maximum number of epochs\n\tdefault: 1000\t(auto-cut-out)", "E", 1, "-E <value>"));
 		result.addElement(new Option("\tSets the learning rate (tyically somewhere between 'very small' and 0.1)\n\tdefault: 0.1", "r", 1, "-r <value>"));
 		result.addElement(new Option("\tSets the momentum (typically somewhere between 0.1 and 0.9)\n\tdefault: 0.1", "m", 1, "-m <value>"));
+		OptionUtils.addOption(result, numThreadsTipText(), "" + ThreadUtils.SEQUENTIAL, "num-threads");
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -130,6 +180,7 @@ public abstract class AbstractNeuralNet extends ProblemTransformationMethod impl
 		setE(OptionUtils.parse(options, 'E', 1000));
 		setLearningRate(OptionUtils.parse(options, 'r', 0.1));
 		setMomentum(OptionUtils.parse(options, 'm', 0.1));
+		setNumThreads(OptionUtils.parse(options, "num-threads", ThreadUtils.SEQUENTIAL));
 		super.setOptions(options);
 	}
 
@@ -140,6 +191,7 @@ public abstract class AbstractNeuralNet extends ProblemTransformationMethod impl
 		OptionUtils.add(result, 'E', getE());
 		OptionUtils.add(result, 'r', getLearningRate());
 		OptionUtils.add(result, 'm', getMomentum());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
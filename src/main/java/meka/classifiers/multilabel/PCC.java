@@ -16,13 +16,17 @@
 package meka.classifiers.multilabel;
 
 import weka.core.*;
+import meka.classifiers.multilabel.cc.ChainSearch;
 import meka.core.A;
+import meka.core.OptionUtils;
 import weka.core.TechnicalInformation.*;
 import java.util.*;
 
 /**
  * PCC.java - (Bayes Optimal) Probabalistic Classifier Chains.
  * Exactly like CC at build time, but explores all possible paths as inference at test time (hence, 'Bayes optimal'). <br>
+ * The paths are explored as a tree of prefixes (see ChainSearch), with branch and bound (default) or best-first (uniform-cost) search,
+ * which return the most probable path; or approximately, with beam search. <br>
  * This version is multi-target capable. <br>
  * See: Dembczynsky et al, <i>Bayes Optimal Multi-label Classification via Probabalistic Classifier Chains</i>, ICML 2010.
  *
@@ -32,24 +36,12 @@ import java.util.*;
 public class PCC extends CC implements TechnicalInformationHandler{
 	private static final long serialVersionUID = -7669951968300150007L; // MT Capable
 
-	/**
-	 * Push - increment y[0] until = K[0], then reset and start with y[0], etc ...
-	 * Basically a counter.
-	 * @return	True if finished
-	 */
-	private static boolean push(double y[], int K[], int j) {
-		if (j >= y.length) {
-			return true;
-		}
-		else if (y[j] < K[j]-1) {
-			y[j]++;
-			return false;
-		}
-		else {
-			y[j] = 0.0;
-			return push(y,K,++j);
-		}
-	}
+	/** The beam width (0 = exact search) */
+	protected int m_BeamWidth = getDefaultBeamWidth();
+
+	/** Whether exact search is best-first (rather than depth-first branch and bound) */
+	protected boolean m_BestFirst = false;
+
 
 	/**
 	 * GetKs - return [K_1,K_2,...,K_L] where each Y_j \in {1,...,K_j}.
@@ -78,44 +70,92 @@ public class PCC extends CC implements TechnicalInformationHandler{
 		return p;
 	}
 
+	/**
+	 * Inference - the search for the most probable path for x, as configured.
+	 * The path found carries the number of node evaluations (calls to the classifiers of the chain) the search used,
+	 * so that concurrent predictions each get their own count.
+	 */
+	public ChainSearch.Path search(Instance xy) throws Exception {
+		int K[] = getKs(xy.dataset());
+		if (getDebug())
+			System.out.println("K[] = "+Arrays.toString(K));
+		ChainSearch search = new ChainSearch(nodes, m_Chain, K);
+		int type = (m_BeamWidth > 0) ? ChainSearch.BEAM : (m_BestFirst ? ChainSearch.BEST_FIRST : ChainSearch.EXACT);
+		ChainSearch.Path path = search.search(xy, type, m_BeamWidth);
+		if (getDebug())
+			System.out.println("y' = "+Arrays.toString(path.y)+", :"+path.w+" ("+path.evaluations+" node evaluations)");
+		return path;
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance xy) throws Exception {
 
-		int L = xy.classIndex(); 
+		ChainSearch.Path path = search(xy);
 
-		double y[] = new double[L];
-		double conf[] = new double[L];
-		double w  = 0.0;
+		// If it's multi-label (binary only), return the probabilistic output (else just the values).
+		return (A.max(getKs(xy.dataset())) > 2) ? path.y : convertConfidenceToProbability(path.p,path.y); //return p_y; //y;
+	}
 
-		/*
-		 * e.g. K = [3,3,5]
-		 * we push y_[] from [0,0,0] to [2,2,4] over all necessary iterations.
-		 */
-		int K[] = getKs(xy.dataset());
-		if (getDebug()) 
-			System.out.println("K[] = "+Arrays.toString(K));
-		double y_[] = new double[L]; 
-
-		for(int i = 0; i < 1000000; i++) { // limit to 1m
-			double conf_[] = super.probabilityForInstance(xy,y_);
-			double w_  = A.product(conf_);
-			//System.out.println(""+i+" "+Arrays.toString(y_)+" "+w_+" "+Arrays.toString(conf_)+"/"+Arrays.toString(convertConfidenceToProbability(y_,conf_)));
-			if (w_ > w) {
-				if (getDebug()) System.out.println("y' = "+Arrays.toString(y_)+", :"+w_);
-				y = Arrays.copyOf(y_,y_.length);
-				w = w_;
-				conf = conf_;
-			}
-			if (push(y_,K,0)) {
-				// Done !
-				if (getDebug())
-					System.out.println("Tried all "+(i+1)+" combinations.");
-				break;
-			}
-		}
+	protected int getDefaultBeamWidth() {
+		return 0;
+	}
 
-		// If it's multi-label (binary only), return the probabilistic output (else just the values).
-		return (A.max(K) > 2) ? y : convertConfidenceToProbability(conf,y); //return p_y; //y;
+	/**
+	 * Sets the beam width; 0 for exact search. A negative width is reported on stderr and ignored.
+	 */
+	public void setBeamWidth(int value) {
+		if (value >= 0)
+			m_BeamWidth = value;
+		else
+			System.err.println("Beam width must be >= 0, provided: " + value);
+	}
+
+	public int getBeamWidth() {
+		return m_BeamWidth;
+	}
+
+	public String beamWidthTipText() {
+		return "The number of most probable partial paths kept at each step of the chain (beam search); 0 for exact search, which finds the most probable path.";
+	}
+
+	/**
+	 * Sets whether exact search is best-first (uniform-cost) rather than depth-first branch and bound.
+	 */
+	public void setBestFirst(boolean value) {
+		m_BestFirst = value;
+	}
+
+	public boolean getBestFirst() {
+		return m_BestFirst;
+	}
+
+	public String bestFirstTipText() {
+		return "If enabled, exact search expands the partial paths in order of probability (uniform-cost search) instead of depth-first with branch and bound.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		OptionUtils.addOption(result, beamWidthTipText(), "" + getDefaultBeamWidth(), "beam-width");
+		OptionUtils.addFlag(result, bestFirstTipText(), "best-first");
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setBeamWidth(OptionUtils.parse(options, "beam-width", getDefaultBeamWidth()));
+		setBestFirst(Utils.getFlag("best-first", options));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		OptionUtils.add(result, "beam-width", getBeamWidth());
+		OptionUtils.add(result, "best-first", getBestFirst());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
 	}
 
 	@Override
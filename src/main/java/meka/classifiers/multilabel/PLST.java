@@ -282,7 +282,7 @@ public class PLST extends LabelTransformationClassifier implements TechnicalInfo
 	m_v = new Matrix(newArr);
 
 	// now the multiplication (last step of the algorithm)
-	Matrix compressed = MatrixUtils.instancesToMatrix(labels).times(this.m_v);
+	Matrix compressed = new Matrix(MatrixUtils.multiply(MatrixUtils.instancesToMatrix(labels).getArray(), this.m_v.getArray()));
         
 	// and transform it to Instances
 	ArrayList<Attribute> attinfos = new ArrayList<Attribute>();
@@ -328,9 +328,7 @@ public class PLST extends LabelTransformationClassifier implements TechnicalInfo
 
 	dataArray[0] = predictions;
 
-	Matrix yMat = new Matrix(dataArray);
-        
-	Matrix multiplied = yMat.times(this.m_v.transpose()).plus(m_Shift);
+	Matrix multiplied = new Matrix(MatrixUtils.multiplyTranspose(dataArray, this.m_v.getArray())).plus(m_Shift);
 
 	double[] res = new double[multiplied.getColumnDimension()];
 
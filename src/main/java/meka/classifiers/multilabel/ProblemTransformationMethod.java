@@ -116,6 +116,23 @@ public abstract class ProblemTransformationMethod
 	@Override
 	public abstract double[] distributionForInstance(Instance i) throws Exception;
 
+	/**
+	 * Checks whether this classifier still uses the #distributionForInstance(Instance) of class 'c', i.e.,
+	 * that no subclass has overridden it. A batch implementation of #distributionsForInstances(Instances)
+	 * written to match the one in 'c' is only valid in this case.
+	 *
+	 * @param c		the class providing the batch implementation
+	 * @return		true if #distributionForInstance(Instance) is declared by 'c'
+	 */
+	protected boolean usesDistributionForInstanceOf(Class<?> c) {
+		try {
+			return getClass().getMethod("distributionForInstance", Instance.class).getDeclaringClass() == c;
+		}
+		catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
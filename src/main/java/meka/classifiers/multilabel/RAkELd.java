@@ -55,6 +55,12 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 	int m_M = 10;
 	protected int kMap[][] = null;
 
+	/** the labelsets of the class values of each template (decoded once, rather than on every prediction) */
+	protected transient LabelSet m_LabelSetMaps[][] = null;
+
+	/** the templates that m_LabelSetMaps was decoded from */
+	protected transient Instances m_LabelSetMapsTemplates[] = null;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -116,7 +122,7 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 
 			// Get a meta classification
 			int i_m = (int)m_Classifiers[m].classifyInstance(x_m);        // e.g., 2
-			int k_indices[] = mapBack(m_InstancesTemplates[m],i_m); // e.g., [3,8]
+			int k_indices[] = labelSets(m)[i_m].indices; // e.g., [3,8]
 
 			// Vote with classification
 			for (int i : k_indices) {
@@ -130,14 +136,17 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 	}
 
 	/**
-	 * mapBack: returns the original indices (encoded in the class attribute).
+	 * LabelSets - the labelsets (indices into kMap[m]) of the class values of model m (decoded on first use after training).
 	 */
-	private int[] mapBack(Instances template, int i) {
-		try {
-			return MLUtils.toIntArray(template.classAttribute().value(i));
-		} catch(Exception e) {
-			return new int[]{};
+	protected synchronized LabelSet[] labelSets(int m) {
+		if (m_LabelSetMapsTemplates != m_InstancesTemplates) {
+			m_LabelSetMaps = new LabelSet[m_InstancesTemplates.length][];
+			for(int i = 0; i < m_LabelSetMaps.length; i++) {
+				m_LabelSetMaps[i] = PSUtils.makeLabelSetMap(m_InstancesTemplates[i]);
+			}
+			m_LabelSetMapsTemplates = m_InstancesTemplates;
 		}
+		return m_LabelSetMaps[m];
 	}
 
 	/**
@@ -17,11 +17,13 @@ package meka.classifiers.multilabel.cc;
 
 import meka.core.A;
 import meka.core.F;
+import meka.core.MLUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.SMO;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import weka.core.Utils;
 
 import java.io.FileReader;
@@ -37,13 +39,14 @@ import java.util.Random;
 public class CNode implements Serializable {
 
 	private int j = -1;
+	private int L = -1;
 	private int d = -1;
 	private int inX[] = null;
 	private int paY[] = null;
 	private Instances T = null;
-	private Instance t_ = null;
 	private Classifier h = null;
 	private int map[] = null;
+	private transient ThreadLocal<Instance> tl = null;
 
 	/**
 	 * CNode - A Node 'j', taking inputs from all parents inX and paY.
@@ -70,7 +73,7 @@ public class CNode implements Serializable {
 	 * @return dataset we should remove all variables from D EXCEPT current node, and parents.
 	 */
 	public Instances transform(Instances D) throws Exception {
-		int L = D.classIndex();
+		L = D.classIndex();
 		d = D.numAttributes() - L;
 		int keep[] = A.append(this.paY,j);		// keep all parents and self!
 		Arrays.sort(keep);
@@ -80,7 +83,7 @@ public class CNode implements Serializable {
 		for(int j = 0; j < L; j++) {
 			map[j] = Arrays.binarySearch(keep,j);
 		}
-		Instances D_ = F.remove(new Instances(D),remv, false); 
+		Instances D_ = F.remove(D,remv, false); 	// (the filter does not modify D, so no copy is needed)
 		D_.setClassIndex(map[this.j]);
 		return D_;
 	}
@@ -95,11 +98,9 @@ public class CNode implements Serializable {
 		// build SLC 'h'
 		h = AbstractClassifier.makeCopy(H);
 		h.buildClassifier(T);
-		// save templates
-		//t_ = new SparseInstance(T.numAttributes());
-		//t_.setDataset(T);
-		//t_.setClassMissing();								// [?,x,x,x]
+		// keep only the header (for the templates)
 		T.clear();
+		tl = null;
 	}
 
 	/**
@@ -107,7 +108,7 @@ public class CNode implements Serializable {
 	 * @return p( y_j = k | x , y_pred ) for k in {0,1}
 	 */
 	public double[] distribution(Instance x, double ypred[]) throws Exception {
-		Instance x_ = transform(x,ypred);
+		Instance x_ = transform(x,ypred,template(x));
 		return h.distributionForInstance(x_);
 	}
 
@@ -127,53 +128,125 @@ public class CNode implements Serializable {
 
 	/**
 	 * Transform - turn [y1,y2,y3,x1,x2] into [y1,y2,x1,x2].
-	 * @return transformed Instance
+	 * @return transformed Instance (a new copy, which may be modified by the caller, e.g., with #updateTransform(Instance, double[]))
 	 */
 	public Instance transform(Instance x, double ypred[]) throws Exception {
-		x = (Instance)x.copy();
-		int L = x.classIndex();
+		return transform(x,ypred,newTemplate(x));
+	}
+
+	/**
+	 * Transform - turn [y1,y2,y3,x1,x2] into [y1,y2,x1,x2], writing into the template t_ rather than copying x.
+	 * The label values are the parents (taken from ypred), and the class (missing); the rest are the d input attributes of x.
+	 * @param	x		the original Instance
+	 * @param	ypred	the label values (only the parents of this node are used)
+	 * @param	t_		a template, created with #newTemplate(Instance)
+	 * @return the template t_, filled
+	 */
+	public Instance transform(Instance x, double ypred[], Instance t_) {
 		int L_c = (paY.length + 1);
-		x.setDataset(null);
-		for(int j = 0; j < (L - L_c); j++) {
-			x.deleteAttributeAt(0);
+		double v[];
+		if (t_ instanceof SparseTemplate) {
+			SparseTemplate s_ = (SparseTemplate)t_;
+			// skip the labels of x
+			int n = x.numValues();
+			int k = 0;
+			while (k < n && x.index(k) < L)
+				k++;
+			// [y_1,...,y_L_c] (stored explicitly, even if 0) then the non-zero inputs
+			s_.resize(L_c + n - k);
+			int idx[] = s_.indices();
+			v = s_.values();
+			for(int i = 0; i < L_c; i++) {
+				idx[i] = i;
+			}
+			for(int i = L_c; k < n; i++, k++) {
+				idx[i] = x.index(k) - L + L_c;
+				v[i] = x.valueSparse(k);
+			}
+		}
+		else {
+			v = ((DenseTemplate)t_).values();
+			for(int i = 0; i < d; i++) {
+				v[L_c + i] = x.value(L + i);
+			}
 		}
 		for(int pa : paY) {
-			//System.out.println("x_["+map[pa]+"] <- "+ypred[pa]);
-			x.setValue(map[pa],ypred[pa]);
+			v[map[pa]] = ypred[pa];
 		}
-		x.setDataset(T);
-		x.setClassMissing();
-		return x;
+		v[map[j]] = Utils.missingValue();
+		t_.setWeight(x.weight());
+		return t_;
 	}
 
-	public void updateTransform(Instance t_, double ypred[]) throws Exception {
-		for(int pa : this.paY) {
-			t_.setValue(this.map[pa],ypred[pa]);
+	/**
+	 * Transform - transform a batch of instances, as #transform(Instance, double[]) does for each one.
+	 * @param	D		the original Instances
+	 * @param	Ypred	the label values, Ypred[i] for the i-th instance (only the parents of this node are used)
+	 * @return the transformed Instances (with the header of this node)
+	 */
+	public Instances transform(Instances D, double Ypred[][]) {
+		int N = D.numInstances();
+		Instances D_ = new Instances(T,N);
+		Instance t_ = null;
+		for(int i = 0; i < N; i++) {
+			Instance x = D.instance(i);
+			if (t_ == null || (t_ instanceof SparseTemplate) != (x instanceof SparseInstance))
+				t_ = newTemplate(x);
+			// (add makes an independent copy of the template)
+			D_.add(transform(x,Ypred[i],t_));
 		}
+		return D_;
 	}
 
-	/* 
-	 * TODO	I thought this would be faster, but apparenty not
-	public Instance transform(Instance x, double ypred[]) throws Exception {
-		int L = x.classIndex();
-		int L_ = paY.length + 1;
-		t_ = MLUtils.copyValues(t_,x,L,L_);
-		for(int pa : paY) {
-			t_.setValue(map[pa],ypred[pa]);
+	/**
+	 * The distributions of this node for a batch of inputs D (using the batch prediction of the base classifier, if available).
+	 * @return p( y_j = k | x_i , Ypred[i] ) for k in {0,1}, for each instance i
+	 */
+	public double[][] distributions(Instances D, double Ypred[][]) throws Exception {
+		return MLUtils.distributionsForInstances(h,transform(D,Ypred));
+	}
+
+	/**
+	 * NewTemplate - create a new (reusable) template, for use with #transform(Instance, double[], Instance).
+	 * @param	x	an example of the Instances that will be transformed (if sparse, then so is the template)
+	 * @return	the template, with its dataset set
+	 */
+	public Instance newTemplate(Instance x) {
+		int L_c = (paY.length + 1);
+		Instance t_ = (x instanceof SparseInstance) ? new SparseTemplate(L_c + d) : new DenseTemplate(L_c + d);
+		t_.setDataset(T);
+		return t_;
+	}
+
+	/**
+	 * Template - get the template belonging to the current thread (creating it if necessary).
+	 */
+	private Instance template(Instance x) {
+		if (tl == null)
+			tl = new ThreadLocal<Instance>();
+		Instance t_ = tl.get();
+		if (t_ == null || (t_ instanceof SparseTemplate) != (x instanceof SparseInstance)) {
+			t_ = newTemplate(x);
+			tl.set(t_);
 		}
-		//x_.setDataset(T);
-		t_.setClassMissing();
-		//System.out.println("x_ = "+MLUtils.toBitString(x_,L_));
 		return t_;
 	}
-	*/
+
+	/**
+	 * UpdateTransform - set the parent values (from ypred) of an Instance already transformed with #transform(Instance, double[]).
+	 */
+	public void updateTransform(Instance t_, double ypred[]) throws Exception {
+		for(int pa : this.paY) {
+			t_.setValue(this.map[pa],ypred[pa]);
+		}
+	}
 
 	/**
 	 * Return the argmax on #distribution(Instance, double[]).
 	 * @return argmax_{k in 0,1,...} p( y_j = k | x , y_pred )
 	 */
 	public double classify(Instance x, double ypred[]) throws Exception {
-		Instance x_ = transform(x,ypred);
+		Instance x_ = transform(x,ypred,template(x));
 		return Utils.maxIndex(h.distributionForInstance(x_));
 	}
 
@@ -190,7 +263,7 @@ public class CNode implements Serializable {
 		Arrays.sort(keep);
 		int remv[] = A.invert(keep,L); 	// i.e., remove the rest < L
 		Arrays.sort(remv);
-		Instances T = F.remove(new Instances(D),remv, false); 
+		Instances T = F.remove(D,remv, false); 	// (the filter does not modify D, so no copy is needed)
 		int map[] = new int[L];
 		for(int j = 0; j < L; j++) {
 			map[j] = Arrays.binarySearch(keep,j);
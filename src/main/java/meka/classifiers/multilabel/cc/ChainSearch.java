@@ -0,0 +1,313 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.classifiers.multilabel.cc;
+
+import weka.core.Instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * ChainSearch.java - Search for the most probable path (label combination) through a chain of CNodes, for an instance x.
+ * <br>
+ * The probability of a path y is the product of p(y_j | x, y_pa(j)) along the chain. The search is over the tree of
+ * path prefixes (in chain order), so the distribution of a node is computed once per prefix, rather than once per
+ * path as when enumerating all paths. Three types of search are available:<br>
+ * - EXACT: depth-first branch and bound (children in order of probability); a prefix is pruned as soon as its probability
+ *   (an upper bound on that of any path through it) falls below that of the best path so far. Among equally probable paths,
+ *   the first in the order [0,...,0], [1,0,...,0], ..., i.e., of enumerating with y_1 varying fastest, is returned.<br>
+ * - BEST_FIRST: uniform-cost search (A* with the trivial admissible heuristic, since each remaining factor is at most 1);
+ *   the prefixes are expanded in order of probability, and the first complete path is the most probable.<br>
+ * - BEAM: only the (beam width) most probable prefixes are kept at each step of the chain (approximate; a width of 1 is CC's greedy inference).<br>
+ * The number of node evaluations (calls to a node's classifier) is reported with each path.
+ * <br>
+ * See: Kumar, Vembu, Menon, Elkan. <i>Beam search algorithms for multilabel learning</i>. Machine Learning 92(1). 2013.<br>
+ * See: Mena, Montanes, Quevedo, del Coz. <i>Using A* for Inference in Probabilistic Classifier Chains</i>. IJCAI 2015.
+ *
+ * @see meka.classifiers.multilabel.PCC
+ * @version	October 2026
+ */
+public class ChainSearch {
+
+	/** Depth-first branch and bound (exact) */
+	public static final int EXACT = 0;
+
+	/** Uniform-cost, best-first search (exact) */
+	public static final int BEST_FIRST = 1;
+
+	/** Beam search (approximate) */
+	public static final int BEAM = 2;
+
+	/** Relative slack on the bound, so that rounding (of products taken in a different order) never prunes a best path */
+	private static final double SLACK = 1.0 + 1e-9;
+
+	/** The nodes, indexed by label */
+	protected CNode nodes[] = null;
+
+	/** The chain (order of the labels) */
+	protected int chain[] = null;
+
+	/** The number of values of each label */
+	protected int K[] = null;
+
+	/**
+	 * ChainSearch - search over the given nodes.
+	 * @param	nodes	the nodes, indexed by label
+	 * @param	chain	the chain
+	 * @param	K		the number of values of each label
+	 */
+	public ChainSearch(CNode nodes[], int chain[], int K[]) {
+		this.nodes = nodes;
+		this.chain = chain;
+		this.K = K;
+	}
+
+	/**
+	 * Path - a label combination found by the search.
+	 */
+	public static class Path {
+
+		/** The label values */
+		public double y[];
+
+		/** The probabilities along the path, p[j] = p(y_j = y[j] | x, y_pa(j)) */
+		public double p[];
+
+		/** The probability of the path (the product of p, in label order) */
+		public double w = 0.0;
+
+		/** The number of node evaluations used to find it */
+		public long evaluations = 0;
+
+		/** An empty path, over L labels */
+		public Path(int L) {
+			y = new double[L];
+			p = new double[L];
+		}
+	}
+
+	/**
+	 * Search - find the most probable path for x.
+	 * @param	x			the instance
+	 * @param	type		EXACT, BEST_FIRST, or BEAM
+	 * @param	beamWidth	the beam width (for BEAM)
+	 * @return	the path found
+	 */
+	public Path search(Instance x, int type, int beamWidth) throws Exception {
+		switch (type) {
+			case EXACT:
+				return exact(x);
+			case BEST_FIRST:
+				return bestFirst(x);
+			case BEAM:
+				return beam(x, beamWidth);
+			default:
+				throw new IllegalArgumentException("Unknown type of search: " + type);
+		}
+	}
+
+	/** The distribution of node j given the parent values in y */
+	private double[] distribution(Instance x, int j, double y[], Path result) throws Exception {
+		result.evaluations++;
+		return nodes[j].distribution(x, y);
+	}
+
+	/** The values of label j, in order of (descending) probability d */
+	private static Integer[] order(final double d[], int k) {
+		Integer o[] = new Integer[k];
+		for(int i = 0; i < k; i++) {
+			o[i] = i;
+		}
+		Arrays.sort(o, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(prob(d, b), prob(d, a));
+			}
+		});
+		return o;
+	}
+
+	/** d[k], or 0 if the distribution does not cover value k */
+	private static double prob(double d[], int k) {
+		return k < d.length ? d[k] : 0.0;
+	}
+
+	/** Product of p, in label order */
+	private static double product(double p[]) {
+		double w = 1.0;
+		for(double p_ : p) {
+			w *= p_;
+		}
+		return w;
+	}
+
+	/** Whether a comes before b when enumerating with y_1 varying fastest */
+	private static boolean before(double a[], double b[]) {
+		for(int j = a.length - 1; j >= 0; j--) {
+			if (a[j] != b[j])
+				return a[j] < b[j];
+		}
+		return false;
+	}
+
+	/**
+	 * Exact - depth-first branch and bound.
+	 */
+	protected Path exact(Instance x) throws Exception {
+		int L = chain.length;
+		Path best = new Path(L);
+		exact(x, 0, 1.0, new double[L], new double[L], best);
+		return best;
+	}
+
+	private void exact(Instance x, int s, double bound, double y[], double p[], Path best) throws Exception {
+		if (s == chain.length) {
+			double w = product(p);
+			if (w > best.w || (w == best.w && w > 0.0 && before(y, best.y))) {
+				System.arraycopy(y, 0, best.y, 0, y.length);
+				System.arraycopy(p, 0, best.p, 0, p.length);
+				best.w = w;
+			}
+			return;
+		}
+		int j = chain[s];
+		double d[] = distribution(x, j, y, best);
+		for(int k : order(d, K[j])) {
+			double b = bound * prob(d, k);
+			if (b * SLACK < best.w)
+				break; // (the rest are no more probable)
+			y[j] = k;
+			p[j] = prob(d, k);
+			exact(x, s + 1, b, y, p, best);
+		}
+		y[j] = 0.0;
+		p[j] = 0.0;
+	}
+
+	/**
+	 * Prefix - a node of the search tree.
+	 */
+	private static class Prefix {
+
+		final Prefix parent;
+
+		/** the number of labels set (in chain order) */
+		final int s;
+
+		/** the value of the last label set */
+		final int k;
+
+		/** the probability of the last label set */
+		final double p;
+
+		/** the probability of the prefix */
+		final double w;
+
+		/** for breaking ties by creation order */
+		final long id;
+
+		Prefix(Prefix parent, int s, int k, double p, double w, long id) {
+			this.parent = parent;
+			this.s = s;
+			this.k = k;
+			this.p = p;
+			this.w = w;
+			this.id = id;
+		}
+
+		/** set the values (and probabilities) of the labels in this prefix */
+		void fill(int chain[], double y[], double p_[]) {
+			for(Prefix q = this; q.s > 0; q = q.parent) {
+				y[chain[q.s - 1]] = q.k;
+				p_[chain[q.s - 1]] = q.p;
+			}
+		}
+	}
+
+	/** Most probable first, then the earliest created */
+	private static final Comparator<Prefix> MOST_PROBABLE = new Comparator<Prefix>() {
+		public int compare(Prefix a, Prefix b) {
+			int c = Double.compare(b.w, a.w);
+			return c != 0 ? c : Long.compare(a.id, b.id);
+		}
+	};
+
+	/** The path of a complete prefix */
+	private Path toPath(Prefix q, Path result) {
+		q.fill(chain, result.y, result.p);
+		result.w = product(result.p);
+		return result;
+	}
+
+	/**
+	 * BestFirst - uniform-cost search.
+	 */
+	protected Path bestFirst(Instance x) throws Exception {
+		int L = chain.length;
+		Path result = new Path(L);
+		double y[] = new double[L];
+		double p[] = new double[L];
+		long id = 0;
+		PriorityQueue<Prefix> open = new PriorityQueue<Prefix>(11, MOST_PROBABLE);
+		open.add(new Prefix(null, 0, 0, 1.0, 1.0, id++));
+		while (!open.isEmpty()) {
+			Prefix q = open.poll();
+			if (q.s == L)
+				return toPath(q, result);
+			Arrays.fill(y, 0.0);
+			q.fill(chain, y, p);
+			int j = chain[q.s];
+			double d[] = distribution(x, j, y, result);
+			for(int k = 0; k < K[j]; k++) {
+				open.add(new Prefix(q, q.s + 1, k, prob(d, k), q.w * prob(d, k), id++));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Beam - beam search with the given width.
+	 */
+	protected Path beam(Instance x, int width) throws Exception {
+		if (width < 1)
+			throw new IllegalArgumentException("Beam width must be at least 1, provided: " + width);
+		int L = chain.length;
+		Path result = new Path(L);
+		double y[] = new double[L];
+		double p[] = new double[L];
+		long id = 0;
+		List<Prefix> beam = new ArrayList<Prefix>();
+		beam.add(new Prefix(null, 0, 0, 1.0, 1.0, id++));
+		for(int s = 0; s < L; s++) {
+			int j = chain[s];
+			List<Prefix> next = new ArrayList<Prefix>(beam.size() * K[j]);
+			for(Prefix q : beam) {
+				Arrays.fill(y, 0.0);
+				q.fill(chain, y, p);
+				double d[] = distribution(x, j, y, result);
+				for(int k = 0; k < K[j]; k++) {
+					next.add(new Prefix(q, s + 1, k, prob(d, k), q.w * prob(d, k), id++));
+				}
+			}
+			Collections.sort(next, MOST_PROBABLE);
+			beam = (next.size() > width) ? next.subList(0, width) : next;
+		}
+		return toPath(beam.get(0), result);
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.classifiers.multilabel.cc;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+
+/**
+ * DenseTemplate.java - A mutable DenseInstance, for re-use as the input of a CNode.
+ * <br>
+ * DenseInstance#setValue(int,double) copies the entire attribute vector on every call. Here values are written in place,
+ * so the same template can be re-filled for every test instance without allocation. #copy() returns an independent (ordinary) DenseInstance.
+ *
+ * @see CNode#newTemplate(Instance)
+ * @version	October 2026
+ */
+public class DenseTemplate extends DenseInstance {
+
+	private static final long serialVersionUID = 2912583574165046170L;
+
+	/**
+	 * DenseTemplate - a template of 'numAttributes' values (all 0, weight 1).
+	 * @param	numAttributes	the number of attributes
+	 */
+	public DenseTemplate(int numAttributes) {
+		super(1.0, new double[numAttributes]);
+	}
+
+	/**
+	 * Values - direct access to the underlying values (no copy).
+	 * @return	the attribute values
+	 */
+	public double[] values() {
+		return m_AttValues;
+	}
+
+	@Override
+	public void setValue(int attIndex, double value) {
+		m_AttValues[attIndex] = value;
+	}
+
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+		m_AttValues[indexOfIndex] = value;
+	}
+
+	@Override
+	public Object copy() {
+		DenseInstance result = new DenseInstance(m_Weight, toDoubleArray());
+		result.setDataset(m_Dataset);
+		return result;
+	}
+}
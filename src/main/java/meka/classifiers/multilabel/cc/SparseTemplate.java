@@ -0,0 +1,75 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.classifiers.multilabel.cc;
+
+import weka.core.Instance;
+import weka.core.SparseInstance;
+
+/**
+ * SparseTemplate.java - A mutable SparseInstance, for re-use as the input of a CNode.
+ * <br>
+ * The index and value arrays are filled in place (see #resize(int)), and are only re-allocated when the number of stored values changes.
+ * #copy() returns an independent (ordinary) SparseInstance.
+ *
+ * @see CNode#newTemplate(Instance)
+ * @version	October 2026
+ */
+public class SparseTemplate extends SparseInstance {
+
+	private static final long serialVersionUID = -3508720297407371823L;
+
+	/**
+	 * SparseTemplate - an empty template over 'numAttributes' attributes (weight 1).
+	 * @param	numAttributes	the number of attributes
+	 */
+	public SparseTemplate(int numAttributes) {
+		super(1.0, new double[0], new int[0], numAttributes);
+	}
+
+	/**
+	 * Resize - make room for exactly n stored values. The arrays are kept if they already have this size, but their contents are undefined.
+	 * @param	n	number of values to be stored
+	 */
+	public void resize(int n) {
+		if (m_Indices.length != n) {
+			m_Indices = new int[n];
+			m_AttValues = new double[n];
+		}
+	}
+
+	/**
+	 * Indices - direct access to the underlying (sorted) attribute indices (no copy).
+	 * @return	the indices
+	 */
+	public int[] indices() {
+		return m_Indices;
+	}
+
+	/**
+	 * Values - direct access to the underlying values, corresponding to #indices() (no copy).
+	 * @return	the values
+	 */
+	public double[] values() {
+		return m_AttValues;
+	}
+
+	@Override
+	public Object copy() {
+		SparseInstance result = new SparseInstance(m_Weight, m_AttValues.clone(), m_Indices.clone(), m_NumAttributes);
+		result.setDataset(m_Dataset);
+		return result;
+	}
+}
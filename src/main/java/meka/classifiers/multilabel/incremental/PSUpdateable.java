@@ -19,6 +19,8 @@ import meka.classifiers.incremental.IncrementalEvaluation;
 import meka.classifiers.multilabel.IncrementalMultiLabelClassifier;
 import meka.classifiers.multilabel.PS;
 import meka.core.LabelSet;
+import meka.core.LabelSetCounter;
+import meka.core.LabelSetIndex;
 import meka.core.MLUtils;
 import meka.core.OptionUtils;
 import meka.core.PSUtils;
@@ -49,6 +51,10 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 	protected int L = -1;
 
 	protected HashMap<LabelSet,Integer> combinations = null;
+	/** the counts of the combinations in the batch (until PS is built) */
+	protected LabelSetCounter counts = null;
+	/** an index of the combinations (for finding subsets of new labelsets) */
+	protected transient LabelSetIndex index = null;
 	protected Instances batch = null;
 	protected MajorityLabelsetUpdateable mlu = new MajorityLabelsetUpdateable();
 
@@ -74,22 +80,14 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 	  	
 		L = D.classIndex();
 		batch = new Instances(D);
+		counts = new LabelSetCounter();
+		for (int i = 0; i < batch.numInstances(); i++)
+			counts.add(new LabelSet(MLUtils.toSparseIntArray(batch.instance(i),L)), 1.0);
 
 		if (batch.numInstances() >= getLimit())  {
 			// if we have at least the limit, build!
 			if (getDebug()) System.out.println("Train on instances 0 ... "+batch.numInstances());
-			combinations = PSUtils.countCombinationsSparse(batch,L);
-			MLUtils.pruneCountHashMap(combinations,m_P);
-			// { NEW (we don't want more than m_Support classes!)
-			int p = m_P;
-			while(combinations.size() > getSupport()) {
-				//System.out.println("double prune!");
-				m_P++;
-				MLUtils.pruneCountHashMap(combinations,m_P);
-			}
-			super.buildClassifier(batch);
-			m_P = p;
-			// } NEW
+			buildPS();
 			mlu = null; // We won't be needing the majority set classifier!
 		}
 		else {
@@ -100,6 +98,26 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 		}
 	}
 
+	/**
+	 * BuildPS - build PS on the batch, with the combinations counted so far; pruning more (than P) if necessary,
+	 * so as to keep at most 'support' of them.
+	 */
+	protected void buildPS() throws Exception {
+		combinations = counts.toHashMap();
+		index = null;
+		// { NEW (we don't want more than m_Support classes!)
+		int p = m_P;
+		// the smallest P that leaves at most m_Support combinations: the count of the (m_Support+1)-th most frequent one
+		List<LabelSet> top = counts.top(getSupport()+1);
+		if (top.size() > getSupport())
+			m_P = Math.max(m_P, (int)Math.round(counts.count(top.get(getSupport()))));
+		MLUtils.pruneCountHashMap(combinations,m_P);
+		super.buildClassifier(batch);
+		m_P = p;
+		// } NEW
+		counts = null;
+	}
+
 	@Override
 	public void updateClassifier(Instance x) throws Exception {
 
@@ -107,19 +125,10 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 
 			// store example
 			batch.add(x);
+			counts.add(new LabelSet(MLUtils.toSparseIntArray(x,L)), 1.0);
 			if (batch.numInstances() >= getLimit()) {
 				// we have enough instances to bulid PS!
-				combinations = PSUtils.countCombinationsSparse(batch,L);
-				MLUtils.pruneCountHashMap(combinations,m_P);
-				// { NEW (we don't want more than m_Support classes!) -- note, the while loop is a slow way to do this
-				int p = m_P;
-				while(combinations.size() > getSupport()) {
-					m_P++;
-					MLUtils.pruneCountHashMap(combinations,m_P);
-				}
-				super.buildClassifier(batch);
-				m_P = p;
-				// } NEW
+				buildPS();
 				batch.clear();
 				mlu = null;
 			}
@@ -130,7 +139,9 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 		}
 		else {
 			// update PS ...
-			for (Instance x_i : PSUtils.PSTransformation(x,L,combinations,m_N,super.m_InstancesTemplate)) {
+			if (index == null)
+				index = new LabelSetIndex(combinations.keySet());
+			for (Instance x_i : PSUtils.PSTransformation(x,L,combinations,m_N,super.m_InstancesTemplate,index)) {
 				// update internal sl classifier (e.g. naive bayes)
 				((UpdateableClassifier)m_Classifier).updateClassifier(x_i);
 			}
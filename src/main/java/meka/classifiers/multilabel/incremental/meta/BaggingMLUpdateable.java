@@ -17,8 +17,11 @@ package meka.classifiers.multilabel.incremental.meta;
 
 import meka.classifiers.multilabel.IncrementalMultiLabelClassifier;
 import meka.classifiers.multilabel.incremental.BRUpdateable;
+import meka.classifiers.incremental.FlushableUpdateableClassifier;
 import meka.classifiers.incremental.IncrementalEvaluation;
 import meka.classifiers.multilabel.meta.EnsembleML;
+import meka.core.OptionUtils;
+import meka.core.ThreadUtils;
 import weka.classifiers.UpdateableClassifier;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -27,20 +30,38 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 import weka.core.TechnicalInformationHandler;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.Callable;
 
 /**
  * BaggingMLUpdatable.java - Using the OzaBag scheme (see OzaBag.java from MOA)).
  * See also: N. Oza and S. Russell. Online bagging and boosting. In Artificial Intelligence and Statistics 2001, pages 105-112. Morgan Kaufmann, 2001.
+ * <br>
+ * The members can be updated in parallel (see -num-threads), and with micro-batches of instances (see -update-batch-size).
+ * The weights of each instance are drawn for all the members when it arrives, in the order of the members, so that the
+ * ensemble is the same whatever the number of threads and the batch size.
  * @version 	Jan 2013
  * @author 		Jesse Read
  */
 
-public class BaggingMLUpdateable extends EnsembleML implements IncrementalMultiLabelClassifier, TechnicalInformationHandler {
+public class BaggingMLUpdateable extends EnsembleML implements IncrementalMultiLabelClassifier, FlushableUpdateableClassifier, TechnicalInformationHandler {
 
 	private static final long serialVersionUID = 4978269895923479962L;
 	protected Random random = null;
 
+	/** The number of instances to gather before updating the members with them (1 = with each instance) */
+	protected int m_UpdateBatchSize = 1;
+
+	/** The instances not passed on to the members yet, and their (Poisson) weights for each member */
+	protected List<Instance> m_Pending = new ArrayList<>();
+	protected List<int[]> m_PendingWeights = new ArrayList<>();
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -65,28 +86,133 @@ public class BaggingMLUpdateable extends EnsembleML implements IncrementalMultiL
 	@Override
 	public void buildClassifier(Instances D) throws Exception {
 		random = new Random(m_Seed);
+		m_Pending.clear();
+		m_PendingWeights.clear();
 		super.buildClassifier(D);
 	}
 
 	@Override
 	public void updateClassifier(Instance x) throws Exception {
 
+		int k[] = new int[m_NumIterations];
 		for(int i = 0; i < m_NumIterations; i++) {
 			// Oza-Bag style
-			int k = poisson(1.0, random);
+			k[i] = poisson(1.0, random);
 			if (m_BagSizePercent == 100) {
 				// Train on all instances
-				k = 1;
+				k[i] = 1;
+			}
+		}
+		// (x may change once we return, so a batch keeps a copy)
+		m_Pending.add((m_UpdateBatchSize > 1) ? (Instance) x.copy() : x);
+		m_PendingWeights.add(k);
+		if (m_Pending.size() >= m_UpdateBatchSize)
+			flushUpdates();
+	}
+
+	/**
+	 * Updates the members with the pending instances (if any), in parallel if more than one thread is to be used.
+	 * With a batch size above 1, call it at the end of the stream, so that the members also learn from the last
+	 * (incomplete) batch.
+	 */
+	@Override
+	public void flushUpdates() throws Exception {
+		if (m_Pending.isEmpty())
+			return;
+
+		final Instance X[] = m_Pending.toArray(new Instance[m_Pending.size()]);
+		final int K[][] = m_PendingWeights.toArray(new int[m_PendingWeights.size()][]);
+		m_Pending.clear();
+		m_PendingWeights.clear();
+
+		if (getActualNumThreads() == ThreadUtils.SEQUENTIAL) {
+			for(int i = 0; i < m_NumIterations; i++) {
+				updateMember(i, X, K);
 			}
+			return;
+		}
+
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumIterations);
+		for(int i = 0; i < m_NumIterations; i++) {
+			final int m = i;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					updateMember(m, X, K);
+					return null;
+				}
+			});
+		}
+		ThreadUtils.executeAll(jobs, getExecutor());
+	}
+
+	/**
+	 * Updates ensemble member 'i' with the instances X, in turn.
+	 *
+	 * @param i		the index of the member
+	 * @param X		the instances
+	 * @param K		the weights of the instances (K[t][i] for member i)
+	 */
+	protected void updateMember(int i, Instance X[], int K[][]) throws Exception {
+		for(int t = 0; t < X.length; t++) {
+			int k = K[t][i];
 			if (k > 0) {
 				// Train on this instance only if k > 0
-				Instance x_weighted = (Instance) x.copy();
-				x_weighted.setWeight(x.weight() * (double)k);
+				Instance x_weighted = (Instance) X[t].copy();
+				x_weighted.setWeight(X[t].weight() * (double)k);
 				((UpdateableClassifier)m_Classifiers[i]).updateClassifier(x_weighted);
 			}
 		}
 	}
 
+	/**
+	 * Sets the number of instances to gather before updating the members with them. The members only learn from the
+	 * instances of a batch once it is complete, or flushed (so predictions in the meantime do not reflect them yet).
+	 *
+	 * @param value 	the batch size (1 = update with each instance)
+	 */
+	public void setUpdateBatchSize(int value) {
+		if (value >= 1)
+			m_UpdateBatchSize = value;
+		else
+			System.err.println("Update batch size must be >= 1, provided: " + value);
+	}
+
+	/**
+	 * Returns the number of instances to gather before updating the members with them.
+	 *
+	 * @return 		the batch size (1 = update with each instance)
+	 */
+	public int getUpdateBatchSize() {
+		return m_UpdateBatchSize;
+	}
+
+	public String updateBatchSizeTipText() {
+		return "The number of instances to gather before updating the ensemble members with them (as a micro-batch); 1 = update with each instance. "
+			+ "The predictions do not reflect the instances of an incomplete batch until it is flushed (at the end of the stream, when evaluating).";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		OptionUtils.addOption(result, updateBatchSizeTipText(), "1", "update-batch-size");
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setUpdateBatchSize(OptionUtils.parse(options, "update-batch-size", 1));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		OptionUtils.add(result, "update-batch-size", getUpdateBatchSize());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
 
 	protected static int poisson(double lambda, Random r) {
 		if (lambda < 100.0) {
@@ -123,6 +249,19 @@ public class BaggingMLUpdateable extends EnsembleML implements IncrementalMultiL
 		return result;
 	}
 
+	/**
+	 * Models saved before micro-batching have no pending instances (nor weights), and update with each instance.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (m_Pending == null && m_UpdateBatchSize == 0)
+			m_UpdateBatchSize = 1;
+		if (m_Pending == null)
+			m_Pending = new ArrayList<>();
+		if (m_PendingWeights == null)
+			m_PendingWeights = new ArrayList<>();
+	}
+
 	public static void main(String args[]) {
 		IncrementalEvaluation.runExperiment(new BaggingMLUpdateable(),args);
 	}
@@ -17,12 +17,15 @@ package meka.classifiers.multilabel.meta;
 
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.classifiers.multilabel.ProblemTransformationMethod;
-import weka.core.Instance;
+import meka.core.ThreadUtils;
 import weka.core.Instances;
 import weka.core.Randomizable;
 import weka.core.RevisionUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 /**
  * BaggingML.java - Combining several multi-label classifiers using Bootstrap AGGregatING.
@@ -50,37 +53,54 @@ public class BaggingML extends MetaProblemTransformationMethod {
 	}
 
 	@Override
-	public void buildClassifier(Instances train) throws Exception {
+	public void buildClassifier(final Instances train) throws Exception {
 	  	testCapabilities(train);
 	  	
 		if (getDebug()) System.out.print("-: Models: ");
 
-		train = new Instances(train);
 		m_Classifiers = ProblemTransformationMethod.makeCopies((MultiLabelClassifier) m_Classifier, m_NumIterations);
 
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumIterations);
 		for(int i = 0; i < m_NumIterations; i++) {
-			Random r = new Random(m_Seed+i);
-			Instances bag = new Instances(train,0);
-			if (m_Classifiers[i] instanceof Randomizable) ((Randomizable)m_Classifiers[i]).setSeed(m_Seed+i);
-			if(getDebug()) System.out.print(""+i+" ");
-
-			int ixs[] = new int[train.numInstances()];
-			for(int j = 0; j < ixs.length; j++) {
-				ixs[r.nextInt(ixs.length)]++;
-			}
-			for(int j = 0; j < ixs.length; j++) {
-				if (ixs[j] > 0) {
-					Instance instance = train.instance(j);
-					instance.setWeight(ixs[j]);
-					bag.add(instance);
+			final int k = i;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					m_Classifiers[k].buildClassifier(bag(train, k));
+					return null;
 				}
-			}
-
-			m_Classifiers[i].buildClassifier(bag);
+			});
 		}
+		ThreadUtils.executeAll(jobs, m_NumThreads);
+
 		if (getDebug()) System.out.println(":-");
 	}
 
+	/**
+	 * Bag - draw the bootstrap sample for member 'i' (using its own seed, so the bags do not depend on each other),
+	 * and set the seed of the member.
+	 * @param	train	the training data (not modified)
+	 * @param	i		the index of the member
+	 * @return	the bag, where an instance drawn k times appears once, with weight k
+	 */
+	protected Instances bag(Instances train, int i) {
+		Random r = new Random(m_Seed+i);
+		Instances bag = new Instances(train,0);
+		if (m_Classifiers[i] instanceof Randomizable) ((Randomizable)m_Classifiers[i]).setSeed(m_Seed+i);
+		if(getDebug()) System.out.print(""+i+" ");
+
+		int ixs[] = new int[train.numInstances()];
+		for(int j = 0; j < ixs.length; j++) {
+			ixs[r.nextInt(ixs.length)]++;
+		}
+		for(int j = 0; j < ixs.length; j++) {
+			if (ixs[j] > 0) {
+				bag.add(train.instance(j));
+				bag.lastInstance().setWeight(ixs[j]);
+			}
+		}
+		return bag;
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
@@ -16,11 +16,15 @@
 package meka.classifiers.multilabel.meta;
 
 import meka.classifiers.multilabel.ProblemTransformationMethod;
+import meka.core.ThreadUtils;
 import weka.core.Instances;
 import weka.core.Randomizable;
 import weka.core.RevisionUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 /**
  * BaggingMLdup.java - A version of BaggingML where Instances are duplicated instead of assigned higher weighs.
@@ -45,7 +49,7 @@ public class BaggingMLdup extends MetaProblemTransformationMethod {
 	}
 	
 	@Override
-	public void buildClassifier(Instances train) throws Exception {
+	public void buildClassifier(final Instances train) throws Exception {
 	  	testCapabilities(train);
 	  	
 		if (getDebug()) System.out.print("-: Models: ");
@@ -53,19 +57,28 @@ public class BaggingMLdup extends MetaProblemTransformationMethod {
 		//m_Classifiers = (MultilabelClassifier[]) AbstractClassifier.makeCopies(m_Classifier, m_NumIterations);
 		m_Classifiers = ProblemTransformationMethod.makeCopies((ProblemTransformationMethod) m_Classifier, m_NumIterations);
 
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumIterations);
 		for(int i = 0; i < m_NumIterations; i++) {
-			Random r = new Random(m_Seed+i);
-			Instances bag = new Instances(train,0);
-			if (m_Classifiers[i] instanceof Randomizable) ((Randomizable)m_Classifiers[i]).setSeed(m_Seed+i);
-			if(getDebug()) System.out.print(""+i+" ");
+			final int k = i;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					Random r = new Random(m_Seed+k);
+					Instances bag = new Instances(train,0);
+					if (m_Classifiers[k] instanceof Randomizable) ((Randomizable)m_Classifiers[k]).setSeed(m_Seed+k);
+					if(getDebug()) System.out.print(""+k+" ");
 
-			int bag_no = (m_BagSizePercent*train.numInstances()/100);
-			//System.out.println(" bag no: "+bag_no);
-			while(bag.numInstances() < bag_no) {
-				bag.add(train.instance(r.nextInt(train.numInstances())));
-			}
-			m_Classifiers[i].buildClassifier(bag);
+					int bag_no = (m_BagSizePercent*train.numInstances()/100);
+					//System.out.println(" bag no: "+bag_no);
+					while(bag.numInstances() < bag_no) {
+						bag.add(train.instance(r.nextInt(train.numInstances())));
+					}
+					m_Classifiers[k].buildClassifier(bag);
+					return null;
+				}
+			});
 		}
+		ThreadUtils.executeAll(jobs, m_NumThreads);
+
 		if (getDebug()) System.out.println(":-");
 	}
 
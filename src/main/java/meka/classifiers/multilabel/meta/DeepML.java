@@ -90,6 +90,9 @@ public class DeepML extends AbstractDeepNeuralNet implements TechnicalInformatio
 		// Build DBM
 		dbm = createDBM(d);
 		dbm.setSeed(m_Seed);
+		dbm.setExecutor(getExecutor());
+		dbm.setShuffle(m_Shuffle);
+		dbm.setPersistent(m_Persistent);
 
 		dbm.setE(m_E);
 
@@ -24,6 +24,7 @@ import meka.classifiers.multilabel.BR;
 import meka.classifiers.multilabel.ProblemTransformationMethod;
 import meka.classifiers.multilabel.meta.HOMER.ClusterLabelSplitter;
 import meka.core.OptionUtils;
+import meka.core.ThreadUtils;
 import weka.classifiers.Classifier;
 import weka.classifiers.SingleClassifierEnhancer;
 import weka.classifiers.trees.RandomForest;
@@ -43,6 +44,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 /**
  * Extremely Randomised Forest with HOMER trees algorithm.
@@ -92,18 +94,20 @@ public class ERFH extends MetaProblemTransformationMethod implements Randomizabl
 	 * @param D the instances to train with
 	 */
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 		testCapabilities(D);
 
 		if (getDebug())
 			System.out.print("Building " + m_NumIterations + " HOMER trees:");
 
 		m_Classifiers = new HOMER[m_NumIterations];
+		final int[][] bags = new int[m_NumIterations][];
 		for (int i = 0; i < m_NumIterations; i++) {
 			Random r = new Random(m_Seed + i);
-			Instances bag = new Instances(D, 0);
+			// (only the indices of the bag are drawn here, it is filled when the tree is built)
+			bags[i] = new int[D.numInstances()];
 			for (int j = 0; j < D.numInstances(); j++)
-				bag.add(D.get(r.nextInt(D.numInstances())));
+				bags[i][j] = r.nextInt(D.numInstances());
 
 			// Modify base single-label classifier
 			Classifier baseClassifier = ((SingleClassifierEnhancer) m_Classifier).getClassifier();
@@ -123,12 +127,28 @@ public class ERFH extends MetaProblemTransformationMethod implements Randomizabl
 			homer.setClassifier(AbstractMultiLabelClassifier.makeCopy(m_Classifier));
 			homer.setLabelSplitter(new VariableKLabelSplitter(m_Seed + i));
 			homer.setSeed(m_Seed + i);
-			if (getDebug())
-				System.out.print(" " + i + ":\n");
 			m_Classifiers[i] = homer;
-			m_Classifiers[i].buildClassifier(bag);
 		}
 
+		// Build the trees (independently of each other)
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumIterations);
+		for (int i = 0; i < m_NumIterations; i++) {
+			final int k = i;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					Instances bag = new Instances(D, bags[k].length);
+					for (int j : bags[k])
+						bag.add(D.get(j));
+					bags[k] = null;
+					if (getDebug())
+						System.out.print(" " + k + ":\n");
+					m_Classifiers[k].buildClassifier(bag);
+					return null;
+				}
+			});
+		}
+		ThreadUtils.executeAll(jobs, m_NumThreads);
+
 		if (getDebug())
 			System.out.println();
 	}
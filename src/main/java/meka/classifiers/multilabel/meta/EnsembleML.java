@@ -15,9 +15,16 @@
 
 package meka.classifiers.multilabel.meta;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 import meka.classifiers.multilabel.ProblemTransformationMethod;
+import meka.core.A;
+import meka.core.MLUtils;
+import meka.core.ThreadUtils;
 import weka.core.Instances;
 import weka.core.Randomizable;
 import weka.core.RevisionUtils;
@@ -43,21 +50,46 @@ public class EnsembleML extends MetaProblemTransformationMethod {
 	}
 
 	@Override
-	public void buildClassifier(Instances train) throws Exception {
+	public void buildClassifier(final Instances train) throws Exception {
 	  	testCapabilities(train);
 	  	
 		if (getDebug()) System.out.print("-: Models: ");
 
-		train = new Instances(train);
 		m_Classifiers = ProblemTransformationMethod.makeCopies((ProblemTransformationMethod) m_Classifier, m_NumIterations);
 		int sub_size = (train.numInstances()*m_BagSizePercent/100);
+
+		// Draw the subsets up front, as indices into train. Each round shuffles (with seed m_Seed+i) the order
+		// left by the previous round, as train.randomize(..) would; train itself is not modified.
+		int order[] = A.make_sequence(train.numInstances());
+		final int subsets[][] = new int[m_NumIterations][];
+		for(int i = 0; i < m_NumIterations; i++) {
+			int s[] = MLUtils.drawRandomization(order.length, new Random(m_Seed+i));
+			for(int j = order.length - 1; j > 0; j--) {
+				int tmp = order[j];
+				order[j] = order[s[j]];
+				order[s[j]] = tmp;
+			}
+			subsets[i] = Arrays.copyOf(order, sub_size);
+		}
+
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumIterations);
 		for(int i = 0; i < m_NumIterations; i++) {
-			if(getDebug()) System.out.print(""+i+" ");
-			if (m_Classifiers[i] instanceof Randomizable) ((Randomizable)m_Classifiers[i]).setSeed(i);
-			train.randomize(new Random(m_Seed+i));
-			Instances sub_train = new Instances(train,0,sub_size);
-			m_Classifiers[i].buildClassifier(sub_train);
+			final int k = i;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					if(getDebug()) System.out.print(""+k+" ");
+					if (m_Classifiers[k] instanceof Randomizable) ((Randomizable)m_Classifiers[k]).setSeed(k);
+					Instances sub_train = new Instances(train,subsets[k].length);
+					for(int j : subsets[k]) {
+						sub_train.add(train.instance(j));
+					}
+					subsets[k] = null;
+					m_Classifiers[k].buildClassifier(sub_train);
+					return null;
+				}
+			});
 		}
+		ThreadUtils.executeAll(jobs, m_NumThreads);
 
 		if (getDebug()) System.out.println(":-");
 	}
@@ -17,6 +17,8 @@ package meka.classifiers.multilabel.meta;
 
 import meka.classifiers.multilabel.BR;
 import meka.classifiers.multilabel.ProblemTransformationMethod;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.core.*;
 import weka.core.TechnicalInformation.Field;
@@ -32,7 +34,7 @@ import java.util.List;
  * @version	June 2009
  * @author 	Jesse Read (jmr30@cs.waikato.ac.nz)
  */
-public class MBR extends ProblemTransformationMethod implements TechnicalInformationHandler {
+public class MBR extends ProblemTransformationMethod implements TechnicalInformationHandler, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = 865889198021748917L;
@@ -60,6 +62,34 @@ public class MBR extends ProblemTransformationMethod implements TechnicalInforma
 		return BR.class.getName();
 	}
 
+	/**
+	 * Sets the number of threads to use for training the label models (of both the base and the meta BR).
+	 * This is a property of the BR classifier, i.e., the same as its -num-threads option.
+	 *
+	 * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public void setNumThreads(int value) {
+		if (getClassifier() instanceof ThreadLimiter)
+			((ThreadLimiter)getClassifier()).setNumThreads(value);
+	}
+
+	/**
+	 * Returns the number of threads to use for training the label models (of both the base and the meta BR).
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public int getNumThreads() {
+		if (getClassifier() instanceof ThreadLimiter)
+			return ((ThreadLimiter)getClassifier()).getNumThreads();
+		return ThreadUtils.SEQUENTIAL;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads that the BR classifier uses to train its label models; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	@Override
 	public TechnicalInformation getTechnicalInformation() {
 		TechnicalInformation	result;
@@ -101,8 +131,9 @@ public class MBR extends ProblemTransformationMethod implements TechnicalInforma
 			meta_data.insertAttributeAt(new Attribute("metaclass"+i,BinaryClass),c);
 		}
 
+		double Cfn[][] = m_BASE.distributionsForInstances(data);
 		for(int i = 0; i < data.numInstances(); i++) {
-			double cfn[] = m_BASE.distributionForInstance(data.instance(i));
+			double cfn[] = Cfn[i];
 			for(int a = 0; a < cfn.length; a++) {
 				meta_data.instance(i).setValue(a+c,cfn[a]);
 			}
@@ -19,6 +19,8 @@ import meka.classifiers.multilabel.CC;
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.classifiers.multilabel.ProblemTransformationMethod;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.core.Instance;
 import weka.core.Option;
 import weka.core.Randomizable;
@@ -27,12 +29,14 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * MultilabelMetaClassifier.java - For ensembles of multi-label methods.
  * @author Jesse Read (jmr30@cs.waikato.ac.nz)
  */
-public abstract class MetaProblemTransformationMethod extends ProblemTransformationMethod implements Randomizable {
+public abstract class MetaProblemTransformationMethod extends ProblemTransformationMethod implements Randomizable, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = -6604797895790690612L;
@@ -42,6 +46,12 @@ public abstract class MetaProblemTransformationMethod extends ProblemTransformat
 	protected int m_NumIterations = 10;
 	protected int m_BagSizePercent = 67;
 
+	/** the number of threads to use for building and querying the ensemble members */
+	protected int m_NumThreads = ThreadUtils.SEQUENTIAL;
+
+	/** the executor for querying the ensemble members in parallel */
+	protected transient ExecutorService m_Executor = null;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -68,8 +78,7 @@ public abstract class MetaProblemTransformationMethod extends ProblemTransformat
 
 		double p[] = new double[x.classIndex()];
 
-		for(int i = 0; i < m_NumIterations; i++) {
-			double d[] = m_Classifiers[i].distributionForInstance(x);
+		for(double d[] : distributionsOfMembers(x)) {
 			for(int j = 0; j < d.length; j++) {
 				p[j] += d[j];
 			}
@@ -83,6 +92,67 @@ public abstract class MetaProblemTransformationMethod extends ProblemTransformat
 		return p;
 	}
 
+	/**
+	 * The distribution of ensemble member 'i' for x.
+	 *
+	 * @param i		the index of the member
+	 * @param x		the instance (may be modified: it is a copy, when the members are queried in parallel)
+	 * @return		the distribution (as given by the member)
+	 */
+	protected double[] distributionOfMember(int i, Instance x) throws Exception {
+		return m_Classifiers[i].distributionForInstance(x);
+	}
+
+	/**
+	 * The distributions of all the ensemble members for x, see #distributionOfMember(int, Instance).
+	 * The members are queried in parallel (each with its own copy of x) if more than one thread is to be used.
+	 * Either way, the results are in the order of the members, so any votes can be summed up in the same order.
+	 *
+	 * @param x		the instance
+	 * @return		the distribution of each member
+	 */
+	protected double[][] distributionsOfMembers(final Instance x) throws Exception {
+		double P[][] = new double[m_NumIterations][];
+
+		if (getActualNumThreads() == ThreadUtils.SEQUENTIAL) {
+			for(int i = 0; i < m_NumIterations; i++) {
+				P[i] = distributionOfMember(i, x);
+			}
+			return P;
+		}
+
+		List<Callable<double[]>> jobs = new ArrayList<>(m_NumIterations);
+		for(int i = 0; i < m_NumIterations; i++) {
+			final int k = i;
+			jobs.add(new Callable<double[]>() {
+				public double[] call() throws Exception {
+					return distributionOfMember(k, (Instance)x.copy());
+				}
+			});
+		}
+		return ThreadUtils.executeAll(jobs, getExecutor()).toArray(P);
+	}
+
+	/**
+	 * Returns the executor for querying the ensemble members in parallel (creating it if necessary).
+	 *
+	 * @return		the executor
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if (m_Executor == null)
+			m_Executor = ThreadUtils.newExecutor(getActualNumThreads());
+		return m_Executor;
+	}
+
+	/**
+	 * Returns the number of threads to query the ensemble members with.
+	 *
+	 * @return		the number of threads (at most the number of members), 1 = sequentially
+	 */
+	protected int getActualNumThreads() {
+		return ThreadUtils.getActualNumThreads(m_NumThreads, m_NumIterations);
+	}
+
 	public int getNumIterations() {
 		return m_NumIterations;
 	}
@@ -121,12 +191,41 @@ public abstract class MetaProblemTransformationMethod extends ProblemTransformat
 		return "The seed value for randomizing the data.";
 	}
 
+	/**
+	 * Sets the number of threads to use for building (and querying) the ensemble members.
+	 * With the same seed, the ensemble is the same whatever the number of threads.
+	 *
+	 * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public synchronized void setNumThreads(int value) {
+		if (ThreadUtils.checkNumThreads(value)) {
+			m_NumThreads = value;
+			m_Executor = null;
+		}
+	}
+
+	/**
+	 * Returns the number of threads to use for building (and querying) the ensemble members.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	@Override
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	public String numThreadsTipText() {
+		return "The number of threads to use for building and querying the ensemble members; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\tSets the number of models (default 10)", "I", 1, "-I <num>"));
 		result.addElement(new Option("\tSize of each bag, as a percentage of total training size (default 67)", "P", 1, "-P <size percentage>"));
 		result.addElement(new Option("\tRandom number seed for sampling (default 1)", "S", 1, "-S <seed>"));
+		OptionUtils.addOption(result, numThreadsTipText(), "" + ThreadUtils.SEQUENTIAL, "num-threads");
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -136,6 +235,7 @@ public abstract class MetaProblemTransformationMethod extends ProblemTransformat
 		setSeed(OptionUtils.parse(options, 'S', 1));
 		setNumIterations(OptionUtils.parse(options, 'I', 10));
 		setBagSizePercent(OptionUtils.parse(options, 'P', 67));
+		setNumThreads(OptionUtils.parse(options, "num-threads", ThreadUtils.SEQUENTIAL));
 		super.setOptions(options);
 	}
 
@@ -145,6 +245,7 @@ public abstract class MetaProblemTransformationMethod extends ProblemTransformat
 		OptionUtils.add(result, 'S', getSeed());
 		OptionUtils.add(result, 'I', getNumIterations());
 		OptionUtils.add(result, 'P', getBagSizePercent());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
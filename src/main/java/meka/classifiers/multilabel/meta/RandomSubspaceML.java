@@ -20,11 +20,13 @@ import meka.core.A;
 import meka.core.F;
 import meka.core.MLUtils;
 import meka.core.OptionUtils;
+import meka.core.ThreadUtils;
 import weka.core.*;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * RandomSubspaceML.java - Subsample the attribute space and instance space randomly for each ensemble member. 
@@ -52,7 +54,7 @@ public class RandomSubspaceML extends MetaProblemTransformationMethod implements
 	protected Instance m_InstanceTemplates[] = null;
 
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 	  	testCapabilities(D);
 	  	
 		m_InstancesTemplates = new Instances[m_NumIterations];
@@ -66,44 +68,70 @@ public class RandomSubspaceML extends MetaProblemTransformationMethod implements
 
 		int N_sub = (D.numInstances()*m_BagSizePercent/100);
 
-		int L = D.classIndex();
+		final int L = D.classIndex();
 		int d = D.numAttributes() - L;
 		int d_new = d * m_AttSizePercent / 100;
 		m_IndicesCut = new int[m_NumIterations][];
 
+		// Draw the cuts up front, in turn from r (so they do not depend on the number of threads).
+		// The instance order carries over from one member to the next, as if D.randomize(r) were
+		// called each time (but D itself is not modified).
+		int order[] = A.make_sequence(D.numInstances());
+		final int subsets[][] = new int[m_NumIterations][];
+		final int removes[][] = new int[m_NumIterations][];
+
 		for(int i = 0; i < m_NumIterations; i++) {
 
 			// Downsize the instance space (exactly like in EnsembleML.java)
 
-			if (getDebug()) 
-				System.out.print("\t"+(i+1)+": ");
-			D.randomize(r);
-			Instances D_cut = new Instances(D,0,N_sub);
-			if (getDebug()) 
-				System.out.print("N="+D.numInstances()+" -> N'="+D_cut.numInstances()+", ");
+			int s[] = MLUtils.drawRandomization(order.length, r);
+			for(int j = order.length - 1; j > 0; j--) {
+				int tmp = order[j];
+				order[j] = order[s[j]];
+				order[s[j]] = tmp;
+			}
+			subsets[i] = Arrays.copyOf(order, N_sub);
 
 			// Downsize attribute space
 
-			D_cut.setClassIndex(-1);
 			int indices_a[] = A.make_sequence(L,d+L);
 			A.shuffle(indices_a,r);
 			indices_a = Arrays.copyOfRange(indices_a,0,d-d_new);
 			Arrays.sort(indices_a);
+			removes[i] = indices_a;
 			m_IndicesCut[i] = A.invert(indices_a,D.numAttributes());
-			D_cut = F.remove(D_cut,indices_a,false);
-			D_cut.setClassIndex(L);
-			if (getDebug()) 
-				System.out.print(" A:="+(D.numAttributes() - L)+" -> A'="+(D_cut.numAttributes() - L)+" ("+m_IndicesCut[i][L]+",...,"+m_IndicesCut[i][m_IndicesCut[i].length-1]+")");
-
-			// Train multi-label classifier
-
-			if (m_Classifiers[i] instanceof Randomizable) ((Randomizable)m_Classifiers[i]).setSeed(m_Seed+i);
-			if(getDebug()) System.out.println(".");
+		}
 
-			m_Classifiers[i].buildClassifier(D_cut);
-			m_InstanceTemplates[i] = D_cut.instance(1);
-			m_InstancesTemplates[i] = new Instances(D_cut,0);
+		List<Callable<Object>> jobs = new ArrayList<>(m_NumIterations);
+		for(int i = 0; i < m_NumIterations; i++) {
+			final int k = i;
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					Instances D_cut = new Instances(D,subsets[k].length);
+					for(int j : subsets[k]) {
+						D_cut.add(D.instance(j));
+					}
+					D_cut.setClassIndex(-1);
+					D_cut = F.remove(D_cut,removes[k],false);
+					D_cut.setClassIndex(L);
+					if (getDebug()) 
+						System.out.println("\t"+(k+1)+": N="+D.numInstances()+" -> N'="+D_cut.numInstances()+", A:="+(D.numAttributes() - L)+" -> A'="+(D_cut.numAttributes() - L)+" ("+m_IndicesCut[k][L]+",...,"+m_IndicesCut[k][m_IndicesCut[k].length-1]+").");
+
+					// Train multi-label classifier
+
+					if (m_Classifiers[k] instanceof Randomizable) ((Randomizable)m_Classifiers[k]).setSeed(m_Seed+k);
+
+					m_Classifiers[k].buildClassifier(D_cut);
+					m_InstancesTemplates[k] = new Instances(D_cut,0);
+					// (a copy, so as not to keep all of D_cut)
+					m_InstanceTemplates[k] = (Instance)D_cut.instance(1).copy();
+					m_InstanceTemplates[k].setDataset(m_InstancesTemplates[k]);
+					return null;
+				}
+			});
 		}
+		ThreadUtils.executeAll(jobs, m_NumThreads);
+
 		if (getDebug()) System.out.println(":-");
 	}
 
@@ -114,15 +142,8 @@ public class RandomSubspaceML extends MetaProblemTransformationMethod implements
 		int L = x.classIndex();
 		double p[] = new double[L];
 
-		for(int i = 0; i < m_NumIterations; i++) {
-			// Use a template Instance from training, and copy values over
-			// (this is faster than copying x and cutting it to shape)
-			Instance x_ = (Instance) m_InstanceTemplates[i];
-			MLUtils.copyValues(x_,x,m_IndicesCut[i]);
-			x_.setDataset(m_InstancesTemplates[i]);
-
-			// TODO, use generic voting scheme somewhere?
-			double d[] = ((ProblemTransformationMethod)m_Classifiers[i]).distributionForInstance(x_);
+		// TODO, use generic voting scheme somewhere?
+		for(double d[] : distributionsOfMembers(x)) {
 			for(int j = 0; j < d.length; j++) {
 				p[j] += d[j];
 			}
@@ -131,6 +152,17 @@ public class RandomSubspaceML extends MetaProblemTransformationMethod implements
 		return p;
 	}
 
+	@Override
+	protected double[] distributionOfMember(int i, Instance x) throws Exception {
+		// Use a template Instance from training, and copy values over
+		// (this is faster than copying x and cutting it to shape)
+		Instance x_ = (Instance) m_InstanceTemplates[i];
+		MLUtils.copyValues(x_,x,m_IndicesCut[i]);
+		x_.setDataset(m_InstancesTemplates[i]);
+
+		return ((ProblemTransformationMethod)m_Classifiers[i]).distributionForInstance(x_);
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
@@ -0,0 +1,174 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.classifiers.multilabel.neurofuzzy;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * ARAMIndex - An inverted index from the features to the categories of a sparse ARAM network whose weights store
+ * them (as the feature itself, key j, or as its complement, key F+j; see {@link ARAMKernel}).
+ * <br>
+ * A category that shares no stored feature with a (sparse) input x has the activation
+ * (|1-x| + |1-w| + F - nnz(x) - nnz(1-w)) / (alpha + |w|), where |1-x| is the sum of the complements of the
+ * non-zero values of x, and |1-w| that of the stored complements of the category, i.e., it only depends on sums that
+ * are kept per category. So only the categories listed under the features of x need the full fuzzy AND. The
+ * activations are those of the exact computation up to rounding (the sums are added in a different order).
+ *
+ * @version October 2026
+ */
+public class ARAMIndex implements Serializable {
+
+	private static final long serialVersionUID = -2931583036170583492L;
+
+	/** the number of features */
+	protected int m_F;
+
+	/** the categories under each feature */
+	protected int m_Postings[][];
+
+	/** the number of categories under each feature */
+	protected int m_Sizes[];
+
+	/** the (sorted) features that each category is listed under */
+	protected int m_Features[][];
+
+	/** the sum of the stored complements (1 - weight) of each category */
+	protected double m_UpperSum[];
+
+	/** the number of stored complements of each category */
+	protected int m_UpperCount[];
+
+	/** the number of categories indexed so far */
+	protected int m_Count;
+
+	public ARAMIndex(int F) {
+		m_F = F;
+		m_Postings = new int[F][];
+		m_Sizes = new int[F];
+		m_Features = new int[16][];
+		m_UpperSum = new double[16];
+		m_UpperCount = new int[16];
+		m_Count = 0;
+	}
+
+	/**
+	 * Indexes category c (again), with its (current) weights w; to be called whenever they change.
+	 */
+	public void update(int c, SparseArray w) {
+		if (c >= m_Features.length) {
+			int n = Math.max(c + 1, 2 * m_Features.length);
+			m_Features = Arrays.copyOf(m_Features, n);
+			m_UpperSum = Arrays.copyOf(m_UpperSum, n);
+			m_UpperCount = Arrays.copyOf(m_UpperCount, n);
+		}
+		if (c >= m_Count)
+			m_Count = c + 1;
+
+		// the features, merged from the lower keys and the upper keys (less F), which are both in order
+		int u = ARAMKernel.upper(w, m_F);
+		int n = w.size();
+		int f[] = new int[n];
+		int k = 0;
+		int p = 0, q = u;
+		while (p < u || q < n) {
+			int j;
+			if (q >= n || (p < u && w.keyAt(p) <= w.keyAt(q) - m_F))
+				j = w.keyAt(p++);
+			else
+				j = w.keyAt(q++) - m_F;
+			if (j >= 0 && (k == 0 || f[k - 1] != j))
+				f[k++] = j;
+		}
+		f = Arrays.copyOf(f, k);
+
+		// list c under the new features, and take it off the old ones
+		int old[] = (m_Features[c] == null) ? new int[0] : m_Features[c];
+		p = 0;
+		q = 0;
+		while (p < old.length || q < f.length) {
+			if (q >= f.length || (p < old.length && old[p] < f[q]))
+				remove(old[p++], c);
+			else if (p >= old.length || f[q] < old[p])
+				add(f[q++], c);
+			else {
+				p++;
+				q++;
+			}
+		}
+		m_Features[c] = f;
+
+		double sum = 0.;
+		for (int i = u; i < n; i++)
+			sum += 1 - w.valueAt(i);
+		m_UpperSum[c] = sum;
+		m_UpperCount[c] = n - u;
+	}
+
+	protected void add(int j, int c) {
+		if (m_Postings[j] == null)
+			m_Postings[j] = new int[4];
+		else if (m_Sizes[j] == m_Postings[j].length)
+			m_Postings[j] = Arrays.copyOf(m_Postings[j], 2 * m_Sizes[j]);
+		m_Postings[j][m_Sizes[j]++] = c;
+	}
+
+	protected void remove(int j, int c) {
+		int l[] = m_Postings[j];
+		for (int i = 0; i < m_Sizes[j]; i++) {
+			if (l[i] == c) {
+				l[i] = l[--m_Sizes[j]];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the activations of the first C categories (with weights w and their sums sw) by the sparse input x (the
+	 * values val of the features idx, in ascending order; zeros are skipped), as {@link ARAMKernel#fuzzyAnd(int[],
+	 * double[], int, SparseArray, int)} / (alpha + sw) would give them.
+	 */
+	public double[] activate(int idx[], double val[], int n, SparseArray w[], double sw[], double alpha, int C) {
+		double compl = 0.;
+		int nnz = 0;
+		boolean touched[] = new boolean[C];
+		for (int t = 0; t < n; t++) {
+			if (val[t] == 0)
+				continue;
+			compl += 1 - val[t];
+			nnz++;
+			// the kernel looks up key j and key F+j (which, for a negative j, is the feature F+j)
+			int j = idx[t];
+			if (j < 0)
+				j += m_F;
+			if (j < 0 || j >= m_F)
+				continue;
+			int l[] = m_Postings[j];
+			for (int i = 0; i < m_Sizes[j]; i++) {
+				if (l[i] < C)
+					touched[l[i]] = true;
+			}
+		}
+		double act[] = new double[C];
+		for (int c = 0; c < C; c++) {
+			if (touched[c] || c >= m_Count || m_Features[c] == null)
+				act[c] = ARAMKernel.fuzzyAnd(idx, val, n, w[c], m_F) / (alpha + sw[c]);
+			else
+				act[c] = (compl + m_UpperSum[c] + (m_F - nnz - m_UpperCount[c])) / (alpha + sw[c]);
+		}
+		return act;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.classifiers.multilabel.neurofuzzy;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * ARAMKernel - The category activation shared by the ARAM networks.
+ * <br>
+ * The fuzzy AND |x ^ w| of an input x with the weights w of a category (for dense weights, and for sparse weights
+ * where the complement of feature j is stored under key F+j as <i>1 - weight</i>), and the selection of the best
+ * categories by their activations. The categories are ranked lazily (with a heap) in the order of a stable
+ * descending sort, so that only the few that are actually visited are ever ordered.
+ *
+ * @version October 2026
+ */
+public class ARAMKernel {
+
+	/**
+	 * Ranking - The positions of a vector of activations, best first (ties by position, as a stable sort would).
+	 */
+	public static class Ranking {
+
+		protected double m_Values[];
+
+		protected int m_Heap[];
+
+		protected int m_Size;
+
+		public Ranking(double values[]) {
+			this(values, values.length);
+		}
+
+		/**
+		 * Ranks the first n of values (which are not copied).
+		 */
+		public Ranking(double values[], int n) {
+			m_Values = values;
+			m_Heap = new int[n];
+			for (int i = 0; i < n; i++)
+				m_Heap[i] = i;
+			m_Size = n;
+			for (int i = n / 2 - 1; i >= 0; i--)
+				down(i);
+		}
+
+		/** whether position a is ranked before position b */
+		protected boolean before(int a, int b) {
+			int c = Double.compare(m_Values[a], m_Values[b]);
+			return c > 0 || (c == 0 && a < b);
+		}
+
+		protected void down(int i) {
+			int p = m_Heap[i];
+			while (true) {
+				int c = 2 * i + 1;
+				if (c >= m_Size)
+					break;
+				if (c + 1 < m_Size && before(m_Heap[c + 1], m_Heap[c]))
+					c++;
+				if (!before(m_Heap[c], p))
+					break;
+				m_Heap[i] = m_Heap[c];
+				i = c;
+			}
+			m_Heap[i] = p;
+		}
+
+		public boolean hasNext() {
+			return m_Size > 0;
+		}
+
+		/**
+		 * Returns the position of the next best activation.
+		 */
+		public int next() {
+			if (m_Size == 0)
+				throw new NoSuchElementException();
+			int p = m_Heap[0];
+			m_Size--;
+			if (m_Size > 0) {
+				m_Heap[0] = m_Heap[m_Size];
+				down(0);
+			}
+			return p;
+		}
+	}
+
+	/**
+	 * Value - The value at a given rank of the first n of values, as if sorted in descending order.
+	 * Found by (3-way) quickselect on a copy, so the values are left as they are.
+	 */
+	public static double select(double values[], int n, int rank) {
+		if (rank < 0 || rank >= n)
+			throw new ArrayIndexOutOfBoundsException(rank);
+		double a[] = Arrays.copyOf(values, n);
+		int lo = 0, hi = n - 1;
+		while (true) {
+			double pivot = a[(lo + hi) >>> 1];
+			// [lo,lt) before the pivot, [lt,i) equal to it, (gt,hi] after it
+			int lt = lo, i = lo, gt = hi;
+			while (i <= gt) {
+				int c = Double.compare(a[i], pivot);
+				if (c > 0) {
+					double t = a[lt]; a[lt++] = a[i]; a[i++] = t;
+				}
+				else if (c < 0) {
+					double t = a[gt]; a[gt--] = a[i]; a[i] = t;
+				}
+				else {
+					i++;
+				}
+			}
+			if (rank < lt)
+				hi = lt - 1;
+			else if (rank > gt)
+				lo = gt + 1;
+			else
+				return pivot;
+		}
+	}
+
+	/**
+	 * Winners - The positions of the categories that take part in a prediction, best first: the best one, and those
+	 * following it whose relative drop in activation does not exceed threshold times the spread of the activations
+	 * (from the best one down to the one of the given rank).
+	 *
+	 * @param	act	the activations
+	 * @param	n	the number of activations (of act) to consider
+	 * @param	rank	the rank (position in descending order) of the activation that marks the spread
+	 * @param	threshold	the threshold
+	 * @return	the positions (in act) of the winners
+	 */
+	public static int[] winners(double act[], int n, int rank, double threshold) {
+		Ranking r = new Ranking(act, n);
+		int w[] = new int[Math.min(n, 16)];
+		w[0] = r.next();
+		double s0 = act[w[0]];
+		double diff_act = s0 - select(act, n, rank);
+		int k = 1;
+		while (r.hasNext()) {
+			int i = r.next();
+			if ((s0 - act[i]) / s0 > threshold * diff_act)
+				break;
+			if (k == w.length)
+				w = Arrays.copyOf(w, Math.min(n, 2 * k));
+			w[k++] = i;
+		}
+		return Arrays.copyOf(w, k);
+	}
+
+	/**
+	 * Fuzzy AND - sum_j min(x_j, w_j), of (already complement-coded) dense x and w.
+	 */
+	public static double fuzzyAnd(double x[], double w[]) {
+		double sum = 0.;
+		for (int j = 0; j < x.length; j++)
+			sum += ((x[j] < w[j]) ? x[j] : w[j]);
+		return sum;
+	}
+
+	/**
+	 * Choice - |x ^ w| / (alpha + |w|), of (already complement-coded) dense x and w.
+	 */
+	public static double choice(double x[], double w[], double alpha) {
+		double sum = 0.;
+		for (int j = 0; j < w.length; j++)
+			sum += w[j];
+		return fuzzyAnd(x, w) / (alpha + sum);
+	}
+
+	/**
+	 * Fuzzy AND - |x ^ w| of the F (not complement-coded) dense features x with sparse weights w, over the
+	 * features first and then their complements; a weight that is not stored counts as 0.
+	 */
+	public static double fuzzyAnd(double x[], SparseArray w, int F) {
+		double sum = 0.;
+		int n = w.size();
+		int p = 0;
+		for (int j = 0; j < F; j++) {
+			while (p < n && w.keyAt(p) < j)
+				p++;
+			double wa = (p < n && w.keyAt(p) == j) ? w.valueAt(p) : 0.;
+			sum += ((x[j] < wa) ? x[j] : wa);
+		}
+		for (int j = F; j < 2 * F; j++) {
+			while (p < n && w.keyAt(p) < j)
+				p++;
+			double wa = 1 - ((p < n && w.keyAt(p) == j) ? w.valueAt(p) : 0.);
+			double da = 1 - x[j - F];
+			sum += ((da < wa) ? da : wa);
+		}
+		return sum;
+	}
+
+	/**
+	 * Fuzzy AND - |x ^ w| of the F sparse features x (the values val of the features idx, in ascending order; zeros
+	 * are skipped) with sparse weights w, feature by feature, then over the complements of the features absent from
+	 * x, whose own complements are 1 unless stored in w.
+	 *
+	 * @param	idx	the indices of x
+	 * @param	val	the values of x
+	 * @param	n	the number of (indices and values of) x
+	 * @param	w	the weights
+	 * @param	F	the number of features
+	 * @return	|x ^ w|
+	 */
+	public static double fuzzyAnd(int idx[], double val[], int n, SparseArray w, int F) {
+		double sum = 0.;
+		int count = 0;
+		for (int t = 0; t < n; t++) {
+			double da = val[t];
+			if (da == 0)
+				continue;
+			int j = idx[t];
+			count++;
+			int p = w.indexOfKey(j);
+			if (p >= 0) {
+				double wa = w.valueAt(p);
+				sum += ((da < wa) ? da : wa);
+			}
+			p = w.indexOfKey(j + F);
+			double dat = 1 - da;
+			if (p >= 0) {
+				double wat = 1 - w.valueAt(p);
+				sum += ((dat < wat) ? dat : wat);
+			}
+			else {
+				sum += dat;
+			}
+		}
+		// the stored complements that x did not touch
+		int t = 0;
+		for (int p = upper(w, F); p < w.size(); p++) {
+			int j = w.keyAt(p) - F;
+			while (t < n && (idx[t] < j || val[t] == 0))
+				t++;
+			if (t < n && idx[t] == j)
+				continue;
+			sum += 1 - w.valueAt(p);
+			count++;
+		}
+		return sum + (F - count);
+	}
+
+	/**
+	 * Returns the position of the first key (of w) that is at least F, i.e., of the first complement.
+	 */
+	public static int upper(SparseArray w, int F) {
+		int p = w.indexOfKey(F);
+		return (p >= 0) ? p : ~p;
+	}
+}
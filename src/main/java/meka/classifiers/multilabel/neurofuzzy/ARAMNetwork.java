@@ -83,20 +83,8 @@ public class ARAMNetwork extends ARAMNetworkClass    {
     int maxNumCategories = 20000;
     boolean m_userankstoclass=false;
 	boolean learningphase=true;
-	 int[] neuronsactivated=null;
-	double[] neuronsactivity=null;
 	List<Integer> order=null;
-	int nrinstclassified=0;
 	String activity_report="";
-
-
-	  public int[] getneuronsactivated(){
-		  return neuronsactivated;
-	  }
-	  
-	  public double[] getneuronsactivity(){
-		  return neuronsactivity;
-	  }
 	   
     public ARAMNetwork(int fnumFeatures, int fnumClasses, double fro, double fthreshold) {
 	initARAM(fnumFeatures, fnumClasses,  fro,  fthreshold);
@@ -217,8 +205,7 @@ public class ARAMNetwork extends ARAMNetworkClass    {
 				labels[j] = instance.value(j);
 				labels[j+num_classes] = 1 - labels[j];
 			}
-			SortPair[] cateacti = ARTActivateCategories(data);
-			java.util.Arrays.sort(cateacti);
+			ARAMKernel.Ranking cateacti = new ARAMKernel.Ranking(ARTActivateCategories(data));
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
@@ -227,8 +214,7 @@ public class ARAMNetwork extends ARAMNetworkClass    {
 
 			while (!resonance) {
 
-				currentCategory = cateacti[currentSortedIndex]
-						.getOriginalIndex();
+				currentCategory = cateacti.next();
 				matchA = ART_Calculate_Match(data, weightsA[currentCategory]);
 				if (sumArray(weightsB[currentCategory]) == 0) {
 					matchB = 1;
@@ -305,47 +291,32 @@ public class ARAMNetwork extends ARAMNetworkClass    {
 				currentData[j] = instance.value(num_classes+j);
 				currentData[num_features+j] = 1 - currentData[j];
 			}
-			SortPair[] sortedActivations = ARTActivateCategories(currentData);
-
-			java.util.Arrays.sort(sortedActivations);
-			double diff_act = sortedActivations[0].getValue()
-					- sortedActivations[numCategories - 2].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < numCategories; i++) {
-				activ_change = (sortedActivations[0].getValue() - sortedActivations[i]
-						.getValue())
-						/ sortedActivations[0].getValue();
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(currentData);
+			int[] best = ARAMKernel.winners(activations, numCategories, numCategories - 2, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
 			for (int i = 0; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+				best_matches[i] = activations[best[i]];
 			}
 			// % min_mat = min(best_matches);
 			// % max_mat = max(best_matches);
 
 			double sum_mat = sumArray(best_matches);
 			int currentCategory = 0;
-			this.neuronsactivated=new int[largest_activ];
-			this.neuronsactivity=new double[largest_activ];
+			int[] activated=new int[largest_activ];
+			double[] activity=new double[largest_activ];
 			for (int i = 0; i < largest_activ; i++) {
-				this.neuronsactivity[i]=best_matches[i];
+				activity[i]=best_matches[i];
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
-				this.neuronsactivated[i]=currentCategory;
+				currentCategory = best[i];
+				activated[i]=currentCategory;
 				// % Fill return vector with weightB values
 				for (int j = 0; j < num_classes; j++) {
 					ranking[j] = ranking[j]
 							+ best_matches[i] * weightsB[currentCategory][j];
 				}
 			}
+			setActivity(activated, activity);
 			if(m_userankstoclass) {
 				return ARAMm_Ranking2Class(ranking);
 				
@@ -379,21 +350,10 @@ public class ARAMNetwork extends ARAMNetworkClass    {
 	            }
 		return classes;
 	}
-	private SortPair[] ARTActivateCategories(double[] Data) {
-		SortPair[] catacti = new SortPair[numCategories];
-		// double[] catacti=new double[numCategories];
-		double[] matchVector = new double[numFeatures];
+	private double[] ARTActivateCategories(double[] Data) {
+		double[] catacti = new double[numCategories];
 		for (int i = 0; i < numCategories; i++) {
-			double sumvector = 0;
-			double sumweight = 0;
-			for (int j = 0; j < numFeatures; j++) {
-				matchVector[j] = ((Data[j] < weightsA[i][j]) ? Data[j]
-						: weightsA[i][j]);
-				sumvector += matchVector[j];
-				sumweight += weightsA[i][j];
-			}
-
-			catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
+			catacti[i] = ARAMKernel.choice(Data, weightsA[i], alpha);
 		}
 		return catacti;
 	}
@@ -697,24 +657,6 @@ public String getModel() {
 	return null;
 }
 
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
-@Override
-public double[][] distributionForInstanceM(Instances i) throws Exception {
-	// TODO Auto-generated method stub
-	return null;
-}
-
 @Override
 public void setDebug(boolean debug) {
 	// TODO Auto-generated method stub
@@ -10,12 +10,16 @@ package meka.classifiers.multilabel.neurofuzzy;
 
 import meka.classifiers.multilabel.IncrementalMultiLabelClassifier;
 import meka.classifiers.multilabel.MultiLabelClassifierThreaded;
+import meka.core.ThreadUtils;
 import weka.classifiers.SingleClassifierEnhancer;
 import weka.core.Attribute;
 import weka.core.Capabilities;
 import weka.core.Instances;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ****REPLACE THE FOLLOWING WITH SIMILAR INFORMATION.
@@ -72,8 +76,10 @@ IncrementalMultiLabelClassifier{
 	protected int[] neuronsactivated=null;
 	protected double[] neuronsactivity=null;
 	List<Integer> order=null;
-	int nrinstclassified=0;
+	AtomicInteger nrinstclassified=new AtomicInteger();
 	protected String activity_report="";
+	/** whether distributionForInstanceM spreads the instances over all the processors */
+	protected boolean m_threaded=false;
 
 
  //**** THIS IS WHERE CLASSIFIER WEIGHTS ETC GO ****
@@ -107,6 +113,68 @@ IncrementalMultiLabelClassifier{
 		}
 	}
 
+	/**
+	 * Records the categories that took part in the last prediction and their activities, as one pair (predictions
+	 * may run concurrently, see {@link #distributionForInstanceM(Instances)}).
+	 */
+	protected synchronized void setActivity(int[] activated, double[] activity) {
+		neuronsactivated=activated;
+		neuronsactivity=activity;
+	}
+
+	public synchronized int[] getneuronsactivated(){
+		return neuronsactivated;
+	}
+
+	public synchronized double[] getneuronsactivity(){
+		return neuronsactivity;
+	}
+
+	public boolean isThreaded() {
+		return m_threaded;
+	}
+
+	public void setThreaded(boolean setv) {
+		m_threaded=setv;
+	}
+
+	/**
+	 * Predicts all the instances of D. If threaded, they are split into blocks that are spread over a pool of (at
+	 * most) as many threads as there are processors; a prediction only reads the network and keeps its buffers to
+	 * itself, so the blocks can run side by side.
+	 *
+	 * @param D the instances to be classified
+	 * @return the predicted distributions, one per instance of D
+	 * @exception Exception if there is a problem generating a prediction
+	 */
+	public double[][] distributionForInstanceM(final Instances D) throws Exception {
+		final int N = D.numInstances();
+		final double[][] result = new double[N][];
+		int T = m_threaded ? ThreadUtils.getActualNumThreads(ThreadUtils.ALL, N) : ThreadUtils.SEQUENTIAL;
+		if (T == ThreadUtils.SEQUENTIAL || N < 2) {
+			for (int i = 0; i < N; i++)
+				result[i] = distributionForInstance(D.instance(i));
+			return result;
+		}
+
+		// a few blocks per thread, to even out their load
+		int block = Math.max(1, (N + 4 * T - 1) / (4 * T));
+		List<Callable<Object>> jobs = new ArrayList<>();
+		for (int b = 0; b < N; b += block) {
+			final int from = b;
+			final int to = Math.min(N, b + block);
+			jobs.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					for (int i = from; i < to; i++)
+						result[i] = distributionForInstance(D.instance(i));
+					return null;
+				}
+			});
+		}
+		ThreadUtils.executeAll(jobs, T);
+		return result;
+	}
+
 }
 
 
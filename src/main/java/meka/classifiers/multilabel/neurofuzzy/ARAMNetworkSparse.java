@@ -67,11 +67,11 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
  //define stuff like weight matrices, classifier parameters etc.
  //e.g., protected double rho_a_bar=0.0;
 
-    SparseVector[] weightsA = null;
+    SparseArray[] weightsA = null;
     double[] sweightsA = null;
     double sweightsA0;
-    SparseVector[] weightsB = null;
-	HashMap<String, Vector> hmclasses = null;
+    SparseArray[] weightsB = null;
+	HashMap<String, Vector<Integer>> hmclasses = null;
 	int snumFeatures=0;
 	int snumClasses=0;
 	int numinstances=0;
@@ -89,18 +89,18 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 		numClasses = fnumClasses;
 		snumClasses= (int)(0.5*numClasses);
 		threshold = fthreshold;
-		weightsA = new SparseVector[1];
-		weightsA[0] = new SparseVector(numFeatures);
+		weightsA = new SparseArray[1];
+		weightsA[0] = new SparseArray();
 		sweightsA = new double[1];
 		sweightsA[0]=0;
 		for(int i=0;i<numFeatures;i++){
 			sweightsA[0]+=1;
 		}
 		sweightsA0=sweightsA[0];
-		weightsB = new SparseVector[1];
-		weightsB[0] = new SparseVector(snumClasses);
+		weightsB = new SparseArray[1];
+		weightsB[0] = new SparseArray();
 		numCategories = 1;
-		hmclasses = new HashMap<String, Vector>();
+		hmclasses = new HashMap<String, Vector<Integer>>();
 
 
 
@@ -209,8 +209,9 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 				suminputB+=labels[j];
 			}
 			
-			SortPair[] cateacti = ARTActivateCategories(data,labels);
-			java.util.Arrays.sort(cateacti);
+			// the categories of the same labels (or the uncommitted one), and their activations
+			int[] cats = ARTCategories(labels, numCategories_1);
+			ARAMKernel.Ranking sortedActivations = new ARAMKernel.Ranking(ARTActivateCategories(data, cats));
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
@@ -218,10 +219,9 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 			double matchB = 0;
 
 			
-			while (!resonance && currentSortedIndex<cateacti.length) {
+			while (!resonance && sortedActivations.hasNext()) {
 
-				currentCategory = cateacti[currentSortedIndex]
-						.getOriginalIndex();
+				currentCategory = cats[sortedActivations.next()];
 				if (currentCategory == numCategories_1) {
 					matchB=1;
 					matchA=1;
@@ -246,32 +246,7 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 							resonance = true;
 						} else {
 							// Add a new category
-							sweightsA[currentCategory]=0;
-							for (int j = 0; j < snumFeatures; j++) {
-								weightsA[currentCategory].put(j,data[j]);
-								sweightsA[currentCategory]+=data[j];
-							}
-							for (int j = snumFeatures; j < numFeatures; j++) {
-								double da=data[j-snumFeatures];
-								weightsA[currentCategory].put(j, da);
-								sweightsA[currentCategory]+=1-da;
-								
-							
-							}
-
-							for (int j = 0; j < weightsB[currentCategory].size(); j++) {
-								weightsB[currentCategory].put(j,labels[j]);
-							}
-							String s = Arrays.toString(labels);
-							if (hmclasses.containsKey(s)){
-								hmclasses.get(s).add(currentCategory);
-							hmclasses.put(s,hmclasses.get(s)); 
-							}else{
-								Vector v = new Vector();
-								v.add(currentCategory);
-								hmclasses.put(s,v);
-							}
-							ARAMm_Add_New_Category();
+							ARAMm_Set_New_Category(data, labels, currentCategory);
 							// fprintf(FileID,'Add a new category of %d\n',
 							// network.numCategories);
 							// Increment the number of changes since we added a
@@ -297,35 +272,10 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 				}
 
 			}
-			if(!resonance && currentSortedIndex>=cateacti.length)
+			if(!resonance)
 			{
 				// Add a new category
-				sweightsA[numCategories_1]=0;
-				for (int j = 0; j < snumFeatures; j++) {
-					weightsA[numCategories_1].put(j, data[j]);
-					sweightsA[numCategories_1]+=data[j];
-				}
-				for (int j = snumFeatures; j < numFeatures; j++) {
-					double da=data[j-snumFeatures];
-					weightsA[numCategories_1].put(j, da);
-					sweightsA[numCategories_1]+=1-da;
-					
-				
-				}
-
-				for (int j = 0; j < weightsB[numCategories_1].size(); j++) {
-					weightsB[numCategories_1].put(j, labels[j]);
-				}
-				String s = Arrays.toString(labels);
-				if (hmclasses.containsKey(s)){
-					hmclasses.get(s).add(numCategories_1);
-				hmclasses.put(s,hmclasses.get(s)); 
-				}else{
-					Vector v = new Vector();
-					v.add(numCategories_1);
-					hmclasses.put(s,v);
-				}
-				ARAMm_Add_New_Category();
+				ARAMm_Set_New_Category(data, labels, numCategories_1);
 				// fprintf(FileID,'Add a new category of %d\n',
 				// network.numCategories);
 				// Increment the number of changes since we added a
@@ -339,6 +289,42 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 
 
 
+  /**
+   * Commits the (uncommitted) category to the given data and labels, and adds a new uncommitted one.
+   */
+	private void ARAMm_Set_New_Category(double[] data, double[] labels, int category) {
+		sweightsA[category]=0;
+		for (int j = 0; j < snumFeatures; j++) {
+			sweightsA[category]+=data[j];
+		}
+		for (int j = snumFeatures; j < numFeatures; j++) {
+			sweightsA[category]+=1-data[j-snumFeatures];
+		}
+		// the features, then their complements, so that both are appended in order
+		for (int j = 0; j < snumFeatures; j++) {
+			if (data[j]!=0)
+				weightsA[category].append(j, data[j]);
+		}
+		for (int j = snumFeatures; j < numFeatures; j++) {
+			if (data[j-snumFeatures]!=0)
+				weightsA[category].append(j, data[j-snumFeatures]);
+		}
+		for (int j = 0; j < snumClasses; j++) {
+			if (labels[j]!=0)
+				weightsB[category].append(j, labels[j]);
+		}
+		String s = Arrays.toString(labels);
+		if (hmclasses.containsKey(s)){
+			hmclasses.get(s).add(category);
+		}else{
+			Vector<Integer> v = new Vector<Integer>();
+			v.add(category);
+			hmclasses.put(s,v);
+		}
+		ARAMm_Add_New_Category();
+	}
+
+
  //****THIS IS THE CLASSIFICATION ROUTINE. MODIFY TO CHANGE THE ALGORITHM****
  //****classifyInstance() uses this method, so implement the 
  //****nuts-and-bolts of your algorithm here. 
@@ -361,47 +347,34 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 				currentData[j] = instance.value(num_classes+j);
 				currentData[num_features+j] = 1 - currentData[j];
 			}
-			SortPair[] sortedActivations = ARTActivateCategories(currentData);
-
-			java.util.Arrays.sort(sortedActivations);
-			double diff_act = sortedActivations[0].getValue()
-					- sortedActivations[numCategories - 2].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < sortedActivations.length; i++) {
-				activ_change = (sortedActivations[0].getValue() - sortedActivations[i]
-						.getValue())
-						/ sortedActivations[0].getValue();
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(currentData);
+			int[] best = ARAMKernel.winners(activations, activations.length, numCategories - 2, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
 			for (int i = 0; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+				best_matches[i] = activations[best[i]];
 			}
 			// % min_mat = min(best_matches);
 			// % max_mat = max(best_matches);
 
 			double sum_mat = sumArray(best_matches);
 			int currentCategory = 0;
-			this.neuronsactivated=new int[largest_activ];
-			this.neuronsactivity=new double[largest_activ];
+			int[] activated=new int[largest_activ];
+			double[] activity=new double[largest_activ];
 			for (int i = 0; i < largest_activ; i++) {
-				this.neuronsactivity[i]=best_matches[i];
+				activity[i]=best_matches[i];
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
-				this.neuronsactivated[i]=currentCategory;
+				currentCategory = best[i];
+				activated[i]=currentCategory;
 				// % Fill return vector with weightB values
-				for (int j = 0; j < num_classes; j++) {
+				SparseArray wb = weightsB[currentCategory];
+				for (int jt=0;jt<wb.size();jt++) {
+					int j=wb.keyAt(jt);
 					ranking[j] = ranking[j]
-							+ best_matches[i] * weightsB[currentCategory].get(j);
+							+ best_matches[i] * wb.valueAt(jt);
 				}
 			}
+			setActivity(activated, activity);
 			if(m_userankstoclass) {
 				return ARAMm_Ranking2Class(ranking);
 				
@@ -434,70 +407,40 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 	            }
 		return classes;
 	}
-	private SortPair[] ARTActivateCategories(double[] Data) {
-		SortPair[] catacti = new SortPair[numCategories-1];
-		// double[] catacti=new double[numCategories];
-		double[] matchVector = new double[numFeatures];
+	/**
+	 * Returns the activations of the (committed) categories by the data.
+	 */
+	private double[] ARTActivateCategories(double[] Data) {
+		double[] catacti = new double[numCategories-1];
 		for (int i = 0; i < numCategories-1; i++) {
-			double sumvector = 0;
-		//	double sumweight = 0;
-			for (int j = 0; j < (int)snumFeatures; j++) {
-				double wa=weightsA[i].get(j);
-				matchVector[j] = ((Data[j] < wa) ? Data[j]
-						: wa);
-				sumvector += matchVector[j];
-				
-			//	sumweight += weightsA[i][j];
-			}
-			for (int j = snumFeatures; j < numFeatures; j++) {
-
-				double wa=1-weightsA[i].get(j);
-				double da=1-Data[j-snumFeatures];
-				matchVector[j] = (((da) < wa) ? da: wa);
-				sumvector += matchVector[j];
-			}
-			//sumweight=sweightsA[i]; 
-			catacti[i] = new SortPair(sumvector / (alpha + sweightsA[i]), i);
-		//	catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
-			//System.out.println("sumweight "+(sumweight-sweightsA[i]));
+			catacti[i] = ARAMKernel.fuzzyAnd(Data, weightsA[i], snumFeatures) / (alpha + sweightsA[i]);
 		}
 		return catacti;
 	}
-	private SortPair[] ARTActivateCategories(double[] Data, double[] labels) {
-		String s = Arrays.toString(labels);
-		Vector lclasses = hmclasses.get(s);
-		SortPair[] catacti = null;
+
+	/**
+	 * Returns the categories of the given labels, or the uncommitted one if there are none.
+	 */
+	private int[] ARTCategories(double[] labels, int uncommitted) {
+		Vector<Integer> lclasses = hmclasses.get(Arrays.toString(labels));
 		if (lclasses==null||lclasses.size()==0){
-			catacti=new SortPair[1];
-			catacti[0] = new SortPair(1,numCategories-1);
-			return catacti;
+			return new int[]{uncommitted};
 		}
-		catacti = new SortPair[lclasses.size()];
-		// double[] catacti=new double[numCategories];
-		double[] matchVector = new double[numFeatures];
-		for (int i = 0; i < lclasses.size(); i++) {
-			double sumvector = 0;
-		//	double sumweight = 0;
-			int k = ((Integer)lclasses.get(i)).intValue();
-			for (int j = 0; j < snumFeatures; j++) {
-				double wa=weightsA[k].get(j);
-				matchVector[j] = ((Data[j] < wa) ? Data[j]
-						: wa);
-				sumvector += matchVector[j];
-			//	sumweight += weightsA[k][j];
-			}
-			for (int j = snumFeatures; j < numFeatures; j++) {
+		int[] cats = new int[lclasses.size()];
+		for (int i = 0; i < cats.length; i++) {
+			cats[i] = lclasses.get(i);
+		}
+		return cats;
+	}
 
-				double wa=1-weightsA[k].get(j);
-				double da=1-Data[j-snumFeatures];
-				matchVector[j] = (((da) < wa) ? da: wa);
-				sumvector += matchVector[j];
-			}
-			
-			//sumweight=sweightsA[k];
-			//catacti[i] = new SortPair(sumvector / (alpha + sumweight), k);
-			//System.out.println("sumweight "+(sumweight-sweightsA[k]));
-			catacti[i] = new SortPair(sumvector / (alpha + sweightsA[k]), k);
+	/**
+	 * Returns the activations of the given categories by the data (1 for the uncommitted one).
+	 */
+	private double[] ARTActivateCategories(double[] Data, int[] cats) {
+		double[] catacti = new double[cats.length];
+		for (int i = 0; i < cats.length; i++) {
+			int k = cats[i];
+			catacti[i] = (k == numCategories-1) ? 1 : ARAMKernel.fuzzyAnd(Data, weightsA[k], snumFeatures) / (alpha + sweightsA[k]);
 		}
 		return catacti;
 	}
@@ -729,7 +672,7 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 			if (data[i] < wa ){
 			wa = (learningRate * data[i])
 					+ (1 - learningRate) * wa;
-			weightsA[category].put(i, wa);
+			put(weightsA[category], i, wa);
 			}
 			sweightsA[category]+=wa;
 
@@ -741,7 +684,7 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 			if (da < wa ){
 			wa = (learningRate * da)
 					+ (1 - learningRate) * wa;
-			weightsA[category].put(i, 1-wa);
+			put(weightsA[category], i, 1-wa);
 			}
 			sweightsA[category]+=wa;
 
@@ -749,12 +692,12 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 		for (int i = 0; i < snumClasses; i++) {
 			double wb=weightsB[category].get(i);
 		    if(weightblearnmethod== 0){
-		    	weightsB[category].put(i, labels[i] + wb);
+		    	put(weightsB[category], i, labels[i] + wb);
 	        weightChange = 1;
 		    }else{
 	      //  %normalise
 	        if ( labels[i]< wb){
-		    	weightsB[category].put(i, (learningRate * labels[i] )+ (1 - learningRate) *wb);  
+		    	put(weightsB[category], i, (learningRate * labels[i] )+ (1 - learningRate) *wb);  
 	            weightChange = 1;
 	        }
 		    }
@@ -762,56 +705,41 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 		return weightChange;
 	}
 
-	private double ART_Calculate_MatchA(double[] Data, SparseVector fweights, double suminput
+	/**
+	 * Stores the value of w at j (or removes it, if 0).
+	 */
+	private static void put(SparseArray w, int j, double value) {
+		if (value == 0.0)
+			w.delete(j);
+		else
+			w.put(j, value);
+	}
+
+	private double ART_Calculate_MatchA(double[] Data, SparseArray fweights, double suminput
 			) {
 
 		if (suminput == 0) {
 			return 0.0;
 		}
-		int lnumFeatures = Data.length;
-		if (lnumFeatures*2 != fweights.size()) {
+		if (Data.length*2 != numFeatures) {
 			return 0.0;
 		}
-		double[] matchVector = new double[numFeatures];
-		double summatch = 0;
-		//double suminput = 0;
-		for (int j = 0; j < lnumFeatures; j++) {
-			double w = fweights.get(j);
-			matchVector[j] = ((Data[j] < w) ? Data[j] :w);
-			summatch += matchVector[j];
-			//suminput += Data[j];
-		}
-		for (int j = snumFeatures; j < numFeatures; j++) {
-
-			double w =1- fweights.get(j);
-			double da= 1-Data[j-snumFeatures];
-			matchVector[j] = ((da< w) ? da :w);
-			summatch += matchVector[j];
-		}
-//		if (suminput == 0) {
-//			return 0.0;
-//		}
-		return summatch / suminput;
+		return ARAMKernel.fuzzyAnd(Data, fweights, snumFeatures) / suminput;
 	}
 
-	private double ART_Calculate_MatchB(double[] Data, SparseVector fweights, double suminput
+	private double ART_Calculate_MatchB(double[] Data, SparseArray fweights, double suminput
 			) {
 
 		if (suminput == 0) {
 			return 0.0;
 		}
-		int lnumFeatures = Data.length;
-		if (lnumFeatures != fweights.size()) {
+		if (Data.length != snumClasses) {
 			return 0.0;
 		}
-		double[] matchVector = new double[lnumFeatures];
 		double summatch = 0;
-		//double suminput = 0;
-		for (int j = 0; j < lnumFeatures; j++) {
+		for (int j = 0; j < Data.length; j++) {
 			double w = fweights.get(j);
-			matchVector[j] = ((Data[j] < w) ? Data[j] :w);
-			summatch += matchVector[j];
-			//suminput += Data[j];
+			summatch += ((Data[j] < w) ? Data[j] :w);
 		}
 		return summatch / suminput;
 	}
@@ -821,9 +749,9 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
 		weightsA = Arrays.copyOf(weightsA, numCategories + 1);
 		sweightsA = Arrays.copyOf(sweightsA, numCategories + 1);
 		weightsB = Arrays.copyOf(weightsB, numCategories + 1);
-		weightsA[numCategories] = new SparseVector((int)numFeatures);
+		weightsA[numCategories] = new SparseArray();
 		//sweightsA[numCategories] = new double();
-		weightsB[numCategories] = new SparseVector((int)snumClasses);
+		weightsB[numCategories] = new SparseArray();
 		//Arrays.fill(weightsA[numCategories], 1.0);
 		//Arrays.fill(weightsB[numCategories], 0.0);
 		sweightsA[numCategories]=sweightsA0;
@@ -849,24 +777,6 @@ public class ARAMNetworkSparse extends ARAMNetworkClass {
     }
   }
 
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
-@Override
-public double[][] distributionForInstanceM(Instances i) throws Exception {
-	// TODO Auto-generated method stub
-	return null;
-}
-
 @Override
 public String getModel() {
 	// TODO Auto-generated method stub
@@ -227,7 +227,11 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 			}
 			
 			SortPair[] cateacti = ARTActivateCategories(data,labels);
-			java.util.Arrays.sort(cateacti);
+			double[] activations = new double[cateacti.length];
+			for (int i = 0; i < cateacti.length; i++) {
+				activations[i] = cateacti[i].getValue();
+			}
+			ARAMKernel.Ranking sortedActivations = new ARAMKernel.Ranking(activations);
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
@@ -235,9 +239,9 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 			double matchB = 0;
 
 			
-			while (!resonance && currentSortedIndex<cateacti.length) {
+			while (!resonance && sortedActivations.hasNext()) {
 
-				currentCategory = cateacti[currentSortedIndex]
+				currentCategory = cateacti[sortedActivations.next()]
 						.getOriginalIndex();
 				if (currentCategory == numCategories_1) {
 					matchB=1;
@@ -324,7 +328,7 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 				}
 
 			}
-			if(!resonance && currentSortedIndex>=cateacti.length)
+			if(!resonance)
 			{
 				// Add a new category
 				sweightsA[numCategories_1]=0;
@@ -391,41 +395,25 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 					currentData.put(j, dt);
 				}
 			}
-			SortPair[] sortedActivations = ARTActivateCategories(currentData);
-
-			java.util.Arrays.sort(sortedActivations);
-			double diff_act = sortedActivations[0].getValue()
-					- sortedActivations[numCategories - 2].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < sortedActivations.length; i++) {
-				activ_change = (sortedActivations[0].getValue() - sortedActivations[i]
-						.getValue())
-						/ sortedActivations[0].getValue();
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(currentData);
+			int[] best = ARAMKernel.winners(activations, activations.length, numCategories - 2, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
 			for (int i = 0; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+				best_matches[i] = activations[best[i]];
 			}
 			// % min_mat = min(best_matches);
 			// % max_mat = max(best_matches);
 
 			double sum_mat = sumArray(best_matches);
 			int currentCategory = 0;
-			this.neuronsactivated=new int[largest_activ];
-			this.neuronsactivity=new double[largest_activ];
+			int[] activated=new int[largest_activ];
+			double[] activity=new double[largest_activ];
 			for (int i = 0; i < largest_activ; i++) {
-				this.neuronsactivity[i]=best_matches[i];
+				activity[i]=best_matches[i];
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
-				this.neuronsactivated[i]=currentCategory;
+				currentCategory = best[i];
+				activated[i]=currentCategory;
 				// % Fill return vector with weightB values
 				Set <Integer> s1= weightsB[currentCategory].keySet();
 				for (int j :s1) {
@@ -433,6 +421,7 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 							+ best_matches[i] * (Double)weightsB[currentCategory].get(j);
 				}
 			}
+			setActivity(activated, activity);
 			if(m_userankstoclass) {
 				return ARAMm_Ranking2Class(ranking);
 				
@@ -465,8 +454,8 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 	            }
 		return classes;
 	}
-	private SortPair[] ARTActivateCategories(HashMap Data) {
-		SortPair[] catacti = new SortPair[numCategories-1];
+	private double[] ARTActivateCategories(HashMap Data) {
+		double[] catacti = new double[numCategories-1];
 		// double[] catacti=new double[numCategories];
 		double[] matchVector = new double[numFeatures];
 		Set<Integer> s1=Data.keySet();
@@ -491,7 +480,7 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
 				}
 			}
 			//sumweight=sweightsA[i]; 
-			catacti[i] = new SortPair(sumvector / (alpha + sweightsA[i]), i);
+			catacti[i] = sumvector / (alpha + sweightsA[i]);
 		//	catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
 			//System.out.println("sumweight "+(sumweight-sweightsA[i]));
 		}
@@ -1011,24 +1000,6 @@ public class ARAMNetworkSparseHT_Strange extends ARAMNetworkClass {
     }
   }
 
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
-@Override
-public double[][] distributionForInstanceM(Instances i) throws Exception {
-	// TODO Auto-generated method stub
-	return null;
-}
-
 @Override
 public String getModel() {
 	// TODO Auto-generated method stub
@@ -12,11 +12,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.Vector;
 
 
@@ -69,15 +64,16 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
  //e.g., protected double rho_a_bar=0.0;
 
 	SparseArray[] weightsA = null;
-	SparseArray[] upweightsA=null;
     double[] sweightsA = null;
     double sweightsA0;
     SparseArray[] weightsB = null;
-	HashMap<String, Vector> hmclasses = null;
+	HashMap<String, Vector<Integer>> hmclasses = null;
 	int snumFeatures=0;
 	int snumClasses=0;
 	int numinstances=0;
 	int activated=0;
+	boolean m_useindex=false;
+	volatile ARAMIndex index=null;
 
     public ARAMNetworkSparseV(int fnumFeatures, int fnumClasses, double fro, double fthreshold) {
 	initARAM(fnumFeatures, fnumClasses,  fro,  fthreshold);
@@ -93,8 +89,6 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
 		threshold = fthreshold;
 		weightsA = new SparseArray[1];
 		weightsA[0] = new SparseArray();
-		upweightsA = new SparseArray[1];
-		upweightsA[0] = new SparseArray();
 		sweightsA = new double[1];
 		sweightsA[0]=0;
 		for(int i=0;i<numFeatures;i++){
@@ -104,7 +98,7 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
 		weightsB = new SparseArray[1];
 		weightsB[0] = new SparseArray();
 		numCategories = 1;
-		hmclasses = new HashMap<String, Vector>();
+		hmclasses = new HashMap<String, Vector<Integer>>();
 
 
 
@@ -197,41 +191,53 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
     if (!instance.classIsMissing()) {
      //Do the weight updates using the instance.
 
-			for (Integer tj=0; tj<instance.numValues(); tj++){
+			for (int tj=0; tj<instance.numValues(); tj++){
 				int j=instance.index(tj);
-				double  da = instance.value(j);
+				double  da = instance.valueSparse(tj);
 				if (da==0){
 					continue;
 				}
 				if(j<num_classes){
-					labels.put(j, da);
+					labels.append(j, da);
 				}else{
-			data.put(j-num_classes, da);
-				
+					data.append(j-num_classes, da);
+				}
 			}
+
+			// the categories of the same labels (or the uncommitted one), and their activations
+			Vector<Integer> lclasses = hmclasses.get(labels.getKeysString());
+			int[] cats;
+			double[] raw;
+			double[] cateacti;
+			if (lclasses==null||lclasses.size()==0){
+				cats = new int[]{numCategories_1};
+				raw = new double[]{1};
+				cateacti = new double[]{1};
+			}else{
+				cats = new int[lclasses.size()];
+				raw = new double[cats.length];
+				cateacti = new double[cats.length];
+				for (int i = 0; i < cats.length; i++) {
+					cats[i] = lclasses.get(i);
+					raw[i] = ARAMKernel.fuzzyAnd(data.getKeys(), data.getValues(), data.size(), weightsA[cats[i]], snumFeatures);
+					cateacti[i] = raw[i] / (alpha + sweightsA[cats[i]]);
+				}
 			}
-			
-			SortPair2[] cateacti = ARTActivateCategories(data,labels);
-			java.util.Arrays.sort(cateacti);
+			ARAMKernel.Ranking sortedActivations = new ARAMKernel.Ranking(cateacti);
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
 			double matchA = 0;
 
-			
-			while (!resonance && currentSortedIndex<cateacti.length) {
+			while (!resonance && sortedActivations.hasNext()) {
 
-				currentCategory = cateacti[currentSortedIndex]
-						.getOriginalIndex();
+				int p = sortedActivations.next();
+				currentCategory = cats[p];
 				if (currentCategory == numCategories_1) {
 					matchA=1;
 				}
 				else{
-				matchA =  (cateacti[currentSortedIndex].getRawValue()/
-									snumFeatures);
-		//		System.out.println("Ma: "+matchA+" "+cateacti[currentSortedIndex].getValue()
-		//				+" "+numinstances+" "+currentCategory+" S:"+sweightsA[currentCategory]);
-				
+					matchA = raw[p]/snumFeatures;
 				}
 				if (matchA >= roa) {
 					if (currentCategory == numCategories_1) {
@@ -242,75 +248,19 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
 							resonance = true;
 						} else {
 							// Add a new category
-							sweightsA[currentCategory]=0;
-							int[] s1=data.getKeys();
-							int sit=data.size();
-							int count=0;
-							int j=0;
-							for (int jt=0;jt<sit;jt++) {
-								j=s1[jt];
-								Double da=data.get(j);
-								
-								weightsA[currentCategory].put(j,da);
-								weightsA[currentCategory].put(j+snumFeatures, da);
-								upweightsA[currentCategory].put(j+snumFeatures,1.0);
-							/*}
-								int[] s2=weightsA[currentCategory].getKeys();
-
-								int si2=weightsA[currentCategory].size();
-								for (int j=0 ;j<si2;j++) {
-									
-								//	System.out.println(j+" "+s2[j]);
-									double da=(Double)weightsA[currentCategory].get(s2[j]);*/
-							//	if (s2[j]<snumFeatures){
-									sweightsA[currentCategory]+=da;
-								/*}
-								else{*/
-									sweightsA[currentCategory]+=1-da;
-									count+=1;
-									
-								//}
-							}
-							sweightsA[currentCategory]+=snumFeatures-count;
-
-							s1=labels.getKeys();
-							sit=labels.size();
-							for (int jt=0;jt<sit;jt++) {
-								j=s1[jt];
-								weightsB[currentCategory].put(j,labels.get(j));
-							}
-							String s = labels.getKeysString();
-							if (hmclasses.containsKey(s)){
-								hmclasses.get(s).add(currentCategory);
-							hmclasses.put(s,hmclasses.get(s)); 
-							}else{
-								Vector<Integer> v = new Vector<Integer>();
-								v.add(currentCategory);
-								hmclasses.put(s,v);
-							}
-							ARAMm_Add_New_Category();
-							//System.out.println(numinstances+" "+numCategories);
-							
-							// fprintf(FileID,'Add a new category of %d\n',
-							// network.numCategories);
-							// Increment the number of changes since we added a
-							// new category.
+							ARAMm_Set_New_Category(data, labels, currentCategory);
 							numChanges = numChanges + 1;
 							resonance = true;
-							break;
 						}
 					} else {
 						// % Update weights
 						double weightChange = ARAMm_Update_Weights(data,
 								labels, currentCategory);
-						//System.out.println(numinstances+" "+currentCategory+" S:"+sweightsA[currentCategory]);
-						//sumArrayF(this.weightsA[1]);
 						if (weightChange == 1) {
 							numChanges += 1;
 						}
 
 						resonance = true;
-						break;
 					}
 				} else {
 					currentSortedIndex += 1;
@@ -318,54 +268,53 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
 				}
 
 			}
-			if(!resonance && currentSortedIndex>=cateacti.length)
+			if(!resonance)
 			{
 				// Add a new category
-				sweightsA[numCategories_1]=0;
-				int[] s1=data.getKeys();
-				int sit=data.size();
-				int j=0;
-				int count=0;
-				for (int jt=0;jt<sit;jt++) {
-					j=s1[jt];
-					double da=data.get(j);
-					weightsA[numCategories_1].put(j, da);
-					sweightsA[numCategories_1]+=da;
-					weightsA[numCategories_1].put(j+snumFeatures, da);
-					sweightsA[numCategories_1]+=1-da;
-					upweightsA[numCategories_1].put(j+snumFeatures,1.0);
-					count+=1;
-				}
-				sweightsA[numCategories_1]+=snumFeatures-count;
-				s1=labels.getKeys();
-					sit=labels.size();
-					j=0;
-					for (int jt=0;jt<sit;jt++) {
-						j=s1[jt];
-					weightsB[numCategories_1].put(j, labels.get(j));
-				}
-				String s = labels.getKeysString();
-				if (hmclasses.containsKey(s)){
-					hmclasses.get(s).add(numCategories_1);
-				hmclasses.put(s,hmclasses.get(s)); 
-				}else{
-					Vector<Integer> v = new Vector<Integer>();
-					v.add(numCategories_1);
-					hmclasses.put(s,v);
-				}
-				ARAMm_Add_New_Category();
-				//System.out.println(numinstances+" "+numCategories);
-				// fprintf(FileID,'Add a new category of %d\n',
-				// network.numCategories);
-				// Increment the number of changes since we added a
-				// new category.
+				ARAMm_Set_New_Category(data, labels, numCategories_1);
 				numChanges = numChanges + 1;
-				
-				
 			}
       }
   }
 
+  /**
+   * Commits the (uncommitted) category to the given data and labels, and adds a new uncommitted one.
+   */
+	private void ARAMm_Set_New_Category(SparseArray data, SparseArray labels, int category) {
+		int[] s1=data.getKeys();
+		int sit=data.size();
+		sweightsA[category]=0;
+		for (int jt=0;jt<sit;jt++) {
+			double da=data.valueAt(jt);
+			sweightsA[category]+=da;
+			sweightsA[category]+=1-da;
+		}
+		sweightsA[category]+=snumFeatures-sit;
+		// the features, then their complements, so that both are appended in order
+		for (int jt=0;jt<sit;jt++) {
+			weightsA[category].append(s1[jt], data.valueAt(jt));
+		}
+		for (int jt=0;jt<sit;jt++) {
+			weightsA[category].append(s1[jt]+snumFeatures, data.valueAt(jt));
+		}
+		for (int jt=0;jt<labels.size();jt++) {
+			weightsB[category].append(labels.keyAt(jt), labels.valueAt(jt));
+		}
+		String s = labels.getKeysString();
+		if (hmclasses.containsKey(s)){
+			hmclasses.get(s).add(category);
+		}else{
+			Vector<Integer> v = new Vector<Integer>();
+			v.add(category);
+			hmclasses.put(s,v);
+		}
+		ARAMIndex ix = index;
+		if (ix!=null){
+			ix.update(category, weightsA[category]);
+		}
+		ARAMm_Add_New_Category();
+	}
+
 
 
  //****THIS IS THE CLASSIFICATION ROUTINE. MODIFY TO CHANGE THE ALGORITHM****
@@ -384,75 +333,41 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
 		int num_classes=(int) (snumClasses);
 		double[] ranking = new double[num_classes];
 
-	  //  long startMilli = System.currentTimeMillis();
-//			for (int j = 0; j < num_features; j++) {
-//
-//				double dt=instance.value(num_classes+j);
-//				if (dt!=0){
-//					currentData.put(j, dt);
-//				}
-//			}
-			//TODO use instance here
-			SortPair[] sortedActivations = ARTActivateCategories(instance);
-
-			java.util.Arrays.sort(sortedActivations);
-			double s0=sortedActivations[0].getValue();
-			double diff_act = s0
-					- sortedActivations[numCategories - 2].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < sortedActivations.length; i++) {
-				activ_change = (s0 - sortedActivations[i]
-						.getValue())
-						/ s0;
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(instance);
+			int[] best = ARAMKernel.winners(activations, activations.length, numCategories - 2, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
-			best_matches[0]=s0;
-			for (int i = 1; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+			for (int i = 0; i < largest_activ; i++) {
+				best_matches[i] = activations[best[i]];
 			}
-			// % min_mat = min(best_matches);
-			// % max_mat = max(best_matches);
 
 			double sum_mat = sumArray(best_matches);
 			int currentCategory = 0;
-			this.neuronsactivated=new int[largest_activ];
-			this.neuronsactivity=new double[largest_activ];
+			int[] activated=new int[largest_activ];
+			double[] activity=new double[largest_activ];
 			for (int i = 0; i < largest_activ; i++) {
-				this.neuronsactivity[i]=best_matches[i];
+				activity[i]=best_matches[i];
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
-				this.neuronsactivated[i]=currentCategory;
+				currentCategory = best[i];
+				activated[i]=currentCategory;
 				// % Fill return vector with weightB values
-				//Set <Integer> s1= weightsB[currentCategory].keySet();
-
-				int[] s1=weightsB[currentCategory].getKeys();
-				int sit=weightsB[currentCategory].size();
-				int j=0;
-				for (int jt=0;jt<sit;jt++) {
-					j=s1[jt];
+				SparseArray wb = weightsB[currentCategory];
+				for (int jt=0;jt<wb.size();jt++) {
+					int j=wb.keyAt(jt);
 					ranking[j] = ranking[j]
-							+ best_matches[i] * (Double)weightsB[currentCategory].get(j);
+							+ best_matches[i] * wb.valueAt(jt);
 				}
 			}
-			this.nrinstclassified+=1;
+			setActivity(activated, activity);
+			this.nrinstclassified.incrementAndGet();
 			if(m_userankstoclass) {
 				return ARAMm_Ranking2Class(ranking);
 				
 			}
 
-		  //  long endMilli = System.currentTimeMillis();
 			return ranking;
 	  
   }
-
 	public double[] ARAMm_Ranking2Class(double[] rankings) {
 
 		int columns=rankings.length;
@@ -477,189 +392,68 @@ public class ARAMNetworkSparseV extends ARAMNetworkClass {
 	            }
 		return classes;
 	}
-	private SortPair[] ARTActivateCategories(Instance Data) {
-		SortPair[] catacti = new SortPair[numCategories-1];
-		// double[] catacti=new double[numCategories];
-		//Set<Integer> s1=new HashSet<Integer>();
-		//Set<Integer> s1=Data.keySet();
-	    long startMilli = System.currentTimeMillis();
-		
+	/**
+	 * Returns the activations of the (committed) categories by the instance.
+	 */
+	private double[] ARTActivateCategories(Instance Data) {
+		// the (non-zero) values of the instance, by the index of the feature
+		int n = Data.numValues();
+		int[] idx = new int[n];
+		double[] val = new double[n];
+		for (int tj=0; tj<n; tj++){
+			idx[tj]=Data.index(tj)-snumClasses;
+			val[tj]=Data.valueSparse(tj);
+		}
+		if (m_useindex){
+			return getIndex().activate(idx, val, n, weightsA, sweightsA, alpha, numCategories-1);
+		}
+		double[] catacti = new double[numCategories-1];
 		for (int i = 0; i < numCategories-1; i++) {
-		    long startMilliss = System.nanoTime();
-			double sumvector = 0;
-		//	double sumweight = 0;
-			int count=0;
-			SparseArray s2=upweightsA[i].clone();
-//			HashMapIVector s2=new HashMapIVector(upweightsA[i]);
-			//List<Integer> s2=new ArrayList<Integer>(weightsA[i].keySet());
-			//for (Integer j: s1) {
-			//double da=(Double)Data.get(j);
-			long st3 =0;
-			long st4 =0;
-				for (int tj=0; tj<Data.numValues(); tj++){
-				    long startMillisst = System.nanoTime();
-					int sj=Data.index(tj);
-					double  da = Data.value(sj);
-					int j=sj-snumClasses;
-					//s1.add(j);
-					if (da==0){
-
-						//s2.remove((Integer)j);
-						continue;
-					}
-				    long st10 = System.nanoTime();
-				count+=1;
-			    long st1 = System.nanoTime();
+			double sumvector = ARAMKernel.fuzzyAnd(idx, val, n, weightsA[i], snumFeatures);
+			catacti[i] = sumvector / (alpha + sweightsA[i]);
+		}
+		return catacti;
+	}
 
-				Double wa=(Double)weightsA[i].get(j);
-			    long st1a = System.nanoTime();
-				if(wa!=null){
-				sumvector += ((da < wa) ?da
-						: wa);
-				
-				//s2.remove((Integer)j);
-				}
-			    long st2 = System.nanoTime();
-
-			    Integer j1=j+snumFeatures;
-			    //int j1=j+snumFeatures;
-				Double wat=(Double)weightsA[i].get(j1);
-				if(wat!=null){
-					wat=1-wat;
-				double dat=1-da;
-				sumvector += (((dat) < wat) ? dat: wat);
-			     st3 = System.nanoTime();
-			//	s2.remove(j1);
-			     s2.remove(j1);
-			     st4 = System.nanoTime();
-				}else{
-					sumvector+=1-da;
+	/**
+	 * Returns the inverted index of the (committed) categories, building it first if need be; from then on, it is
+	 * kept up to date as categories are added and updated. Only the first call (of any thread) takes the lock.
+	 */
+	private ARAMIndex getIndex() {
+		ARAMIndex ix = index;
+		if (ix==null){
+			synchronized (this){
+				ix = index;
+				if (ix==null){
+					ix = new ARAMIndex(snumFeatures);
+					for (int i = 0; i < numCategories-1; i++) {
+						ix.update(i, weightsA[i]);
+					}
+					index=ix;
 				}
-			    long endMillisst = System.nanoTime();
-			 int jti=1;
-			   // System.out.println("it took " + (endMillisst - startMillisst) + " milli(s)");
-			}
-//Integer[] s3=s2.keySet();
-	/*			int[] s3=s2.TableKeyRaw();
-if(s3!=null){
-			for (int j=snumFeatures; j<s3.length;j++) {
-				if (s3[j]==-1){
-					continue;
-				}*/
-				int[] s1=s2.getKeys();
-				int sit=s2.size();
-				int j=0;
-				for (int jt=0;jt<sit;jt++) {
-					j=s1[jt];
-			//	double wat=1-(Double)weightsA[i].get(s3[j]);
-					double wat=1-(Double)weightsA[i].get(j);
-				sumvector +=wat;
-				count+=1;
-				
-				
 			}
-			//}
-
-			sumvector+=snumFeatures-count;
-			//sumweight=sweightsA[i]; 
-		    long endMilliss = System.nanoTime();
-			catacti[i] = new SortPair(sumvector / (alpha + sweightsA[i]), i);
-		    //System.out.println("it took " + (endMilliss - startMilliss) + " milli(s)");
-		//	catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
-			//System.out.println("sumweight "+(sumweight-sweightsA[i]));
-			//if(activated==121){
-			//	System.out.println(i+ " "+sumvector+" "+sweightsA[i]);
-			//}
 		}
-	    long endMilli = System.currentTimeMillis();
-		//activated+=1;
-		return catacti;
+		return ix;
 	}
-	private SortPair2[] ARTActivateCategories(SparseArray Data, SparseArray labels) {
-		
-		String s = labels.getKeysString();		
-		Vector lclasses = (Vector)hmclasses.get(s);
-		SortPair2[] catacti = null;
-		if (lclasses==null||lclasses.size()==0){
-			catacti=new SortPair2[1];
-			catacti[0] = new SortPair2(1,numCategories-1,1);
-			return catacti;
+
+	/**
+	 * Sets whether the categories are activated through an inverted index from the features (only those sharing
+	 * features with the instance need the full fuzzy AND; the activations then agree with the exhaustive ones up to
+	 * rounding).
+	 */
+	public void setUseIndex(boolean useindex){
+		m_useindex=useindex;
+		if (!useindex){
+			index=null;
 		}
-		catacti = new SortPair2[lclasses.size()];
-		// double[] catacti=new double[numCategories];	
-		for (int i = 0; i < lclasses.size(); i++) {
-			double sumvector = 0;
-		//	double sumweight = 0;
-			int k = ((Integer)lclasses.get(i)).intValue();
-			SparseArray s2=upweightsA[k].clone();
-			
-			
+	}
 
-			int counter=0;
-			//double dt = instance.value(num_classes+j);
-			
-			//for (Map.Entry<Integer, Double> entry : Data.entrySet()) {
-
-				int[] s1=Data.getKeys();
-				int sit=Data.size();
-				int j=0;
-				for (int jt=0;jt<sit;jt++) {
-					j=s1[jt];
-				//int j=entry.getKey();
-				double da=(Double)Data.get(j);
-//			for (Integer tj=0; tj<Data.numValues(); tj++){
-//				int j=Data.index(tj);
-//				
-//				double  da = Data.value(j-snumClasses);
-//				if (da==0){
-//					s2.remove((Integer)j);
-//					continue;
-//				}
-				Double wa=(Double)weightsA[k].get(j);
-				if(wa!=null){
-				if(wa==0){
-					continue;
-				}
-				sumvector +=  ((da < wa) ? da
-						: wa);
-			//	s2.remove((Integer)j);
-				
-				}
-				Integer j1=j+snumFeatures;
-				double dat=1-da;
-				Double wat=(Double)weightsA[k].get(j1);
-				if(wat!=null){
-					wat=1-wat;
-			//	sumweight += weightsA[k][j];
-				sumvector +=(((dat) < wat) ? dat: wat);
-				s2.remove(j1);
-				
-				counter+=1;
-				}else{
-					sumvector += dat;
-					counter+=1;
-					//s2.remove((Integer)j1);
-							
-				}
+	public boolean getUseIndex(){
+		return m_useindex;
+	}
 
-			}		
-				s1=s2.getKeys();
-				sit=s2.size();
-				//int j=0;
-				for (int jt=0;jt<sit;jt++) {
-					j=s1[jt];
-					counter+=1;
-					sumvector += 1-(Double)weightsA[k].get(j);
-					
-					
-			}
-			sumvector += snumFeatures-counter;
-			//sumweight=sweightsA[k];
-			//catacti[i] = new SortPair(sumvector / (alpha + sumweight), k);
-			//System.out.println("sumweight "+(sumweight-sweightsA[k]));
-			catacti[i] = new SortPair2(sumvector / (alpha + sweightsA[k]), k,sumvector);
-		}
-		return catacti;
+	public String useIndexTipText(){
+		return "Whether to activate the categories through an inverted index from the features to the categories (faster on sparse data; the activations agree with the exhaustive ones up to rounding).";
 	}
 
  // ****YOU SHOULDN'T NEED TO CHANGE THIS
@@ -720,6 +514,9 @@ if(s3!=null){
     newVector.addElement(
 	    new Option("\tUse ranking to class function special dev. for ARAM.\n",
 		       "K", 0,"-K"));
+    newVector.addElement(
+	    new Option("\tActivate the categories through an inverted index from the features.\n",
+		       "I", 0,"-I"));
     return newVector.elements();
   }
 
@@ -749,6 +546,7 @@ if(s3!=null){
 	//    setUseKernelEstimator(k);
       roa = (Utils.getOptionPos("P",options) >= 0) ? Double.parseDouble(Utils.getOption("P", options)) : roa;
       m_userankstoclass= (Utils.getOptionPos("K",options) >= 0);
+      setUseIndex(Utils.getFlag("I",options));
 	  super.setOptions(options);
   }
 
@@ -764,7 +562,7 @@ if(s3!=null){
 
 
     try{
- options =weka.core.Utils.splitOptions("-P 0.9 -K");
+ options =weka.core.Utils.splitOptions("-P 0.9 -K"+(m_useindex?" -I":""));
     }catch (Exception ex) {
 	System.out.println(ex.getMessage());
     }
@@ -818,8 +616,7 @@ if(s3!=null){
 			int category) {
 		double weightChange = 0;
 		sweightsA[category]=0;
-		//Set<Integer> s1=data.keySet();
-		SparseArray s2=weightsA[category].clone();
+		SparseArray w=weightsA[category];
 		
 		int count=0;
 		int[] s1=data.getKeys();
@@ -828,40 +625,33 @@ if(s3!=null){
 		for (int jt=0;jt<sit;jt++) {
 			i=s1[jt];
 		
-		//for (Integer i: s1) {
-			double da=data.get(i);
-			Double wa=(Double)weightsA[category].get(i);
-			if(wa!=null){
+			double da=data.valueAt(jt);
+			int p=w.indexOfKey(i);
+			if(p>=0){
+			double wa=w.valueAt(p);
 			if (da < wa ){
 			wa = (learningRate * da)
 					+ (1 - learningRate) * wa;
 			if(wa==0){
-				weightsA[category].remove(i);
+				w.remove(i);
 			}else{
-			weightsA[category].put(i, wa);
+			w.setValueAt(p, wa);
 			}
 			}
 			sweightsA[category]+=wa;
-			s2.remove(i);
 			}
 			double dat=1-da;
-		//}
-		//	for (Integer i: s1) {
 				int j1= i+snumFeatures;
-		//		double dat=1-data.get(j1-snumFeatures);
-				Double wat=(Double)weightsA[category].get(j1);
-		//	Double wat=(Double)weightsA[category].get(j1);
-			if(wat!=null){
-			wat=1-wat;
+				p=w.indexOfKey(j1);
+			if(p>=0){
+			double wat=1-w.valueAt(p);
 			if (dat < wat ){
 			wat = ((learningRate * dat)
 					+ (1 - learningRate) * wat);
 			if (wat==1){
-				weightsA[category].remove(j1);
-				upweightsA[category].remove(j1);
+				w.remove(j1);
 			}else{
-			weightsA[category].put(j1, 1-wat);
-			upweightsA[category].put(j1,0.0);
+			w.setValueAt(p, 1-wat);
 			count+=1;
 			}
 			}else{
@@ -874,16 +664,12 @@ if(s3!=null){
 			}
 			sweightsA[category]+=wat;
 
-			s2.remove(j1);
 			}else{
-				wat=(learningRate * dat);
+				double wat=(learningRate * dat);
 				if (wat==1){
-					weightsA[category].remove(j1);
-					upweightsA[category].remove(j1);
-					
+					// (not stored)
 				}else{
-				weightsA[category].put((Integer)j1,(Double) (1-wat));
-				upweightsA[category].put(j1,1.0);
+				w.put(j1, 1-wat);
 				count+=1;
 				}
 				sweightsA[category]+=wat;
@@ -891,51 +677,43 @@ if(s3!=null){
 	}
 
 		}
-		//System.out.println(this.numinstances);
-		
-		s1=s2.getKeys();
-		sit=s2.size();
-		//int j=0;
-		for (int jt=0;jt<sit;jt++) {
-			i=s1[jt];
-
-			if (i<snumFeatures){
-				try{
-					weightsA[category].remove(i);	
 
-					upweightsA[category].remove(i);
-				}catch(Exception e){
-					e.getClass();
-				}	
-						
+		// the weights of the features that are not in the data are dropped, those of their complements kept
+		SparseArray kept=new SparseArray(w.size());
+		for (int jt=0;jt<w.size();jt++) {
+			i=w.keyAt(jt);
+			if (data.containsKey((i<snumFeatures) ? i : i-snumFeatures)){
+				kept.append(i, w.valueAt(jt));
 			}
-			else{
-				double wat=1-(Double)weightsA[category].get(i);
+			else if (i>=snumFeatures){
+				double wat=1-w.valueAt(jt);
 				sweightsA[category]+=wat;
 				count+=1;
+				kept.append(i, w.valueAt(jt));
 			}
 		}
+		weightsA[category]=kept;
+		ARAMIndex ix = index;
+		if (ix!=null){
+			ix.update(category, kept);
+		}
 		
 		sweightsA[category]+=snumFeatures-count;
 
-		//s1=labels.keySet();
-		s1=labels.getKeys();
-		sit=labels.size();
-		//int j=0;
-		for (int jt=0;jt<sit;jt++) {
-			i=s1[jt];
+		for (int jt=0;jt<labels.size();jt++) {
+			i=labels.keyAt(jt);
 		
-		//for (Integer i: s1) {
-			double lb=labels.get(i);
-			Double wb=(Double)weightsB[category].get(i);
-			if(wb!=null){
+			double lb=labels.valueAt(jt);
+			int p=weightsB[category].indexOfKey(i);
+			if(p>=0){
+			double wb=weightsB[category].valueAt(p);
 		    if(weightblearnmethod== 0){
-		    	weightsB[category].put(i, lb + wb);
+		    	weightsB[category].setValueAt(p, lb + wb);
 	        weightChange = 1;
 		    }else{
 	      //  %normalise
 	        if ( lb< wb){
-		    	weightsB[category].put(i, (learningRate * lb )+ (1 - learningRate) *wb);  
+		    	weightsB[category].setValueAt(p, (learningRate * lb )+ (1 - learningRate) *wb);  
 	            weightChange = 1;
 	            
 	        }
@@ -952,10 +730,8 @@ if(s3!=null){
 		weightsA = Arrays.copyOf(weightsA, numCategories + 1);
 		sweightsA = Arrays.copyOf(sweightsA, numCategories + 1);
 		weightsB = Arrays.copyOf(weightsB, numCategories + 1);
-		upweightsA = Arrays.copyOf(upweightsA, numCategories + 1);
 		weightsA[numCategories] = new SparseArray();
 		weightsB[numCategories] = new SparseArray();
-		upweightsA[numCategories] = new SparseArray();
 		sweightsA[numCategories]=sweightsA0;
 		numCategories += 1;
 
@@ -978,53 +754,6 @@ if(s3!=null){
       System.err.println(e.getMessage());
     }
   }
-  public double[][] distributionForInstanceM(Instances i) throws Exception {
-		// TODO Auto-generated method stub
-		return null;
-	}
-
-  
-  class SortPair2  implements Comparable<SortPair2> {
-		private int originalIndex;
-		private double value;
-		private double rawvalue;
-
-		public SortPair2(double value, int originalIndex, double rawvalue) {
-			this.value = value;
-			this.originalIndex = originalIndex;
-			this.rawvalue = rawvalue;
-		}
-
-		public int compareTo(SortPair2 o) {
-			return Double.compare(o.getValue(), value);
-		}
-
-		public int getOriginalIndex() {
-			return originalIndex;
-		}
-
-		public double getValue() {
-			return value;
-		}
-		public double getRawValue() {
-			return rawvalue;
-		}
-
-  }
-
-
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
 @Override
 public String getModel() {
 	// TODO Auto-generated method stub
@@ -73,7 +73,7 @@ public class ARAMNetworkfast extends ARAMNetworkClass {
  //**** THIS IS WHERE CLASSIFIER WEIGHTS ETC GO ****
  //define stuff like weight matrices, classifier parameters etc.
  //e.g., protected double rho_a_bar=0.0;
-	HashMap<String, Vector> hmclasses = null;
+	HashMap<String, Vector<Integer>> hmclasses = null;
 	int numinstancestr=0;
 	int activated=0;
 	private Writer writer = null;
@@ -100,7 +100,7 @@ public class ARAMNetworkfast extends ARAMNetworkClass {
 		weightsB = new double[1][numClasses];
 		Arrays.fill(weightsB[0], 0);
 		numCategories = 1;
-		hmclasses = new HashMap<String, Vector>();
+		hmclasses = new HashMap<String, Vector<Integer>>();
 
 
 
@@ -211,8 +211,26 @@ public class ARAMNetworkfast extends ARAMNetworkClass {
 				suminputB+=labels[j]+labels[j+num_classes];
 			}
 			
-			SortPair2[] cateacti = ARTActivateCategories(data,labels);
-			java.util.Arrays.sort(cateacti);
+			// the categories of the same labels (or the uncommitted one), and their activations
+			Vector<Integer> lclasses = hmclasses.get(Arrays.toString(labels));
+			int[] cats;
+			double[] raw;
+			double[] cateacti;
+			if (lclasses==null||lclasses.size()==0){
+				cats = new int[]{numCategories_1};
+				raw = new double[]{(int)(0.5*numFeatures)};
+				cateacti = new double[]{1};
+			}else{
+				cats = new int[lclasses.size()];
+				raw = new double[cats.length];
+				cateacti = new double[cats.length];
+				for (int i = 0; i < cats.length; i++) {
+					cats[i] = lclasses.get(i);
+					raw[i] = ARAMKernel.fuzzyAnd(data, weightsA[cats[i]]);
+					cateacti[i] = raw[i] / (alpha + sweightsA[cats[i]]);
+				}
+			}
+			ARAMKernel.Ranking sortedActivations = new ARAMKernel.Ranking(cateacti);
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
@@ -220,16 +238,15 @@ public class ARAMNetworkfast extends ARAMNetworkClass {
 			double matchB = 0;
 
 			
-			while (!resonance && currentSortedIndex<cateacti.length) {
+			while (!resonance && sortedActivations.hasNext()) {
 
-				currentCategory = cateacti[currentSortedIndex]
-						.getOriginalIndex();
+				int p = sortedActivations.next();
+				currentCategory = cats[p];
 				if (currentCategory == numCategories_1) {
 					matchA=1;
 				}
 				else{
-				matchA =cateacti[currentSortedIndex]
-									.getRawValue()/suminputA;
+				matchA =raw[p]/suminputA;
 				
 					
 				}
@@ -289,7 +306,7 @@ public class ARAMNetworkfast extends ARAMNetworkClass {
 				}
 
 			}
-			if(!resonance && currentSortedIndex>=cateacti.length)
+			if(!resonance)
 			{
 				// Add a new category
 				sweightsA[numCategories_1]=0;
@@ -323,6 +340,20 @@ public class ARAMNetworkfast extends ARAMNetworkClass {
       }
   }
 
+private synchronized void report(String line){
+	try {
+		if (writer==null){
+	    writer = new BufferedWriter(new OutputStreamWriter(
+	          new FileOutputStream(this.activity_report), "utf-8"));
+	    writer.write("Neurons");
+	    print_weights(writer);
+		}
+		writer.write(line);
+	} catch (IOException ex) {
+	  // report
+	}
+}
+
 private void print_weights(Writer twriter){
 	
 	for (int i=0;i<weightsA.length;i++){
@@ -371,91 +402,50 @@ private void print_weights(Writer twriter){
 				currentData[j] = instance.value(num_classes+j);
 				currentData[num_features+j] = 1 - currentData[j];
 			}
-			SortPair2[] sortedActivations = ARTActivateCategories(currentData);
-
-			java.util.Arrays.sort(sortedActivations);
-			double s0=sortedActivations[0].getValue();
-			double diff_act = s0
-					- sortedActivations[numCategories - 2].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < sortedActivations.length; i++) {
-				activ_change = (s0 - sortedActivations[i]
-						.getValue())
-						/ s0;
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(currentData);
+			int[] best = ARAMKernel.winners(activations, activations.length, numCategories - 2, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
-			best_matches[0]=s0;
-			for (int i = 1; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+			for (int i = 0; i < largest_activ; i++) {
+				best_matches[i] = activations[best[i]];
 			}
 			// % min_mat = min(best_matches);
 			// % max_mat = max(best_matches);
 
 			double sum_mat = sumArray(best_matches);
 			int currentCategory = 0;
-			this.neuronsactivated=new int[largest_activ];
-			this.neuronsactivity=new double[largest_activ];
-
-			if (this.activity_report.compareTo("")!=0){
-
-				try {
-					if (writer==null){
-				    writer = new BufferedWriter(new OutputStreamWriter(
-				          new FileOutputStream(this.activity_report), "utf-8"));
-				    writer.write("Neurons");
-				    print_weights(writer);
-					}
-				    writer.write("this.nrinstclassified "+this.nrinstclassified+"\n");
-					
-				} catch (IOException ex) {
-				  // report
-				} 
-				
-			}
+			int[] activated=new int[largest_activ];
+			double[] activity=new double[largest_activ];
 			for (int i = 0; i < largest_activ; i++) {
-				this.neuronsactivity[i]=best_matches[i];
+				activity[i]=best_matches[i];
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
-				this.neuronsactivated[i]=currentCategory;
+				currentCategory = best[i];
+				activated[i]=currentCategory;
 				// % Fill return vector with weightB values
-
-				if (this.activity_report.compareTo("")!=0){
-					
-
-					try {
-					    writer.write(this.neuronsactivity[i]+","+this.neuronsactivated[i]+";");
-					} catch (IOException ex) {
-					  // report
-					} 
-				}
 				for (int j = 0; j < num_classes; j++) {
 					ranking[j] = ranking[j]
 							+ best_matches[i] * weightsB[currentCategory][j];
 				}
 			}
-			this.nrinstclassified+=1;
+			setActivity(activated, activity);
+			int nr=this.nrinstclassified.getAndIncrement();
 
 			if (this.activity_report.compareTo("")!=0){
-				
-
-				try {
-					writer.write(";;");
-					for (int i = 1; i < sortedActivations.length; i++) {
-				
-				    writer.write(sortedActivations[i].getOriginalIndex()+":"+String.format("%.6f",sortedActivations[i].getValue())+",");
-					}
-					writer.write("\n");
-				} catch (IOException ex) {
-				  // report
-				} 
+				// the whole line at once, as predictions may run concurrently
+				StringBuilder line=new StringBuilder();
+				line.append("this.nrinstclassified "+nr+"\n");
+				for (int i = 0; i < largest_activ; i++) {
+					line.append(activity[i]+","+activated[i]+";");
+				}
+				line.append(";;");
+				ARAMKernel.Ranking sortedActivations = new ARAMKernel.Ranking(activations);
+				sortedActivations.next();
+				while (sortedActivations.hasNext()) {
+					int i = sortedActivations.next();
+					line.append(i+":"+String.format("%.6f",activations[i])+",");
+				}
+				line.append("\n");
+				report(line.toString());
 			}
 			if(m_userankstoclass) {
 				return ARAMm_Ranking2Class(ranking);
@@ -489,54 +479,10 @@ private void print_weights(Writer twriter){
 	            }
 		return classes;
 	}
-	private SortPair2[] ARTActivateCategories(double[] Data) {
-		SortPair2[] catacti = new SortPair2[numCategories-1];
-		// double[] catacti=new double[numCategories];
+	private double[] ARTActivateCategories(double[] Data) {
+		double[] catacti = new double[numCategories-1];
 		for (int i = 0; i < numCategories-1; i++) {
-			double sumvector = 0;
-		//	double sumweight = 0;
-			for (int j = 0; j < numFeatures; j++) {
-				sumvector += ((Data[j] < weightsA[i][j]) ? Data[j]
-				                        						: weightsA[i][j]);
-				
-			//	sumweight += weightsA[i][j];
-			}
-			//sumweight=sweightsA[i]; 
-			catacti[i] = new SortPair2(sumvector / (alpha + sweightsA[i]), i, sumvector);
-			//if(activated==121){
-			//	System.out.println(i+ " "+sumvector+" "+sweightsA[i]);
-			//}
-		//	catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
-			//System.out.println("sumweight "+(sumweight-sweightsA[i]));
-		}
-		//activated+=1;
-		return catacti;
-	}
-	private SortPair2[] ARTActivateCategories(double[] Data, double[] labels) {
-		String s = Arrays.toString(labels);
-		Vector lclasses = hmclasses.get(s);
-		SortPair2[] catacti = null;
-		if (lclasses==null||lclasses.size()==0){
-			catacti=new SortPair2[1];
-			catacti[0] = new SortPair2(1,numCategories-1,(int)(0.5*numFeatures));
-			return catacti;
-		}
-		catacti = new SortPair2[lclasses.size()];
-		// double[] catacti=new double[numCategories];
-		
-		for (int i = 0; i < lclasses.size(); i++) {
-			double sumvector = 0;
-			int k = ((Integer)lclasses.get(i)).intValue();
-			for (int j = 0; j < numFeatures; j++) {
-				sumvector += ((Data[j] < weightsA[k][j]) ? Data[j]
-				                        						: weightsA[k][j]);
-			//	sumweight += weightsA[k][j];
-			}
-			
-			//sumweight=sweightsA[k];
-			//catacti[i] = new SortPair(sumvector / (alpha + sumweight), k);
-			//System.out.println("sumweight "+(sumweight-sweightsA[k]));
-			catacti[i] = new SortPair2(sumvector / (alpha + sweightsA[k]), k,sumvector);
+			catacti[i] = ARAMKernel.fuzzyAnd(Data, weightsA[i]) / (alpha + sweightsA[i]);
 		}
 		return catacti;
 	}
@@ -760,51 +706,6 @@ Evaluation.runExperiment((MultiLabelClassifier)new WvARAM(), argv);
       System.err.println(e.getMessage());
     }
   }
-  class SortPair2  implements Comparable<SortPair2> {
-		private int originalIndex;
-		private double value;
-		private double rawvalue;
-
-		public SortPair2(double value, int originalIndex, double rawvalue) {
-			this.value = value;
-			this.originalIndex = originalIndex;
-			this.rawvalue = rawvalue;
-		}
-
-		public int compareTo(SortPair2 o) {
-			return Double.compare(o.getValue(), value);
-		}
-
-		public int getOriginalIndex() {
-			return originalIndex;
-		}
-
-		public double getValue() {
-			return value;
-		}
-		public double getRawValue() {
-			return rawvalue;
-		}
-
-}
-@Override
-public double[][] distributionForInstanceM(Instances i) throws Exception {
-	// TODO Auto-generated method stub
-	return null;
-}
-
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
 @Override
 public String getModel() {
 	// TODO Auto-generated method stub
@@ -198,12 +198,12 @@ public class ARTCluster {
     	
     }
     	
-    public SortPair[] activate(double[] data){
+    public double[] activate(double[] data){
     	
-    	SortPair[] activations= new SortPair[weightsA.length];
+    	double[] activations= new double[weightsA.length];
     	for(int i = 0; i < weightsA.length; i++) {
     		
-    		activations[i]=new SortPair(ART_Calculate_Match(data,weightsA[i]), i);
+    		activations[i]=ART_Calculate_Match(data,weightsA[i]);
     		
     	}
 		return activations;
@@ -74,7 +74,7 @@ public class HARAMNetwork extends ARAMNetworkClass
 double clustervig=0.7;
 ARTCluster ARTCs=null;
 int[] pids =null;
-private boolean relearned=false;
+private volatile boolean relearned=false;
 
     public HARAMNetwork(int fnumFeatures, int fnumClasses, double fro, double fthreshold, double cvig) {
 	initARAM(fnumFeatures, fnumClasses,  fro,  fthreshold, cvig);
@@ -187,8 +187,7 @@ private boolean relearned=false;
 				labels[j] = instance.value(j);
 				labels[j+num_classes] = 1 - labels[j];
 			}
-			SortPair[] cateacti = ARTActivateCategories(data);
-			java.util.Arrays.sort(cateacti);
+			ARAMKernel.Ranking cateacti = new ARAMKernel.Ranking(ARTActivateCategories(data));
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
@@ -197,8 +196,7 @@ private boolean relearned=false;
 
 			while (!resonance) {
 
-				currentCategory = cateacti[currentSortedIndex]
-						.getOriginalIndex();
+				currentCategory = cateacti.next();
 				matchA = ART_Calculate_Match(data, weightsA[currentCategory]);
 				if (sumArray(weightsB[currentCategory]) == 0) {
 					matchB = 1;
@@ -284,7 +282,11 @@ private boolean relearned=false;
       
 	  if (relearned==true)
 	  {
-		  PrepareHClusters();
+		  // once, even if predictions run concurrently
+		  synchronized (this) {
+			  if (relearned==true)
+				  PrepareHClusters();
+		  }
 	  }
 		int num_classes=(int) (0.5 * numClasses);
 		int num_features=(int) (0.5 * numFeatures);
@@ -295,11 +297,10 @@ private boolean relearned=false;
 				currentData[j] = instance.value(num_classes+j);
 				currentData[num_features+j] = 1 - currentData[j];
 			}
-			SortPair[] sortedActClust=ARTCs.activate(currentData);
+			ARAMKernel.Ranking sortedActClust=new ARAMKernel.Ranking(ARTCs.activate(currentData));
 			List<Integer> ids=new ArrayList<Integer>();
 			
-	    	java.util.Arrays.sort(sortedActClust);
-	    	int cid=sortedActClust[0].getOriginalIndex();
+	    	int cid=sortedActClust.next();
 	    	int numberofids=0;
 	    	for (int k=0; k<ARTCs.Ids[cid].length;k++){
 	    			ids.add(ARTCs.Ids[cid][k]);
@@ -307,7 +308,7 @@ private boolean relearned=false;
 	    	numberofids+=ARTCs.Ids[cid].length;
 	    	int c1=1;
             while(c1<ARTCs.maxids){
-    	    	cid=sortedActClust[c1].getOriginalIndex();
+    	    	cid=sortedActClust.next();
 	    	for (int k=0; k<ARTCs.Ids[cid].length;k++){
 	    			ids.add(ARTCs.Ids[cid][k]);
 	    	}
@@ -315,47 +316,32 @@ private boolean relearned=false;
             	c1+=1;
             }
 
-			SortPair[] sortedActivations = ARTActivateCategories(currentData, ids, numberofids);
-
-			java.util.Arrays.sort(sortedActivations);
-			double diff_act = sortedActivations[0].getValue()
-					- sortedActivations[sortedActivations.length - 1].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < sortedActivations.length; i++) {
-				activ_change = (sortedActivations[0].getValue() - sortedActivations[i]
-						.getValue())
-						/ sortedActivations[0].getValue();
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(currentData, ids, numberofids);
+			int[] best = ARAMKernel.winners(activations, activations.length, activations.length - 1, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
 			for (int i = 0; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+				best_matches[i] = activations[best[i]];
 			}
 			// % min_mat = min(best_matches);
 			// % max_mat = max(best_matches);
 
 			double sum_mat = sumArray(best_matches);
 			int currentCategory = 0;
-			this.neuronsactivated=new int[largest_activ];
-			this.neuronsactivity=new double[largest_activ];
+			int[] activated=new int[largest_activ];
+			double[] activity=new double[largest_activ];
 			for (int i = 0; i < largest_activ; i++) {
-				this.neuronsactivity[i]=best_matches[i];
+				activity[i]=best_matches[i];
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
-				this.neuronsactivated[i]=currentCategory;
+				currentCategory = ids.get(best[i]);
+				activated[i]=currentCategory;
 				// % Fill return vector with weightB values
 				for (int j = 0; j < num_classes; j++) {
 					ranking[j] = ranking[j]
 							+ best_matches[i] * weightsB[currentCategory][j];
 				}
 			}
+			setActivity(activated, activity);
 			if(m_userankstoclass) {
 				return ARAMm_Ranking2Class(ranking);
 				
@@ -389,41 +375,17 @@ private boolean relearned=false;
 	            }
 		return classes;
 	}
-	private SortPair[] ARTActivateCategories(double[] Data) {
-		SortPair[] catacti = new SortPair[numCategories];
-		// double[] catacti=new double[numCategories];
-		double[] matchVector = new double[numFeatures];
+	private double[] ARTActivateCategories(double[] Data) {
+		double[] catacti = new double[numCategories];
 		for (int i = 0; i < numCategories; i++) {
-			double sumvector = 0;
-			double sumweight = 0;
-			for (int j = 0; j < numFeatures; j++) {
-				matchVector[j] = ((Data[j] < weightsA[i][j]) ? Data[j]
-						: weightsA[i][j]);
-				sumvector += matchVector[j];
-				sumweight += weightsA[i][j];
-			}
-
-			catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
+			catacti[i] = ARAMKernel.choice(Data, weightsA[i], alpha);
 		}
 		return catacti;
 	}
-	private SortPair[] ARTActivateCategories(double[] Data,List<Integer> ids, int maxnumberids ) {
-		SortPair[] catacti = new SortPair[ids.size()];
-		// double[] catacti=new double[numCategories];
-		double[] matchVector = new double[numFeatures];
+	private double[] ARTActivateCategories(double[] Data,List<Integer> ids, int maxnumberids ) {
+		double[] catacti = new double[ids.size()];
 		for (int i1 = 0; i1 < maxnumberids; i1++) {
-			double sumvector = 0;
-			double sumweight = 0;
-			int i=(int)ids.get(i1);
-			for (int j = 0; j < numFeatures; j++) {
-				
-				matchVector[j] = ((Data[j] < weightsA[i][j]) ? Data[j]
-						: weightsA[i][j]);
-				sumvector += matchVector[j];
-				sumweight += weightsA[i][j];
-			}
-
-			catacti[i1] = new SortPair(sumvector / (alpha + sumweight), i);
+			catacti[i1] = ARAMKernel.choice(Data, weightsA[ids.get(i1)], alpha);
 		}
 		return catacti;
 	}
@@ -736,24 +698,6 @@ private boolean relearned=false;
     }
   }
 
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
-@Override
-public double[][] distributionForInstanceM(Instances i) throws Exception {
-	// TODO Auto-generated method stub
-	return null;
-}
-
 public double getVigilancy(){
 	
 	return roa;
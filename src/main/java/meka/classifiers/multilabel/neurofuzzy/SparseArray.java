@@ -1,5 +1,6 @@
 package meka.classifiers.multilabel.neurofuzzy;
 
+import java.io.Serializable;
 import java.util.Arrays;
 
 /*
@@ -18,15 +19,16 @@ import java.util.Arrays;
  * limitations under the License.
  */
 
-
 /**
- * SparseArrays map integers to Objects.  Unlike a normal array of Objects,
+ * SparseArrays map integers to doubles.  Unlike a normal array of doubles,
  * there can be gaps in the indices.  It is intended to be more efficient
- * than using a HashMap to map Integers to Objects.
+ * than using a HashMap to map Integers to Doubles: the keys are kept sorted
+ * (so that iterating over them, with {@link #keyAt} and {@link #valueAt}, goes
+ * in ascending order), and neither keys nor values are boxed.
  */
-public class SparseArray {
-    private static final Double DELETED = null;
-    private boolean mGarbage = false;
+public class SparseArray implements Serializable {
+
+    private static final long serialVersionUID = -3447461012373471212L;
 
     /**
      * Creates a new SparseArray containing no mappings.
@@ -45,34 +47,39 @@ public class SparseArray {
 
         mKeys = new int[initialCapacity];
         Arrays.fill(mKeys, -1);
-        mValues = new Double[initialCapacity];
+        mValues = new double[initialCapacity];
         mSize = 0;
     }
-    
-
 
     /**
-     * Gets the Object mapped from the specified key, or <code>null</code>
+     * Gets the value mapped from the specified key, or 0
      * if no such mapping has been made.
      */
-    public Double get(int key) {
-        return get(key, null);
+    public double get(int key) {
+        return get(key, 0.);
     }
 
     /**
-     * Gets the Object mapped from the specified key, or the specified Object
+     * Gets the value mapped from the specified key, or the specified value
      * if no such mapping has been made.
      */
-    public Double get(int key, Double valueIfKeyNotFound) {
+    public double get(int key, double valueIfKeyNotFound) {
         int i = binarySearch(mKeys, 0, mSize, key);
 
-        if (i < 0 || mValues[i] == DELETED) {
+        if (i < 0) {
             return valueIfKeyNotFound;
         } else {
-            return  mValues[i];
+            return mValues[i];
         }
     }
 
+    /**
+     * Returns whether a mapping from the specified key has been made.
+     */
+    public boolean containsKey(int key) {
+        return binarySearch(mKeys, 0, mSize, key) >= 0;
+    }
+
     /**
      * Removes the mapping from the specified key, if there was any.
      */
@@ -80,13 +87,10 @@ public class SparseArray {
         int i = binarySearch(mKeys, 0, mSize, key);
 
         if (i >= 0) {
-            if (mValues[i] != DELETED) {
-            	
-                mValues[i] = DELETED;
-              //  mKeys[i]=-1;
-                
-                mGarbage = true;
-            }
+            System.arraycopy(mKeys, i + 1, mKeys, i, mSize - i - 1);
+            System.arraycopy(mValues, i + 1, mValues, i, mSize - i - 1);
+            mSize--;
+            mKeys[mSize] = -1;
         }
     }
 
@@ -97,40 +101,12 @@ public class SparseArray {
         delete(key);
     }
 
-    private void gc() {
-        // Log.e("SparseArray", "gc start with " + mSize);
-
-        int n = mSize;
-        int o = 0;
-        int[] keys = mKeys;
-        Object[] values = mValues;
-
-        for (int i = 0; i < n; i++) {
-            Object val = values[i];
-
-            if (val != DELETED) {
-                if (i != o) {
-                    keys[o] = keys[i];
-                    values[o] = val;
-                }
-
-                o++;
-            }
-        }
-
-        mGarbage = false;
-        mSize = o;
-        Arrays.fill(keys,o,keys.length, -1);
-
-        // Log.e("SparseArray", "gc end with " + mSize);
-    }
-
     /**
      * Adds a mapping from the specified key to the specified value,
      * replacing the previous mapping from the specified key if there
      * was one.
      */
-    public void put(int key, Double value) {
+    public void put(int key, double value) {
         int i = binarySearch(mKeys, 0, mSize, key);
 
         if (i >= 0) {
@@ -138,35 +114,11 @@ public class SparseArray {
         } else {
             i = ~i;
 
-            if (i < mSize && mValues[i] == DELETED) {
-                mKeys[i] = key;
-                mValues[i] = value;
-                return;
-            }
-
-            if (mGarbage && mSize >= mKeys.length) {
-                gc();
-
-                // Search again because indices may have changed.
-                i = ~binarySearch(mKeys, 0, mSize, key);
-            }
-
             if (mSize >= mKeys.length) {
-                int n = idealIntArraySize(mSize + 1);
-
-                int[] nkeys = new int[n];
-                Double[] nvalues = new Double[n];
-                Arrays.fill(nkeys, -1);
-                // Log.e("SparseArray", "grow " + mKeys.length + " to " + n);
-                System.arraycopy(mKeys, 0, nkeys, 0, mKeys.length);
-                System.arraycopy(mValues, 0, nvalues, 0, mValues.length);
-
-                mKeys = nkeys;
-                mValues = nvalues;
+                grow(mSize + 1);
             }
 
             if (mSize - i != 0) {
-                // Log.e("SparseArray", "move " + (mSize - i));
                 System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
                 System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
             }
@@ -177,15 +129,24 @@ public class SparseArray {
         }
     }
 
+    private void grow(int need) {
+        int n = idealIntArraySize(need);
+
+        int[] nkeys = new int[n];
+        double[] nvalues = new double[n];
+        Arrays.fill(nkeys, -1);
+        System.arraycopy(mKeys, 0, nkeys, 0, mSize);
+        System.arraycopy(mValues, 0, nvalues, 0, mSize);
+
+        mKeys = nkeys;
+        mValues = nvalues;
+    }
+
     /**
      * Returns the number of key-value mappings that this SparseArray
      * currently stores.
      */
     public int size() {
-        if (mGarbage) {
-            gc();
-        }
-
         return mSize;
     }
 
@@ -195,10 +156,6 @@ public class SparseArray {
      * SparseArray stores.  
      */
     public int keyAt(int index) {
-        if (mGarbage) {
-            gc();
-        }
-
         return mKeys[index];
     }
     
@@ -207,12 +164,8 @@ public class SparseArray {
      * the value from the <code>index</code>th key-value mapping that this
      * SparseArray stores.  
      */
-    public Double valueAt(int index) {
-        if (mGarbage) {
-            gc();
-        }
-
-        return  mValues[index];
+    public double valueAt(int index) {
+        return mValues[index];
     }
 
     /**
@@ -220,24 +173,17 @@ public class SparseArray {
      * value for the <code>index</code>th key-value mapping that this
      * SparseArray stores.  
      */
-    public void setValueAt(int index, Double value) {
-        if (mGarbage) {
-            gc();
-        }
-
+    public void setValueAt(int index, double value) {
         mValues[index] = value;
     }
     
     /**
      * Returns the index for which {@link #keyAt} would return the
      * specified key, or a negative number if the specified
-     * key is not mapped.
+     * key is not mapped (the bitwise complement of the index
+     * at which it would be inserted).
      */
     public int indexOfKey(int key) {
-        if (mGarbage) {
-            gc();
-        }
-
         return binarySearch(mKeys, 0, mSize, key);
     }
 
@@ -249,11 +195,7 @@ public class SparseArray {
      * and that multiple keys can map to the same value and this will
      * find only one of them.
      */
-    public int indexOfValue(Double value) {
-        if (mGarbage) {
-            gc();
-        }
-
+    public int indexOfValue(double value) {
         for (int i = 0; i < mSize; i++)
             if (mValues[i] == value)
                 return i;
@@ -265,22 +207,25 @@ public class SparseArray {
      * Removes all key-value mappings from this SparseArray.
      */
     public void clear() {
-        int n = mSize;
-        Object[] values = mValues;
-
-        for (int i = 0; i < n; i++) {
-            values[i] = null;
-        }
-
+        Arrays.fill(mKeys, 0, mSize, -1);
         mSize = 0;
-        mGarbage = false;
+    }
+
+    /**
+     * Returns the sum of the values.
+     */
+    public double sum() {
+        double s = 0;
+        for (int i = 0; i < mSize; i++)
+            s += mValues[i];
+        return s;
     }
 
      public static int idealIntArraySize(int need) {
     	 need*=4;
          for (int i = 4; i < 32; i++)
              if (need <= (1 << i) - 12)
-                 return (1 << i) - 12;
+                 return ((1 << i) - 12) / 4;
  
          return need/4;
      }
@@ -288,30 +233,15 @@ public class SparseArray {
      * Puts a key/value pair into the array, optimizing for the case where
      * the key is greater than all existing keys in the array.
      */
-    public void append(int key, Double value) {
+    public void append(int key, double value) {
         if (mSize != 0 && key <= mKeys[mSize - 1]) {
             put(key, value);
             return;
         }
 
-        if (mGarbage && mSize >= mKeys.length) {
-            gc();
-        }
-
         int pos = mSize;
         if (pos >= mKeys.length) {
-            int n = idealIntArraySize(pos + 1);
-
-            int[] nkeys = new int[n];
-            Arrays.fill(nkeys, -1);
-            Double[] nvalues = new Double[n];
-
-            // Log.e("SparseArray", "grow " + mKeys.length + " to " + n);
-            System.arraycopy(mKeys, 0, nkeys, 0, mKeys.length);
-            System.arraycopy(mValues, 0, nvalues, 0, mValues.length);
-
-            mKeys = nkeys;
-            mValues = nvalues;
+            grow(pos + 1);
         }
 
         mKeys[pos] = key;
@@ -320,11 +250,11 @@ public class SparseArray {
     }
     
     public String getKeysString(){
-    	String s="";
+    	StringBuilder s=new StringBuilder();
     	for(int j =0; j<mSize;j++){
-    		s+=mKeys[j]+",";
+    		s.append(mKeys[j]).append(',');
     	}
-    	return s;
+    	return s.toString();
     }
     
     private static int binarySearch(int[] a, int start, int len, int key) {
@@ -347,24 +277,22 @@ public class SparseArray {
             return ~high;
     }
 
-    private void checkIntegrity() {
-        for (int i = 1; i < mSize; i++) {
-            if (mKeys[i] <= mKeys[i - 1]) {
-                for (int j = 0; j < mSize; j++) {
-                 //   Log.e("FAIL", j + ": " + mKeys[j] + " -> " + mValues[j]);
-                }
-
-                throw new RuntimeException();
-            }
-        }
-    }
-
+    /**
+     * Returns the keys, in ascending order, in an array that may be longer than
+     * {@link #size()}.
+     */
     public int[] getKeys(){
-    	 if (mGarbage) {
-             gc();
-         }
     	return mKeys;
     }
+
+    /**
+     * Returns the values, in the order of their keys, in an array that may be
+     * longer than {@link #size()}.
+     */
+    public double[] getValues(){
+    	return mValues;
+    }
+
     public SparseArray clone() {
     	SparseArray res=new SparseArray(mSize);
     	
@@ -376,6 +304,6 @@ public class SparseArray {
         
     }
     private int[] mKeys;
-    private Double[] mValues;
+    private double[] mValues;
     private int mSize;
 }
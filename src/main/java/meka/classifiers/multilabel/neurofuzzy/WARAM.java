@@ -182,7 +182,7 @@ public class WARAM extends ARAMNetworkClass
 				labels[j] = instance.value(j);
 				labels[j+num_classes] = 1 - labels[j];
 			}
-			SortPair[] cateacti = ARTActivateCategories(data);java.util.Arrays.sort(cateacti);
+			ARAMKernel.Ranking cateacti = new ARAMKernel.Ranking(ARTActivateCategories(data));
 			boolean resonance = false;
 			int currentSortedIndex = 0;
 			int currentCategory = -1;
@@ -191,8 +191,7 @@ public class WARAM extends ARAMNetworkClass
 
 			while (!resonance) {
 
-				currentCategory = cateacti[currentSortedIndex]
-						.getOriginalIndex();
+				currentCategory = cateacti.next();
 				matchA = ART_Calculate_Match(data, weightsA[currentCategory]);
 				if (sumArray(weightsB[currentCategory]) == 0) {
 					matchB = 1;
@@ -269,28 +268,12 @@ public class WARAM extends ARAMNetworkClass
 				currentData[j] = instance.value(num_classes+j);
 				currentData[num_features+j] = 1 - currentData[j];
 			}
-			SortPair[] sortedActivations = ARTActivateCategories(currentData);
-
-			java.util.Arrays.sort(sortedActivations);
-			double diff_act = sortedActivations[0].getValue()
-					- sortedActivations[numCategories - 2].getValue();
-			int largest_activ = 1;
-			double activ_change = 0;
-			for (int i = 1; i < numCategories; i++) {
-				activ_change = (sortedActivations[0].getValue() - sortedActivations[i]
-						.getValue())
-						/ sortedActivations[0].getValue();
-				if (activ_change > threshold * diff_act) {
-					break;
-				}
-				largest_activ = largest_activ + 1;
-			}
-			// % largest_activ =5;
+			double[] activations = ARTActivateCategories(currentData);
+			int[] best = ARAMKernel.winners(activations, numCategories, numCategories - 2, threshold);
+			int largest_activ = best.length;
 			double[] best_matches = new double[largest_activ];
-			java.util.Arrays.fill(best_matches, 1);
 			for (int i = 0; i < largest_activ; i++) {
-				// % best_matches(i) = matches(sortedCategories(i));
-				best_matches[i] = sortedActivations[i].getValue();
+				best_matches[i] = activations[best[i]];
 			}
 			// % min_mat = min(best_matches);
 			// % max_mat = max(best_matches);
@@ -299,7 +282,7 @@ public class WARAM extends ARAMNetworkClass
 			int currentCategory = 0;
 			for (int i = 0; i < largest_activ; i++) {
 				best_matches[i] = best_matches[i] / sum_mat;
-				currentCategory = sortedActivations[i].getOriginalIndex();
+				currentCategory = best[i];
 				// % Fill return vector with weightB values
 				for (int j = 0; j < num_classes; j++) {
 					ranking[j] = ranking[j]
@@ -339,21 +322,10 @@ public class WARAM extends ARAMNetworkClass
 	            }
 		return classes;
 	}
-	private SortPair[] ARTActivateCategories(double[] Data) {
-		SortPair[] catacti = new SortPair[numCategories];
-		// double[] catacti=new double[numCategories];
-		double[] matchVector = new double[numFeatures];
+	private double[] ARTActivateCategories(double[] Data) {
+		double[] catacti = new double[numCategories];
 		for (int i = 0; i < numCategories; i++) {
-			double sumvector = 0;
-			double sumweight = 0;
-			for (int j = 0; j < numFeatures; j++) {
-				matchVector[j] = ((Data[j] < weightsA[i][j]) ? Data[j]
-						: weightsA[i][j]);
-				sumvector += matchVector[j];
-				sumweight += weightsA[i][j];
-			}
-
-			catacti[i] = new SortPair(sumvector / (alpha + sumweight), i);
+			catacti[i] = ARAMKernel.choice(Data, weightsA[i], alpha);
 		}
 		return catacti;
 	}
@@ -692,24 +664,6 @@ public Capabilities getCapabilities() {
 	// TODO Auto-generated method stub
 	return null;
 }
-
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
-@Override
-public double[][] distributionForInstanceM(Instances i) throws Exception {
-	// TODO Auto-generated method stub
-	return null;
-}
 }
 
 
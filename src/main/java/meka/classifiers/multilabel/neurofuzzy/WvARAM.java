@@ -80,6 +80,7 @@ public class WvARAM extends ARAMNetworkClass
     boolean sparsearam=false;
     boolean sparsearamH=false;
     boolean sparsearamHT=false;
+    boolean sparseindex=false;
     boolean tfastaram=true;
     int m_seed = 42;
 	DistributionCalc[] dc=null ;
@@ -148,9 +149,11 @@ public class WvARAM extends ARAMNetworkClass
 				}
 				else if(sparsearamH){
 					networks[i]=new ARAMNetworkSparseV();
+					((ARAMNetworkSparseV)networks[i]).setUseIndex(sparseindex);
 				}
 				else if(sparsearamHT){
 					networks[i]=new ARAMNetworkSparseHT();
+					((ARAMNetworkSparseV)networks[i]).setUseIndex(sparseindex);
 				}
 			else{
 
@@ -186,9 +189,11 @@ public class WvARAM extends ARAMNetworkClass
 				}
 				else if(sparsearamH){
 					networks[i]=new ARAMNetworkSparseV();
+					((ARAMNetworkSparseV)networks[i]).setUseIndex(sparseindex);
 				}
 				else if(sparsearamHT){
 					networks[i]=new ARAMNetworkSparseHT();
+					((ARAMNetworkSparseV)networks[i]).setUseIndex(sparseindex);
 				}
 			else{
 
@@ -460,6 +465,8 @@ public class WvARAM extends ARAMNetworkClass
     new Option("\tthreaded ARAM.\n",
 		       "TF", 0,"-TF"));
 	newVector.addElement(new Option("\tVotersr\n\t ", "V", 5, "-V <value>"));
+	newVector.addElement(new Option("\tActivate the categories of the sparse networks (-SpH, -SpHT) through an inverted index.\n",
+		       "SpI", 0,"-SpI"));
 	newVector.addElement(new Option("\t Save neurons activity ARAM.\n",
 		       "NA", 0,"-NA"));
 	newVector.addElement(new Option("\t Save neurons activity in network ARAM.\n",
@@ -499,6 +506,7 @@ public class WvARAM extends ARAMNetworkClass
       sparsearam = Utils.getFlag("Sp",options);
       sparsearamH = Utils.getFlag("SpH",options);
       sparsearamHT = Utils.getFlag("SpHT",options);
+      sparseindex = Utils.getFlag("SpI",options);
       tfastaram = Utils.getFlag("TF",options);
       fsna = Utils.getOption("NA", options);
       activity_report = (Utils.getOptionPos("Rt",options) >= 0) ? Utils.getOption("Rt", options) : "";
@@ -541,6 +549,8 @@ public class WvARAM extends ARAMNetworkClass
 	    	result.add("-SpH");
 	    if (sparsearamHT)
 	    	result.add("-SpHT");
+	    if (sparseindex)
+	    	result.add("-SpI");
 	    if (tfastaram)
 	    	result.add("-TF");
 	      if (fsna!=null && fsna!="" && fsna.length()>0){
@@ -770,6 +780,19 @@ public void setSparseH(boolean fsparsearam){
 	sparsearamH=fsparsearam;
 }
 
+public boolean getSparseIndex(){
+	
+	return sparseindex;
+}
+
+public void setSparseIndex(boolean fsparseindex){
+	sparseindex=fsparseindex;
+}
+
+public String sparseIndexTipText(){
+	return "Whether the sparse networks activate their categories through an inverted index from the features.";
+}
+
 public int getVoters(){
 	
 	return numberofnetworks;
@@ -1054,18 +1077,6 @@ public Capabilities getCapabilities() {
 	return null;
 }
 
-@Override
-public boolean isThreaded() {
-	// TODO Auto-generated method stub
-	return false;
-}
-
-@Override
-public void setThreaded(boolean setv) {
-	// TODO Auto-generated method stub
-	
-}
-
 
 public String thresholdTipText() {
 	return "Set threshold to select activited neurons (no-winner-takes-all)";
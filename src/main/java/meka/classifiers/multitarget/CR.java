@@ -27,10 +27,16 @@ import meka.classifiers.multilabel.ProblemTransformationMethod;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.classifiers.trees.J48;
+import meka.core.InstancesView;
 import meka.core.MLUtils;
+import meka.core.ThreadUtils;
 import weka.core.RevisionUtils;
 import weka.core.Utils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 public class CR extends meka.classifiers.multilabel.BR implements MultiTargetClassifier {
 
 	/** for serialization. */
@@ -62,27 +68,33 @@ public class CR extends meka.classifiers.multilabel.BR implements MultiTargetCla
 	}
 
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 	  	testCapabilities(D);
 	  	
-		int L = D.classIndex();
+		final int L = D.classIndex();
 
 		if(getDebug()) System.out.print("Creating "+L+" models ("+m_Classifier.getClass().getName()+"): ");
 		m_MultiClassifiers = AbstractClassifier.makeCopies(m_Classifier,L);
-		m_Templates = new Instances[L];
 
+		List<Callable<Instances>> jobs = new ArrayList<>(L);
 		for(int j = 0; j < L; j++) {
-
-			//Select only class attribute 'j'
-			m_Templates[j] = MLUtils.keepAttributesAt(new Instances(D),new int[]{j},L);
-			m_Templates[j].setClassIndex(0);
-
-			//Build the classifier for that class
-			m_MultiClassifiers[j].buildClassifier(m_Templates[j]);
-			if(getDebug()) System.out.print(" " + (m_Templates[j].classAttribute().name()));
-
-			m_Templates[j] = new Instances(m_Templates[j], 0);
+			final int k = j;
+			jobs.add(new Callable<Instances>() {
+				public Instances call() throws Exception {
+					//Select only class attribute 'j' (a view of D, shared between the jobs)
+					Instances D_j = InstancesView.keepLabels(D,L,new int[]{k});
+					D_j.setClassIndex(0);
+
+					//Build the classifier for that class
+					m_MultiClassifiers[k].buildClassifier(D_j);
+					if(getDebug()) System.out.print(" " + (D_j.classAttribute().name()));
+
+					return new Instances(D_j, 0);
+				}
+			});
 		}
+
+		m_Templates = ThreadUtils.executeAll(jobs, m_NumThreads).toArray(new Instances[L]);
 	}
 
 	@Override
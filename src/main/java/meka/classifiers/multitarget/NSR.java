@@ -48,6 +48,12 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 	/** for serialization. */
 	private static final long serialVersionUID = 8373228150066785001L;
 
+	/** the label values of each class value of the template (decoded once, rather than on every prediction) */
+	protected transient double m_ClassValues[][] = null;
+
+	/** the template that m_ClassValues was decoded from */
+	protected transient Instances m_ClassValuesTemplate = null;
+
 	public NSR() {
 		// default classifier for GUI
 		this.m_Classifier = new J48();
@@ -102,6 +108,21 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		return A.toDoubleArray(MLUtils.toIntArray("[" + label.replace("+", ",") + "]"));
 	}
 
+	/**
+	 * ClassValues - the label values of each class value of the current template (decoded on first use after training).
+	 */
+	protected synchronized double[][] classValues() {
+		Instances T = m_InstancesTemplate;
+		if (m_ClassValuesTemplate != T) {
+			m_ClassValues = new double[T.numClasses()][];
+			for(int i = 0; i < m_ClassValues.length; i++) {
+				m_ClassValues[i] = classLabelToDistribution(T.classAttribute().value(i));
+			}
+			m_ClassValuesTemplate = T;
+		}
+		return m_ClassValues;
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
 
@@ -116,9 +137,9 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		double w[] = m_Classifier.distributionForInstance(x_sl);		// w[j] = p(y_j) for each j = 1,...,L
 		int max_j  = Utils.maxIndex(w);									// j of max w[j]
 		//int max_j = (int)m_Classifier.classifyInstance(x_sl);			// where comb_i is selected
-		String y_max = m_InstancesTemplate.classAttribute().value(max_j);									// comb_i e.g. "0+3+0+0+1+2+0+0"
+		double values[][] = classValues();								// comb_i e.g. "0+3+0+0+1+2+0+0" -> [0.0,3.0,0.0,...,0.0]
 
-		double y[] = Arrays.copyOf(classLabelToDistribution(y_max),L*2);					// "0+3+0+0+1+2+0+0" -> [0.0,3.0,0.0,...,0.0]
+		double y[] = Arrays.copyOf(values[max_j],L*2);
 
 		HashMap<Double,Double> votes[] = new HashMap[L];
 		for(int j = 0; j < L; j++) {
@@ -126,7 +147,7 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		}
 
 		for(int i = 0; i < w.length; i++) {
-			double y_i[] = classLabelToDistribution(m_InstancesTemplate.classAttribute().value(i));
+			double y_i[] = values[i];
 			for(int j = 0; j < y_i.length; j++) {
 				votes[j].put(y_i[j] , votes[j].containsKey(y_i[j]) ? votes[j].get(y_i[j]) + w[i] : w[i]);
 			}
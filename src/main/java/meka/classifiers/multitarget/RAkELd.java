@@ -55,7 +55,7 @@ public class RAkELd extends NSR {
 	int m_K = 3;
 	int m_M = 10;
 	protected int kMap[][] = null;
-	protected int vMap[][][] = null; // TODO use this to speed things up
+	protected int vMap[][][] = null; // the (decoded) values of the class values of each model
 
 
 	/**
@@ -104,13 +104,13 @@ public class RAkELd extends NSR {
 			Instances D_i = F.keepLabels(D,D.classIndex(),new int[]{i});
 			D_i.setClassIndex(0);
 
-			//vMap[i] = SuperLabelUtils.extractValues(D_i);
 
 			if (getDebug()) 
 				System.out.println("\tbuilding model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i]));
 
 			m_Classifiers[i].buildClassifier(D_i);
 			m_InstancesTemplates[i] = new Instances(D_i,0);
+			vMap[i] = SuperLabelUtils.extractValues(m_InstancesTemplates[i]);
 
 		}
 
@@ -135,12 +135,10 @@ public class RAkELd extends NSR {
 			// Get a meta classification
 			int yp_j = (int)m_Classifiers[m].classifyInstance(x_m);        // e.g., 2
 
-			int values[] = SuperLabelUtils.decodeValue(m_InstancesTemplates[m].classAttribute().value(yp_j));
+			int values[] = values(m)[yp_j];
 
-			int k_indices[] = SuperLabelUtils.decodeClass(m_InstancesTemplates[m].classAttribute().name());
-
-			// Vote with classification
-            for(int j_k = 0; j_k < k_indices.length; j_k++) {
+			// Vote with classification (the class of model m encodes the indices kMap[m])
+			for(int j_k = 0; j_k < kMap[m].length; j_k++) {
 				//int i = k_indices[j_k];			// original indices
 				int j = kMap[m][j_k];				// original indices
 				Double score = votes[j].get(values[j_k]);
@@ -154,6 +152,15 @@ public class RAkELd extends NSR {
 		return y;
 	}
 
+	/**
+	 * Values - the decoded class values of model m (decoded at training time, or on first use for models without them).
+	 */
+	protected synchronized int[][] values(int m) {
+		if (vMap[m] == null)
+			vMap[m] = SuperLabelUtils.extractValues(m_InstancesTemplates[m]);
+		return vMap[m];
+	}
+
 	@Override
 	public String toString() {
 		if (kMap == null)
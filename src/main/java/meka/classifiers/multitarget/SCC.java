@@ -50,6 +50,13 @@ public class SCC extends NSR implements Randomizable, MultiTargetClassifier, Tec
 
 	private Random rand = null;
 
+	/** the (decoded) labels of each super class of the template, and the (decoded) values of each of its values */
+	protected transient int m_SuperClasses[][] = null;
+	protected transient String m_SuperValues[][][] = null;
+
+	/** the template that m_SuperClasses and m_SuperValues were decoded from */
+	protected transient Instances m_SuperTemplate = null;
+
 	public SCC() {
 		// default classifier for GUI
 		this.m_Classifier = new CC();
@@ -210,7 +217,7 @@ public class SCC extends NSR implements Randomizable, MultiTargetClassifier, Tec
 			result.setInfo("Type","MT");
 		}
 		else if (h instanceof ProblemTransformationMethod) {
-			result.setInfo("Threshold", MLEvalUtils.getThreshold(result.predictions, D_train, "PCut1"));
+			result.setInfo("Threshold", MLEvalUtils.getThreshold(result, D_train, "PCut1", Evaluation.getNumThreads(h)));
 			result.setInfo("Type","ML");
 		}
 
@@ -228,7 +235,7 @@ public class SCC extends NSR implements Randomizable, MultiTargetClassifier, Tec
 		result.setInfo("Classifier_info",h.toString());
 		result.setInfo("Dataset_name",MLUtils.getDatasetName(D_test));
 
-		result.output = Result.getStats(result,"1");
+		result.output = Result.getStats(result,"1",Evaluation.getNumThreads(h));
 		return result;
 	}
 
@@ -355,10 +362,11 @@ public class SCC extends NSR implements Randomizable, MultiTargetClassifier, Tec
 		}
 
 		// For each super node ...
+		decodeSuperClasses();
 		for(int j = 0; j < L_; j++) {
 
-			int idxs[] = SuperNodeFilter.decodeClasses(m_InstancesTemplate.attribute(j).name());						 	// 3,4	(partition)
-			String vals[] = SuperNodeFilter.decodeValue(m_InstancesTemplate.attribute(j).value((int)Math.round(y_[j]))); 	// 1,0	(clases)
+			int idxs[] = m_SuperClasses[j];									// 3,4	(partition)
+			String vals[] = m_SuperValues[j][(int)Math.round(y_[j])]; 		// 1,0	(clases)
 
 			for(int i = 0; i < idxs.length; i++) {
 				y[idxs[i]] = x.dataset().attribute(idxs[i]).indexOfValue(vals[i]); 		// y_j = v
@@ -369,6 +377,26 @@ public class SCC extends NSR implements Randomizable, MultiTargetClassifier, Tec
 		return y;
 	}
 
+	/**
+	 * DecodeSuperClasses - decode the super classes of the current template (on first use after training), rather than on every prediction.
+	 */
+	protected synchronized void decodeSuperClasses() {
+		Instances T = m_InstancesTemplate;
+		if (m_SuperTemplate == T)
+			return;
+		int L_ = T.classIndex();
+		m_SuperClasses = new int[L_][];
+		m_SuperValues = new String[L_][][];
+		for(int j = 0; j < L_; j++) {
+			m_SuperClasses[j] = SuperNodeFilter.decodeClasses(T.attribute(j).name());
+			m_SuperValues[j] = new String[T.attribute(j).numValues()][];
+			for(int v = 0; v < m_SuperValues[j].length; v++) {
+				m_SuperValues[j][v] = SuperNodeFilter.decodeValue(T.attribute(j).value(v));
+			}
+		}
+		m_SuperTemplate = T;
+	}
+
 	public void setI(int i) {
 		m_I = i;
 	}
@@ -70,8 +70,8 @@ public class BaggingMT extends BaggingML implements MultiTargetClassifier {
 			votes[j] = new HashMap<Integer,Double>();
 		}
 
-		for(int m = 0; m < m_NumIterations; m++) {
-			double c[] = ((ProblemTransformationMethod)m_Classifiers[m]).distributionForInstance(x);
+		// (the members may be queried in parallel, but the votes are added up in order)
+		for(double c[] : distributionsOfMembers(x)) {
 			// votes[j] = votes[j] + P(j|x)		@TODO: only if c.length > L
 			for(int j = 0; j < L; j++) {
 				Double w = votes[j].containsKey((int)c[j]) ? votes[j].get((int)c[j]) + c[j+L] : c[j+L];
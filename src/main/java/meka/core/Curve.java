@@ -0,0 +1,497 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.classifiers.evaluation.NominalPrediction;
+import weka.classifiers.evaluation.Prediction;
+import weka.classifiers.evaluation.ThresholdCurve;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Curve.java - A threshold curve (ROC / precision-recall) of a single label, kept as primitive counts.
+ * <br>
+ * The confidences are sorted once, and for each distinct confidence (threshold) the number of positive and negative examples
+ * with exactly that confidence are kept. This is all that is needed for the area under the ROC and the precision-recall curve,
+ * which are computed exactly as Weka's ThresholdCurve#getROCArea and ThresholdCurve#getPRCArea would on the curve of the same predictions.
+ * The curve is only turned into Instances (identical to those of ThresholdCurve#getCurve) when asked for, see #toInstances()
+ * and Lazy, e.g., for plotting it in the GUI.
+ * <br>
+ * For very many predictions (or predictions arriving one at a time), a Histogram gives an approximate curve in constant memory.
+ *
+ * @see Metrics#P_macroAUROC(int[][], double[][])
+ * @version	October 2026
+ */
+public class Curve implements Serializable {
+
+	private static final long serialVersionUID = 5247913026483154082L;
+
+	/** The distinct thresholds (confidences), in ascending order */
+	protected double T[];
+
+	/** The weight of the positive and negative examples with confidence exactly T[k] */
+	protected double pos[], neg[];
+
+	/**
+	 * Curve - the curve of 0/1 labels y (where anything but 1 counts as negative) with confidences p, e.g., after Metrics#align(int[], double[]).
+	 */
+	public Curve(int y[], double p[]) {
+		int n1 = 0;
+		for(int i = 0; i < y.length; i++) {
+			if (y[i] == 1)
+				n1++;
+		}
+		double p1[] = new double[n1];
+		double p0[] = new double[y.length - n1];
+		int i1 = 0, i0 = 0;
+		for(int i = 0; i < y.length; i++) {
+			// (+ 0.0, so that -0.0 and 0.0 are the same threshold)
+			if (y[i] == 1)
+				p1[i1++] = p[i] + 0.0;
+			else
+				p0[i0++] = p[i] + 0.0;
+		}
+		set(p1, p0);
+	}
+
+	private Curve() {
+	}
+
+	/**
+	 * Set - the curve of the confidences p1 of the positive examples, and p0 of the negative ones (both are sorted in the process).
+	 */
+	private void set(double p1[], double p0[]) {
+		Arrays.sort(p1);
+		Arrays.sort(p0);
+		// merge into distinct thresholds
+		int n = p1.length + p0.length;
+		double T[] = new double[n];
+		double pos[] = new double[n];
+		double neg[] = new double[n];
+		int K = -1;
+		int i1 = 0;
+		int i0 = 0;
+		while (i1 < p1.length || i0 < p0.length) {
+			boolean positive = (i0 >= p0.length) || (i1 < p1.length && p1[i1] <= p0[i0]);
+			double v = positive ? p1[i1++] : p0[i0++];
+			if (K < 0 || v > T[K]) {
+				K++;
+				T[K] = v;
+			}
+			if (positive)
+				pos[K]++;
+			else
+				neg[K]++;
+		}
+		K++;
+		this.T = Arrays.copyOf(T, K);
+		this.pos = Arrays.copyOf(pos, K);
+		this.neg = Arrays.copyOf(neg, K);
+	}
+
+	/**
+	 * Curve - a curve from its thresholds (ascending), and the weights of positives and negatives at each.
+	 */
+	protected Curve(double T[], double pos[], double neg[]) {
+		this.T = T;
+		this.pos = pos;
+		this.neg = neg;
+	}
+
+	/** The number of distinct thresholds */
+	public int size() {
+		return T.length;
+	}
+
+	/** The (weight of the) positive examples */
+	public double numPositives() {
+		return A.sum(pos);
+	}
+
+	/** The (weight of the) negative examples */
+	public double numNegatives() {
+		return A.sum(neg);
+	}
+
+	/**
+	 * The points of the curve, as in ThresholdCurve#getCurve: the true and false positives at each threshold,
+	 * followed by the point where all examples are predicted negative.
+	 * @return	{TP, FP}
+	 */
+	protected double[][] points() {
+		int K = T.length;
+		double TP[] = new double[K + 1];
+		double FP[] = new double[K + 1];
+		double tp = numPositives();
+		double fp = numNegatives();
+		for(int k = 0; k < K; k++) {
+			TP[k] = tp;
+			FP[k] = fp;
+			tp -= pos[k];
+			fp -= neg[k];
+		}
+		return new double[][]{TP, FP};
+	}
+
+	/**
+	 * Area under the ROC curve (as ThresholdCurve#getROCArea).
+	 * @return	the area, NaN if there are no examples, or only positives or negatives
+	 */
+	public double getROCArea() {
+		if (T.length == 0)
+			return Double.NaN;
+		double pts[][] = points();
+		double TP[] = pts[0];
+		double FP[] = pts[1];
+		int n = TP.length;
+		double area = 0.0;
+		double cumNeg = 0.0;
+		for(int i = 0; i < n; i++) {
+			double cip, cin;
+			if (i < n - 1) {
+				cip = TP[i] - TP[i + 1];
+				cin = FP[i] - FP[i + 1];
+			}
+			else {
+				cip = TP[n - 1];
+				cin = FP[n - 1];
+			}
+			area += cip * (cumNeg + (0.5 * cin));
+			cumNeg += cin;
+		}
+		return area / (FP[0] * TP[0]);
+	}
+
+	/**
+	 * Area under the precision-recall curve (as ThresholdCurve#getPRCArea).
+	 * @return	the area, NaN if there are no examples or the area is 0
+	 */
+	public double getPRCArea() {
+		if (T.length == 0)
+			return Double.NaN;
+		double pts[][] = points();
+		double TP[] = pts[0];
+		double FP[] = pts[1];
+		int n = TP.length;
+		double P = TP[0];
+		double area = 0.0;
+		double xlast = recall(TP[n - 1], P);
+		for(int i = n - 2; i >= 0; i--) {
+			double r = recall(TP[i], P);
+			area += (precision(TP[i], FP[i]) * (r - xlast));
+			xlast = r;
+		}
+		return (area == 0) ? Utils.missingValue() : area;
+	}
+
+	private static double precision(double tp, double fp) {
+		return (tp + fp == 0) ? 0 : tp / (tp + fp);
+	}
+
+	private static double recall(double tp, double P) {
+		return (P == 0) ? 0 : tp / P;
+	}
+
+	/**
+	 * ToInstances - the curve as Instances, exactly as ThresholdCurve#getCurve gives them for the original predictions.
+	 * @return	the curve, or null if there are no examples
+	 */
+	public Instances toInstances() {
+		// one weighted prediction per threshold and class stands in for all the examples it covers
+		ArrayList<Prediction> predictions = new ArrayList<Prediction>();
+		for(int k = 0; k < T.length; k++) {
+			if (pos[k] > 0)
+				predictions.add(new NominalPrediction(1., new double[]{1. - T[k], T[k]}, pos[k]));
+			if (neg[k] > 0)
+				predictions.add(new NominalPrediction(0., new double[]{1. - T[k], T[k]}, neg[k]));
+		}
+		return new ThresholdCurve().getCurve(predictions);
+	}
+
+	/**
+	 * Curves - the curves of each label (column) of Y, with missing values (-1) removed as in Metrics#align(int[], double[]).
+	 * Each label is sorted independently, so the labels are processed in parallel if more than one thread is requested.
+	 * @param	Y	true values
+	 * @param	P	confidences
+	 * @param	numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 * @return	the curves, null for a label whose true values are all missing
+	 */
+	public static Curve[] curves(final int Y[][], final double P[][], int numThreads) {
+		int L = Y[0].length;
+		List<Callable<Curve>> jobs = new ArrayList<>(L);
+		for(int j = 0; j < L; j++) {
+			final int k = j;
+			jobs.add(new Callable<Curve>() {
+				public Curve call() {
+					int y_j[] = MatrixUtils.getCol(Y, k);
+					if (Metrics.allMissing(y_j))
+						return null;
+					double aligned[][] = Metrics.align(y_j, MatrixUtils.getCol(P, k));
+					return new Curve(Metrics.toIntArray(aligned[0]), aligned[1]);
+				}
+			});
+		}
+		try {
+			return ThreadUtils.executeAll(jobs, numThreads).toArray(new Curve[L]);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to compute the curves", e);
+		}
+	}
+
+	/**
+	 * Curves - as #curves(int[][], double[][], int), for the true values and confidences of the store s, read column by column.
+	 */
+	public static Curve[] curves(final PredictionStore s, int numThreads) {
+		int L = s.numLabels();
+		List<Callable<Curve>> jobs = new ArrayList<>(L);
+		for(int j = 0; j < L; j++) {
+			final int k = j;
+			jobs.add(new Callable<Curve>() {
+				public Curve call() {
+					int y_j[] = s.getColTrue(k);
+					if (Metrics.allMissing(y_j))
+						return null;
+					double aligned[][] = Metrics.align(y_j, s.getCol(k));
+					return new Curve(Metrics.toIntArray(aligned[0]), aligned[1]);
+				}
+			});
+		}
+		try {
+			return ThreadUtils.executeAll(jobs, numThreads).toArray(new Curve[L]);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to compute the curves", e);
+		}
+	}
+
+	/**
+	 * Micro - the curve of all labels together (as if they formed a single label).
+	 */
+	public static Curve micro(int Y[][], double P[][]) {
+		double aligned[][] = Metrics.align(MatrixUtils.flatten(Y), MatrixUtils.flatten(P));
+		return new Curve(Metrics.toIntArray(aligned[0]), aligned[1]);
+	}
+
+	/**
+	 * Micro - as #micro(int[][], double[][]), for the true values and confidences of the store s
+	 * (read in place, skipping the pairs that Metrics#align(int[], double[]) would).
+	 */
+	public static Curve micro(PredictionStore s) {
+		int N = s.size();
+		int L = s.numLabels();
+		int n1 = 0, n0 = 0;
+		for(int j = 0; j < L; j++) {
+			for(int i = 0; i < N; i++) {
+				int y = s.getTrue(i, j);
+				double p = s.get(i, j);
+				if (y == -1 || p == -1.0 || Double.isNaN(p))
+					continue;
+				if (y == 1)
+					n1++;
+				else
+					n0++;
+			}
+		}
+		double p1[] = new double[n1];
+		double p0[] = new double[n0];
+		int i1 = 0, i0 = 0;
+		for(int j = 0; j < L; j++) {
+			for(int i = 0; i < N; i++) {
+				int y = s.getTrue(i, j);
+				double p = s.get(i, j);
+				if (y == -1 || p == -1.0 || Double.isNaN(p))
+					continue;
+				// (+ 0.0, so that -0.0 and 0.0 are the same threshold)
+				if (y == 1)
+					p1[i1++] = p + 0.0;
+				else
+					p0[i0++] = p + 0.0;
+			}
+		}
+		Curve c = new Curve();
+		c.set(p1, p0);
+		return c;
+	}
+
+	/**
+	 * Macro AUROC - the area under the ROC curve, averaged over the labels (as Metrics#P_macroAUROC(int[][], double[][])).
+	 * @param	curves	the curves of the labels, see #curves(int[][], double[][], int)
+	 */
+	public static double macroAUROC(Curve curves[]) {
+		return macro(curves, true);
+	}
+
+	/**
+	 * Macro AUPRC - the area under the precision-recall curve, averaged over the labels (as Metrics#P_macroAUPRC(int[][], double[][])).
+	 * @param	curves	the curves of the labels, see #curves(int[][], double[][], int)
+	 */
+	public static double macroAUPRC(Curve curves[]) {
+		return macro(curves, false);
+	}
+
+	private static double macro(Curve curves[], boolean roc) {
+		double AUC[] = new double[curves.length];
+		int L = curves.length;
+		for(int j = 0; j < curves.length; j++) {
+			if (curves[j] == null) {
+				L--;
+				continue;
+			}
+			AUC[j] = roc ? curves[j].getROCArea() : curves[j].getPRCArea();
+		}
+		if (L == 0)
+			return Double.NaN;
+		// (a label with all values missing counts as 0, as it always has)
+		return Utils.mean(AUC);
+	}
+
+	/**
+	 * ToInstances - the curves of several labels as Instances (null where the curve is null).
+	 */
+	public static Instances[] toInstances(Curve curves[]) {
+		Instances curveData[] = new Instances[curves.length];
+		for(int j = 0; j < curves.length; j++) {
+			if (curves[j] != null)
+				curveData[j] = curves[j].toInstances();
+		}
+		return curveData;
+	}
+
+	/**
+	 * Histogram - an approximate curve over confidences in [0,1], accumulated one prediction at a time in constant memory:
+	 * confidences are binned into B equal-width bins, and each bin is represented by its lower edge as threshold.
+	 * Histograms over different parts of the data can be merged.
+	 */
+	public static class Histogram implements Serializable {
+
+		private static final long serialVersionUID = -6121780582930712373L;
+
+		protected double pos[], neg[];
+
+		/**
+		 * Histogram - with B bins.
+		 */
+		public Histogram(int B) {
+			pos = new double[B];
+			neg = new double[B];
+		}
+
+		/**
+		 * Add - add one prediction (confidences outside [0,1] are clipped; missing true values (-1) and confidences (NaN) are ignored).
+		 * @param	y	the true value
+		 * @param	p	the confidence
+		 */
+		public void add(int y, double p) {
+			if (y == -1 || Double.isNaN(p))
+				return;
+			int B = pos.length;
+			int b = (int)(p * B);
+			b = Math.max(0, Math.min(B - 1, b));
+			if (y == 1)
+				pos[b]++;
+			else
+				neg[b]++;
+		}
+
+		/**
+		 * Merge - add the counts of another histogram (with the same number of bins).
+		 */
+		public void merge(Histogram h) {
+			for(int b = 0; b < pos.length; b++) {
+				pos[b] += h.pos[b];
+				neg[b] += h.neg[b];
+			}
+		}
+
+		/**
+		 * ToCurve - the curve of this histogram (over the non-empty bins).
+		 */
+		public Curve toCurve() {
+			int B = pos.length;
+			int K = 0;
+			for(int b = 0; b < B; b++) {
+				if (pos[b] + neg[b] > 0)
+					K++;
+			}
+			double T[] = new double[K];
+			double pos_[] = new double[K];
+			double neg_[] = new double[K];
+			int k = 0;
+			for(int b = 0; b < B; b++) {
+				if (pos[b] + neg[b] > 0) {
+					T[k] = (double)b / B;
+					pos_[k] = pos[b];
+					neg_[k] = neg[b];
+					k++;
+				}
+			}
+			return new Curve(T, pos_, neg_);
+		}
+	}
+
+	/**
+	 * Lazy - curve data for a Result, only turned into Instances when it is first asked for (see Result#getMeasurement(String)):
+	 * a single curve (Instances), the curves of all labels (Instances[]), or their macro average (Instances).
+	 */
+	public static class Lazy implements Result.Lazy {
+
+		private static final long serialVersionUID = -8406297346913530715L;
+
+		protected Curve curve;
+
+		protected Curve curves[];
+
+		protected boolean macro;
+
+		/** The data of a single curve */
+		public Lazy(Curve curve) {
+			this.curve = curve;
+		}
+
+		/** The data of the curves of all labels, or (if macro) their average */
+		public Lazy(Curve curves[], boolean macro) {
+			this.curves = curves;
+			this.macro = macro;
+		}
+
+		@Override
+		public Object get() {
+			if (curve != null)
+				return curve.toInstances();
+			Instances curveData[] = toInstances(curves);
+			if (!macro)
+				return curveData;
+			for(Instances c : curveData) {
+				if (c != null)
+					return Metrics.curveDataMacroAveraged(curveData);
+			}
+			return null;
+		}
+	}
+}
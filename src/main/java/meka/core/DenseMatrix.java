@@ -0,0 +1,93 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import java.io.Serializable;
+
+/**
+ * DenseMatrix.java - A dense matrix stored in one flat array, row by row (row-major).
+ * <br>
+ * Element (i,j) is data[i * cols + j]. Keeping the whole matrix in one array (rather than an array per row, as double[][]
+ * and Jama matrices do) keeps it contiguous in memory, which is what the blocked kernels of MatrixUtils work on.
+ *
+ * @see MatrixUtils#multiply(DenseMatrix, DenseMatrix, java.util.concurrent.ExecutorService)
+ * @version	October 2026
+ */
+public class DenseMatrix implements Serializable {
+
+	private static final long serialVersionUID = -6051934172235512843L;
+
+	/** The number of rows */
+	public final int rows;
+
+	/** The number of columns */
+	public final int cols;
+
+	/** The values, row by row */
+	public final double data[];
+
+	/**
+	 * DenseMatrix - a rows x cols matrix of zeros.
+	 */
+	public DenseMatrix(int rows, int cols) {
+		this(rows, cols, new double[rows * cols]);
+	}
+
+	/**
+	 * DenseMatrix - a rows x cols matrix backed by data (not copied).
+	 */
+	public DenseMatrix(int rows, int cols, double data[]) {
+		if (data.length != rows * cols)
+			throw new IllegalArgumentException("Array of length "+data.length+" does not hold a "+rows+" x "+cols+" matrix!");
+		this.rows = rows;
+		this.cols = cols;
+		this.data = data;
+	}
+
+	/**
+	 * DenseMatrix - a copy of M.
+	 */
+	public DenseMatrix(double M[][]) {
+		this(M.length, M.length > 0 ? M[0].length : 0);
+		for(int i = 0; i < rows; i++) {
+			System.arraycopy(M[i], 0, data, i * cols, cols);
+		}
+	}
+
+	public final double get(int i, int j) {
+		return data[i * cols + j];
+	}
+
+	public final void set(int i, int j, double v) {
+		data[i * cols + j] = v;
+	}
+
+	/**
+	 * ToArray - a copy of this matrix as double[][].
+	 */
+	public double[][] toArray() {
+		double M[][] = new double[rows][cols];
+		for(int i = 0; i < rows; i++) {
+			System.arraycopy(data, i * cols, M[i], 0, cols);
+		}
+		return M;
+	}
+
+	@Override
+	public String toString() {
+		return MatrixUtils.toString(toArray());
+	}
+}
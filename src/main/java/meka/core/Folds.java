@@ -0,0 +1,305 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Folds.java - Cross-validation folds as index arrays over one (unmodified) dataset.
+ * <br>
+ * The folds are defined by an order of the N indices and the boundaries of each fold within that order.
+ * Fold k is tested on its own block of the order, and trained on the rest of the order (in the same order), exactly as
+ * D.testCV(numFolds,k) and D.trainCV(numFolds,k) would do on a dataset D arranged in that order.
+ * Hence the backing dataset need not be copied or randomized, and the train/test sets of a fold only need to be
+ * built (with #train(Instances, int) and #test(Instances, int)) when the fold is actually evaluated.
+ * These share the attribute values of the backing dataset (Weka's instance copies are copy-on-write).
+ * <br>
+ * Besides the folds of Instances.trainCV/testCV, multi-label folds can be assigned by iterative stratification (#stratified(Instances, int, Random)).
+ * <br>
+ * See: Sechidis, Tsoumakas, and Vlahavas. <i>On the Stratification of Multi-Label Data</i>. ECML PKDD 2011.
+ *
+ * @see Instances#trainCV(int, int)
+ * @version	October 2026
+ */
+public class Folds implements Serializable {
+
+	private static final long serialVersionUID = 3125472648812936201L;
+
+	/** The order of the instances (indices into the backing dataset) */
+	protected int order[] = null;
+
+	/** The start of each fold in the order; fold k is order[start[k]], ..., order[start[k+1]-1] */
+	protected int start[] = null;
+
+	/**
+	 * Folds - the folds of Instances.testCV(numFolds,k), over N instances in their original order.
+	 * @param	N			the number of instances
+	 * @param	numFolds	the number of folds
+	 */
+	public Folds(int N, int numFolds) {
+		this(N, numFolds, null);
+	}
+
+	/**
+	 * Folds - the folds of Instances.testCV(numFolds,k), over N instances shuffled with r.
+	 * The shuffle is the one D.randomize(r) would make (consuming r in the same way).
+	 * @param	N			the number of instances
+	 * @param	numFolds	the number of folds
+	 * @param	r			random number generator, if == null, then don't randomize
+	 */
+	public Folds(int N, int numFolds, Random r) {
+		check(N, numFolds);
+		order = A.make_sequence(N);
+		if (r != null)
+			A.shuffle(order, r);
+		start = new int[numFolds + 1];
+		for(int k = 0; k < numFolds; k++) {
+			// as in Instances.testCV
+			int offset = (k < N % numFolds) ? k : N % numFolds;
+			start[k] = k * (N / numFolds) + offset;
+		}
+		start[numFolds] = N;
+	}
+
+	/**
+	 * Folds - given the order and fold boundaries directly.
+	 */
+	protected Folds(int order[], int start[]) {
+		this.order = order;
+		this.start = start;
+	}
+
+	private static void check(int N, int numFolds) {
+		if (numFolds < 2)
+			throw new IllegalArgumentException("Number of folds must be at least 2!");
+		if (numFolds > N)
+			throw new IllegalArgumentException("Can't have more folds than instances!");
+	}
+
+	/** The number of folds */
+	public int numFolds() {
+		return start.length - 1;
+	}
+
+	/** The number of instances (over all folds) */
+	public int numInstances() {
+		return order.length;
+	}
+
+	/**
+	 * GetTest - the indices of the test set of fold k.
+	 */
+	public int[] getTest(int k) {
+		int idx[] = new int[start[k + 1] - start[k]];
+		System.arraycopy(order, start[k], idx, 0, idx.length);
+		return idx;
+	}
+
+	/**
+	 * GetTrain - the indices of the training set of fold k (all other folds, in order).
+	 */
+	public int[] getTrain(int k) {
+		int n = start[k + 1] - start[k];
+		int idx[] = new int[order.length - n];
+		System.arraycopy(order, 0, idx, 0, start[k]);
+		System.arraycopy(order, start[k + 1], idx, start[k], order.length - start[k + 1]);
+		return idx;
+	}
+
+	/**
+	 * GetTrain - the indices of the training set of fold k, shuffled with r (as in Instances.trainCV(numFolds,k,r)).
+	 * @param	r	random number generator, if == null, then don't randomize
+	 */
+	public int[] getTrain(int k, Random r) {
+		int idx[] = getTrain(k);
+		if (r != null)
+			A.shuffle(idx, r);
+		return idx;
+	}
+
+	/**
+	 * Test - build the test set of fold k from D (the dataset these folds were made for).
+	 */
+	public Instances test(Instances D, int k) {
+		return subset(D, getTest(k));
+	}
+
+	/**
+	 * Train - build the training set of fold k from D (the dataset these folds were made for).
+	 */
+	public Instances train(Instances D, int k) {
+		return subset(D, getTrain(k));
+	}
+
+	/**
+	 * Train - build the training set of fold k from D, shuffled with r (as in D.trainCV(numFolds,k,r)).
+	 */
+	public Instances train(Instances D, int k, Random r) {
+		return subset(D, getTrain(k, r));
+	}
+
+	/**
+	 * Subset - the instances of D at the given indices, in that order.
+	 * The new instances share their values with those of D (until they are modified).
+	 * @param	D		dataset
+	 * @param	indices	indices into D
+	 * @return	a new dataset, with the header of D
+	 */
+	public static Instances subset(Instances D, int indices[]) {
+		Instances D_ = new Instances(D, indices.length);
+		for(int i : indices) {
+			D_.add(D.instance(i));
+		}
+		return D_;
+	}
+
+	/**
+	 * Stratified - assign the instances of D to folds by iterative stratification.
+	 * Each label (in order of fewest relevant instances remaining) distributes its relevant instances over the folds
+	 * that most lack them (ties: the folds that lack the most instances overall, then at random).
+	 * Instances without any relevant label are distributed at the end so as to balance the fold sizes.
+	 * A label counts as relevant if its value is non-zero (and not missing).
+	 * Within each fold, instances keep the order of D (or of D shuffled with r, as D.randomize(r) would).
+	 * @param	D			a multi-label dataset
+	 * @param	numFolds	the number of folds
+	 * @param	r			random number generator (for shuffling and breaking ties), if == null, then don't randomize and break ties by the lowest fold index
+	 * @return	the folds
+	 */
+	public static Folds stratified(Instances D, int numFolds, Random r) {
+		int N = D.numInstances();
+		int L = D.classIndex();
+		check(N, numFolds);
+
+		int perm[] = A.make_sequence(N);
+		if (r != null)
+			A.shuffle(perm, r);
+
+		// relevant labels of each instance (in permuted order), and the number of relevant instances of each label
+		int rel[][] = new int[N][];
+		int count[] = new int[L];
+		int buf[] = new int[L];
+		for(int i = 0; i < N; i++) {
+			Instance x = D.instance(perm[i]);
+			int n = 0;
+			for(int j = 0; j < L; j++) {
+				if (!x.isMissing(j) && x.value(j) != 0.0) {
+					buf[n++] = j;
+					count[j]++;
+				}
+			}
+			rel[i] = new int[n];
+			System.arraycopy(buf, 0, rel[i], 0, n);
+		}
+
+		// the instances (in permuted order) relevant to each label
+		int byLabel[][] = new int[L][];
+		int fill[] = new int[L];
+		for(int j = 0; j < L; j++) {
+			byLabel[j] = new int[count[j]];
+		}
+		for(int i = 0; i < N; i++) {
+			for(int j : rel[i]) {
+				byLabel[j][fill[j]++] = i;
+			}
+		}
+
+		// the desired number of instances for each fold, overall and per label
+		double c[] = new double[numFolds];
+		double cl[][] = new double[numFolds][L];
+		for(int k = 0; k < numFolds; k++) {
+			c[k] = (double)N / numFolds;
+			for(int j = 0; j < L; j++) {
+				cl[k][j] = (double)count[j] / numFolds;
+			}
+		}
+
+		int fold[] = new int[N];
+		Arrays.fill(fold, -1);
+		int remaining[] = count.clone();
+		int cand[] = new int[numFolds];
+		while (true) {
+			// the label with the fewest (but some) relevant instances left
+			int l = -1;
+			for(int j = 0; j < L; j++) {
+				if (remaining[j] > 0 && (l < 0 || remaining[j] < remaining[l]))
+					l = j;
+			}
+			if (l < 0)
+				break;
+			for(int i : byLabel[l]) {
+				if (fold[i] >= 0)
+					continue;
+				// the folds that most lack label l, then instances overall
+				int n = 0;
+				for(int k = 0; k < numFolds; k++) {
+					if (n == 0 || cl[k][l] > cl[cand[0]][l] || (cl[k][l] == cl[cand[0]][l] && c[k] > c[cand[0]])) {
+						cand[0] = k;
+						n = 1;
+					}
+					else if (cl[k][l] == cl[cand[0]][l] && c[k] == c[cand[0]]) {
+						cand[n++] = k;
+					}
+				}
+				int k = cand[(r != null && n > 1) ? r.nextInt(n) : 0];
+				fold[i] = k;
+				c[k]--;
+				for(int j : rel[i]) {
+					cl[k][j]--;
+					remaining[j]--;
+				}
+			}
+		}
+
+		// instances without relevant labels
+		for(int i = 0; i < N; i++) {
+			if (fold[i] >= 0)
+				continue;
+			int n = 0;
+			for(int k = 0; k < numFolds; k++) {
+				if (n == 0 || c[k] > c[cand[0]]) {
+					cand[0] = k;
+					n = 1;
+				}
+				else if (c[k] == c[cand[0]]) {
+					cand[n++] = k;
+				}
+			}
+			int k = cand[(r != null && n > 1) ? r.nextInt(n) : 0];
+			fold[i] = k;
+			c[k]--;
+		}
+
+		// arrange the (permuted) instances fold by fold
+		int start[] = new int[numFolds + 1];
+		for(int i = 0; i < N; i++) {
+			start[fold[i] + 1]++;
+		}
+		for(int k = 0; k < numFolds; k++) {
+			start[k + 1] += start[k];
+		}
+		int next[] = Arrays.copyOf(start, numFolds);
+		int order[] = new int[N];
+		for(int i = 0; i < N; i++) {
+			order[next[fold[i]]++] = perm[i];
+		}
+		return new Folds(order, start);
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.AbstractInstance;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * InstancesView.java - A dataset that is a view of some of the attributes of another dataset (with a new header),
+ * sharing its instances rather than copying their values.
+ * <br>
+ * Each instance of the view reads its values from the instance of the original dataset, until it is changed, at
+ * which point it takes a copy of its own values (so the original dataset is never changed through the view).
+ * Copies of the instances (e.g., as taken by <code>new Instances(D)</code>) are ordinary DenseInstances.
+ * <br>
+ * The view is meant to be used while the original dataset does not change, e.g., to train the models of each label
+ * (in parallel) from the same, shared, training data.
+ *
+ * @see F#keepLabels(Instances, int, int[])
+ * @version	October 2026
+ */
+public class InstancesView extends Instances {
+
+	private static final long serialVersionUID = -3217408651262932547L;
+
+	/**
+	 * InstancesView - a view of the attributes 'indices' of D.
+	 * @param	header	the header of the view (with indices.length attributes)
+	 * @param	D		the original dataset (only dense instances can be viewed)
+	 * @param	indices	the index in D of each attribute of the view
+	 */
+	public InstancesView(Instances header, Instances D, int indices[]) {
+		super(header, D.numInstances());
+		if (header.numAttributes() != indices.length)
+			throw new IllegalArgumentException("The header has " + header.numAttributes() + " attributes, but " + indices.length + " indices were given");
+		for(int i = 0; i < D.numInstances(); i++) {
+			Instance x = D.instance(i);
+			if (!(x instanceof DenseInstance))
+				throw new IllegalArgumentException("Only dense instances can be viewed, instance " + i + " is a " + x.getClass().getName());
+			ViewInstance v = new ViewInstance(x, indices);
+			v.setDataset(this);
+			// (added directly, as add(Instance) would copy it)
+			m_Instances.add(v);
+		}
+	}
+
+	/**
+	 * Viewable - true if all the instances of D can be viewed, i.e., are dense.
+	 */
+	public static boolean isViewable(Instances D) {
+		for(int i = 0; i < D.numInstances(); i++) {
+			if (!(D.instance(i) instanceof DenseInstance))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * KeepLabels - a view of D with only the labels 'j' kept (and all the attributes that are not labels), as F.keepLabels(D,L,j)
+	 * gives it, but without copying the values of the instances (if they are dense; if not, the filtered copy is returned).
+	 * @param	D	the dataset
+	 * @param	L	the number of labels (the first L attributes)
+	 * @param	j	the (sorted) indices of the labels to keep
+	 * @return	the view (or copy)
+	 */
+	public static Instances keepLabels(Instances D, int L, int j[]) throws Exception {
+		if (!isViewable(D))
+			return F.keepLabels(D,L,j);
+		// (the header is filtered as usual, so it is the same as that of the copy)
+		Instances header = F.keepLabels(new Instances(D,0),L,j);
+		int indices[] = new int[j.length + D.numAttributes() - L];
+		for(int k = 0; k < j.length; k++)
+			indices[k] = j[k];
+		for(int a = L; a < D.numAttributes(); a++)
+			indices[j.length + a - L] = a;
+		return new InstancesView(header, D, indices);
+	}
+
+	/**
+	 * ViewInstance - an instance that reads its values from another (dense) instance, at the given indices, until changed.
+	 */
+	protected static class ViewInstance extends AbstractInstance {
+
+		private static final long serialVersionUID = 2817425103574203496L;
+
+		/** The instance viewed (null once this instance has its own values) */
+		protected Instance m_Source;
+
+		/** The index in m_Source of each attribute */
+		protected int m_Indices[];
+
+		public ViewInstance(Instance source, int indices[]) {
+			m_Source = source;
+			m_Indices = indices;
+			m_Weight = source.weight();
+		}
+
+		/** Takes a copy of the values viewed, to change them. */
+		protected void ownValues() {
+			if (m_Source != null) {
+				m_AttValues = toDoubleArray();
+				m_Source = null;
+			}
+		}
+
+		@Override
+		public double value(int attIndex) {
+			return (m_Source != null) ? m_Source.value(m_Indices[attIndex]) : m_AttValues[attIndex];
+		}
+
+		@Override
+		public double valueSparse(int indexOfIndex) {
+			return value(indexOfIndex);
+		}
+
+		@Override
+		public int index(int position) {
+			return position;
+		}
+
+		@Override
+		public int numAttributes() {
+			return (m_Source != null) ? m_Indices.length : m_AttValues.length;
+		}
+
+		@Override
+		public int numValues() {
+			return numAttributes();
+		}
+
+		@Override
+		public double[] toDoubleArray() {
+			if (m_Source == null)
+				return m_AttValues.clone();
+			double values[] = new double[m_Indices.length];
+			for(int a = 0; a < values.length; a++)
+				values[a] = m_Source.value(m_Indices[a]);
+			return values;
+		}
+
+		/** An ordinary DenseInstance with the same values, weight and dataset. */
+		protected DenseInstance toDenseInstance() {
+			DenseInstance x = new DenseInstance(m_Weight, toDoubleArray());
+			x.setDataset(m_Dataset);
+			return x;
+		}
+
+		/** Serializes as an ordinary DenseInstance (rather than with the instance viewed, and its dataset). */
+		protected Object writeReplace() {
+			return toDenseInstance();
+		}
+
+		@Override
+		public Object copy() {
+			return toDenseInstance();
+		}
+
+		@Override
+		public Instance copy(double values[]) {
+			DenseInstance x = new DenseInstance(m_Weight, values);
+			x.setDataset(m_Dataset);
+			return x;
+		}
+
+		@Override
+		public Instance mergeInstance(Instance inst) {
+			return toDenseInstance().mergeInstance(inst);
+		}
+
+		@Override
+		public void replaceMissingValues(double array[]) {
+			ownValues();
+			DenseInstance x = new DenseInstance(m_Weight, m_AttValues);
+			x.replaceMissingValues(array);
+			m_AttValues = x.toDoubleArray();
+		}
+
+		@Override
+		public void setValue(int attIndex, double value) {
+			ownValues();
+			m_AttValues[attIndex] = value;
+		}
+
+		@Override
+		public void setValueSparse(int indexOfIndex, double value) {
+			setValue(indexOfIndex, value);
+		}
+
+		@Override
+		public String toStringNoWeight() {
+			return toDenseInstance().toStringNoWeight();
+		}
+
+		@Override
+		public String toStringNoWeight(int afterDecimalPoint) {
+			return toDenseInstance().toStringNoWeight(afterDecimalPoint);
+		}
+
+		@Override
+		protected void forceDeleteAttributeAt(int position) {
+			ownValues();
+			double values[] = new double[m_AttValues.length - 1];
+			System.arraycopy(m_AttValues, 0, values, 0, position);
+			System.arraycopy(m_AttValues, position + 1, values, position, values.length - position);
+			m_AttValues = values;
+		}
+
+		@Override
+		protected void forceInsertAttributeAt(int position) {
+			ownValues();
+			double values[] = new double[m_AttValues.length + 1];
+			System.arraycopy(m_AttValues, 0, values, 0, position);
+			values[position] = weka.core.Utils.missingValue();
+			System.arraycopy(m_AttValues, position, values, position + 1, m_AttValues.length - position);
+			m_AttValues = values;
+		}
+	}
+}
@@ -0,0 +1,375 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * LabelMatrix.java - The labels of a dataset, extracted once into a compact sparse row format, and the pairwise label
+ * statistics of StatUtils computed from it.
+ * <br>
+ * Each row holds only the non-zero labels of an instance, each encoded as an 'item' j + L*(v-1) for the j-th label
+ * taking value v &gt; 0 (as in LabelSetCounter#encode), so in the multi-label case the items are just the relevant labels.
+ * The co-occurrence counts of all pairs of items come from a sparse outer product of each row with itself, which
+ * is O(N*c^2) for label cardinality c, rather than O(N*L^2); all the other pairwise counts (those involving zeros) follow
+ * from these and the marginal counts, and all the dependency measures from those counts.
+ * <br>
+ * The measures are exactly those of the corresponding (dense) functions in StatUtils, including their smoothing.
+ *
+ * @see StatUtils#margDepMatrix(Instances, String, ExecutorService)
+ * @version	October 2026
+ */
+public class LabelMatrix implements Serializable {
+
+	private static final long serialVersionUID = -4250925139716356735L;
+
+	/** The number of instances */
+	public final int N;
+
+	/** The number of labels */
+	public final int L;
+
+	/** the number of items (label-value pairs with a non-zero value) */
+	protected final int M;
+
+	/** row i is m_Items[m_Ptr[i]], ..., m_Items[m_Ptr[i+1]-1] (in ascending order) */
+	protected final int m_Ptr[];
+	protected final int m_Items[];
+
+	/** the number of values of each label */
+	protected final int m_NumValues[];
+
+	/** the number of rows with each item */
+	protected final int m_Counts[];
+
+	/** the co-occurrence counts of items a &lt; b (computed when first needed) */
+	protected transient int m_C[][] = null;
+
+	/** m_Sums[n] the smoothed count 0.0001 + 1 + ... + 1 (n times), accumulated exactly as StatUtils does */
+	protected final double m_Sums[];
+
+	/**
+	 * LabelMatrix - extract the labels of D (the first D.classIndex() attributes).
+	 */
+	public LabelMatrix(Instances D) {
+		this(D, D.classIndex());
+	}
+
+	/**
+	 * LabelMatrix - extract the first L attributes of D.
+	 * Only the stored values of a sparse instance are visited.
+	 */
+	public LabelMatrix(Instances D, int L) {
+		this.N = D.numInstances();
+		this.L = L;
+		m_NumValues = new int[L];
+		m_Ptr = new int[N + 1];
+		int items[] = new int[Math.max(N, 1)];
+		int n = 0;
+		int V = 2;
+		for(int i = 0; i < N; i++) {
+			Instance x = D.instance(i);
+			for(int p = 0; p < x.numValues(); p++) {
+				int j = x.index(p);
+				if (j >= L)
+					break;
+				int v = (int)Math.round(x.valueSparse(p));
+				if (v > 0) {
+					if (n == items.length)
+						items = Arrays.copyOf(items, 2 * n);
+					items[n++] = j + L * (v - 1);
+					V = Math.max(V, v + 1);
+				}
+			}
+			Arrays.sort(items, m_Ptr[i], n);
+			m_Ptr[i + 1] = n;
+		}
+		m_Items = Arrays.copyOf(items, n);
+		M = L * (V - 1);
+		m_Counts = new int[M];
+		for(int a : m_Items) {
+			m_Counts[a]++;
+		}
+		for(int j = 0; j < L; j++) {
+			m_NumValues[j] = D.attribute(j).isNominal() ? D.attribute(j).numValues() : V;
+		}
+		m_Sums = new double[N + 1];
+		double s = 0.0001;
+		for(int i = 0; i <= N; i++) {
+			m_Sums[i] = s;
+			s += 1.0;
+		}
+	}
+
+	/**
+	 * Co-occurrences - count the co-occurrences of all pairs of items (if not done already).
+	 * @param	executor	to count in parallel (null to count in the calling thread)
+	 */
+	public synchronized void countCooccurrences(ExecutorService executor) {
+		if (m_C != null)
+			return;
+		final int C[][] = new int[M][];
+		for(int a = 0; a < M; a++) {
+			C[a] = new int[M - a];
+		}
+		// each job counts the pairs whose first item falls in its share; so each C[a] is written by one job only
+		// (a few shares per thread of the executor, to balance the load)
+		int numThreads = (executor == null) ? ThreadUtils.SEQUENTIAL : ThreadUtils.getNumThreads(executor);
+		final int T = (numThreads == ThreadUtils.SEQUENTIAL) ? 1 : Math.min(M, 4 * numThreads);
+		if (T <= 1) {
+			cooccurrences(C, 0, 1);
+		}
+		else {
+			List<Callable<Void>> jobs = new ArrayList<Callable<Void>>();
+			for(int t = 0; t < T; t++) {
+				final int t_ = t;
+				jobs.add(new Callable<Void>() {
+					public Void call() {
+						cooccurrences(C, t_, T);
+						return null;
+					}
+				});
+			}
+			try {
+				ThreadUtils.executeAll(jobs, executor);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException("Failed to count the co-occurrences in parallel!", e);
+			}
+		}
+		m_C = C;
+	}
+
+	/** the outer product of each row, for the items a where a % T == t (C[a][b-a] for a &lt; b) */
+	private void cooccurrences(int C[][], int t, int T) {
+		for(int i = 0; i < N; i++) {
+			int end = m_Ptr[i + 1];
+			for(int p = m_Ptr[i]; p < end; p++) {
+				int a = m_Items[p];
+				if (a % T != t)
+					continue;
+				int C_a[] = C[a];
+				for(int q = p + 1; q < end; q++) {
+					C_a[m_Items[q] - a]++;
+				}
+			}
+		}
+	}
+
+	/** the item of label j taking value v &gt; 0 */
+	private int item(int j, int v) {
+		return j + L * (v - 1);
+	}
+
+	/** the number of rows with items a and b */
+	private int joint(int a, int b) {
+		if (a >= M || b >= M)
+			return 0;
+		if (a == b)
+			return m_Counts[a];
+		if (m_C == null)
+			countCooccurrences(null);
+		return (a < b) ? m_C[a][b - a] : m_C[b][a - b];
+	}
+
+	/**
+	 * Count - the number of instances where label j takes value v.
+	 */
+	public int count(int j, int v) {
+		if (v > 0)
+			return (item(j, v) < M) ? m_Counts[item(j, v)] : 0;
+		int n = N;
+		for(int a = j; a < M; a += L) {
+			n -= m_Counts[a];
+		}
+		return n;
+	}
+
+	/**
+	 * Count - the number of instances where label j takes value v and label k (!= j) takes value w.
+	 */
+	public int count(int j, int v, int k, int w) {
+		if (v > 0 && w > 0)
+			return joint(item(j, v), item(k, w));
+		if (v > 0) {
+			// those with j = v, less those where also k != 0
+			int n = count(j, v);
+			for(int b = k; b < M; b += L) {
+				n -= joint(item(j, v), b);
+			}
+			return n;
+		}
+		if (w > 0)
+			return count(k, w, j, v);
+		// those with j = 0, less those where k != 0
+		int n = count(j, 0);
+		for(int b = k; b < M; b += L) {
+			n -= count(k, (b / L) + 1, j, 0);
+		}
+		return n;
+	}
+
+	/**
+	 * p - Empirical prior, P(Y_j == v), as StatUtils#p(double[][], int, int).
+	 */
+	public double p(int j, int v) {
+		return m_Sums[count(j, v)] / N;
+	}
+
+	/**
+	 * P - Empirical joint, P(Y_j == v, Y_k == w), as StatUtils#P(double[][], int, int, int, int).
+	 */
+	public double P(int j, int v, int k, int w) {
+		return m_Sums[count(j, v, k, w)] / N;
+	}
+
+	/**
+	 * jPMF - Joint PMF of the j-th and k-th labels, as StatUtils#jPMF(Instances, int, int).
+	 */
+	public double[][] jPMF(int j, int k) {
+		double JOINT[][] = new double[m_NumValues[j]][m_NumValues[k]];
+		double p = (1.0 / (double)N);
+		for(int v = 0; v < JOINT.length; v++) {
+			for(int w = 0; w < JOINT[v].length; w++) {
+				int n = count(j, v, k, w);
+				for(int i = 0; i < n; i++) {
+					JOINT[v][w] += p;
+				}
+			}
+		}
+		return JOINT;
+	}
+
+	/**
+	 * GetC - pairwise co-occurrence counts, as StatUtils#getC(Instances): C[j][j] is the sum of the values of label j, and
+	 * C[j][k] (j &lt; k) the number of instances where Y[i][j] + Y[i][k] &gt;= 2 (i.e., where both are 1, in the multi-label case).
+	 */
+	public int[][] getC() {
+		int C[][] = new int[L][L];
+		for(int j = 0; j < L; j++) {
+			for(int a = j; a < M; a += L) {
+				C[j][j] += (a / L + 1) * m_Counts[a];
+			}
+			for(int k = j+1; k < L; k++) {
+				for(int v = 0; v < m_NumValues[j]; v++) {
+					for(int w = Math.max(2 - v, 0); w < m_NumValues[k]; w++) {
+						C[j][k] += count(j, v, k, w);
+					}
+				}
+			}
+		}
+		return C;
+	}
+
+	/**
+	 * GetApproxC - pairwise co-occurrence counts, as StatUtils#getApproxC(Instances): C[j][j] is the number of instances
+	 * where label j is non-zero, and C[j][k] (j &lt; k) the number where both labels j and k are.
+	 */
+	public int[][] getApproxC() {
+		int C[][] = new int[L][L];
+		for(int j = 0; j < L; j++) {
+			C[j][j] = N - count(j, 0);
+			for(int k = j+1; k < L; k++) {
+				for(int a = j; a < M; a += L) {
+					for(int b = k; b < M; b += L) {
+						C[j][k] += joint(a, b);
+					}
+				}
+			}
+		}
+		return C;
+	}
+
+	/**
+	 * I - Mutual Information I(Y_j;Y_k), as StatUtils#I(Instances, int, int).
+	 */
+	public double I(int j, int k) {
+		double I = 0.0;
+		for(int x = 0; x < m_NumValues[j]; x++) {
+			double p_x = p(j,x);
+			for(int y = 0; y < m_NumValues[k]; y++) {
+				double p_y = p(k,y);
+				double p_xy = P(j,x,k,y);
+				I += p_xy * Math.log ( p_xy / ( p_x * p_y) );
+			}
+		}
+		return I;
+	}
+
+	/**
+	 * I - Mutual Information matrix (upper triangle), as StatUtils#I(Instances, int).
+	 */
+	public double[][] I() {
+		double M[][] = new double[L][L];
+		for(int j = 0; j < L; j++) {
+			for(int k = j+1; k < L; k++) {
+				M[j][k] = I(j,k);
+			}
+		}
+		return M;
+	}
+
+	/**
+	 * Chi^2 - the chi-squared statistic of the j-th and k-th labels, as StatUtils#chi2(Instances, int, int).
+	 */
+	public double chi2(int j, int k) {
+		double chi2 = 0.0;
+		for(int j_ = 0; j_ < 2; j_++) {
+			for(int k_ = 0; k_ < 2; k_++) {
+				double E = p(j,j_) * p(k,k_); 			// Expected vaule P(Y_j = j_)P(Y_k = k_)
+				double O = P(j,j_,k,k_);				// Observed value P(Y_j = j_, Y_k = k_)
+				chi2 += ( ((O - E) * (O - E)) / E );
+			}
+		}
+		return chi2;
+	}
+
+	/**
+	 * Chi^2 - the chi-squared statistic matrix (upper triangle), as StatUtils#chi2(Instances).
+	 */
+	public double[][] chi2() {
+		double X[][] = new double[L][L];
+		for(int j = 0; j < L; j++) {
+			for(int k = j+1; k < L; k++) {
+				X[j][k] = chi2(j,k);
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * F - Relative frequency matrix (upper triangle), as StatUtils#F(Instances).
+	 */
+	public double[][] F() {
+		double M[][] = new double[L][L];
+		for(int j = 0; j < L; j++) {
+			for(int k = j+1; k < L; k++) {
+				double E = p(j,1) * p(k,1); 			// Expected vaule P(Y_j = j_)P(Y_k = k_)
+				double O = P(j,1,k,1);					// Observed value P(Y_j = j_, Y_k = k_)
+				M[j][k] = Math.abs(1. - E/O);
+			}
+		}
+		return M;
+	}
+}
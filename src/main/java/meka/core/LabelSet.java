@@ -24,6 +24,8 @@ import java.util.Set;
 /**
  * Comparator - A fast sparse labelset representation.
  * e.g. [0,2,3] -- the indices of relevant labels.
+ * The hash code and a bitset of the indices are computed on first use (and again if the indices are replaced, but
+ * not if they are modified in place), so that hashing, equality and subset tests are cheap.
  * @author 	Jesse Read 
  * @version	March 2014
  */
@@ -34,6 +36,48 @@ public class LabelSet implements Comparator, Serializable {
 
 	public int indices[];  // indices of relevant labels, e.g., [1,5,7]
 
+	/** the hash code and bitset of the indices (computed on first use) */
+	private transient Cache cache = null;
+
+	/**
+	 * Cache - the hash code and bitset of some indices (immutable, so it can be shared between threads).
+	 */
+	private static final class Cache {
+
+		final int of[];
+
+		final int hash;
+
+		final long bits[];
+
+		Cache(int y[]) {
+			of = y;
+			hash = Arrays.hashCode(y);
+			int max = -1;
+			if (y != null) {
+				for(int j : y) {
+					max = Math.max(max,j);
+				}
+			}
+			bits = new long[(max >> 6) + 1];	// (none if max = -1)
+			if (y != null) {
+				for(int j : y) {
+					bits[j >> 6] |= 1L << j;
+				}
+			}
+		}
+	}
+
+	/** the cache for the current indices */
+	private Cache cache() {
+		Cache c = cache;
+		if (c == null || c.of != indices) {
+			c = new Cache(indices);
+			cache = c;
+		}
+		return c;
+	}
+
 	public LabelSet() {
 	}
 
@@ -90,15 +134,22 @@ public class LabelSet implements Comparator, Serializable {
 		return true;
 	}
 
+	/**
+	 * ToBitSet - the indices as a bitset, e.g., [1,5,7] -&gt; {0b10100010} (shared, not to be modified).
+	 */
+	public final long[] toBitSet() {
+		return cache().bits;
+	}
+
 	@Override
 	public final int hashCode() {
-		return Arrays.hashCode(indices);
+		return cache().hash;
 	}
 
 	@Override
 	public boolean equals(Object o) {
 		LabelSet l2 = (LabelSet)o;
-		if (indices.length != l2.indices.length)
+		if (indices.length != l2.indices.length || hashCode() != l2.hashCode())
 			return false;
 		else {
 			for(int i = 0; i < indices.length; i++) {
@@ -138,8 +189,17 @@ public class LabelSet implements Comparator, Serializable {
 			} 
 	} 
 
+	/**
+	 * Subsetof - returns &gt; 0 if this \subsetof y (as #subset(int[], int[]), but with the bitsets).
+	 */
 	public final int subsetof(LabelSet y) {
-		return subset(this.indices,y.indices);
+		long b1[] = this.toBitSet();
+		long b2[] = y.toBitSet();
+		for(int w = 0; w < b1.length; w++) {
+			if ((b1[w] & ~(w < b2.length ? b2[w] : 0L)) != 0L)
+				return -1;
+		}
+		return indices.length;
 	}
 
 	/**
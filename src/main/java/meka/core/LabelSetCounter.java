@@ -0,0 +1,311 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.Instance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * LabelSetCounter.java - Incremental (weighted) frequency counts of label combinations, for counting over a stream.
+ * <br>
+ * The combinations are LabelSets (so hashing and equality work on their cached hash and bitset); a label vector
+ * (also a multi-target one) is encoded as a LabelSet with #encode(Instance, int).
+ * The most frequent combination is maintained with each update, and the k most frequent are selected
+ * with a heap of size k (#top(int)).
+ * <br>
+ * With a capacity, at most that many combinations are monitored, with the Space-Saving algorithm: when a new
+ * combination arrives and the counter is full, it replaces the least frequent one (kept at the root of a heap, so each
+ * update is O(log capacity)), and inherits its count as an overestimate (#error(LabelSet)). Any combination more frequent
+ * than total/capacity is guaranteed to be monitored. Without a capacity, the counts are exact.
+ * <br>
+ * See: Metwally, Agrawal, El Abbadi. <i>Efficient Computation of Frequent and Top-k Elements in Data Streams</i>. ICDT 2005.
+ *
+ * @see PSUtils#countCombinationsSparse(weka.core.Instances, int)
+ * @version	October 2026
+ */
+public class LabelSetCounter implements Serializable {
+
+	private static final long serialVersionUID = 5360815374251948170L;
+
+	/**
+	 * Entry - a combination and its count.
+	 */
+	protected static class Entry implements Serializable {
+
+		private static final long serialVersionUID = -1390843623815742510L;
+
+		LabelSet y;
+
+		/** the count (an overestimate by at most error) */
+		double count;
+
+		/** the count of the combination this one replaced */
+		double error;
+
+		/** the position in the heap (with a capacity) */
+		int pos = -1;
+
+		/** the order in which it was first counted */
+		long seq;
+
+		Entry(LabelSet y, double error, long seq) {
+			this.y = y;
+			this.count = error;
+			this.error = error;
+			this.seq = seq;
+		}
+	}
+
+	/** The maximum number of combinations monitored (0 for no limit) */
+	protected int capacity = 0;
+
+	/** The entries, in the order they were (first) counted; a replaced entry counts as new */
+	protected LinkedHashMap<LabelSet,Entry> entries = new LinkedHashMap<LabelSet,Entry>();
+
+	/** Min-heap of the entries, on count (only with a capacity) */
+	protected Entry heap[] = null;
+
+	/** The most frequent entry */
+	protected Entry max = null;
+
+	/** The total weight counted */
+	protected double total = 0.0;
+
+	protected long seq = 0;
+
+	/**
+	 * LabelSetCounter - exact counts.
+	 */
+	public LabelSetCounter() {
+		this(0);
+	}
+
+	/**
+	 * LabelSetCounter - monitor at most 'capacity' combinations (Space-Saving), or all of them if capacity &lt;= 0.
+	 */
+	public LabelSetCounter(int capacity) {
+		if (capacity > 0) {
+			this.capacity = capacity;
+			this.heap = new Entry[capacity];
+		}
+	}
+
+	/** The maximum number of combinations monitored (0 for no limit) */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/** The number of combinations (currently monitored) */
+	public int size() {
+		return entries.size();
+	}
+
+	/** The total weight counted */
+	public double total() {
+		return total;
+	}
+
+	/** Whether y is (currently) monitored */
+	public boolean contains(LabelSet y) {
+		return entries.containsKey(y);
+	}
+
+	/** The count of y (0 if not monitored) */
+	public double count(LabelSet y) {
+		Entry e = entries.get(y);
+		return e == null ? 0.0 : e.count;
+	}
+
+	/** The maximum overestimate of the count of y (0 if not monitored, or the counts are exact) */
+	public double error(LabelSet y) {
+		Entry e = entries.get(y);
+		return e == null ? 0.0 : e.error;
+	}
+
+	/**
+	 * Add - count y with weight w.
+	 * @return	the (new) count of y
+	 */
+	public double add(LabelSet y, double w) {
+		total += w;
+		Entry e = entries.get(y);
+		if (e == null) {
+			if (capacity > 0 && entries.size() >= capacity) {
+				// replace the least frequent
+				e = heap[0];
+				entries.remove(e.y);
+				e.y = y;
+				e.error = e.count;
+				e.seq = seq++;
+				entries.put(y, e);
+			}
+			else {
+				e = new Entry(y, 0.0, seq++);
+				entries.put(y, e);
+				if (capacity > 0) {
+					e.pos = entries.size() - 1;
+					heap[e.pos] = e;
+					up(e.pos);
+				}
+			}
+		}
+		e.count += w;
+		if (capacity > 0)
+			down(e.pos);
+		if (max == null || e.count > max.count)
+			max = e;
+		return e.count;
+	}
+
+	/** The most frequent combination (the first to reach the highest count), or null if none were counted */
+	public LabelSet max() {
+		return max == null ? null : max.y;
+	}
+
+	/** The count of the most frequent combination */
+	public double maxCount() {
+		return max == null ? 0.0 : max.count;
+	}
+
+	/** More frequent first, then the first counted */
+	private static int compare(Entry a, Entry b) {
+		int c = Double.compare(b.count, a.count);
+		return c != 0 ? c : Long.compare(a.seq, b.seq);
+	}
+
+	/**
+	 * Top - the k most frequent combinations, most frequent first (ties: the first counted first).
+	 */
+	public List<LabelSet> top(int k) {
+		List<LabelSet> result = new ArrayList<LabelSet>();
+		if (k <= 0)
+			return result;
+		// keep the k most frequent so far, least frequent at the head
+		PriorityQueue<Entry> q = new PriorityQueue<Entry>(Math.min(k, entries.size()) + 1, new Comparator<Entry>() {
+			public int compare(Entry a, Entry b) {
+				return LabelSetCounter.compare(b, a);
+			}
+		});
+		for(Entry e : entries.values()) {
+			if (q.size() < k)
+				q.add(e);
+			else if (compare(e, q.peek()) < 0) {
+				q.poll();
+				q.add(e);
+			}
+		}
+		while (!q.isEmpty()) {
+			result.add(q.poll().y);
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * ToHashMap - the combinations and their (rounded) counts, inserted in the order they were first counted
+	 * (so the map iterates as the one of PSUtils.countCombinationsSparse, when counting the same instances with weight 1).
+	 */
+	public HashMap<LabelSet,Integer> toHashMap() {
+		HashMap<LabelSet,Integer> map = new HashMap<LabelSet,Integer>();
+		for(Entry e : entries.values()) {
+			map.put(e.y, (int)Math.round(e.count));
+		}
+		return map;
+	}
+
+	/** Clear all counts */
+	public void clear() {
+		entries.clear();
+		if (heap != null)
+			Arrays.fill(heap, null);
+		max = null;
+		total = 0.0;
+		seq = 0;
+	}
+
+	private void swap(int i, int j) {
+		Entry e = heap[i];
+		heap[i] = heap[j];
+		heap[j] = e;
+		heap[i].pos = i;
+		heap[j].pos = j;
+	}
+
+	private void up(int i) {
+		while (i > 0) {
+			int p = (i - 1) / 2;
+			if (heap[p].count <= heap[i].count)
+				break;
+			swap(i, p);
+			i = p;
+		}
+	}
+
+	private void down(int i) {
+		int n = entries.size();
+		while (true) {
+			int c = 2 * i + 1;
+			if (c >= n)
+				break;
+			if (c + 1 < n && heap[c + 1].count < heap[c].count)
+				c++;
+			if (heap[i].count <= heap[c].count)
+				break;
+			swap(i, c);
+			i = c;
+		}
+	}
+
+	/**
+	 * Encode - the label vector of x as a LabelSet: label j with value v &gt; 0 is index j + L*(v-1).
+	 * For binary labels these are just the indices of the relevant labels (as MLUtils.toSparseIntArray(x,L)).
+	 * @param	x	instance
+	 * @param	L	number of labels (target variables)
+	 */
+	public static LabelSet encode(Instance x, int L) {
+		int y[] = new int[L];
+		int n = 0;
+		for(int j = 0; j < L; j++) {
+			int v = (int)Math.round(x.value(j));
+			if (v > 0)
+				y[n++] = j + L * (v - 1);
+		}
+		if (n < L)
+			y = Arrays.copyOf(y, n);
+		Arrays.sort(y);
+		return new LabelSet(y);
+	}
+
+	/**
+	 * Decode - the label vector encoded (with #encode(Instance, int)) as y.
+	 */
+	public static double[] decode(LabelSet y, int L) {
+		double d[] = new double[L];
+		for(int i : y.indices) {
+			d[i % L] = i / L + 1;
+		}
+		return d;
+	}
+}
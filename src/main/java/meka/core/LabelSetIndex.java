@@ -0,0 +1,114 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * LabelSetIndex.java - An inverted index (label to labelsets) over a collection of LabelSets, for finding subsets quickly.
+ * <br>
+ * The (non-empty) subsets of y are found from the postings of the labels of y only: a labelset is a subset of y if
+ * all of its labels are found there. So the cost depends on how many labelsets share labels with y, rather than on
+ * the number of labelsets overall (as when testing each of them with LabelSet#subsetof(LabelSet)).
+ * The subsets are returned in the order of the collection the index was built from, so that the result of e.g.
+ * adding them to a SortedSet (where ties are dropped) is the same as when iterating over that collection.
+ * <br>
+ * Queries share a buffer, so they are synchronized.
+ *
+ * @see PSUtils#getSortedSubsets(LabelSet, java.util.Set, java.util.Comparator)
+ * @version	October 2026
+ */
+public class LabelSetIndex implements Serializable {
+
+	private static final long serialVersionUID = -2817401930948114235L;
+
+	/** The labelsets, in order */
+	protected LabelSet sets[] = null;
+
+	/** The positions (in sets) of the labelsets containing each label, in increasing order */
+	protected int postings[][] = null;
+
+	/** The number of labels of each labelset found so far in the current query */
+	private transient int count[] = null;
+
+	/**
+	 * LabelSetIndex - index the given labelsets (in the order of iteration).
+	 */
+	public LabelSetIndex(Collection<LabelSet> Y) {
+		sets = Y.toArray(new LabelSet[Y.size()]);
+		int max = -1;
+		for(LabelSet s : sets) {
+			for(int j : s.indices) {
+				max = Math.max(max, j);
+			}
+		}
+		int n[] = new int[max + 1];
+		for(LabelSet s : sets) {
+			for(int j : s.indices) {
+				n[j]++;
+			}
+		}
+		postings = new int[max + 1][];
+		for(int j = 0; j <= max; j++) {
+			postings[j] = new int[n[j]];
+		}
+		Arrays.fill(n, 0);
+		for(int i = 0; i < sets.length; i++) {
+			for(int j : sets[i].indices) {
+				postings[j][n[j]++] = i;
+			}
+		}
+	}
+
+	/** The number of labelsets indexed */
+	public int size() {
+		return sets.length;
+	}
+
+	/**
+	 * Subsets - the (non-empty) labelsets that are subsets of y, in the order of the index.
+	 */
+	public synchronized List<LabelSet> subsets(LabelSet y) {
+		if (count == null)
+			count = new int[sets.length];
+		int found[] = new int[8];
+		int n = 0;
+		for(int j : y.indices) {
+			if (j >= postings.length)
+				continue;
+			for(int i : postings[j]) {
+				if (count[i]++ == 0) {
+					if (n == found.length)
+						found = Arrays.copyOf(found, n * 2);
+					found[n++] = i;
+				}
+			}
+		}
+		Arrays.sort(found, 0, n);
+		List<LabelSet> result = new ArrayList<LabelSet>();
+		for(int k = 0; k < n; k++) {
+			int i = found[k];
+			if (count[i] == sets[i].indices.length)
+				result.add(sets[i]);
+			count[i] = 0;
+		}
+		return result;
+	}
+}
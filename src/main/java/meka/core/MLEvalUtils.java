@@ -26,6 +26,36 @@ import java.util.*;
  */
 public abstract class MLEvalUtils {
 
+	/**
+	 * GetThreshold - Get a threshold from a Threshold OPtion string 'top'.
+	 * @param	r	predictions; for calculating a threshold with PCut
+	 * @param	D	training data; for calculating a threshold with PCut
+	 * @param	top Threshold OPtion (either "PCut1", "PCutL" or a real value e.g. "0.5" or L real values e.g. "[0.1, 0.2, 0.8]" for L = 3
+	 */
+	public static String getThreshold(Result r, Instances D, String top) throws Exception {
+		return getThreshold(r, D, top, ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * GetThreshold - Get a threshold from a Threshold OPtion string 'top', calibrating PCut directly on the storage of Result r.
+	 * @param	r	predictions; for calculating a threshold with PCut
+	 * @param	D	training data; for calculating a threshold with PCut
+	 * @param	top Threshold OPtion (either "PCut1", "PCutL" or a real value e.g. "0.5" or L real values e.g. "[0.1, 0.2, 0.8]" for L = 3
+	 * @param	numThreads	the number of threads to calibrate the thresholds of PCutL with (one label per thread)
+	 */
+	public static String getThreshold(Result r, Instances D, String top, int numThreads) throws Exception {
+		if (top.equals("PCut1") || top.equals("c")) {			// Proportional Cut threshold (1 general threshold)
+			return String.valueOf(ThresholdUtils.calibrateThreshold(r,MLUtils.labelCardinality(D)));
+		}
+		else if (top.equals("PCutL") || top.equals("C")) {		// Proportional Cut thresholds (one for each Label)
+			return Arrays.toString(ThresholdUtils.calibrateThresholds(r,MLUtils.labelCardinalities(D),numThreads));
+		}
+		else {
+			// Set our own threshold (we assume top = "0.5" or top = "[0.1,...,0.3]" (we make no checks here!)
+			return top;
+		}
+	}
+
 	/**
 	 * GetThreshold - Get a threshold from a Threshold OPtion string 'top'.
 	 * @param	Y	label space; for calculating a threshold with PCut
@@ -60,6 +90,7 @@ public abstract class MLEvalUtils {
 
 	/**
 	 * GetMLStats - Given predictions and corresponding true values and a threshold string, retreive statistics.
+	 * All metrics but the AUCs are gathered in a single pass over the predictions, see MetricAccumulator; the AUCs from one sort per label, see Curve.
 	 * @param	Rpred	predictions (may be double-valued confidences in the multi-label case)
 	 * @param	Y   	corresponding true values
 	 * @param	t		a vector of thresholds, e.g. [0.1,0.1,0.1] or [0.1,0.5,0.4,0.001]
@@ -74,40 +105,85 @@ public abstract class MLEvalUtils {
 
 		int Ypred[][] = ThresholdUtils.threshold(Rpred,t);
 
+		MetricAccumulator m = MetricAccumulator.accumulate(Y,Ypred,Rpred,V,ThreadUtils.SEQUENTIAL);
+		Curve curves[] = (V > 1) ? Curve.curves(Y,Rpred,ThreadUtils.SEQUENTIAL) : null;
+		Curve micro = (V > 1) ? Curve.micro(Y,Rpred) : null;
+
+		return getMLStats(N,L,V,m,curves,micro);
+	}
+
+	/**
+	 * GetMLStats - Given the predictions and true values in a store and a vector of thresholds, retrieve statistics,
+	 * as #getMLStats(double[][], int[][], double[], String) does, but reading the store in place (row by row for the metrics, and
+	 * column by column for the curves) rather than copying it out into matrices.
+	 * @param	s		the predictions (may be double-valued confidences) and true values
+	 * @param	t		a vector of thresholds, e.g. [0.1,0.1,0.1] or [0.1,0.5,0.4,0.001]
+	 * @param	vop		the verbosity option, e.g. "5"
+	 * @return	    the evaluation statistics
+	 */
+	public static HashMap<String,Object> getMLStats(PredictionStore s, double t[], String vop) {
+		return getMLStats(s,t,vop,ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * GetMLStats - as #getMLStats(PredictionStore, double[], String), with the metrics accumulated in blocks of rows,
+	 * and the curves sorted label by label, in parallel (the statistics do not depend on the number of threads).
+	 * @param	s		the predictions (may be double-valued confidences) and true values
+	 * @param	t		a vector of thresholds, e.g. [0.1,0.1,0.1] or [0.1,0.5,0.4,0.001]
+	 * @param	vop		the verbosity option, e.g. "5"
+	 * @param	numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 * @return	    the evaluation statistics
+	 */
+	public static HashMap<String,Object> getMLStats(PredictionStore s, double t[], String vop, int numThreads) {
+
+		int V = MLUtils.getIntegerOption(vop,1); // default 1
+
+		MetricAccumulator m = MetricAccumulator.accumulate(s,t,V,numThreads);
+		Curve curves[] = (V > 1) ? Curve.curves(s,numThreads) : null;
+		Curve micro = (V > 1) ? Curve.micro(s) : null;
+
+		return getMLStats(s.size(),s.numLabels(),V,m,curves,micro);
+	}
+
+	/**
+	 * GetMLStats - the evaluation statistics from the accumulated metrics m, and the curves (of each label, and micro averaged; only needed if V &gt; 1).
+	 */
+	private static HashMap<String,Object> getMLStats(int N, int L, int V, MetricAccumulator m, Curve curves[], Curve micro) {
+
 		HashMap<String,Object> results = new LinkedHashMap<String,Object>();
 
 		results.put("Number of test instances (N)"			,(int)N);
-		results.put("Accuracy"			,Metrics.P_Accuracy(Y,Ypred));
-		results.put("Jaccard index"		,Metrics.P_Accuracy(Y,Ypred));
-		results.put("Hamming score"		,Metrics.P_Hamming(Y,Ypred));
-		results.put("Exact match"		,Metrics.P_ExactMatch(Y,Ypred));
+		results.put("Accuracy"			,m.P_Accuracy());
+		results.put("Jaccard index"		,m.P_Accuracy());
+		results.put("Hamming score"		,m.P_Hamming());
+		results.put("Exact match"		,m.P_ExactMatch());
 
 		if (V > 1) {
 
-			results.put("Jaccard distance"	,Metrics.L_JaccardDist(Y,Ypred));
-			results.put("Hamming loss"		,Metrics.L_Hamming(Y,Ypred));
-			results.put("ZeroOne loss"		,Metrics.L_ZeroOne(Y,Ypred));
-			results.put("Harmonic score"	,Metrics.P_Harmonic(Y,Ypred));
-			results.put("One error"			,Metrics.L_OneError(Y,Rpred));
-			results.put("Rank loss"			,Metrics.L_RankLoss(Y,Rpred));
-			results.put("Avg precision"		,Metrics.P_AveragePrecision(Y,Rpred));
-			results.put("Log Loss (lim. L)"	,Metrics.L_LogLossL(Y,Rpred));
-			results.put("Log Loss (lim. D)"	,Metrics.L_LogLossD(Y,Rpred));
+			results.put("Jaccard distance"	,1. - m.P_Accuracy());
+			results.put("Hamming loss"		,m.L_Hamming());
+			results.put("ZeroOne loss"		,m.L_ZeroOne());
+			results.put("Harmonic score"	,m.P_Harmonic());
+			results.put("One error"			,m.L_OneError());
+			results.put("Rank loss"			,m.L_RankLoss());
+			results.put("Avg precision"		,m.P_AveragePrecision());
+			results.put("Log Loss (lim. L)"	,m.L_LogLossL());
+			results.put("Log Loss (lim. D)"	,m.L_LogLossD());
 			if (V > 3) {
-				results.put("Micro Precision"		,Metrics.P_PrecisionMicro(Y,Ypred));
-				results.put("Micro Recall"			,Metrics.P_RecallMicro(Y,Ypred));
-				results.put("Macro Precision"		,Metrics.P_PrecisionMacro(Y,Ypred));
-				results.put("Macro Recall"			,Metrics.P_RecallMacro(Y,Ypred));
+				results.put("Micro Precision"		,m.P_PrecisionMicro());
+				results.put("Micro Recall"			,m.P_RecallMicro());
+				results.put("Macro Precision"		,m.P_PrecisionMacro());
+				results.put("Macro Recall"			,m.P_RecallMacro());
 			}
-			results.put("F1 (micro averaged)"				,Metrics.P_FmicroAvg(Y,Ypred));
-			results.put("F1 (macro averaged by example)"	,Metrics.P_FmacroAvgD(Y,Ypred));
-			results.put("F1 (macro averaged by label)"		,Metrics.P_FmacroAvgL(Y,Ypred));
-			results.put("AUPRC (macro averaged)"		    ,Metrics.P_macroAUPRC(Y,Rpred));
-			results.put("AUROC (macro averaged)"		    ,Metrics.P_macroAUROC(Y,Rpred));
-			// This will not be displayed to text output, rather as a graph
-			results.put("Curve Data"		                ,Metrics.curveData(Y,Rpred));
-			results.put("Macro Curve Data"		            ,Metrics.curveDataMacroAveraged(Y,Rpred));
-			results.put("Micro Curve Data"		            ,Metrics.curveDataMicroAveraged(Y,Rpred));
+			results.put("F1 (micro averaged)"				,m.P_FmicroAvg());
+			results.put("F1 (macro averaged by example)"	,m.P_FmacroAvgD());
+			results.put("F1 (macro averaged by label)"		,m.P_FmacroAvgL());
+			results.put("AUPRC (macro averaged)"		    ,Curve.macroAUPRC(curves));
+			results.put("AUROC (macro averaged)"		    ,Curve.macroAUROC(curves));
+			// This will not be displayed to text output, rather as a graph (and is only turned into Instances then)
+			results.put("Curve Data"		                ,new Curve.Lazy(curves,false));
+			results.put("Macro Curve Data"		            ,new Curve.Lazy(curves,true));
+			results.put("Micro Curve Data"		            ,new Curve.Lazy(micro));
 
 			if (V > 2) {
 				results.put("Label indices              "	,A.make_sequence(L));
@@ -116,10 +192,10 @@ public abstract class MLEvalUtils {
 				double Pr[] = new double[L];
 				double Re[] = new double[L];
 				for(int j = 0; j < L; j++) {
-					HL[j] = Metrics.P_Hamming(Y,Ypred,j);
-					HA[j] = Metrics.P_Harmonic(Y,Ypred,j);
-					Pr[j] = Metrics.P_Precision(Y,Ypred,j);
-					Re[j] = Metrics.P_Recall(Y,Ypred,j);
+					HL[j] = m.P_Hamming(j);
+					HA[j] = m.P_Harmonic(j);
+					Pr[j] = m.P_Precision(j);
+					Re[j] = m.P_Recall(j);
 				}
 				results.put("Accuracy (per label)"	        ,HL);
 				if (V > 3) {
@@ -130,19 +206,19 @@ public abstract class MLEvalUtils {
 			}
 
 			if (V > 2) {
-				results.put("Empty labelvectors (predicted)"	,MLUtils.emptyVectors(Ypred));
-				results.put("Label cardinality (predicted)"		,MLUtils.labelCardinality(Ypred));
-				results.put("Levenshtein distance", Metrics.L_LevenshteinDistance(Y, Ypred));
+				results.put("Empty labelvectors (predicted)"	,m.emptyVectorsPredicted());
+				results.put("Label cardinality (predicted)"		,m.labelCardinalityPredicted());
+				results.put("Levenshtein distance", m.L_LevenshteinDistance());
 				if (V > 3) {
 					// Label cardinality
-					results.put("Label cardinality (difference)"		,MLUtils.labelCardinality(Y)-MLUtils.labelCardinality(Ypred));
+					results.put("Label cardinality (difference)"		,m.labelCardinality()-m.labelCardinalityPredicted());
 					double diff_LC[] = new double[L];
 					double true_LC[] = new double[L];
 					double pred_LC[] = new double[L];
 					for(int j = 0; j < L; j++) {
-						diff_LC[j] = MLUtils.labelCardinality(Y,j) - MLUtils.labelCardinality(Ypred,j);
-						true_LC[j] = MLUtils.labelCardinality(Y,j);
-						pred_LC[j] = MLUtils.labelCardinality(Ypred,j);
+						diff_LC[j] = m.labelCardinality(j) - m.labelCardinalityPredicted(j);
+						true_LC[j] = m.labelCardinality(j);
+						pred_LC[j] = m.labelCardinalityPredicted(j);
 					}
 					results.put("avg. relevance (test set)"		,true_LC);
 					results.put("avg. relevance (predicted)     "		,pred_LC);
@@ -194,6 +270,71 @@ public abstract class MLEvalUtils {
 		return output;
 	}
 
+	/**
+	 * GetMTStats - as #getMTStats(double[][], int[][], String), for the predictions and true values of a store, read row by row
+	 * (rather than copied out into matrices).
+	 * @param	s		the predictions and true values
+	 * @param	vop		the verbosity option, e.g. "5"
+	 * @return	        the evaluation statistics
+	 */
+	public static HashMap<String,Object> getMTStats(PredictionStore s, String vop) {
+
+		int N = s.size();
+		int L = s.numLabels();
+		int V = MLUtils.getIntegerOption(vop,1); // default 1
+
+		// the same sums as Metrics, row by row (and the errors and non-missing values of each label)
+		int y[] = new int[L];
+		int ypred[] = new int[L];
+		double rpred[] = new double[L];
+		int N_ = 0;
+		double ham = 0., zeroOne = 0., lev = 0.;
+		int E[] = new int[L];
+		int C[] = new int[L];
+		for(int i = 0; i < N; i++) {
+			s.getRowTrue(i,y);
+			s.getRow(i,rpred);
+			// just a question of rounding for now (as ThresholdUtils#round)
+			for(int j = 0; j < L; j++) {
+				ypred[j] = (int)Math.round(rpred[j]);
+				if (y[j] != -1) {
+					C[j]++;
+					if (y[j] != ypred[j])
+						E[j]++;
+				}
+			}
+			if (Metrics.allMissing(y))
+				continue;
+			N_++;
+			ham += Metrics.L_Hamming(y,ypred);
+			zeroOne += Metrics.L_ZeroOne(y,ypred);
+			if (V > 2)
+				lev += Metrics.L_LevenshteinDistance(y,ypred);
+		}
+
+		HashMap<String,Object> output = new LinkedHashMap<String,Object>();
+		output.put("N(test)"            ,(double)N);
+		output.put("L"					,(double)L);
+		output.put("Hamming score"		,1. - ham/(double)N_);
+		output.put("Exact match"		,1. - zeroOne/(double)N_);
+
+		if (V > 1) {
+			output.put("Hamming loss"		,ham/(double)N_);
+			output.put("ZeroOne loss"		,zeroOne/(double)N_);
+		}
+		if (V > 2) {
+			output.put("Levenshtein distance", (N_ == 0) ? Double.NaN : lev/(double)N_);
+
+			double HL[] = new double[L];
+			for(int j = 0; j < L; j++) {
+				HL[j] = (C[j] == 0) ? Double.NaN : 1. - E[j]/(double)C[j];
+			}
+			output.put("Label indices              "	,A.make_sequence(L));
+			output.put("Accuracy (per label)"	        ,HL);
+		}
+		return output;
+	}
+
 	/**
 	 * Combine Predictions - Combine together various results (for example, from cross-validation)
 	 * into one, simply by appending predictions and true values together, and averaging together their 'vals'.
@@ -208,8 +349,7 @@ public abstract class MLEvalUtils {
 
 		// append all predictions and true values
 		for(int f = 0; f < folds.length; f++) {
-			r.predictions.addAll(folds[f].predictions);
-			r.actuals.addAll(folds[f].actuals);
+			r.addResults(folds[f]);
 		}
 
 		r.vals = folds[0].vals;
@@ -16,10 +16,12 @@
 package meka.core;
 
 import weka.core.Attribute;
+import weka.core.BatchPredictor;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Utils;
 import weka.core.converters.ConverterUtils.DataSource;
+import weka.classifiers.Classifier;
 import weka.classifiers.evaluation.NominalPrediction;
 import weka.classifiers.evaluation.Prediction;
 
@@ -97,6 +99,32 @@ public abstract class MLUtils {
 		A.shuffle(array,r);
 	}
 
+	/**
+	 * Draw the swaps that D.randomize(r) would make on a dataset D of N instances, consuming r in exactly the same way.
+	 * This allows the random stream to be used in a fixed order, and the shuffles to be carried out later (e.g., in parallel) with #randomize(Instances, int[]).
+	 * @param	N	number of instances
+	 * @param	r	random number generator
+	 * @return	the swaps, s[j] for each j = N-1,...,1
+	 */
+	public static final int[] drawRandomization(int N, Random r) {
+		int s[] = new int[N];
+		for(int j = N - 1; j > 0; j--) {
+			s[j] = r.nextInt(j + 1);
+		}
+		return s;
+	}
+
+	/**
+	 * Shuffle D with the swaps drawn by #drawRandomization(int, Random), giving the same order as D.randomize(r) would have.
+	 * @param	D	dataset
+	 * @param	s	the swaps
+	 */
+	public static final void randomize(Instances D, int s[]) {
+		for(int j = D.numInstances() - 1; j > 0; j--) {
+			D.swap(j, s[j]);
+		}
+	}
+
 	/**
 	 * Instance with L labels to double[] of length L.
 	 * Rounds to the nearest whole number.
@@ -374,6 +402,13 @@ public abstract class MLUtils {
 	/** 
 	 * LabelCardinalities - return the frequency of each label of dataset D.
 	 */
+	public static final double[] labelCardinalities(int Y[][]) {
+		return labelCardinalities(new ArrayList<int[]>(Arrays.asList(Y)));
+	}
+
+	/**
+	 * LabelCardinalities - return the frequency of each label of dataset D.
+	 */
 	public static final double[] labelCardinalities(ArrayList<int[]> Y) {
 	    // TODO what about missing values here? Seems like only used with predictions?
 	    int L = ((int[]) Y.get(0)).length;
@@ -394,6 +429,42 @@ public abstract class MLUtils {
 	    return lc;
 	}
 
+	/**
+	 * LabelCardinality - the label cardinality of the true values in store s, as #labelCardinality(int[][]) gives it
+	 * (read from the store, rather than from a copy of the true values).
+	 */
+	public static final double labelCardinality(PredictionStore s) {
+		int N = s.size();
+		int L = s.numLabels();
+		double sum = 0.0;
+		for(int i = 0; i < N; i++) {
+			for(int j = 0; j < L; j++) {
+				sum += s.getTrue(i,j);
+			}
+		}
+		return (double)sum/(double)N;
+	}
+
+	/**
+	 * LabelCardinalities - the frequency of each label among the true values in store s, as #labelCardinalities(int[][])
+	 * gives it (read label by label from the store, rather than from a copy of the true values).
+	 */
+	public static final double[] labelCardinalities(PredictionStore s) {
+		int N = s.size();
+		int L = s.numLabels();
+		double lc[] = new double[L];
+		for(int j = 0; j < L; j++) {
+			int count = 0;
+			// (rows are only counted while lc[j] <= 0, as in labelCardinalities(ArrayList))
+			for(int i = 0; i < N && lc[j] <= 0; i++) {
+				lc[j] += s.getTrue(i,j);
+				count++;
+			}
+			lc[j] /= count;
+		}
+		return lc;
+	}
+
 	/** 
 	 * EmptyVectors - percentage of empty vectors sum(y[i])==0 in Y.
 	 */
@@ -710,6 +781,23 @@ public abstract class MLUtils {
 		return x;
 	}
 
+	/**
+	 * DistributionsForInstances - the distributions of (single-label) classifier h for each instance in D.
+	 * Uses the batch prediction of h where it implements it more efficiently, else predicts one instance at a time.
+	 * @param	h	a classifier, already built
+	 * @param	D	the instances (transformed for h)
+	 * @return	the distributions, one row per instance
+	 */
+	public static double[][] distributionsForInstances(Classifier h, Instances D) throws Exception {
+		if (h instanceof BatchPredictor && ((BatchPredictor)h).implementsMoreEfficientBatchPrediction())
+			return ((BatchPredictor)h).distributionsForInstances(D);
+		double P[][] = new double[D.numInstances()][];
+		for(int i = 0; i < P.length; i++) {
+			P[i] = h.distributionForInstance(D.instance(i));
+		}
+		return P;
+	}
+
 	public static String printAsTextMatrix(double M[][]) {
 		StringBuilder sb = new StringBuilder("M = [\n");  
 		for(int j = 0; j < M.length; j++) {
@@ -24,8 +24,12 @@ import weka.core.DenseInstance;
 import weka.core.Instances;
 import weka.core.matrix.Matrix;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Utility functions relating to matrices.
@@ -124,6 +128,30 @@ public class MatrixUtils {
 		return new Jama.Matrix(C);
 	}
 
+	/**
+	 * AddBias - M with a column of 1s in front, written into C if it is of the right size (else into a new matrix).
+	 * @return	C
+	 */
+	public static double[][] addBias(double[][] M, double[][] C) {
+		int cols = M[0].length + 1;
+		if (C == null || C.length != M.length || C[0].length != cols)
+			C = new double[M.length][cols];
+		for (int i = 0; i < M.length; i++) {
+			C[i][0] = 1.0;
+			System.arraycopy(M[i], 0, C[i], 1, cols - 1);
+		}
+		return C;
+	}
+
+	public static DenseMatrix addBias(DenseMatrix M) {
+		DenseMatrix C = new DenseMatrix(M.rows, M.cols + 1);
+		for (int i = 0; i < M.rows; i++) {
+			C.data[i * C.cols] = 1.0;
+			System.arraycopy(M.data, i * M.cols, C.data, i * C.cols + 1, M.cols);
+		}
+		return C;
+	}
+
 	public static double[] removeBias(double[] x) {
 		final double[] x2 = new double[x.length-1];
 		for(int j = 1; j < x.length; j++) {
@@ -146,6 +174,28 @@ public class MatrixUtils {
 		return C;
 	}
 
+	/**
+	 * RemoveBias - M without its first column, written into C if it is of the right size (else into a new matrix).
+	 * @return	C
+	 */
+	public static double[][] removeBias(double[][] M, double[][] C) {
+		int cols = M[0].length - 1;
+		if (C == null || C.length != M.length || C[0].length != cols)
+			C = new double[M.length][cols];
+		for (int i = 0; i < M.length; i++) {
+			System.arraycopy(M[i], 1, C[i], 0, cols);
+		}
+		return C;
+	}
+
+	public static DenseMatrix removeBias(DenseMatrix M) {
+		DenseMatrix C = new DenseMatrix(M.rows, M.cols - 1);
+		for (int i = 0; i < M.rows; i++) {
+			System.arraycopy(M.data, i * M.cols + 1, C.data, i * C.cols, C.cols);
+		}
+		return C;
+	}
+
 	/**
 	 * Multiply - multiply each value in A[][] by constant K.
 	 */
@@ -385,6 +435,56 @@ public class MatrixUtils {
 		return new Jama.Matrix(X);
 	}
 
+	/**
+	 * Sigmoid function applied to each value of A, in place.
+	 * @return	A
+	 */
+	public static final double[][] sigmaEquals(double A[][]) {
+		for(int i = 0; i < A.length; i++) {
+			for(int j = 0; j < A[i].length; j++) {
+				A[i][j] = sigma(A[i][j]);
+			}
+		}
+		return A;
+	}
+
+	/**
+	 * Derivative of the sigmoid function applied to each value of A, in place.
+	 * @return	A
+	 */
+	public static final double[][] dsigmaEquals(double A[][]) {
+		for(int i = 0; i < A.length; i++) {
+			for(int j = 0; j < A[i].length; j++) {
+				A[i][j] = dsigma(A[i][j]);
+			}
+		}
+		return A;
+	}
+
+	/**
+	 * Sigmoid function applied to each value of A, in place.
+	 * @return	A
+	 */
+	public static final DenseMatrix sigmaEquals(DenseMatrix A) {
+		double a[] = A.data;
+		for(int i = 0; i < a.length; i++) {
+			a[i] = sigma(a[i]);
+		}
+		return A;
+	}
+
+	/**
+	 * Derivative of the sigmoid function applied to each value of A, in place.
+	 * @return	A
+	 */
+	public static final DenseMatrix dsigmaEquals(DenseMatrix A) {
+		double a[] = A.data;
+		for(int i = 0; i < a.length; i++) {
+			a[i] = dsigma(a[i]);
+		}
+		return A;
+	}
+
 	/**
 	 * Deep Copy - Make a deep copy of M[][].
 	 */
@@ -501,40 +601,339 @@ public class MatrixUtils {
 		return new Jama.Matrix(threshold(M.getArray(), t));
 	}
 
-	public static double[][] transposeMultiply(double[][] A, double[][] B) {
-        double[][] At = getTranspose(A);
-        return multiply(At, B);
-    }
+	/** The size of the blocks (tiles) of rows, columns, and inner products that the kernels work through at a time */
+	protected static final int BLOCK = 64;
 
-	public static double[][] multiplyTranspose(double[][] A, double[][] B) {
-        double[][] Bt = getTranspose(B);
-        return multiply(A, Bt);
-    }
+	/** The number of multiply-adds from which the kernels split the work over the threads of an executor */
+	protected static final long PARALLEL_MIN = 1L << 16;
+
+	/**
+	 * Kernel - computes a block of rows and columns of a product; different blocks can be computed concurrently.
+	 */
+	private static abstract class Kernel {
+		abstract void run(int i0, int i1, int j0, int j1);
+	}
+
+	/**
+	 * Compute - run the kernel over all m x n entries, split into blocks of rows (or columns, if there are more columns)
+	 * over the threads of the executor, if any, and if there is enough work to be worth it.
+	 */
+	private static void compute(final Kernel kernel, final int m, final int n, long work, ExecutorService executor) {
+		if (executor == null || work < PARALLEL_MIN || Math.max(m, n) < 2) {
+			kernel.run(0, m, 0, n);
+			return;
+		}
+		final boolean byRow = m >= n;
+		int dim = byRow ? m : n;
+		// (a few blocks per thread of the executor, to balance the load)
+		int size = Math.max(1, (int)Math.ceil(dim / (4.0 * ThreadUtils.getNumThreads(executor))));
+		List<Callable<Void>> jobs = new ArrayList<Callable<Void>>();
+		for(int start = 0; start < dim; start += size) {
+			final int s0 = start;
+			final int s1 = Math.min(start + size, dim);
+			jobs.add(new Callable<Void>() {
+				public Void call() {
+					if (byRow)
+						kernel.run(s0, s1, 0, n);
+					else
+						kernel.run(0, m, s0, s1);
+					return null;
+				}
+			});
+		}
+		try {
+			ThreadUtils.executeAll(jobs, executor);
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to compute the product in parallel!", e);
+		}
+	}
+
+	/**
+	 * Output - C (cleared, if it is to be accumulated into), or a new m x n matrix if C is null.
+	 */
+	private static DenseMatrix output(DenseMatrix C, int m, int n, boolean clear) {
+		if (C == null)
+			return new DenseMatrix(m, n);
+		if (C.rows != m || C.cols != n)
+			throw new IllegalArgumentException("Output is "+C.rows+" x "+C.cols+", but the product is "+m+" x "+n+"!");
+		if (clear)
+			Arrays.fill(C.data, 0.0);
+		return C;
+	}
 
 	/**
 	 * Multiply - multiply matrices A and B together.
+	 * The product is computed block by block (of rows and columns of A and B), to make good use of the cache;
+	 * each entry is still summed in the order of the inner dimension, so the result is exactly that of the straightforward triple loop.
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
 	 */
-	public static double[][] multiply(final double[][] A, final double[][] B) {
+	public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B, ExecutorService executor) {
+		return multiply(A, B, null, executor);
+	}
 
-		int aRows = A.length;
-		int aCols = A[0].length;
-		int bRows = B.length;
-		int bCols = B[0].length;
+	/**
+	 * Multiply - multiply matrices A and B together, into C.
+	 * @param	C			the product is written here (if null, into a new matrix)
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 * @return	C
+	 * @see #multiply(DenseMatrix, DenseMatrix, ExecutorService)
+	 */
+	public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B, DenseMatrix C, ExecutorService executor) {
+		if (A.cols != B.rows) // no can do
+			throw new IllegalArgumentException(" A.cols ("+A.cols+") != B.rows ("+B.rows+") ");
+		final int K = A.cols;
+		final int n = B.cols;
+		final double A_[] = A.data;
+		final double B_[] = B.data;
+		C = output(C, A.rows, n, true);
+		final double C_[] = C.data;
+		compute(new Kernel() {
+			void run(int i0, int i1, int j0, int j1) {
+				for(int kk = 0; kk < K; kk += BLOCK) {
+					int k1 = Math.min(kk + BLOCK, K);
+					for(int jj = j0; jj < j1; jj += BLOCK) {
+						int jEnd = Math.min(jj + BLOCK, j1);
+						for(int i = i0; i < i1; i++) {
+							int c = i * n;
+							for(int k = kk; k < k1; k++) {
+								double a = A_[i * K + k];
+								int b = k * n;
+								for(int j = jj; j < jEnd; j++) {
+									C_[c + j] += a * B_[b + j];
+								}
+							}
+						}
+					}
+				}
+			}
+		}, A.rows, n, (long)A.rows * K * n, executor);
+		return C;
+	}
 
-		if (aCols != bRows) // no can do
-			throw new IllegalArgumentException(" A.cols ("+aCols+") != B.rows ("+bRows+") ");
+	/**
+	 * TransposeMultiply - A' * B, without making the transpose of A.
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 * @see #multiply(DenseMatrix, DenseMatrix, ExecutorService)
+	 */
+	public static DenseMatrix transposeMultiply(DenseMatrix A, DenseMatrix B, ExecutorService executor) {
+		return transposeMultiply(A, B, null, executor);
+	}
 
-		double C[][] = new double[aRows][bCols];
+	/**
+	 * TransposeMultiply - A' * B, into C.
+	 * @param	C			the product is written here (if null, into a new matrix)
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 * @return	C
+	 */
+	public static DenseMatrix transposeMultiply(DenseMatrix A, DenseMatrix B, DenseMatrix C, ExecutorService executor) {
+		if (A.rows != B.rows) // no can do
+			throw new IllegalArgumentException(" A.rows ("+A.rows+") != B.rows ("+B.rows+") ");
+		final int K = A.rows;
+		final int m = A.cols;
+		final int n = B.cols;
+		final double A_[] = A.data;
+		final double B_[] = B.data;
+		C = output(C, m, n, true);
+		final double C_[] = C.data;
+		compute(new Kernel() {
+			void run(int i0, int i1, int j0, int j1) {
+				for(int kk = 0; kk < K; kk += BLOCK) {
+					int k1 = Math.min(kk + BLOCK, K);
+					for(int jj = j0; jj < j1; jj += BLOCK) {
+						int jEnd = Math.min(jj + BLOCK, j1);
+						for(int i = i0; i < i1; i++) {
+							int c = i * n;
+							for(int k = kk; k < k1; k++) {
+								double a = A_[k * m + i];
+								int b = k * n;
+								for(int j = jj; j < jEnd; j++) {
+									C_[c + j] += a * B_[b + j];
+								}
+							}
+						}
+					}
+				}
+			}
+		}, m, n, (long)m * K * n, executor);
+		return C;
+	}
+
+	/**
+	 * MultiplyTranspose - A * B', without making the transpose of B.
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 * @see #multiply(DenseMatrix, DenseMatrix, ExecutorService)
+	 */
+	public static DenseMatrix multiplyTranspose(DenseMatrix A, DenseMatrix B, ExecutorService executor) {
+		return multiplyTranspose(A, B, null, executor);
+	}
 
-		for (int i = 0; i < aRows; i++) {
-			for (int k = 0; k < aCols; k++) {
-				for(int j = 0; j < bCols; j++) {
-					C[i][j] += A[i][k] * B[k][j];
+	/**
+	 * MultiplyTranspose - A * B', into C.
+	 * @param	C			the product is written here (if null, into a new matrix)
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 * @return	C
+	 */
+	public static DenseMatrix multiplyTranspose(DenseMatrix A, DenseMatrix B, DenseMatrix C, ExecutorService executor) {
+		if (A.cols != B.cols) // no can do
+			throw new IllegalArgumentException(" A.cols ("+A.cols+") != B.cols ("+B.cols+") ");
+		final int K = A.cols;
+		final int n = B.rows;
+		final double A_[] = A.data;
+		final double B_[] = B.data;
+		C = output(C, A.rows, n, false);
+		final double C_[] = C.data;
+		compute(new Kernel() {
+			void run(int i0, int i1, int j0, int j1) {
+				for(int jj = j0; jj < j1; jj += BLOCK) {
+					int jEnd = Math.min(jj + BLOCK, j1);
+					for(int i = i0; i < i1; i++) {
+						int a = i * K;
+						for(int j = jj; j < jEnd; j++) {
+							int b = j * K;
+							double s = 0.0;
+							for(int k = 0; k < K; k++) {
+								s += A_[a + k] * B_[b + k];
+							}
+							C_[i * n + j] = s;
+						}
+					}
 				}
 			}
-		}
-        return C;
-    }
+		}, A.rows, n, (long)A.rows * K * n, executor);
+		return C;
+	}
+
+	public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B) {
+		return multiply(A, B, null);
+	}
+
+	public static DenseMatrix transposeMultiply(DenseMatrix A, DenseMatrix B) {
+		return transposeMultiply(A, B, null);
+	}
+
+	public static DenseMatrix multiplyTranspose(DenseMatrix A, DenseMatrix B) {
+		return multiplyTranspose(A, B, null);
+	}
+
+	public static double[][] transposeMultiply(double[][] A, double[][] B) {
+		return transposeMultiply(A, B, null);
+	}
+
+	/**
+	 * TransposeMultiply - A' * B, as #transposeMultiply(DenseMatrix, DenseMatrix, ExecutorService) computes it, but reading
+	 * the rows of A and B, and writing those of the product, in place (rather than copying them into and out of DenseMatrix).
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 */
+	public static double[][] transposeMultiply(final double[][] A, final double[][] B, ExecutorService executor) {
+		if (A.length != B.length) // no can do
+			throw new IllegalArgumentException(" A.rows ("+A.length+") != B.rows ("+B.length+") ");
+		final int K = A.length;
+		final int m = (K > 0) ? A[0].length : 0;
+		final int n = (K > 0) ? B[0].length : 0;
+		final double C[][] = new double[m][n];
+		compute(new Kernel() {
+			void run(int i0, int i1, int j0, int j1) {
+				for(int kk = 0; kk < K; kk += BLOCK) {
+					int k1 = Math.min(kk + BLOCK, K);
+					for(int jj = j0; jj < j1; jj += BLOCK) {
+						int jEnd = Math.min(jj + BLOCK, j1);
+						for(int i = i0; i < i1; i++) {
+							double c[] = C[i];
+							for(int k = kk; k < k1; k++) {
+								double a = A[k][i];
+								double b[] = B[k];
+								for(int j = jj; j < jEnd; j++) {
+									c[j] += a * b[j];
+								}
+							}
+						}
+					}
+				}
+			}
+		}, m, n, (long)m * K * n, executor);
+		return C;
+	}
+
+	public static double[][] multiplyTranspose(double[][] A, double[][] B) {
+		return multiplyTranspose(A, B, null);
+	}
+
+	/**
+	 * MultiplyTranspose - A * B', as #multiplyTranspose(DenseMatrix, DenseMatrix, ExecutorService) computes it, but on the rows
+	 * of A and B, and of the product, in place.
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 */
+	public static double[][] multiplyTranspose(final double[][] A, final double[][] B, ExecutorService executor) {
+		final int K = (A.length > 0) ? A[0].length : 0;
+		if (B.length > 0 && B[0].length != K) // no can do
+			throw new IllegalArgumentException(" A.cols ("+K+") != B.cols ("+B[0].length+") ");
+		final int n = B.length;
+		final double C[][] = new double[A.length][n];
+		compute(new Kernel() {
+			void run(int i0, int i1, int j0, int j1) {
+				for(int jj = j0; jj < j1; jj += BLOCK) {
+					int jEnd = Math.min(jj + BLOCK, j1);
+					for(int i = i0; i < i1; i++) {
+						double a[] = A[i];
+						double c[] = C[i];
+						for(int j = jj; j < jEnd; j++) {
+							double b[] = B[j];
+							double s = 0.0;
+							for(int k = 0; k < K; k++) {
+								s += a[k] * b[k];
+							}
+							c[j] = s;
+						}
+					}
+				}
+			}
+		}, A.length, n, (long)A.length * K * n, executor);
+		return C;
+	}
+
+	/**
+	 * Multiply - multiply matrices A and B together.
+	 */
+	public static double[][] multiply(final double[][] A, final double[][] B) {
+		return multiply(A, B, null);
+	}
+
+	/**
+	 * Multiply - multiply matrices A and B together, as #multiply(DenseMatrix, DenseMatrix, ExecutorService) does, but reading
+	 * the rows of A and B, and writing those of the product, in place (rather than copying them into and out of DenseMatrix).
+	 * @param	executor	to compute blocks of the product in parallel (null to compute it in the calling thread)
+	 * @see #multiply(DenseMatrix, DenseMatrix, ExecutorService)
+	 */
+	public static double[][] multiply(final double[][] A, final double[][] B, ExecutorService executor) {
+		final int K = (A.length > 0) ? A[0].length : 0;
+		if (K != B.length) // no can do
+			throw new IllegalArgumentException(" A.cols ("+K+") != B.rows ("+B.length+") ");
+		final int n = (B.length > 0) ? B[0].length : 0;
+		final double C[][] = new double[A.length][n];
+		compute(new Kernel() {
+			void run(int i0, int i1, int j0, int j1) {
+				for(int kk = 0; kk < K; kk += BLOCK) {
+					int k1 = Math.min(kk + BLOCK, K);
+					for(int jj = j0; jj < j1; jj += BLOCK) {
+						int jEnd = Math.min(jj + BLOCK, j1);
+						for(int i = i0; i < i1; i++) {
+							double a_[] = A[i];
+							double c[] = C[i];
+							for(int k = kk; k < k1; k++) {
+								double a = a_[k];
+								double b[] = B[k];
+								for(int j = jj; j < jEnd; j++) {
+									c[j] += a * b[j];
+								}
+							}
+						}
+					}
+				}
+			}
+		}, A.length, n, (long)A.length * K * n, executor);
+		return C;
+	}
 
 	/**
 	 * Multiply - multiply vectors a and b together.
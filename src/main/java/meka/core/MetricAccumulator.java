@@ -0,0 +1,690 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * MetricAccumulator.java - Computes the multi-label evaluation metrics of MLEvalUtils#getMLStats in a single pass over the predictions.
+ * <br>
+ * Each row (true labels y, thresholded predictions ypred, confidences rpred) is visited once, gathering the per-label confusion counts
+ * and the per-example sums from which all the example-based, label-based and micro/macro averaged metrics are obtained.
+ * Accumulators over disjoint blocks of rows can be merged, so the pass can be split over several threads (see #accumulate).
+ * <br>
+ * Metrics remains the reference implementation: each metric here gives the same value as its namesake there (over up to BLOCK_SIZE
+ * rows, exactly the same value; merged from blocks, up to rounding). Missing true values (-1) are treated in the same way.
+ *
+ * @see Metrics
+ * @see MLEvalUtils#getMLStats(PredictionStore, double[], String)
+ * @version	October 2026
+ */
+public class MetricAccumulator {
+
+	/** The number of rows per block (see #accumulate) */
+	public static final int BLOCK_SIZE = 1024;
+
+	/** The number of labels */
+	protected int L;
+
+	/** The verbosity: ranking-based metrics and log losses are accumulated if V &gt; 1, and the Levenshtein distance if V &gt; 2 */
+	protected int V;
+
+	/** The limits of the log losses (log L and log N, with N the number of rows not all missing) */
+	protected double C_L, C_D;
+
+	/** The number of rows */
+	protected int N = 0;
+
+	/** The number of rows with all true values missing, and with an undefined harmonic accuracy */
+	protected int N_missing = 0, N_harmonic = 0;
+
+	/** The number of missing true values */
+	protected long n_missing = 0;
+
+	/** The number of rows with an empty (predicted) labelvector */
+	protected int N_empty = 0;
+
+	/** The number of rows where the most confident label is not relevant */
+	protected int N_oneError = 0;
+
+	/** Sums of true and predicted values */
+	protected long sum_Y = 0, sum_Ypred = 0;
+
+	/** Sums of per-example metrics (over the rows not all missing) */
+	protected double s_acc = 0., s_ham = 0., s_zeroOne = 0., s_harmonic = 0., s_F1 = 0.;
+	protected double s_avgPrec = 0., s_rankLoss = 0., s_logLossL = 0., s_logLossD = 0., s_lev = 0.;
+
+	/** Per-label counts: true/false positives/negatives, errors, missing true values, the number of 0s and 1s among the true values */
+	protected long TP[], FP[], TN[], FN[], E[], M[], N0[], N1[];
+
+	/** Per-label sums of true and predicted values */
+	protected long S_Y[], S_Ypred[];
+
+	/**
+	 * MetricAccumulator - an empty accumulator.
+	 * @param	N	the number of rows (over all blocks) that do not have all true values missing, for the log loss limited by D
+	 * @param	L	the number of labels
+	 * @param	V	the verbosity, as in MLEvalUtils#getMLStats
+	 */
+	public MetricAccumulator(int N, int L, int V) {
+		this.L = L;
+		this.V = V;
+		this.C_L = Math.log((double)L);
+		this.C_D = Math.log((double)N);
+		TP = new long[L];
+		FP = new long[L];
+		TN = new long[L];
+		FN = new long[L];
+		E = new long[L];
+		M = new long[L];
+		N0 = new long[L];
+		N1 = new long[L];
+		S_Y = new long[L];
+		S_Ypred = new long[L];
+	}
+
+	/**
+	 * Add - accumulate one row.
+	 * @param	y		the true values (-1 if missing)
+	 * @param	ypred	the predicted values (0/1)
+	 * @param	rpred	the confidences (only used if V &gt; 1)
+	 */
+	public void add(int y[], int ypred[], double rpred[]) {
+		N++;
+		int miss = 0, err = 0, union = 0, inter = 0;
+		int tp = 0, fp = 0, fn = 0, tn = 0, n0 = 0, n1 = 0;
+		long sp = 0;
+		for(int j = 0; j < L; j++) {
+			sum_Y += y[j];
+			S_Y[j] += y[j];
+			sp += ypred[j];
+			S_Ypred[j] += ypred[j];
+			if (y[j] == -1) {
+				miss++;
+				M[j]++;
+				continue;
+			}
+			if (y[j] != ypred[j]) {
+				err++;
+				E[j]++;
+			}
+			if (y[j] == 1 || ypred[j] == 1)
+				union++;
+			if (y[j] == 0) {
+				n0++;
+				N0[j]++;
+			}
+			else if (y[j] == 1) {
+				n1++;
+				N1[j]++;
+			}
+			if (ypred[j] == 1) {
+				if (y[j] == 1) {
+					inter++;
+					tp++;
+					TP[j]++;
+				}
+				else if (y[j] == 0) {
+					fp++;
+					FP[j]++;
+				}
+			}
+			else if (ypred[j] == 0) {
+				if (y[j] == 1) {
+					fn++;
+					FN[j]++;
+				}
+				else if (y[j] == 0) {
+					tn++;
+					TN[j]++;
+				}
+			}
+		}
+		sum_Ypred += sp;
+		n_missing += miss;
+		if (sp <= 0)
+			N_empty++;
+
+		if (miss == L) {
+			N_missing++;
+			return;
+		}
+
+		// example-based
+		int L_ = L - miss;
+		s_ham += err / (double)L_;
+		s_zeroOne += (err > 0) ? 1. : 0.;
+		s_acc += (union > 0) ? (double)inter / (double)union : 1.0;
+		double h = harmonic(tn, n0, tp, n1);
+		if (Double.isNaN(h))
+			N_harmonic++;
+		else
+			s_harmonic += h;
+		s_F1 += F1(tp, fp, fn);
+
+		if (V > 1) {
+			if (y[Utils.maxIndex(rpred)] == 0)
+				N_oneError++;
+			s_avgPrec += averagePrecision(y, rpred);
+			s_rankLoss += rankLoss(y, rpred);
+			for(int j = 0; j < L; j++) {
+				if (y[j] == -1)
+					continue;
+				double loss = Utils.eq(y[j], rpred[j]) ? 0.0 : -((y[j] * Math.log(rpred[j])) + ((1.0 - y[j]) * Math.log(1.0 - rpred[j])));
+				s_logLossL += clip(loss, C_L);
+				s_logLossD += clip(loss, C_D);
+			}
+		}
+
+		if (V > 2)
+			s_lev += Metrics.L_LevenshteinDistance(y, ypred);
+	}
+
+	/**
+	 * AddAll - accumulate rows from (inclusive) to (exclusive).
+	 */
+	public void addAll(int Y[][], int Ypred[][], double Rpred[][], int from, int to) {
+		for(int i = from; i < to; i++) {
+			add(Y[i], Ypred[i], Rpred[i]);
+		}
+	}
+
+	/**
+	 * Merge - add the counts of another accumulator (over other rows) into this one.
+	 */
+	public void merge(MetricAccumulator a) {
+		N += a.N;
+		N_missing += a.N_missing;
+		N_harmonic += a.N_harmonic;
+		n_missing += a.n_missing;
+		N_empty += a.N_empty;
+		N_oneError += a.N_oneError;
+		sum_Y += a.sum_Y;
+		sum_Ypred += a.sum_Ypred;
+		s_acc += a.s_acc;
+		s_ham += a.s_ham;
+		s_zeroOne += a.s_zeroOne;
+		s_harmonic += a.s_harmonic;
+		s_F1 += a.s_F1;
+		s_avgPrec += a.s_avgPrec;
+		s_rankLoss += a.s_rankLoss;
+		s_logLossL += a.s_logLossL;
+		s_logLossD += a.s_logLossD;
+		s_lev += a.s_lev;
+		for(int j = 0; j < L; j++) {
+			TP[j] += a.TP[j];
+			FP[j] += a.FP[j];
+			TN[j] += a.TN[j];
+			FN[j] += a.FN[j];
+			E[j] += a.E[j];
+			M[j] += a.M[j];
+			N0[j] += a.N0[j];
+			N1[j] += a.N1[j];
+			S_Y[j] += a.S_Y[j];
+			S_Ypred[j] += a.S_Ypred[j];
+		}
+	}
+
+	/**
+	 * AddAll - accumulate rows from (inclusive) to (exclusive) of the store s, read row by row, with the confidences
+	 * thresholded by t (as ThresholdUtils#threshold(double[][], double[]) does).
+	 */
+	public void addAll(PredictionStore s, double t[], int from, int to) {
+		int y[] = new int[L];
+		int ypred[] = new int[L];
+		double rpred[] = new double[L];
+		for(int i = from; i < to; i++) {
+			s.getRowTrue(i, y);
+			s.getRow(i, rpred);
+			for(int j = 0; j < L; j++) {
+				ypred[j] = (rpred[j] >= t[j]) ? 1 : 0;
+			}
+			add(y, ypred, rpred);
+		}
+	}
+
+	/**
+	 * Accumulate - accumulate all rows, in blocks of BLOCK_SIZE rows (in parallel if more than one thread is requested,
+	 * and available); the blocks are always the same, and merged in order, so the result does not depend on the number
+	 * of threads (not even by rounding).
+	 * @param	Y		true values
+	 * @param	Ypred	predicted values (0/1)
+	 * @param	Rpred	confidences
+	 * @param	V		the verbosity, as in MLEvalUtils#getMLStats
+	 * @param	numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 * @return	the accumulator over all rows
+	 */
+	public static MetricAccumulator accumulate(final int Y[][], final int Ypred[][], final double Rpred[][], int V, int numThreads) {
+		int N = Y.length;
+		int n = N;
+		for(int i = 0; i < N; i++) {
+			if (Metrics.allMissing(Y[i]))
+				n--;
+		}
+		return accumulate(N, n, Y[0].length, V, numThreads, new Block() {
+			public void addAll(MetricAccumulator a, int from, int to) {
+				a.addAll(Y, Ypred, Rpred, from, to);
+			}
+		});
+	}
+
+	/**
+	 * Accumulate - accumulate all rows of the store s (without copying them out of it), as #accumulate(int[][], int[][], double[][], int, int)
+	 * does for the true values, the confidences thresholded by t, and the confidences.
+	 * @param	s		true values and confidences
+	 * @param	t		the threshold of each label
+	 * @param	V		the verbosity, as in MLEvalUtils#getMLStats
+	 * @param	numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 * @return	the accumulator over all rows
+	 */
+	public static MetricAccumulator accumulate(final PredictionStore s, final double t[], int V, int numThreads) {
+		int N = s.size();
+		int n = N;
+		for(int i = 0; i < N; i++) {
+			if (s.allMissing(i))
+				n--;
+		}
+		return accumulate(N, n, s.numLabels(), V, numThreads, new Block() {
+			public void addAll(MetricAccumulator a, int from, int to) {
+				a.addAll(s, t, from, to);
+			}
+		});
+	}
+
+	/** Accumulates a block of rows (from, inclusive, to, exclusive) into an accumulator. */
+	private interface Block {
+		void addAll(MetricAccumulator a, int from, int to);
+	}
+
+	/**
+	 * Accumulate - accumulate N rows (N_ of them not all missing) of L labels, block by block.
+	 */
+	private static MetricAccumulator accumulate(int N, final int N_, final int L, final int V, int numThreads, final Block block) {
+		if (N <= BLOCK_SIZE) {
+			MetricAccumulator a = new MetricAccumulator(N_, L, V);
+			block.addAll(a, 0, N);
+			return a;
+		}
+		// (sequentially, the same blocks are accumulated in turn)
+		List<Callable<MetricAccumulator>> jobs = new ArrayList<>();
+		for(int i = 0; i < N; i += BLOCK_SIZE) {
+			final int from = i;
+			final int to = Math.min(N, i + BLOCK_SIZE);
+			jobs.add(new Callable<MetricAccumulator>() {
+				public MetricAccumulator call() {
+					MetricAccumulator a = new MetricAccumulator(N_, L, V);
+					block.addAll(a, from, to);
+					return a;
+				}
+			});
+		}
+		List<MetricAccumulator> blocks;
+		try {
+			blocks = ThreadUtils.executeAll(jobs, numThreads);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to accumulate the metrics", e);
+		}
+		MetricAccumulator a = null;
+		for(MetricAccumulator b : blocks) {
+			if (a == null)
+				a = b;
+			else
+				a.merge(b);
+		}
+		return a;
+	}
+
+	// example-based
+
+	/** The number of rows */
+	public int size() {
+		return N;
+	}
+
+	/** Jaccard Index -- often simply called multi-label 'accuracy'. */
+	public double P_Accuracy() {
+		return s_acc / (double)(N - N_missing);
+	}
+
+	/** Hamming loss. */
+	public double L_Hamming() {
+		return s_ham / (double)(N - N_missing);
+	}
+
+	/** Hamming score aka label accuracy. */
+	public double P_Hamming() {
+		return 1. - L_Hamming();
+	}
+
+	/** 0/1 Loss. */
+	public double L_ZeroOne() {
+		return s_zeroOne / (double)(N - N_missing);
+	}
+
+	/** Exact Match, i.e., 1 - [0/1 Loss]. */
+	public double P_ExactMatch() {
+		return 1. - L_ZeroOne();
+	}
+
+	/** Harmonic Accuracy -- average over all examples. */
+	public double P_Harmonic() {
+		return s_harmonic / (double)(N - N_missing - N_harmonic);
+	}
+
+	/** F-Measure averaged by D. */
+	public double P_FmacroAvgD() {
+		return (N == N_missing) ? Double.NaN : s_F1 / (double)(N - N_missing);
+	}
+
+	/** One error (requires V &gt; 1). */
+	public double L_OneError() {
+		return (N == N_missing) ? Double.NaN : (double)N_oneError / (double)(N - N_missing);
+	}
+
+	/** Average precision (requires V &gt; 1). */
+	public double P_AveragePrecision() {
+		return s_avgPrec / (double)(N - N_missing);
+	}
+
+	/** Rank loss (requires V &gt; 1). */
+	public double L_RankLoss() {
+		return s_rankLoss / (double)(N - N_missing);
+	}
+
+	/** Log loss, limited by L (requires V &gt; 1). */
+	public double L_LogLossL() {
+		return (N == N_missing) ? Double.NaN : s_logLossL / (((double)(N - N_missing) * (double)L) - (double)n_missing);
+	}
+
+	/** Log loss, limited by D (requires V &gt; 1). */
+	public double L_LogLossD() {
+		return (N == N_missing) ? Double.NaN : s_logLossD / (((double)(N - N_missing) * (double)L) - (double)n_missing);
+	}
+
+	/** Levenshtein distance (requires V &gt; 2). */
+	public double L_LevenshteinDistance() {
+		return (N == N_missing) ? Double.NaN : s_lev / (double)(N - N_missing);
+	}
+
+	// label-based
+
+	/** Whether all true values of label j are missing */
+	protected boolean allMissing(int j) {
+		return M[j] == N;
+	}
+
+	/** Hamming score aka label accuracy -- for the j-th label. */
+	public double P_Hamming(int j) {
+		int L_ = (int)(N - M[j]);
+		if (L_ == 0)
+			return Double.NaN;
+		return 1. - (double)E[j] / (double)L_;
+	}
+
+	/** Harmonic Accuracy -- for the j-th label. */
+	public double P_Harmonic(int j) {
+		return harmonic(TN[j], N0[j], TP[j], N1[j]);
+	}
+
+	/** Precision -- for the j-th label. */
+	public double P_Precision(int j) {
+		if (allMissing(j))
+			return Double.NaN;
+		return precision(TP[j], FP[j]);
+	}
+
+	/** Recall -- for the j-th label. */
+	public double P_Recall(int j) {
+		if (allMissing(j))
+			return Double.NaN;
+		return precision(TP[j], FN[j]);
+	}
+
+	/** Precision, macro averaged by label. */
+	public double P_PrecisionMacro() {
+		double m = 0.0;
+		int L_ = L;
+		for(int j = 0; j < L; j++) {
+			if (allMissing(j))
+				L_--;
+			else
+				m += P_Precision(j);
+		}
+		return (L_ == 0) ? Double.NaN : m / L_;
+	}
+
+	/** Recall, macro averaged by label. */
+	public double P_RecallMacro() {
+		double m = 0.0;
+		int L_ = L;
+		for(int j = 0; j < L; j++) {
+			if (allMissing(j))
+				L_--;
+			else
+				m += P_Recall(j);
+		}
+		return (L_ == 0) ? Double.NaN : m / L_;
+	}
+
+	/** F-Measure macro averaged by L. */
+	public double P_FmacroAvgL() {
+		double F = 0.0;
+		int L_ = L;
+		for(int j = 0; j < L; j++) {
+			if (allMissing(j)) {
+				L_--;
+				continue;
+			}
+			if (TP[j] > 0) {
+				double prec = (double)TP[j] / ((double)TP[j] + (double)FP[j]);
+				double recall = (double)TP[j] / ((double)TP[j] + (double)FN[j]);
+				F += 2 * ((prec * recall) / (prec + recall));
+			}
+		}
+		return (L_ == 0) ? Double.NaN : F / (double)L_;
+	}
+
+	/** Precision, micro averaged. */
+	public double P_PrecisionMicro() {
+		if (n_missing == (long)N * L)
+			return Double.NaN;
+		return precision(sum(TP), sum(FP));
+	}
+
+	/** Recall, micro averaged. */
+	public double P_RecallMicro() {
+		if (n_missing == (long)N * L)
+			return Double.NaN;
+		return precision(sum(TP), sum(FN));
+	}
+
+	/** F-Measure, micro averaged. */
+	public double P_FmicroAvg() {
+		double p = P_PrecisionMicro();
+		double r = P_RecallMicro();
+		if (Double.isNaN(p) || Double.isNaN(r))
+			return Double.NaN;
+		if (p == 0.0 && r == 0.0)
+			return 0.0;
+		return 2. * p * r / (p + r);
+	}
+
+	// label cardinalities
+
+	/** Label cardinality of the true values. */
+	public double labelCardinality() {
+		return (double)sum_Y / (double)N;
+	}
+
+	/** Label cardinality of the predicted values. */
+	public double labelCardinalityPredicted() {
+		return (double)sum_Ypred / (double)N;
+	}
+
+	/** Average relevance of the j-th label (true values). */
+	public double labelCardinality(int j) {
+		return (double)S_Y[j] / (double)N;
+	}
+
+	/** Average relevance of the j-th label (predicted values). */
+	public double labelCardinalityPredicted(int j) {
+		return (double)S_Ypred[j] / (double)N;
+	}
+
+	/** Proportion of empty predicted labelvectors. */
+	public double emptyVectorsPredicted() {
+		return (double)N_empty / (double)N;
+	}
+
+	// helpers
+
+	private static long sum(long v[]) {
+		long s = 0;
+		for(long x : v) {
+			s += x;
+		}
+		return s;
+	}
+
+	/** As Metrics#L_LogLoss(double, double, double), given the unlimited loss */
+	private static double clip(double loss, double C) {
+		double ans = Math.min(loss, C);
+		return Double.isNaN(ans) ? 0.0 : ans;
+	}
+
+	/** Harmonic mean of the accuracies on the 0s and on the 1s */
+	private static double harmonic(double c0, double n0, double c1, double n1) {
+		return 2. / ((1. / (c0 / n0)) + (1. / (c1 / n1)));
+	}
+
+	/** tp / (tp + f), or 0 if both are 0 */
+	private static double precision(double tp, double f) {
+		if (tp == 0.0 && f == 0.0)
+			return 0.0;
+		return tp / (tp + f);
+	}
+
+	/** As Metrics#F1(int[], int[]), given the counts */
+	private static double F1(double tp, double fp, double fn) {
+		double p = precision(tp, fp);
+		double r = precision(tp, fn);
+		if (p == 0.0 && r == 0.0)
+			return 0.0;
+		return 2. * p * r / (p + r);
+	}
+
+	/**
+	 * As Metrics#P_AveragePrecision(int[], double[]), but finding the ranks by sorting (O(L log L), rather than O(L^2)).
+	 */
+	static double averagePrecision(int y[], double rpred[]) {
+		double aligned[][] = Metrics.align(y, rpred);
+		int y_[] = Metrics.toIntArray(aligned[0]);
+		double p[] = aligned[1];
+		int n = p.length;
+		// r[i] = (the number of confidences >= p[i]) - 1, as in MLUtils#predictionsToRanking
+		double sorted[] = new double[n];
+		for(int i = 0; i < n; i++) {
+			sorted[i] = p[i] + 0.0;
+		}
+		Arrays.sort(sorted);
+		int r[] = new int[n];
+		int k = 0;
+		for(int i = 0; i < n; i++) {
+			r[i] = n - lowerBound(sorted, p[i] + 0.0) - 1;
+			if (y_[i] == 1)
+				k++;
+		}
+		if (k <= 0)
+			return 1.0;
+		int ones[] = new int[k];
+		int r1[] = new int[k];
+		k = 0;
+		for(int i = 0; i < n; i++) {
+			if (y_[i] == 1) {
+				ones[k] = i;
+				r1[k++] = r[i];
+			}
+		}
+		Arrays.sort(r1);
+		double avg_prec = 0;
+		for(int j : ones) {
+			// 's' = the number of relevant labels ranked at or before 'j'
+			double s = upperBound(r1, r[j]);
+			avg_prec += (s / (1 + r[j]));
+		}
+		avg_prec /= k;
+		return avg_prec;
+	}
+
+	/**
+	 * As Metrics#L_RankLoss(int[], double[]), but counting the misordered pairs in a single scan of the ranking (O(L), rather than O(L^3)).
+	 */
+	static double rankLoss(int y[], double rpred[]) {
+		double aligned[][] = Metrics.align(y, rpred);
+		int y_[] = Metrics.toIntArray(aligned[0]);
+		int r[] = Utils.sort(aligned[1]);
+		int t = 0;
+		int f = 0;
+		int c = 0;
+		for(int i : r) {
+			if (y_[i] == 1)
+				t++;
+			else {
+				f++;
+				c += t;
+			}
+		}
+		if (t > 0 && f > 0)
+			return (double) c / (double)(t * f);
+		else
+			return 0.0;
+	}
+
+	/** The number of values in sorted v that are less than x */
+	private static int lowerBound(double v[], double x) {
+		int lo = 0, hi = v.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (v[mid] < x)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/** The number of values in sorted v that are less than or equal to x */
+	private static int upperBound(int v[], int x) {
+		int lo = 0, hi = v.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (v[mid] <= x)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
@@ -992,46 +992,9 @@ public abstract class Metrics {
      * Helper function, returns macro AUROC (roc = true) or macro RPC (roc = false)
      */
     private static double getMacro(int Y[][], double P[][], boolean roc){
-
-        // works with missing
-	int L = Y[0].length;
-	double AUC[] = new double[L];
-
-        int missing = 0;
-        
-	for(int j = 0; j < L; j++) {
-	    if(allMissing(MatrixUtils.getCol(Y, j))){
-                missing ++;
-		continue;
-	    }
-	    ThresholdCurve curve = new ThresholdCurve();
-
-            double[][] aligned = align(MatrixUtils.getCol(Y, j),
-                                       MatrixUtils.getCol(P, j));
-            
-	    Instances result =
-                curve.getCurve(MLUtils.toWekaPredictions(toIntArray(aligned[0]),
-                                                         aligned[1]));
-            if (roc) {
-                AUC[j] = ThresholdCurve.getROCArea(result);
-            } else {
-                AUC[j] = ThresholdCurve.getPRCArea(result);
-            }
-//            System.out.println(Arrays.toString(MatrixUtils.getCol(Y, j)));
-//            System.out.println(Arrays.toString(MatrixUtils.getCol(P, j)));
-//
-//            System.out.println(AUC[j]);
-        }
-
-        L -= missing;
-        
-        if (L == 0) {
-            return Double.NaN;
-        }
-        
-	return Utils.mean(AUC);
-
-        
+	// works with missing
+	Curve curves[] = Curve.curves(Y, P, ThreadUtils.SEQUENTIAL);
+	return roc ? Curve.macroAUROC(curves) : Curve.macroAUPRC(curves);
     }
 
     /** Calculate AUPRC: Area Under the Precision-Recall curve. */
@@ -1056,17 +1019,19 @@ public abstract class Metrics {
 	y = toIntArray(aligned[0]);
 	p = aligned[1];
 	
-	ThresholdCurve curve = new ThresholdCurve();
-	return curve.getCurve(MLUtils.toWekaPredictions(y,p));
+	return new Curve(y,p).toInstances();
     }
 
     /** Get Data for Plotting PR and ROC curves. */
     public static Instances curveDataMacroAveraged(int Y[][], double P[][]) {
+	return curveDataMacroAveraged(curveData(Y,P));
+    }
+
+    /** Get Data for Plotting PR and ROC curves, averaged over the curves of the labels (null where a label has all values missing). */
+    public static Instances curveDataMacroAveraged(Instances curveData[]) {
 	
 	// Note: 'Threshold' contains the probability threshold that gives rise to the previous performance values.
 
-	Instances curveData[] = curveData(Y,P);
-
 	int L = curveData.length;
 
 	int noNullIndex = -1;
@@ -1148,10 +1113,7 @@ public abstract class Metrics {
 	y = toIntArray(aligned[0]);
 	p = aligned[1];
 
-
-	
-	ThresholdCurve curve = new ThresholdCurve();
-	return curve.getCurve(MLUtils.toWekaPredictions(y,p));
+	return new Curve(y,p).toInstances();
     }
 
     /** Get Data for Plotting PR and ROC curves. */
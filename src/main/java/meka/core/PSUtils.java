@@ -16,8 +16,10 @@
 package meka.core;
 
 import weka.core.Attribute;
+import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import weka.core.Utils;
 
 import java.util.*;
@@ -60,7 +62,7 @@ public abstract class PSUtils {
 		Set<LabelSet> subsets = new HashSet<LabelSet>();
 		for(LabelSet s : set) {
 				// is it a subset?
-				int m = LabelSet.subset(s.indices,y.indices);
+				int m = s.subsetof(y);
 				if (m > 0) {
 					// it is!
 					subsets.add(s);
@@ -76,7 +78,7 @@ public abstract class PSUtils {
 		SortedSet<LabelSet> subsets = new TreeSet<LabelSet>(cmp);
 		for(LabelSet s : set) {
 				// is it a subset?
-				int m = LabelSet.subset(s.indices,y.indices);
+				int m = s.subsetof(y);
 				if (m > 0) {
 					// it is!
 					subsets.add(s);
@@ -85,6 +87,16 @@ public abstract class PSUtils {
 		return subsets;
 	}
 
+	/**
+	 * Get Sorted Subsets - get all subsets of 'y' among the sets in 'index'; sorted according to 'cmp'.
+	 * The same as getSortedSubsets(y, set, cmp), if 'index' was built on 'set' (and it has not changed since).
+	 */
+	public static SortedSet<LabelSet> getSortedSubsets(LabelSet y, LabelSetIndex index, Comparator cmp) {
+		SortedSet<LabelSet> subsets = new TreeSet<LabelSet>(cmp);
+		subsets.addAll(index.subsets(y));
+		return subsets;
+	}
+
 	/**
 	 * Get Sorted Subsets - get all subsets of 'y' in the set 'set'; sorted according to length, and counts in 'map'.
 	 */
@@ -149,6 +161,17 @@ public abstract class PSUtils {
 	 * @return	the LabelSets to use to decompose y into, e.g., [[0,2],[2,7]]
 	 */
 	public static LabelSet[] getAllSubsets(LabelSet y, HashMap<LabelSet,Integer> map) {
+		return getAllSubsets(y, map, null);
+	}
+
+	/**
+	 * GetAllSubsets - Get all frequent subsets of 'y' according to 'map', looking them up in 'index' (built on map.keySet()).
+	 * @param	y		a labelset, e.g., [0,2,7]
+	 * @param	map		a map of labelsets to counts e.g., {[0,2]:39, [2,7]:5, [2,9]:24...}
+	 * @param	index	an index of the labelsets of 'map' (if null, they are all scanned)
+	 * @return	the LabelSets to use to decompose y into, e.g., [[0,2],[2,7]]
+	 */
+	public static LabelSet[] getAllSubsets(LabelSet y, HashMap<LabelSet,Integer> map, LabelSetIndex index) {
 		Integer count = map.get(y);
 
 		if (count != null && count >= 1) {
@@ -156,7 +179,8 @@ public abstract class PSUtils {
 			return new LabelSet[]{y};
 		}
 
-		SortedSet<LabelSet> subsets = getSortedSubsets(y, map.keySet(), new LabelSetComparator(map));
+		Comparator cmp = new LabelSetComparator(map);
+		SortedSet<LabelSet> subsets = (index != null) ? getSortedSubsets(y, index, cmp) : getSortedSubsets(y, map.keySet(), cmp);
 
 		LabelSet s[] = subsets.toArray(new LabelSet[subsets.size()]);
 
@@ -171,8 +195,16 @@ public abstract class PSUtils {
 	 * @return	the LabelSets to use to decompose y into, e.g., [[0,2],[2,7]]
 	 */
 	public static LabelSet[] getTopNSubsets(LabelSet y, HashMap<LabelSet,Integer> map, int n) {
+		return getTopNSubsets(y, map, n, null);
+	}
 
-		LabelSet s[] = getAllSubsets(y,map);
+	/**
+	 * GetTopNSubsets - as getTopNSubsets(y,map,n), looking up the subsets in 'index' (built on map.keySet()).
+	 * @param	index	an index of the labelsets of 'map' (if null, they are all scanned)
+	 */
+	public static LabelSet[] getTopNSubsets(LabelSet y, HashMap<LabelSet,Integer> map, int n, LabelSetIndex index) {
+
+		LabelSet s[] = getAllSubsets(y,map,index);
 
 		return Arrays.copyOfRange(s,Math.max(0,s.length-n),s.length);
 	}
@@ -291,9 +323,18 @@ public abstract class PSUtils {
 	}
 
 
+	/**
+	 * MakeLabelSetMap - decode the class values of T (as created by #PSTransformation), once, into LabelSets.
+	 * @param	T	a (multi-class) template, e.g., with class values "[1,3]", "[2]", ...
+	 * @return	the LabelSet of each class value, e.g., [[1,3],[2],...]
+	 */
 	public static final LabelSet[] makeLabelSetMap(Instances T) {
-		int L_ = 4;
-		return new LabelSet[L_];
+		Attribute c = T.classAttribute();
+		LabelSet map[] = new LabelSet[c.numValues()];
+		for(int k = 0; k < map.length; k++) {
+			map[k] = new LabelSet(MLUtils.toIntArray(c.value(k)));
+		}
+		return map;
 	}
 
 	// @todo name convertDistribution ?
@@ -321,6 +362,8 @@ public abstract class PSUtils {
 	// @todo name convertDistribution ?
 	/**
 	 * Convert Distribution - Given the posterior across combinations, return the distribution across labels.
+	 * <br>
+	 * NOTE: this parses the class values on every call; decode them once with #makeLabelSetMap(Instances) and use #recombination_t(double[],int,LabelSet[]) instead.
 	 * @param	p	the posterior of the super classes (combinations), e.g., P([1,3],[2]) = [0.3,0.7]
 	 * @param	L 	the number of labels
 	 * @return	the distribution across labels, e.g., P(1,2,3) = [0.3,0.7,0.3]
@@ -355,17 +398,49 @@ public abstract class PSUtils {
 
 	/**
 	 * Convert a multi-label instance into a multi-class instance, according to a template.
+	 * The L labels are replaced by a single (missing) class attribute, i.e., [y_1,...,y_L,x_1,...,x_d] becomes [?,x_1,...,x_d].
 	 */
 	public static Instance convertInstance(Instance x, int L, Instances template) {
-		Instance x_ = (Instance) x.copy(); 
-		x_.setDataset(null);
-		for (int i = 0; i < L; i++)
-			x_.deleteAttributeAt(0);
-		x_.insertAttributeAt(0);
+		int d = x.numAttributes() - L;
+		Instance x_;
+		if (x instanceof SparseInstance) {
+			// skip the labels
+			int n = x.numValues();
+			int k = 0;
+			while (k < n && x.index(k) < L)
+				k++;
+			int indices[] = new int[n - k + 1];
+			double values[] = new double[n - k + 1];
+			values[0] = Utils.missingValue();
+			for (int i = 1; k < n; i++, k++) {
+				indices[i] = x.index(k) - L + 1;
+				values[i] = x.valueSparse(k);
+			}
+			x_ = new SparseInstance(x.weight(), values, indices, d + 1);
+		}
+		else {
+			double values[] = new double[d + 1];
+			values[0] = Utils.missingValue();
+			for (int i = 0; i < d; i++)
+				values[i + 1] = x.value(L + i);
+			x_ = new DenseInstance(x.weight(), values);
+		}
 		x_.setDataset(template);
 		return x_;
 	}
 
+	/**
+	 * Convert a batch of multi-label instances into multi-class instances, according to a template.
+	 * @see #convertInstance(Instance, int, Instances)
+	 * @return the converted instances, with the header of the template
+	 */
+	public static Instances convertInstances(Instances D, int L, Instances template) {
+		Instances D_ = new Instances(template, D.numInstances());
+		for (int i = 0; i < D.numInstances(); i++)
+			D_.add(convertInstance(D.instance(i), L, template));
+		return D_;
+	}
+
 	public static Instances LCTransformation(Instances D) {
 		return LCTransformation(D,D.classIndex());
 
@@ -409,10 +484,16 @@ public abstract class PSUtils {
 			return PSTransformation(D,L,cname,p-1,n);
 		}
 
-		// Create class attribute
+		// Index the combinations (for finding the subsets of the others)
+		LabelSetIndex index = (n > 0) ? new LabelSetIndex(distinctCombinations.keySet()) : null;
+
+		// Create class attribute (and the index of each combination among its values)
 		ArrayList<String> ClassValues = new ArrayList<String>();
-		for(LabelSet y : distinctCombinations.keySet()) 
+		HashMap<LabelSet,Integer> ids = new HashMap<LabelSet,Integer>();
+		for(LabelSet y : distinctCombinations.keySet()) {
+			ids.put(y,ClassValues.size());
 			ClassValues.add(y.toString());
+		}
 		Attribute C = new Attribute(cname, ClassValues);
 
 		// Insert new special attribute (which has all possible combinations of labels) 
@@ -424,24 +505,24 @@ public abstract class PSUtils {
 		for (int i = 0; i < N; i++) {
 			Instance x = D.instance(i);
 			LabelSet y = new LabelSet(MLUtils.toSparseIntArray(x,L));
-			String y_string = y.toString();
+			Integer id = ids.get(y);
 
 			// add it
-			if(ClassValues.contains(y_string)) 	//if its class value exists
-				x.setClassValue(y_string);
+			if(id != null) 	//if its class value exists
+				x.setClassValue(id);
 			// decomp
 			else if(n > 0) { 
 				//String d_subsets[] = getTopNSubsets(comb,distinctCombinations,n);
-				LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,distinctCombinations,n);
+				LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,distinctCombinations,n,index);
 				//LabelSet d_subsets[] = PSUtils.cover(y,distinctCombinations);
 				if (d_subsets.length > 0) {
 					// fast
-					x.setClassValue(d_subsets[0].toString());
+					x.setClassValue(ids.get(d_subsets[0]));
 					// additional
 					if (d_subsets.length > 1) {
 						for(int s_i = 1; s_i < d_subsets.length; s_i++) {
 							Instance x_ = (Instance)(x).copy();
-							x_.setClassValue(d_subsets[s_i].toString());
+							x_.setClassValue(ids.get(d_subsets[s_i]));
 							D.add(x_);
 						}
 					}
@@ -505,6 +586,19 @@ public abstract class PSUtils {
 	 * @return transformed instances
 	 */
 	public static Instance[] PSTransformation(Instance x, int L, HashMap<LabelSet,Integer> map, int n, Instances iTemplate) {
+		return PSTransformation(x, L, map, n, iTemplate, null);
+	}
+
+	/**
+	 * Transform one instance into multi-class representations (an array of possibly multiple single-label instances).
+	 * @param x			instance
+	 * @param L			number of labels in the instance
+	 * @param map		a map of labelsets to their frequencies
+	 * @param n			restoration value
+	 * @param index		an index of the labelsets of 'map', to find subsets in (if null, they are all scanned)
+	 * @return transformed instances
+	 */
+	public static Instance[] PSTransformation(Instance x, int L, HashMap<LabelSet,Integer> map, int n, Instances iTemplate, LabelSetIndex index) {
 
 		int y_[] = MLUtils.toSparseIntArray(x,L);
 
@@ -523,7 +617,7 @@ public abstract class PSUtils {
 		}
 		else {
 			// The labelset has not been seen before, use thap to construct some instances that fit
-			LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,map,n);
+			LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,map,n,index);
 			Instance x_subsets[] = new Instance[d_subsets.length];
 			Instance x_template = convertInstance(x,L,iTemplate);
 			for(int i = 1; i < d_subsets.length; i++) {
@@ -560,10 +654,16 @@ public abstract class PSUtils {
 			return PSTransformation(D,L,cname,p-1,n);
 		}
 
-		// Create class attribute
+		// Index the combinations (for finding the subsets of the others)
+		LabelSetIndex index = (n > 0) ? new LabelSetIndex(distinctCombinations.keySet()) : null;
+
+		// Create class attribute (and the index of each combination among its values)
 		ArrayList<String> ClassValues = new ArrayList<String>();
-		for(LabelSet y : distinctCombinations.keySet())
+		HashMap<LabelSet,Integer> ids = new HashMap<LabelSet,Integer>();
+		for(LabelSet y : distinctCombinations.keySet()) {
+			ids.put(y,ClassValues.size());
 			ClassValues.add(y.toString());
+		}
 		Attribute C = new Attribute(cname, ClassValues);
 
 		// Insert new special attribute (which has all possible combinations of labels)
@@ -575,24 +675,24 @@ public abstract class PSUtils {
 		for (int i = 0; i < N; i++) {
 			Instance x = D.instance(i);
 			LabelSet y = new LabelSet(MLUtils.toSparseIntArray(x,L));
-			String y_string = y.toString();
+			Integer id = ids.get(y);
 
 			// add it
-			if(ClassValues.contains(y_string)) 	//if its class value exists
-				x.setClassValue(y_string);
+			if(id != null) 	//if its class value exists
+				x.setClassValue(id);
 				// decomp
 			else if(n > 0) {
 				//String d_subsets[] = getTopNSubsets(comb,distinctCombinations,n);
-				LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,distinctCombinations,n);
+				LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,distinctCombinations,n,index);
 				//LabelSet d_subsets[] = PSUtils.cover(y,distinctCombinations);
 				if (d_subsets.length > 0) {
 					// fast
-					x.setClassValue(d_subsets[0].toString());
+					x.setClassValue(ids.get(d_subsets[0]));
 					// additional
 					if (d_subsets.length > 1) {
 						for(int s_i = 1; s_i < d_subsets.length; s_i++) {
 							Instance x_ = (Instance)(x).copy();
-							x_.setClassValue(d_subsets[s_i].toString());
+							x_.setClassValue(ids.get(d_subsets[s_i]));
 							D.add(x_);
 						}
 					}
@@ -0,0 +1,438 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.Instance;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * PredictionStore.java - Compact storage for the predictions (confidences) and true values of a Result.
+ * <br>
+ * Values are stored column-major, i.e., in one contiguous primitive array per label, so that a label's column can be scanned (or handed out) directly.
+ * Confidences are kept as double, or as float in single-precision mode. True values are kept as byte while they all fit, and as int otherwise.
+ * Only the rows actually stored are serialized.
+ * <br>
+ * Rows and columns can be read without copying through #row(int), #col(int), #rowTrue(int) and #colTrue(int) (see View).
+ *
+ * @see Result
+ * @version	October 2026
+ */
+public class PredictionStore implements Serializable {
+
+	private static final long serialVersionUID = -2931770418934419651L;
+
+	/** The number of labels (columns) */
+	protected int L = 0;
+
+	/** The number of rows stored */
+	protected int N = 0;
+
+	/** Whether the confidences are stored in single precision */
+	protected boolean single = false;
+
+	/** Confidences, Pd[j][i] for label j of row i (double precision) */
+	protected transient double Pd[][] = null;
+
+	/** Confidences, Pf[j][i] for label j of row i (single precision) */
+	protected transient float Pf[][] = null;
+
+	/** True values, Yb[j][i] for label j of row i (while they all fit into a byte) */
+	protected transient byte Yb[][] = null;
+
+	/** True values, Yi[j][i] for label j of row i (otherwise) */
+	protected transient int Yi[][] = null;
+
+	/**
+	 * PredictionStore - an empty store for L labels, with room for N rows (it grows as necessary).
+	 * @param	N		the expected number of rows
+	 * @param	L		the number of labels
+	 * @param	single	store the confidences in single (float) precision
+	 */
+	public PredictionStore(int N, int L, boolean single) {
+		this.L = L;
+		this.single = single;
+		allocate(Math.max(N, 1));
+	}
+
+	/**
+	 * PredictionStore - an empty store for L labels (double precision).
+	 */
+	public PredictionStore(int L) {
+		this(16, L, false);
+	}
+
+	private void allocate(int capacity) {
+		if (single)
+			Pf = new float[L][capacity];
+		else
+			Pd = new double[L][capacity];
+		if (Yi == null)
+			Yb = new byte[L][capacity];
+		else
+			Yi = new int[L][capacity];
+	}
+
+	/** The number of rows that can be stored before the arrays must grow */
+	private int capacity() {
+		if (L == 0)
+			return Integer.MAX_VALUE;
+		return single ? Pf[0].length : Pd[0].length;
+	}
+
+	/** Resize all columns to the given capacity (at least N) */
+	private void resize(int capacity) {
+		for(int j = 0; j < L; j++) {
+			if (single)
+				Pf[j] = Arrays.copyOf(Pf[j], capacity);
+			else
+				Pd[j] = Arrays.copyOf(Pd[j], capacity);
+			if (Yi == null)
+				Yb[j] = Arrays.copyOf(Yb[j], capacity);
+			else
+				Yi[j] = Arrays.copyOf(Yi[j], capacity);
+		}
+	}
+
+	/** Make room for one more row */
+	private void ensureCapacity() {
+		int c = capacity();
+		if (N >= c)
+			resize(Math.max(16, c + (c >> 1)));
+	}
+
+	/** Switch the true values from byte to int storage */
+	private void widen() {
+		Yi = new int[L][];
+		for(int j = 0; j < L; j++) {
+			Yi[j] = new int[Yb[j].length];
+			for(int i = 0; i < N; i++) {
+				Yi[j][i] = Yb[j][i];
+			}
+		}
+		Yb = null;
+	}
+
+	private void setTrue(int i, int j, int v) {
+		if (Yi == null && (byte)v != v)
+			widen();
+		if (Yi == null)
+			Yb[j][i] = (byte)v;
+		else
+			Yi[j][i] = v;
+	}
+
+	private void checkWidth(int l) {
+		if (l != L)
+			throw new IllegalArgumentException("Expected " + L + " values per row, but got " + l + "!");
+	}
+
+	/**
+	 * Add - add a row.
+	 * @param	y	the confidences (of length L)
+	 * @param	t	the true values (of length L)
+	 */
+	public void add(double y[], int t[]) {
+		checkWidth(y.length);
+		checkWidth(t.length);
+		ensureCapacity();
+		for(int j = 0; j < L; j++) {
+			if (single)
+				Pf[j][N] = (float)y[j];
+			else
+				Pd[j][N] = y[j];
+			setTrue(N, j, t[j]);
+		}
+		N++;
+	}
+
+	/**
+	 * Add - add a row, taking the true values from the first L attributes of x (a missing value is stored as -1, as in MLUtils#toIntArray(Instance, int)).
+	 * @param	y	the confidences (of length L)
+	 * @param	x	an instance containing the true values
+	 */
+	public void add(double y[], Instance x) {
+		checkWidth(y.length);
+		ensureCapacity();
+		for(int j = 0; j < L; j++) {
+			if (single)
+				Pf[j][N] = (float)y[j];
+			else
+				Pd[j][N] = y[j];
+			setTrue(N, j, x.isMissing(j) ? -1 : (int)Math.round(x.value(j)));
+		}
+		N++;
+	}
+
+	/**
+	 * AddAll - append all the rows of another store (with the same number of labels).
+	 */
+	public void addAll(PredictionStore s) {
+		checkWidth(s.L);
+		for(int i = 0; i < s.N; i++) {
+			ensureCapacity();
+			for(int j = 0; j < L; j++) {
+				if (single)
+					Pf[j][N] = (float)s.get(i, j);
+				else
+					Pd[j][N] = s.get(i, j);
+				setTrue(N, j, s.getTrue(i, j));
+			}
+			N++;
+		}
+	}
+
+	/** The number of rows */
+	public int size() {
+		return N;
+	}
+
+	/** The number of labels (columns) */
+	public int numLabels() {
+		return L;
+	}
+
+	/** Whether the confidences are stored in single precision */
+	public boolean isSinglePrecision() {
+		return single;
+	}
+
+	/**
+	 * SetSinglePrecision - switch between single and double precision storage (converting any rows already stored).
+	 */
+	public void setSinglePrecision(boolean single) {
+		if (single == this.single)
+			return;
+		int c = capacity();
+		if (single) {
+			Pf = new float[L][c];
+			for(int j = 0; j < L; j++) {
+				for(int i = 0; i < N; i++) {
+					Pf[j][i] = (float)Pd[j][i];
+				}
+			}
+			Pd = null;
+		}
+		else {
+			Pd = new double[L][c];
+			for(int j = 0; j < L; j++) {
+				for(int i = 0; i < N; i++) {
+					Pd[j][i] = Pf[j][i];
+				}
+			}
+			Pf = null;
+		}
+		this.single = single;
+	}
+
+	/**
+	 * Trim - release any unused capacity (e.g., once all rows have been added).
+	 */
+	public void trim() {
+		if (capacity() != N)
+			resize(N);
+	}
+
+	/** The confidence of label j for row i */
+	public double get(int i, int j) {
+		return single ? Pf[j][i] : Pd[j][i];
+	}
+
+	/** The true value of label j for row i */
+	public int getTrue(int i, int j) {
+		return Yi == null ? Yb[j][i] : Yi[j][i];
+	}
+
+	/** The confidences of row i (a new array) */
+	public double[] getRow(int i) {
+		return getRow(i, new double[L]);
+	}
+
+	/** The true values of row i (a new array) */
+	public int[] getRowTrue(int i) {
+		return getRowTrue(i, new int[L]);
+	}
+
+	/** The confidences of row i, copied into y (of length L, e.g., reused from row to row) */
+	public double[] getRow(int i, double y[]) {
+		for(int j = 0; j < L; j++) {
+			y[j] = get(i, j);
+		}
+		return y;
+	}
+
+	/** The true values of row i, copied into y (of length L, e.g., reused from row to row) */
+	public int[] getRowTrue(int i, int y[]) {
+		for(int j = 0; j < L; j++) {
+			y[j] = getTrue(i, j);
+		}
+		return y;
+	}
+
+	/** Whether all the true values of row i are missing (-1) */
+	public boolean allMissing(int i) {
+		for(int j = 0; j < L; j++) {
+			if (getTrue(i, j) != -1)
+				return false;
+		}
+		return true;
+	}
+
+	/** The confidences of label j, over all rows (a new array of length #size()) */
+	public double[] getCol(int j) {
+		double y[] = new double[N];
+		if (single) {
+			for(int i = 0; i < N; i++) {
+				y[i] = Pf[j][i];
+			}
+		}
+		else {
+			System.arraycopy(Pd[j], 0, y, 0, N);
+		}
+		return y;
+	}
+
+	/** The true values of label j, over all rows (a new array of length #size()) */
+	public int[] getColTrue(int j) {
+		int y[] = new int[N];
+		for(int i = 0; i < N; i++) {
+			y[i] = getTrue(i, j);
+		}
+		return y;
+	}
+
+	/** All confidences, as an N x L matrix (new arrays) */
+	public double[][] getAll() {
+		double Y[][] = new double[N][L];
+		for(int j = 0; j < L; j++) {
+			for(int i = 0; i < N; i++) {
+				Y[i][j] = get(i, j);
+			}
+		}
+		return Y;
+	}
+
+	/** All true values, as an N x L matrix (new arrays) */
+	public int[][] getAllTrue() {
+		int Y[][] = new int[N][L];
+		for(int j = 0; j < L; j++) {
+			for(int i = 0; i < N; i++) {
+				Y[i][j] = getTrue(i, j);
+			}
+		}
+		return Y;
+	}
+
+	/**
+	 * View - read-only access to a row or column of the store, without copying.
+	 * A view reads from the store as it is, so it should not be kept across additions to the store.
+	 */
+	public static abstract class View {
+
+		/** The number of values */
+		public abstract int size();
+
+		/** The k-th value */
+		public abstract double get(int k);
+
+		/** The values, copied into a new array */
+		public double[] toArray() {
+			double v[] = new double[size()];
+			for(int k = 0; k < v.length; k++) {
+				v[k] = get(k);
+			}
+			return v;
+		}
+
+		/** The values, (rounded and) copied into a new int array */
+		public int[] toIntArray() {
+			int v[] = new int[size()];
+			for(int k = 0; k < v.length; k++) {
+				v[k] = (int)Math.round(get(k));
+			}
+			return v;
+		}
+	}
+
+	/** A view of the confidences of row i */
+	public View row(final int i) {
+		return new View() {
+			public int size() { return L; }
+			public double get(int k) { return PredictionStore.this.get(i, k); }
+		};
+	}
+
+	/** A view of the confidences of label j */
+	public View col(final int j) {
+		return new View() {
+			public int size() { return N; }
+			public double get(int k) { return PredictionStore.this.get(k, j); }
+		};
+	}
+
+	/** A view of the true values of row i */
+	public View rowTrue(final int i) {
+		return new View() {
+			public int size() { return L; }
+			public double get(int k) { return getTrue(i, k); }
+		};
+	}
+
+	/** A view of the true values of label j */
+	public View colTrue(final int j) {
+		return new View() {
+			public int size() { return N; }
+			public double get(int k) { return getTrue(k, j); }
+		};
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		// only the rows in use, column by column
+		out.writeBoolean(Yi != null);
+		for(int j = 0; j < L; j++) {
+			out.writeObject(single ? Arrays.copyOf(Pf[j], N) : Arrays.copyOf(Pd[j], N));
+			out.writeObject(Yi == null ? Arrays.copyOf(Yb[j], N) : Arrays.copyOf(Yi[j], N));
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		boolean wide = in.readBoolean();
+		if (single)
+			Pf = new float[L][];
+		else
+			Pd = new double[L][];
+		if (wide)
+			Yi = new int[L][];
+		else
+			Yb = new byte[L][];
+		for(int j = 0; j < L; j++) {
+			if (single)
+				Pf[j] = (float[])in.readObject();
+			else
+				Pd[j] = (double[])in.readObject();
+			if (wide)
+				Yi[j] = (int[])in.readObject();
+			else
+				Yb[j] = (byte[])in.readObject();
+		}
+	}
+}
@@ -23,6 +23,8 @@ import weka.core.Utils;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -47,9 +49,14 @@ public class Result implements Serializable {
 	/** The number of label (target) variables in the problem */
 	public int L = 0;
 
-	public ArrayList<double[]> predictions = null;
-	// TODO, store in sparse fashion with either LabelSet or LabelVector
-	public ArrayList<int[]> actuals = null;
+	/** The predictions (confidences) and true values, one row per instance (created with the first row) */
+	public PredictionStore store = null;
+
+	/** Whether to store the confidences in single precision */
+	protected boolean single = false;
+
+	/** The expected number of rows */
+	protected transient int N_init = 16;
 
 	public HashMap<String,String> info = new LinkedHashMap<String,String>();  // stores general dataset/classifier info
 	public HashMap<String,Object> output = new LinkedHashMap<String,Object>();// stores predictive evaluation statistics
@@ -57,25 +64,37 @@ public class Result implements Serializable {
 	public HashMap<String,String> model = new LinkedHashMap<String,String>(); // stores the model itself
 
 	public Result() {
-		predictions = new ArrayList<double[]>();
-		actuals = new ArrayList<int[]>();
 	}
 
 	public Result(int L) {
-		predictions = new ArrayList<double[]>();
-		actuals = new ArrayList<int[]>();
 		this.L = L;
 	}
 
 	public Result(int N, int L) {
-		predictions = new ArrayList<double[]>(N);
-		actuals = new ArrayList<int[]>(N);
 		this.L = L;
+		this.N_init = N;
 	}
 
 	/** The number of value-prediction pairs stared in this Result */
 	public int size() {
-		return predictions.size();
+		return store == null ? 0 : store.size();
+	}
+
+	/**
+	 * SetSinglePrecision - store the prediction confidences as float rather than double (halving the memory they need).
+	 * Can be changed at any time (rows already stored are converted).
+	 */
+	public void setSinglePrecision(boolean single) {
+		this.single = single;
+		if (store != null)
+			store.setSinglePrecision(single);
+	}
+
+	/**
+	 * IsSinglePrecision - whether the prediction confidences are stored as float rather than double.
+	 */
+	public boolean isSinglePrecision() {
+		return single;
 	}
 
 	/**
@@ -117,23 +136,62 @@ public class Result implements Serializable {
 	 * @param real  an instance containing the true label values
 	 */
 	public void addResult(double pred[], Instance real) {
-		predictions.add(pred);
-		actuals.add(MLUtils.toIntArray(real,pred.length));
-		
+		if (store == null)
+			store = new PredictionStore(N_init, pred.length, single);
+		store.add(pred, real);
+	}
+
+	/**
+	 * AddResults - Append all the entries of another Result (e.g., of another fold).
+	 */
+	public void addResults(Result r) {
+		if (r.store == null)
+			return;
+		if (store == null)
+			store = new PredictionStore(Math.max(N_init, r.size()), r.store.numLabels(), single);
+		store.addAll(r.store);
 	}
 
 	/**
 	 * RowActual - Retrieve the true values for the i-th instance.
 	 */
 	public int[] rowTrue(int i) {
-		return actuals.get(i);
+		return store.getRowTrue(i);
 	}
 
 	/**
 	 * RowConfidence - Retrieve the prediction confidences for the i-th instance.
 	 */
 	public double[] rowConfidence(int i) {
-		return predictions.get(i);
+		return store.getRow(i);
+	}
+
+	/**
+	 * GetPredictions - Retrieve the prediction confidences, one array per instance, as the former public list 'predictions'
+	 * held them. The list is built from the store on each call, so adding to it does not add to this Result.
+	 * @deprecated	use #rowConfidence(int), #colConfidence(int) or #store instead
+	 */
+	@Deprecated
+	public ArrayList<double[]> getPredictions() {
+		ArrayList<double[]> predictions = new ArrayList<double[]>(size());
+		for(int i = 0; i < size(); i++) {
+			predictions.add(rowConfidence(i));
+		}
+		return predictions;
+	}
+
+	/**
+	 * GetActuals - Retrieve the true values, one array per instance, as the former public list 'actuals' held them.
+	 * The list is built from the store on each call, so adding to it does not add to this Result.
+	 * @deprecated	use #rowTrue(int), #colTrue(int) or #store instead
+	 */
+	@Deprecated
+	public ArrayList<int[]> getActuals() {
+		ArrayList<int[]> actuals = new ArrayList<int[]>(size());
+		for(int i = 0; i < size(); i++) {
+			actuals.add(rowTrue(i));
+		}
+		return actuals;
 	}
 
 	/**
@@ -163,30 +221,31 @@ public class Result implements Serializable {
 	 * Similar to M.getCol(Y,j)
 	 */
 	public double[] colConfidence(int j) {
-		double y[] = new double[predictions.size()];
-		for(int i = 0; i < predictions.size(); i++) {
-			y[i] = rowConfidence(i)[j];
-		}
-		return y;
+		return store.getCol(j);
+	}
+
+	/**
+	 * ColTrue - Retrieve the true values for the j-th label (column).
+	 */
+	public int[] colTrue(int j) {
+		return store.getColTrue(j);
 	}
 
 	/**
 	 * AllPredictions - Retrieve all prediction confidences in an L * N matrix (2d array).
 	 */
 	public double[][] allPredictions() {
-		double Y[][] = new double[predictions.size()][];
-		for(int i = 0; i < predictions.size(); i++) {
-			Y[i] = rowConfidence(i);
-		}
-		return Y;
+		if (store == null)
+			return new double[0][];
+		return store.getAll();
 	}
 
 	/**
 	 * AllPredictions - Retrieve all predictions (according to threshold t) in an L * N matrix.
 	 */
 	public int[][] allPredictions(double t) {
-		int Y[][] = new int[predictions.size()][];
-		for(int i = 0; i < predictions.size(); i++) {
+		int Y[][] = new int[size()][];
+		for(int i = 0; i < Y.length; i++) {
 			Y[i] = rowPrediction(i,t);
 		}
 		return Y;
@@ -196,11 +255,9 @@ public class Result implements Serializable {
 	 * AllTrueValues - Retrieve all true values in an L x N matrix.
 	 */
 	public int[][] allTrueValues() {
-		int Y[][] = new int[actuals.size()][];
-		for(int i = 0; i < actuals.size(); i++) {
-			Y[i] = rowTrue(i);
-		}
-		return Y;
+		if (store == null)
+			return new int[0][];
+		return store.getAllTrue();
 	}
 
 	/*
@@ -225,9 +282,26 @@ public class Result implements Serializable {
 	public void setMeasurement(String metric, Object stat) { output.put(metric,stat); }
 
     /**
-     * Retrieve the measurement for metric 'metric'.
+     * Retrieve the measurement for metric 'metric' (computing it first, if it is Lazy).
      */
-	public Object getMeasurement(String metric) { return output.get(metric); }
+	public Object getMeasurement(String metric) {
+		Object stat = output.get(metric);
+		if (stat instanceof Lazy) {
+			stat = ((Lazy)stat).get();
+			output.put(metric,stat);
+		}
+		return stat;
+	}
+
+	/**
+	 * Lazy - a measurement that is only computed when it is first retrieved with #getMeasurement(String),
+	 * e.g., curve data that is only needed for plotting.
+	 */
+	public interface Lazy extends Serializable {
+
+		/** Compute the measurement */
+		public Object get();
+	}
 
 	/**
 	 * SetValue.
@@ -273,6 +347,33 @@ public class Result implements Serializable {
 		return model.get(key);
 	}
 
+	/**
+	 * Reads a Result, including one serialized before the PredictionStore was introduced
+	 * (i.e., with the predictions and true values in the lists 'predictions' and 'actuals').
+	 */
+	@SuppressWarnings("unchecked") // the fields are read back as written by this class, with these types (erased when serialized)
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		L      = fields.get("L", 0);
+		info   = (HashMap<String,String>)fields.get("info", null);
+		output = (HashMap<String,Object>)fields.get("output", null);
+		vals   = (HashMap<String,Object>)fields.get("vals", null);
+		model  = (HashMap<String,String>)fields.get("model", null);
+		single = fields.get("single", false);
+		store  = (PredictionStore)fields.get("store", null);
+		N_init = 16;
+		if (fields.getObjectStreamClass().getField("predictions") != null) {
+			ArrayList<double[]> predictions = (ArrayList<double[]>)fields.get("predictions", null);
+			ArrayList<int[]> actuals = (ArrayList<int[]>)fields.get("actuals", null);
+			if (predictions != null && predictions.size() > 0) {
+				store = new PredictionStore(predictions.size(), predictions.get(0).length, single);
+				for(int i = 0; i < predictions.size(); i++) {
+					store.add(predictions.get(i), actuals.get(i));
+				}
+			}
+		}
+	}
+
 	// ********************************************************************************************************
 	//                     STATIC METHODS
 	// ********************************************************************************************************
@@ -284,10 +385,26 @@ public class Result implements Serializable {
 	 * In the multi-label case, a Threshold category must exist, containing a string defining the type of threshold we want to use/calibrate.
 	 */
 	public static HashMap<String,Object> getStats(Result r, String vop) {
+		return getStats(r, vop, ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * GetStats - as #getStats(Result, String), with the multi-label statistics gathered with numThreads threads
+	 * (-1 = # of CPUs/cores; 0/1 = sequential execution), see MLEvalUtils#getMLStats(PredictionStore, double[], String, int).
+	 */
+	public static HashMap<String,Object> getStats(Result r, String vop, int numThreads) {
+		if (r.store == null) {
+			// (no predictions: as before, this fails)
+			if (r.getInfo("Type").startsWith("MT"))
+				return MLEvalUtils.getMTStats(r.allPredictions(),r.allTrueValues(), vop);
+			else
+				return MLEvalUtils.getMLStats(r.allPredictions(), r.allTrueValues(), r.getInfo("Threshold"), vop);
+		}
+		// the statistics are computed from the store as it is, without copying it out into matrices
 		if (r.getInfo("Type").startsWith("MT"))
-			return MLEvalUtils.getMTStats(r.allPredictions(),r.allTrueValues(), vop);
-		else 
-			return MLEvalUtils.getMLStats(r.allPredictions(), r.allTrueValues(), r.getInfo("Threshold"), vop);
+			return MLEvalUtils.getMTStats(r.store, vop);
+		else
+			return MLEvalUtils.getMLStats(r.store, ThresholdUtils.thresholdStringToArray(r.getInfo("Threshold"),r.store.numLabels()), vop, numThreads);
 	}
 
 	/**
@@ -356,20 +473,19 @@ public class Result implements Serializable {
 			attInfo.add(new Attribute("P"+String.valueOf(j)));
 		}
 
-		double Y_pred[][] = result.allPredictions();
-		int Y_true[][] = result.allTrueValues();
+		int N = result.size();
 
-		Instances resultInstances = new Instances("Predictions",attInfo,Y_pred.length);
+		Instances resultInstances = new Instances("Predictions",attInfo,N);
 
-		for(int i = 0; i < Y_pred.length; i++) {
-			Instance rx = new DenseInstance(attInfo.size());
-			rx.setDataset(resultInstances);
-			for(int j = 0; j < Y_true[i].length; j++) {
-				rx.setValue(j,(double)Y_true[i][j]);
-			}
-			for(int j = 0; j < Y_pred[i].length; j++) {
-				rx.setValue(j+result.L,Y_pred[i][j]);
+		for(int i = 0; i < N; i++) {
+			// (each row is read straight from the store into the instance)
+			double x[] = new double[attInfo.size()];
+			for(int j = 0; j < result.L; j++) {
+				x[j] = (double)result.store.getTrue(i,j);
+				x[j+result.L] = result.store.get(i,j);
 			}
+			Instance rx = new DenseInstance(1.0,x);
+			rx.setDataset(resultInstances);
 			resultInstances.add(rx);
 		}
 
@@ -381,7 +497,7 @@ public class Result implements Serializable {
 	 */
 	public static String getResultAsString(Result result, int adp) {
 		StringBuilder sb = new StringBuilder();
-		double N = (double)result.predictions.size();
+		double N = (double)result.size();
 		sb.append("|==== PREDICTIONS (N="+N+") =====>\n");
 		for(int i = 0; i < N; i++) {
 			sb.append("|");
@@ -391,14 +507,14 @@ public class Result implements Serializable {
 			//System.out.println("|"+A.toString(result.rowPrediction(i)));
 			//System.out.println("|"+MLUtils.toIndicesSet(result.rowPrediction(i)));
 			if (adp == 0 && !result.getInfo("Type").equalsIgnoreCase("MT")) {
-				LabelSet y = new LabelSet(MLUtils.toIndicesSet(result.actuals.get(i)));
+				LabelSet y = new LabelSet(MLUtils.toIndicesSet(result.rowTrue(i)));
 				sb.append(y).append(" ");
 				LabelSet ypred = new LabelSet(MLUtils.toIndicesSet(result.rowPrediction(i)));
 				sb.append(ypred).append("\n");
 			}
 			else {
-				sb.append(A.toString(result.actuals.get(i))).append(" ");
-				sb.append(A.toString(result.predictions.get(i),adp)).append("\n");
+				sb.append(A.toString(result.rowTrue(i))).append(" ");
+				sb.append(A.toString(result.rowConfidence(i),adp)).append("\n");
 			}
 		}
 		sb.append("|==============================<\n");
@@ -25,9 +25,15 @@ import weka.core.Instances;
 
 import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 /**
  * StatUtils - Helpful statistical functions.
+ * <br>
+ * The pairwise dependency measures over a whole dataset (getC, I, chi2, F, margDepMatrix, ...) are computed from a
+ * LabelMatrix, i.e., from the co-occurrence counts of the sparse label rows, rather than by visiting every label pair of
+ * every instance; those of a single pair of labels (jPMF, I, chi2) from the counts of a single pass over the dataset.
+ * @see LabelMatrix
  * @author Jesse Read (jesse@tsc.uc3m.es)
  * @version	March 2013 - Multi-target Compatible
  */
@@ -165,16 +171,58 @@ public abstract class StatUtils {
 	 * @return the joint PMF of the j-th and k-th labels in D.
 	 */
 	public static double[][] jPMF(Instances D, int j, int k) {
-		double JOINT[][] = new double[D.attribute(j).numValues()][D.attribute(k).numValues()];
+		int n[][] = counts(D,j,k);
 		int N = D.numInstances();
-		for(int i = 0; i < N; i++) {
-			int v_j = (int)Math.round(D.instance(i).value(j));
-			int v_k = (int)Math.round(D.instance(i).value(k));
-			JOINT[v_j][v_k] += (1.0 / (double)N);
+		double JOINT[][] = new double[n.length][n[0].length];
+		for(int v = 0; v < n.length; v++) {
+			for(int w = 0; w < n[v].length; w++) {
+				for(int i = 0; i < n[v][w]; i++) {
+					JOINT[v][w] += (1.0 / (double)N);
+				}
+			}
 		}
 		return JOINT;
 	}
 
+	/**
+	 * Counts - the number of instances in D where the j-th and k-th labels take each pair of values, in a single pass.
+	 * Numeric labels are taken to be binary.
+	 */
+	private static int[][] counts(Instances D, int j, int k) {
+		int n[][] = new int[numValues(D,j)][numValues(D,k)];
+		for(int i = 0; i < D.numInstances(); i++) {
+			Instance x = D.instance(i);
+			n[(int)Math.round(x.value(j))][(int)Math.round(x.value(k))]++;
+		}
+		return n;
+	}
+
+	private static int numValues(Instances D, int j) {
+		return D.attribute(j).isNominal() ? D.attribute(j).numValues() : 2;
+	}
+
+	/**
+	 * Smoothed - the empirical probability of n instances out of N, smoothed (and summed) exactly as p(double[][], int, int) does.
+	 */
+	private static double smoothed(int n, int N) {
+		double p = 0.0001;
+		for(int i = 0; i < n; i++) {
+			p += 1.0;
+		}
+		return p/N;
+	}
+
+	/** the marginal counts of the counts n[v][w] (over w, or if !rows, over v) */
+	private static int[] marginals(int n[][], boolean rows) {
+		int m[] = new int[rows ? n.length : n[0].length];
+		for(int v = 0; v < n.length; v++) {
+			for(int w = 0; w < n[v].length; w++) {
+				m[rows ? v : w] += n[v][w];
+			}
+		}
+		return m;
+	}
+
 	/**
 	 * Joint Distribution.
 	 * @return the joint PMF of the j-th and k-th and lthlabels in D.
@@ -214,25 +262,7 @@ public abstract class StatUtils {
 	 * Actually, if we don't prune, this is not even approximate -- it is the real empirical P.
 	 */
 	public static int[][] getApproxC(Instances D) {
-		int N = D.numInstances();
-		int L = D.classIndex();
-		int C[][] = new int[L][L];
-		// @todo, can prune here to make even faster by pruning this.
-		HashMap<LabelSet,Integer> map = MLUtils.countCombinationsSparse(D,L);
-
-		for (LabelSet y : map.keySet()) {
-			int c = map.get(y);
-			for(int j = 0; j < y.indices.length; j++) {
-				int j_ = y.indices[j];
-				C[j_][j_] += c;
-				for(int k = j+1; k < y.indices.length; k++) {
-					int k_ = y.indices[k];
-					C[j_][k_] += c;
-				}
-			}
-		}
-
-		return C;
+		return new LabelMatrix(D).getApproxC();
 	}
 
 	/**
@@ -289,21 +319,7 @@ public abstract class StatUtils {
 	 * @return 	C[][] where C[j][k] is the number of times where Y[i][j] = 1 and y[i][k] = 1 over all i = 1,...,N
 	 */
 	public static int[][] getC(Instances D) {
-
-		int L = D.classIndex();
-		int N = D.numInstances();
-
-		int C[][] = new int[L][L];
-
-		for(int i = 0; i < N; i++) {
-			for(int j = 0; j < L; j++) {
-				C[j][j] += (int)D.instance(i).value(j);                                            // C[j==1] ++
-				for(int k = j+1; k < L; k++) {
-					C[j][k] += (D.instance(i).value(j) + D.instance(i).value(k) >= 2.0) ? 1 : 0;   // C[j==1,k==1] ++
-				}
-			}
-		}
-		return C;
+		return new LabelMatrix(D).getC();
 	}
 
 	/**
@@ -420,12 +436,16 @@ public abstract class StatUtils {
 	 * @return I(Y_j;Y_k) in dataset D.
 	 */
 	public static double I(Instances D, int j, int k) {
+		int n[][] = counts(D,j,k);
+		int n_j[] = marginals(n,true);
+		int n_k[] = marginals(n,false);
+		int N = D.numInstances();
 		double I = 0.0;
-		for(int x = 0; x < D.attribute(j).numValues(); x++) {
-			double p_x = p(D,j,x);
-			for(int y = 0; y < D.attribute(k).numValues(); y++) {
-				double p_y = p(D,k,y);
-				double p_xy = P(D,j,x,k,y);
+		for(int x = 0; x < n.length; x++) {
+			double p_x = smoothed(n_j[x],N);
+			for(int y = 0; y < n[x].length; y++) {
+				double p_y = smoothed(n_k[y],N);
+				double p_xy = smoothed(n[x][y],N);
 				I += p_xy * Math.log ( p_xy / ( p_x * p_y) );
 			}
 		}
@@ -440,14 +460,7 @@ public abstract class StatUtils {
 	 * @return a L*L matrix representing Unconditional Depndence.
 	 */
 	public static double[][] I(Instances D, int L) {
-		double M[][] = new double[L][L];
-		for(int j = 0; j < L; j++) {
-			for(int k = j+1; k < L; k++) {
-				// get I(Y_j;X_k)
-				M[j][k] = I(D,j,k);
-			}
-		}
-		return M;
+		return new LabelMatrix(D,L).I();
 	}
 
 	/** Critical value used for Chi^2 test. */
@@ -464,11 +477,15 @@ public abstract class StatUtils {
 	public static double chi2 (Instances Y,int j,int k) {
 		// H_0 : p(Y_j,Y_k) = p(Y_j)p(Y_k)
 
+		int n[][] = counts(Y,j,k);
+		int n_j[] = marginals(n,true);
+		int n_k[] = marginals(n,false);
+		int N = Y.numInstances();
 		double chi2 = 0.0;
 		for(int j_ = 0; j_ < 2; j_++) {
 			for(int k_ = 0; k_ < 2; k_++) {
-				double E = p(Y,j,j_) * p(Y,k,k_); 			// Expected vaule P(Y_j = j_)P(Y_k = k_)
-				double O = P(Y,j,j_,k,k_);					// Observed value P(Y_j = j_, Y_k = k_)
+				double E = smoothed(n_j[j_],N) * smoothed(n_k[k_],N); 	// Expected vaule P(Y_j = j_)P(Y_k = k_)
+				double O = smoothed(n[j_][k_],N);						// Observed value P(Y_j = j_, Y_k = k_)
 				chi2 += ( ((O - E) * (O - E)) / E );
 			}
 		}
@@ -482,14 +499,7 @@ public abstract class StatUtils {
 	 * @return	The chi-square statistic matrix X
 	 */
 	public static double[][] chi2 (Instances D) {
-		int L = D.classIndex();
-		double X[][] = new double[L][L];
-		for(int j = 0; j < L; j++) {
-			for(int k = j+1; k < L; k++) {
-				X[j][k] = chi2(D,j,k);
-			}
-		}
-		return X;
+		return new LabelMatrix(D).chi2();
 	}
 
 	/**
@@ -534,61 +544,60 @@ public abstract class StatUtils {
 	 * @return a L*L matrix representing Unconditional Depndence.
 	 */
 	public static double[][] margDepMatrix(Instances D, String op) {
+		return margDepMatrix(D, op, null);
+	}
+
+	/**
+	 * MargDepMatrix - Get an Unconditional Depndency Matrix.
+	 * The labels are extracted once into a LabelMatrix, and the measure computed from its co-occurrence counts.
+	 * @param	D	dataset
+	 * @param	op	how we will measure the dependency
+	 * @param	executor	to count the co-occurrences in parallel (null to count them in the calling thread)
+	 * @return a L*L matrix representing Unconditional Depndence.
+	 */
+	public static double[][] margDepMatrix(Instances D, String op, ExecutorService executor) {
 
 		int L = D.classIndex();
 		int N = D.numInstances();
 
+		LabelMatrix Y = new LabelMatrix(D,L);
+		Y.countCooccurrences(executor);
+
 		// Simple Co-occurence counts
 		if (op.equals("C")) {
-			int C[][] = getApproxC(D);
+			int C[][] = Y.getApproxC();
 			double P[][] = getP(C,N);
 			return P;
 		}
 		// Mutual information -- complete / multi-target capable
 		if (op.equals("I")) {
-			return I(D,L);
+			return Y.I();
 		}
 		// Mutual information -- binary (multi-label) approximation
 		if (op.equals("Ib")) {
-			int C[][] = getC(D);
-			//System.out.println(""+M.toString(C));
+			int C[][] = Y.getC();
 			double P[][] = getP(C,N);
-			//System.out.println(""+M.toString(P));
 			return I(P);
 		}
 		// Mutual information -- fast binary (multi-label) approximation
 		if (op.equals("Ibf")) {
-			int C[][] = getApproxC(D);
-			//System.out.println(""+M.toString(C));
+			int C[][] = Y.getApproxC();
 			double P[][] = getP(C,N);
-			//System.out.println(""+M.toString(P));
 			return I(P);
 		}
 		// Conditional information -- binary (multi-label)
 		if (op.equals("H")) {
-			int C[][] = getC(D);
-			return H(C,N);
-		}
-		// Conditional information -- fast binary (multi-label) approximation
-		if (op.equals("H")) {
-			int C[][] = getApproxC(D);
+			int C[][] = Y.getC();
 			return H(C,N);
 		}
 		// Chi-squared
 		if (op.equals("X")) {
-			return chi2(D);
+			return Y.chi2();
 		}
 		// Frequencies (cheap)
 		if (op.equals("F")) {
-			double F[][] = F(D);
-			//System.out.println(""+M.toString(F));
-			return F;
-		}
-		/*
-		if (op == "C") {
-			return getC(D);
+			return Y.F();
 		}
-		*/
 		System.err.println("No operation found; Using empty!");
 
 		return new double[L][L];
@@ -630,50 +639,55 @@ public abstract class StatUtils {
 		return H(C, D.classIndex());
 	}
 
-	private static double f (Instances Y,int j,int k) {
-
-		double E = p(Y,j,1) * p(Y,k,1); 			// Expected vaule P(Y_j = j_)P(Y_k = k_)
-		double O = P(Y,j,1,k,1);					// Observed value P(Y_j = j_, Y_k = k_)
-		return E/O;
-	}
-
 	/**
 	 * F - Relative frequency matrix (between p(j),p(k) and p(j,k)) in dataset D.
 	 */
 	public static double[][] F(Instances D) {
-		int L = D.classIndex();
-		double M[][] = new double[L][L];
-		for(int j = 0; j < L; j++) {
-			for(int k = j+1; k < L; k++) {
-				M[j][k] = Math.abs(1. - f(D,j,k));
-			}
-		}
-		return M;
+		return new LabelMatrix(D).F();
 	}
 
 	// A bit of a useless function -- get rid of it somehow?
 	private static double[] fillError(Result result, int L) {
 
-		double Yprob[][] = result.allPredictions(); 
-		int Ytrue[][] = result.allTrueValues();
-		int Ypred[][] = null;
-		if (result.getInfo("Type").equals("MT")) {
-			// Multi-target, so just round!
-			Ypred = ThresholdUtils.round(Yprob);
-		}
-		else {
-			double ts[] = ThresholdUtils.thresholdStringToArray(result.getInfo("Threshold"),L); 
-			Ypred = ThresholdUtils.threshold(Yprob,ts);
-		}
+		boolean mt = result.getInfo("Type").equals("MT");
+		double ts[] = mt ? null : ThresholdUtils.thresholdStringToArray(result.getInfo("Threshold"),L);
 
+		// (label by label, as Metrics#P_Hamming(int[][],int[][],int) would, from the columns of the Result)
 		double E[] = new double[L];
 		for(int j = 0; j < L; j++) {
+			int ytrue_j[] = result.colTrue(j);
+			double yprob_j[] = result.colConfidence(j);
+			int ypred_j[] = new int[yprob_j.length];
+			for(int i = 0; i < ypred_j.length; i++) {
+				if (mt)
+					// Multi-target, so just round!
+					ypred_j[i] = (int)Math.round(yprob_j[i]);
+				else
+					ypred_j[i] = (yprob_j[i] >= ts[j]) ? 1 : 0;
+			}
+			int aligned[][] = Metrics.align(ytrue_j, ypred_j);
 			//E[j] = 1.0 - result.output.get("Accuracy["+j+"]");
-			E[j] = Metrics.P_Hamming(Ytrue,Ypred,j);
+			E[j] = 1. - Metrics.L_Hamming(aligned[0], aligned[1]);
 		}
 		return E;
 	}
 
+	/**
+	 * Threshold - the predictions of a Result, thresholded by t, as MatrixUtils#threshold(double[][], double) would
+	 * (but read from the Result directly, rather than from a copy of its confidences).
+	 */
+	private static double[][] thresholdPredictions(Result result, double t) {
+		int N = result.size();
+		double Y[][] = new double[N][];
+		for(int i = 0; i < N; i++) {
+			Y[i] = new double[result.store.numLabels()];
+			for(int j = 0; j < Y[i].length; j++) {
+				Y[i][j] = (result.store.get(i,j) > t) ? 1. : 0.;
+			}
+		}
+		return Y;
+	}
+
 	/**
 	 * CondDepMatrix - Get a Conditional Dependency Matrix.
 	 * Based on Zhang's 'LEAD' approach, where<br>
@@ -687,7 +701,7 @@ public abstract class StatUtils {
 		int L = D.classIndex();
 		int N = D.numInstances();
 		double T[][] = MLUtils.getYfromD(D);						// Output (TEACHER)
-		double Y[][] = MatrixUtils.threshold(result.allPredictions(), 0.5);	// Output (PREDICTED)
+		double Y[][] = thresholdPredictions(result, 0.5);	// Output (PREDICTED)
 		result.output = Result.getStats(result,"6");	            // <-- high verbosity, because we need individual accuracies				
 		double E[] = fillError(result, L);							// Errors (EXPECTED)
 		double F[][][] = new double[3][L][L];						// Errors (ACTUAL)
@@ -736,7 +750,7 @@ public abstract class StatUtils {
 		int L = D.classIndex();
 		int N = D.numInstances();
 		double Y[][] = MLUtils.getYfromD(D);						// Real
-		double Y_[][] = MatrixUtils.threshold(result.allPredictions(), 0.5);	// Predicted
+		double Y_[][] = thresholdPredictions(result, 0.5);	// Predicted
 		// Error
 		double E[][] = MatrixUtils.subtract(Y, Y_);
 		// Expected (for each j)
@@ -772,7 +786,7 @@ public abstract class StatUtils {
 
 		// Extract true labels from D, predicted labels from R
 		double Ytrue[][] = MLUtils.getYfromD(D);						// True
-		double Ypred[][] = MatrixUtils.threshold(R.allPredictions(), 0.5);			// Predicted
+		double Ypred[][] = thresholdPredictions(R, 0.5);			// Predicted
 
 		// Make Error matrix
 		double E[][] = MatrixUtils.abs(MatrixUtils.subtract(Ytrue, Ypred));
@@ -0,0 +1,310 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+/**
+ * StreamingMetrics.java - Multi-label evaluation metrics of a stream of predictions, kept up to date row by row in constant memory.
+ * <br>
+ * The Hamming score, exact match, Jaccard index (accuracy) and micro/macro averaged F1 are obtained from per-label confusion counts and
+ * per-example sums, over either
+ * <ul>
+ * <li>all the rows so far (as MetricAccumulator and Metrics give them, exactly),</li>
+ * <li>a sliding window of the last W rows (the counts of the W rows are kept, in O(W L) memory, to take each row off again), or</li>
+ * <li>all the rows so far, faded by a factor alpha per row (a row k rows ago weighs alpha^k).</li>
+ * </ul>
+ * Missing true values (-1) are treated as in Metrics.
+ *
+ * @see MetricAccumulator
+ * @see Metrics
+ * @version	October 2026
+ */
+public class StreamingMetrics {
+
+	/** The (per label) outcomes of a row, as kept for the sliding window */
+	protected static final byte TN = 0, TP_ = 1, FP_ = 2, FN_ = 3, MISSING = 4;
+
+	/** The number of labels */
+	protected int L;
+
+	/** The size of the sliding window (0 for none) */
+	protected int W;
+
+	/** The fading factor (1 for none) */
+	protected double alpha;
+
+	/** The number of rows added */
+	protected long N = 0;
+
+	/** The (faded) number of rows that do not have all true values missing */
+	protected double n = 0.;
+
+	/** The (faded) sums of the per-example Hamming losses, 0/1 losses and Jaccard indices */
+	protected double s_ham = 0., s_zeroOne = 0., s_acc = 0.;
+
+	/** The (faded) per-label counts: true positives, false positives, false negatives, and true values that are not missing */
+	protected double TP[], FP[], FN[], C[];
+
+	/** The sliding window: the outcomes (L per row), Hamming losses and Jaccard indices of its rows, in a ring */
+	protected byte w_outcome[];
+	protected double w_ham[], w_acc[];
+
+	/** The position of the oldest row of the ring, and the number of rows in it */
+	protected int w_pos = 0, w_size = 0;
+
+	/**
+	 * StreamingMetrics - metrics over all the rows.
+	 * @param	L	the number of labels
+	 */
+	public StreamingMetrics(int L) {
+		this(L, 0, 1.);
+	}
+
+	/**
+	 * StreamingMetrics - metrics over a sliding window.
+	 * @param	L	the number of labels
+	 * @param	W	the number of (most recent) rows to evaluate
+	 */
+	public StreamingMetrics(int L, int W) {
+		this(L, W, 1.);
+	}
+
+	/**
+	 * StreamingMetrics - metrics over all the rows, faded.
+	 * @param	L		the number of labels
+	 * @param	alpha	the fading factor, in (0,1]
+	 */
+	public StreamingMetrics(int L, double alpha) {
+		this(L, 0, alpha);
+	}
+
+	protected StreamingMetrics(int L, int W, double alpha) {
+		if (W < 0)
+			throw new IllegalArgumentException("Window size must be >= 0, provided: " + W);
+		if (!(alpha > 0. && alpha <= 1.))
+			throw new IllegalArgumentException("Fading factor must be in (0,1], provided: " + alpha);
+		this.L = L;
+		this.W = W;
+		this.alpha = alpha;
+		TP = new double[L];
+		FP = new double[L];
+		FN = new double[L];
+		C = new double[L];
+		if (W > 0) {
+			w_outcome = new byte[W * L];
+			w_ham = new double[W];
+			w_acc = new double[W];
+		}
+	}
+
+	/**
+	 * Add - accumulate one row (and, with a sliding window that is full, take off the oldest one).
+	 * @param	y		the true values (-1 if missing)
+	 * @param	ypred	the predicted values (0/1)
+	 */
+	public void add(int y[], int ypred[]) {
+		if (W > 0 && w_size == W)
+			removeOldest();
+		if (alpha < 1.)
+			fade();
+
+		int slot = (W > 0) ? (w_pos + w_size) % W : -1;
+		int miss = 0, err = 0, union = 0, inter = 0;
+		for(int j = 0; j < L; j++) {
+			byte o;
+			if (y[j] == -1) {
+				miss++;
+				o = MISSING;
+			}
+			else {
+				C[j]++;
+				if (y[j] != ypred[j])
+					err++;
+				if (y[j] == 1 || ypred[j] == 1)
+					union++;
+				if (ypred[j] == 1 && y[j] == 1) {
+					inter++;
+					TP[j]++;
+					o = TP_;
+				}
+				else if (ypred[j] == 1 && y[j] == 0) {
+					FP[j]++;
+					o = FP_;
+				}
+				else if (ypred[j] == 0 && y[j] == 1) {
+					FN[j]++;
+					o = FN_;
+				}
+				else {
+					o = TN;
+				}
+			}
+			if (slot >= 0)
+				w_outcome[slot * L + j] = o;
+		}
+		N++;
+
+		double ham = Double.NaN, acc = Double.NaN;
+		if (miss < L) {
+			ham = err / (double)(L - miss);
+			acc = (union > 0) ? (double)inter / (double)union : 1.0;
+			n++;
+			s_ham += ham;
+			s_zeroOne += (err > 0) ? 1. : 0.;
+			s_acc += acc;
+		}
+		if (slot >= 0) {
+			w_ham[slot] = ham;
+			w_acc[slot] = acc;
+			w_size++;
+			// once per turn of the ring, sum the window afresh (rather than let the rounding of the removals add up)
+			if (slot == W - 1)
+				resum();
+		}
+	}
+
+	/** Takes the oldest row of the sliding window off the counts and sums. */
+	protected void removeOldest() {
+		int slot = w_pos;
+		int err = 0;
+		for(int j = 0; j < L; j++) {
+			byte o = w_outcome[slot * L + j];
+			if (o == MISSING)
+				continue;
+			C[j]--;
+			if (o == TP_)
+				TP[j]--;
+			else if (o == FP_)
+				FP[j]--;
+			else if (o == FN_)
+				FN[j]--;
+			if (o == FP_ || o == FN_)
+				err++;
+		}
+		if (!Double.isNaN(w_ham[slot])) {
+			n--;
+			s_ham -= w_ham[slot];
+			s_zeroOne -= (err > 0) ? 1. : 0.;
+			s_acc -= w_acc[slot];
+		}
+		w_pos = (w_pos + 1) % W;
+		w_size--;
+	}
+
+	/** Sums the per-example Hamming losses and Jaccard indices of the sliding window afresh. */
+	protected void resum() {
+		s_ham = 0.;
+		s_acc = 0.;
+		for(int k = 0; k < w_size; k++) {
+			int slot = (w_pos + k) % W;
+			if (Double.isNaN(w_ham[slot]))
+				continue;
+			s_ham += w_ham[slot];
+			s_acc += w_acc[slot];
+		}
+	}
+
+	/** Fades all the counts and sums by alpha, before a new row is added. */
+	protected void fade() {
+		n *= alpha;
+		s_ham *= alpha;
+		s_zeroOne *= alpha;
+		s_acc *= alpha;
+		for(int j = 0; j < L; j++) {
+			TP[j] *= alpha;
+			FP[j] *= alpha;
+			FN[j] *= alpha;
+			C[j] *= alpha;
+		}
+	}
+
+	/** The number of rows added (in total, not only those in the window). */
+	public long numRows() {
+		return N;
+	}
+
+	/** The (faded) number of rows evaluated, i.e., of those that do not have all true values missing. */
+	public double size() {
+		return n;
+	}
+
+	/** Jaccard index, averaged by example. */
+	public double P_Accuracy() {
+		return s_acc / n;
+	}
+
+	/** Hamming loss. */
+	public double L_Hamming() {
+		return s_ham / n;
+	}
+
+	/** Hamming score. */
+	public double P_Hamming() {
+		return 1. - L_Hamming();
+	}
+
+	/** 0/1 loss. */
+	public double L_ZeroOne() {
+		return s_zeroOne / n;
+	}
+
+	/** Exact match. */
+	public double P_ExactMatch() {
+		return 1. - L_ZeroOne();
+	}
+
+	/** F-Measure, macro averaged by label (over the labels that do not have all true values missing). */
+	public double P_FmacroAvgL() {
+		double F = 0.0;
+		int L_ = L;
+		for(int j = 0; j < L; j++) {
+			if (C[j] <= 0.) {
+				L_--;
+				continue;
+			}
+			if (TP[j] > 0) {
+				double prec = TP[j] / (TP[j] + FP[j]);
+				double recall = TP[j] / (TP[j] + FN[j]);
+				F += 2 * ((prec * recall) / (prec + recall));
+			}
+		}
+		return (L_ == 0) ? Double.NaN : F / (double)L_;
+	}
+
+	/** F-Measure, micro averaged. */
+	public double P_FmicroAvg() {
+		double tp = 0., fp = 0., fn = 0., c = 0.;
+		for(int j = 0; j < L; j++) {
+			tp += TP[j];
+			fp += FP[j];
+			fn += FN[j];
+			c += C[j];
+		}
+		if (c <= 0.)
+			return Double.NaN;
+		double p = precision(tp, fp);
+		double r = precision(tp, fn);
+		if (p == 0.0 && r == 0.0)
+			return 0.0;
+		return 2. * p * r / (p + r);
+	}
+
+	/** tp / (tp + f), or 0 if both are 0 */
+	private static double precision(double tp, double f) {
+		if (tp == 0.0 && f == 0.0)
+			return 0.0;
+		return tp / (tp + f);
+	}
+}
@@ -20,6 +20,19 @@
 
 package meka.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Thread and multi-process related methods.
  *
@@ -74,4 +87,123 @@ public class ThreadUtils {
 	public static boolean isMultiThreaded(int numThreads) {
 		return (ThreadUtils.getActualNumThreads(numThreads, ThreadUtils.getAvailableProcessors()) != ThreadUtils.SEQUENTIAL);
 	}
+
+	/**
+	 * Checks whether the number of threads is valid (-1 for # of cores/cpus, 0/1 for sequential, or more),
+	 * and reports it on stderr if not. For the setNumThreads methods, which ignore invalid values.
+	 *
+	 * @param numThreads        the number of threads
+	 * @return                  true if valid
+	 */
+	public static boolean checkNumThreads(int numThreads) {
+		if (numThreads >= ALL)
+			return true;
+		System.err.println("Number of threads must be >= " + ALL + ", provided: " + numThreads);
+		return false;
+	}
+
+	/**
+	 * Executes the jobs with (at most) the specified number of threads, using a fixed
+	 * thread pool that is shut down again afterwards. With a single thread, the jobs
+	 * are simply called in turn, in the calling thread.
+	 *
+	 * @param jobs              the jobs to execute
+	 * @param numThreads        the requested number of threads (-1 for # of cores/cpus)
+	 * @return                  the results, in the same order as the jobs
+	 * @throws Exception        the (first) exception thrown by any of the jobs
+	 */
+	public static <T> List<T> executeAll(List<? extends Callable<T>> jobs, int numThreads) throws Exception {
+		List<T>             result;
+		ExecutorService     executor;
+		int                 actual;
+
+		result = new ArrayList<>(jobs.size());
+		actual = Math.min(getActualNumThreads(numThreads, jobs.size()), Math.max(1, jobs.size()));
+		if (actual == SEQUENTIAL) {
+			for (Callable<T> job: jobs)
+				result.add(job.call());
+			return result;
+		}
+
+		executor = Executors.newFixedThreadPool(actual);
+		try {
+			return executeAll(jobs, executor);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Executes the jobs with the given executor, waiting for all of them to finish.
+	 *
+	 * @param jobs              the jobs to execute
+	 * @param executor          the executor to use (not shut down)
+	 * @return                  the results, in the same order as the jobs
+	 * @throws Exception        the (first) exception thrown by any of the jobs
+	 */
+	public static <T> List<T> executeAll(List<? extends Callable<T>> jobs, ExecutorService executor) throws Exception {
+		List<T>             result;
+		List<Future<T>>     futures;
+
+		result  = new ArrayList<>(jobs.size());
+		futures = executor.invokeAll(jobs);
+		try {
+			for (Future<T> future: futures)
+				result.add(future.get());
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of threads the executor runs jobs with: the maximum pool size of a
+	 * ThreadPoolExecutor (e.g., from #newExecutor(int)), or the parallelism of a ForkJoinPool;
+	 * the number of processors for unbounded pools, or other executors.
+	 *
+	 * @param executor          the executor
+	 * @return                  the number of threads
+	 */
+	public static int getNumThreads(ExecutorService executor) {
+		int                 result;
+
+		if (executor instanceof ThreadPoolExecutor)
+			result = ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+		else if (executor instanceof ForkJoinPool)
+			result = ((ForkJoinPool) executor).getParallelism();
+		else
+			result = Integer.MAX_VALUE;
+		if (result == Integer.MAX_VALUE)
+			result = getAvailableProcessors();
+
+		return Math.max(1, result);
+	}
+
+	/**
+	 * Creates an executor with a fixed number of daemon threads, for re-use across many
+	 * (small) calls to #executeAll(List, ExecutorService). Idle threads are stopped after
+	 * a second, so the executor does not need to be shut down.
+	 *
+	 * @param numThreads        the number of threads
+	 * @return                  the executor
+	 */
+	public static ExecutorService newExecutor(int numThreads) {
+		ThreadPoolExecutor  result;
+
+		result = new ThreadPoolExecutor(numThreads, numThreads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = Executors.defaultThreadFactory().newThread(r);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		result.allowCoreThreadTimeOut(true);
+
+		return result;
+	}
 }
@@ -17,7 +17,8 @@ package meka.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * ThresholdUtils - Helpful functions for calibrating thresholds.
@@ -51,32 +52,39 @@ public abstract class ThresholdUtils {
 		if (Y.size() <= 0)
 			return 0.5;
 
-		int N = Y.size();
-		ArrayList<Double> big = new ArrayList<Double>();
+		int M = 0;
 		for (double y[] : Y) {
-			for (double y_ : y) {
-				big.add(y_);
-			}
+			M += y.length;
 		}
-		Collections.sort(big);
-
-		int i = big.size() - (int) Math.round(LC_train * (double) N);
-
-		if (N == big.size()) { // special cases
-			if (i + 1 == N) // only one!
-				return (big.get(N - 2) + big.get(N - 1)) / 2.0;
-			if (i + 1 >= N) // zero!
-				return 1.0;
-			else
-				return Math.max(((big.get(i) + big.get(i + 1)) / 2.0), 0.00001);
+		double big[] = new double[M];
+		int k = 0;
+		for (double y[] : Y) {
+			System.arraycopy(y, 0, big, k, y.length);
+			k += y.length;
 		}
+		return pcut(big, Y.size(), LC_train);
+	}
 
-		// special cases for low LC
-		if (i == big.size() || i + 1 == big.size()) {
-			return Math.max((big.get(big.size() - 2) + big.get(big.size() - 1)) / 2.0, 0.00001);
-		}
+	/**
+	 * CalibrateThreshold - as #calibrateThreshold(ArrayList, double), for predictions Y given as an N x L matrix.
+	 */
+	public static double calibrateThreshold(double Y[][], double LC_train) {
+		return calibrateThreshold(new ArrayList<double[]>(Arrays.asList(Y)), LC_train);
+	}
 
-		return Math.max((big.get(i) + big.get(Math.max(i + 1, N - 1))) / 2.0, 0.00001);
+	/**
+	 * CalibrateThreshold - as #calibrateThreshold(ArrayList, double), for the predictions stored in Result r.
+	 */
+	public static double calibrateThreshold(Result r, double LC_train) {
+		int N = r.size();
+		if (N <= 0)
+			return 0.5;
+		int L = r.store.numLabels();
+		double big[] = new double[N * L];
+		for(int j = 0; j < L; j++) {
+			System.arraycopy(r.store.getCol(j), 0, big, j * N, N);
+		}
+		return pcut(big, N, LC_train);
 	}
 
 	/**
@@ -87,26 +95,152 @@ public abstract class ThresholdUtils {
 	public static double[] calibrateThresholds(ArrayList<double[]> Y, double LC_train[]) { 
 
 		int L = LC_train.length;
+		int N = Y.size();
 		double t[] = new double[L];
 
-		ArrayList<double[]> Y_[] = new ArrayList[L];
 		for(int j = 0; j < L; j++) {
-			Y_[j] = new ArrayList<double[]>();
-		}
-
-		for(double y[] : Y) {
-			for(int j = 0; j < L; j++) {
-				Y_[j].add(new double[]{y[j]});
+			if (N <= 0) {
+				t[j] = 0.5;
+				continue;
 			}
+			double y_j[] = new double[N];
+			for(int i = 0; i < N; i++) {
+				y_j[i] = Y.get(i)[j];
+			}
+			t[j] = pcut(y_j,N,LC_train[j]);
 		}
 
+		return t;
+	}
+
+	/**
+	 * CalibrateThresholds - as #calibrateThresholds(ArrayList, double[]), for predictions Y given as an N x L matrix.
+	 */
+	public static double[] calibrateThresholds(double Y[][], double LC_train[]) {
+		return calibrateThresholds(new ArrayList<double[]>(Arrays.asList(Y)), LC_train);
+	}
+
+	/**
+	 * CalibrateThresholds - as #calibrateThresholds(ArrayList, double[]), for the predictions stored in Result r, one label per thread.
+	 * @param	r			the predictions
+	 * @param	LC_train	average frequency of each label
+	 * @param	numThreads	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public static double[] calibrateThresholds(final Result r, final double LC_train[], int numThreads) throws Exception {
+
+		int L = LC_train.length;
+		final int N = r.size();
+
+		List<Callable<Double>> jobs = new ArrayList<>(L);
 		for(int j = 0; j < L; j++) {
-			t[j] = calibrateThreshold(Y_[j],LC_train[j]);
+			final int k = j;
+			jobs.add(new Callable<Double>() {
+				public Double call() {
+					if (N <= 0)
+						return 0.5;
+					return pcut(r.store.getCol(k),N,LC_train[k]);
+				}
+			});
 		}
 
+		double t[] = new double[L];
+		int j = 0;
+		for(double t_j : ThreadUtils.executeAll(jobs, numThreads)) {
+			t[j++] = t_j;
+		}
 		return t;
 	}
 
+	/**
+	 * PCut - the threshold for confidences v (from N examples), such that the number of confidences above it best
+	 * approximates LC * N; found by selection rather than sorting (v is reordered in the process).
+	 */
+	private static double pcut(double v[], int N, double LC) {
+
+		int M = v.length;
+		int i = M - (int) Math.round(LC * (double) N);
+
+		if (N == M) { // special cases
+			if (i + 1 == N) { // only one!
+				double t[] = select(v, N - 2, N - 1);
+				return (t[0] + t[1]) / 2.0;
+			}
+			if (i + 1 >= N) // zero!
+				return 1.0;
+			else {
+				double t[] = select(v, i, i + 1);
+				return Math.max(((t[0] + t[1]) / 2.0), 0.00001);
+			}
+		}
+
+		// special cases for low LC
+		if (i == M || i + 1 == M) {
+			double t[] = select(v, M - 2, M - 1);
+			return Math.max((t[0] + t[1]) / 2.0, 0.00001);
+		}
+
+		double t[] = select(v, i, Math.max(i + 1, N - 1));
+		return Math.max((t[0] + t[1]) / 2.0, 0.00001);
+	}
+
+	/**
+	 * Select - the k1-th and k2-th smallest of v (k1 &lt; k2, in the order of Double#compare, as a sort would give them).
+	 * v is reordered in the process.
+	 */
+	private static double[] select(double v[], int k1, int k2) {
+		if (k1 < 0 || k2 >= v.length)
+			throw new IndexOutOfBoundsException("Index: " + (k1 < 0 ? k1 : k2) + ", Size: " + v.length);
+		nthElement(v, 0, v.length, k1);
+		// everything after k1 is now at least v[k1]
+		nthElement(v, k1 + 1, v.length, k2);
+		return new double[]{v[k1], v[k2]};
+	}
+
+	/**
+	 * NthElement - reorder v[from..to-1] so that v[k] is the value that would be there if it were sorted,
+	 * with no greater values before it, and no smaller ones after it (quickselect; falling back to sorting if it degenerates).
+	 */
+	private static void nthElement(double v[], int from, int to, int k) {
+		int lo = from, hi = to - 1;
+		int budget = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+		while (hi > lo) {
+			if (budget-- <= 0) {
+				Arrays.sort(v, lo, hi + 1);
+				return;
+			}
+			// median of three
+			int mid = (lo + hi) >>> 1;
+			if (Double.compare(v[mid], v[lo]) < 0)
+				swap(v, mid, lo);
+			if (Double.compare(v[hi], v[lo]) < 0)
+				swap(v, hi, lo);
+			if (Double.compare(v[hi], v[mid]) < 0)
+				swap(v, hi, mid);
+			double pivot = v[mid];
+			int a = lo, b = hi;
+			while (a <= b) {
+				while (Double.compare(v[a], pivot) < 0)
+					a++;
+				while (Double.compare(v[b], pivot) > 0)
+					b--;
+				if (a <= b)
+					swap(v, a++, b--);
+			}
+			if (k <= b)
+				hi = b;
+			else if (k >= a)
+				lo = a;
+			else
+				return;
+		}
+	}
+
+	private static void swap(double v[], int a, int b) {
+		double tmp = v[a];
+		v[a] = v[b];
+		v[b] = tmp;
+	}
+
 	/**
 	 * Threshold - returns the labels after the prediction-confidence vector is passed through a vector of thresholds.
 	 * @param	Rpred	label confidence predictions in [0,1]
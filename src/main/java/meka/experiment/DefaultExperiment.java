@@ -22,6 +22,8 @@ package meka.experiment;
 
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import meka.events.LogListener;
 import meka.events.LogObject;
 import meka.experiment.datasetproviders.DatasetProvider;
@@ -32,6 +34,8 @@ import meka.experiment.evaluationstatistics.IncrementalEvaluationStatisticsHandl
 import meka.experiment.evaluationstatistics.KeyValuePairs;
 import meka.experiment.evaluators.CrossValidation;
 import meka.experiment.evaluators.Evaluator;
+import meka.experiment.evaluators.EvaluatorJob;
+import meka.experiment.evaluators.SplittableEvaluator;
 import meka.experiment.events.*;
 import weka.classifiers.AbstractClassifier;
 import weka.core.Instances;
@@ -39,16 +43,25 @@ import weka.core.Option;
 import weka.core.Utils;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Default experiment which executes experiments on the local machine.
+ * <br>
+ * With more than one thread, the jobs of all combinations of dataset and classifier (e.g., the folds and runs of
+ * the evaluator, see SplittableEvaluator) are executed by a single work-stealing pool. Each dataset is loaded once
+ * and shared by its jobs, and only a limited number of datasets is kept in memory at a time. The statistics of a
+ * combination are passed on as soon as all its jobs have finished.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  * @version $Revision$
  */
 public class DefaultExperiment
 		extends LogObject
-		implements Experiment {
+		implements Experiment, ThreadLimiter {
 
 	private static final long serialVersionUID = 8654760249461885158L;
 
@@ -88,6 +101,18 @@ public class DefaultExperiment
 	/** the collected statistics. */
 	protected List<EvaluationStatistics> m_Statistics = new ArrayList<>();
 
+	/** the number of threads to use for executing the experiment. */
+	protected int m_NumThreads = getDefaultNumThreads();
+
+	/** the maximum number of datasets being evaluated at the same time. */
+	protected int m_MaxDatasets = getDefaultMaxDatasets();
+
+	/** the executor for parallel execution. */
+	protected transient ExecutorService m_Executor;
+
+	/** the finished tasks (parallel execution). */
+	protected transient BlockingQueue<Task> m_Finished;
+
 	/**
 	 * Sets the notes.
 	 *
@@ -142,6 +167,85 @@ public class DefaultExperiment
 		return "The classifiers to evaluate.";
 	}
 
+	/**
+	 * Returns the default number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	protected int getDefaultNumThreads() {
+		return ThreadUtils.SEQUENTIAL;
+	}
+
+	/**
+	 * Sets the number of threads to use.
+	 *
+	 * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public void setNumThreads(int value) {
+		if (value >= -1)
+			m_NumThreads = value;
+		else
+			log("Number of threads must be >= -1, provided: " + value);
+	}
+
+	/**
+	 * Returns the number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return 		tip text for this property suitable for
+	 * 			displaying in the GUI or for listing the options.
+	 */
+	public String numThreadsTipText() {
+		return "The number of threads to use for executing the jobs of all datasets and classifiers; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
+	/**
+	 * Returns the default maximum number of datasets evaluated at the same time.
+	 *
+	 * @return 		the default
+	 */
+	protected int getDefaultMaxDatasets() {
+		return 2;
+	}
+
+	/**
+	 * Sets the maximum number of datasets evaluated (and kept in memory) at the same time (parallel execution only).
+	 *
+	 * @param value 	the maximum, at least 1
+	 */
+	public void setMaxDatasets(int value) {
+		if (value >= 1)
+			m_MaxDatasets = value;
+		else
+			log("Maximum number of datasets must be >= 1, provided: " + value);
+	}
+
+	/**
+	 * Returns the maximum number of datasets evaluated (and kept in memory) at the same time (parallel execution only).
+	 *
+	 * @return 		the maximum
+	 */
+	public int getMaxDatasets() {
+		return m_MaxDatasets;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String maxDatasetsTipText() {
+		return "The maximum number of datasets evaluated (and kept in memory) at the same time, when using more than one thread.";
+	}
+
 	/**
 	 * Returns the default dataset provider.
 	 *
@@ -387,6 +491,8 @@ public class DefaultExperiment
 		OptionUtils.addOption(result, datasetProviderTipText(), getDefaultDatasetProvider().getClass().getName(), 'D');
 		OptionUtils.addOption(result, evaluatorTipText(), getDefaultEvaluator().getClass().getName(), 'E');
 		OptionUtils.addOption(result, statisticsHandlerTipText(), getDefaultStatisticsHandler().getClass().getName(), 'S');
+		OptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), "num-threads");
+		OptionUtils.addOption(result, maxDatasetsTipText(), "" + getDefaultMaxDatasets(), "max-datasets");
 		return OptionUtils.toEnumeration(result);
 	}
 
@@ -403,6 +509,8 @@ public class DefaultExperiment
 		setDatasetProvider((DatasetProvider) OptionUtils.parse(options, 'D', getDefaultDatasetProvider()));
 		setEvaluator((Evaluator) OptionUtils.parse(options, 'E', getDefaultEvaluator()));
 		setStatisticsHandler((EvaluationStatisticsHandler) OptionUtils.parse(options, 'S', getDefaultStatisticsHandler()));
+		setNumThreads(OptionUtils.parse(options, "num-threads", getDefaultNumThreads()));
+		setMaxDatasets(OptionUtils.parse(options, "max-datasets", getDefaultMaxDatasets()));
 	}
 
 	/**
@@ -418,6 +526,8 @@ public class DefaultExperiment
 		OptionUtils.add(result, 'D', getDatasetProvider());
 		OptionUtils.add(result, 'E', getEvaluator());
 		OptionUtils.add(result, 'S', getStatisticsHandler());
+		OptionUtils.add(result, "num-threads", getNumThreads());
+		OptionUtils.add(result, "max-datasets", getMaxDatasets());
 		return OptionUtils.toArray(result);
 	}
 
@@ -489,20 +599,60 @@ public class DefaultExperiment
 	 */
 	public String run() {
 		String                      result;
-		Instances                   dataset;
-		List<EvaluationStatistics>  stats;
 		boolean                     incremental;
+		int                         numThreads;
 
 		debug("pre: run");
 
-		result      = null;
 		m_Running   = true;
 		incremental = (m_StatisticsHandler instanceof IncrementalEvaluationStatisticsHandler) &&
 				(((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).supportsIncrementalUpdate());
 		debug("Incremental statistics? " + incremental);
+		numThreads  = ThreadUtils.getActualNumThreads(m_NumThreads, ThreadUtils.getAvailableProcessors());
+		debug("Number of threads (" + ThreadUtils.SEQUENTIAL + " = sequential): " + numThreads);
 
 		notifyExecutionStageListeners(ExecutionStageEvent.Stage.RUNNING);
 
+		if (numThreads == ThreadUtils.SEQUENTIAL)
+			result = runSequential(incremental);
+		else
+			result = runParallel(incremental, numThreads);
+
+		if (m_Running && !m_Stopping) {
+			if (!incremental)
+				m_StatisticsHandler.write(m_Statistics);
+		}
+		if (!m_Running) {
+			if (result == null)
+				result = "Experiment interrupted!";
+			else
+				result = "Experiment interrupted: " + result;
+		}
+
+		if (result != null)
+			log(result);
+
+		m_Running  = false;
+		m_Stopping = false;
+
+		debug("post: run");
+
+		return result;
+	}
+
+	/**
+	 * Evaluates the datasets and classifiers one after the other.
+	 *
+	 * @param incremental   whether the statistics handler is updated incrementally
+	 * @return              null if successfully run, otherwise error message
+	 */
+	protected String runSequential(boolean incremental) {
+		String                      result;
+		Instances                   dataset;
+		List<EvaluationStatistics>  stats;
+
+		result = null;
+
 		while (m_DatasetProvider.hasNext()) {
 			// next dataset
 			debug("pre: next-dataset");
@@ -578,29 +728,189 @@ public class DefaultExperiment
 				break;
 		}
 
+		return result;
+	}
 
-		if (m_Running && !m_Stopping) {
-			if (!incremental)
-				m_StatisticsHandler.write(m_Statistics);
+	/**
+	 * Evaluates the datasets and classifiers by executing the jobs of all their combinations with a single
+	 * work-stealing pool. At most #getMaxDatasets() datasets are evaluated at the same time. The statistics
+	 * of a combination are handled as soon as all its jobs have finished; at the end, the collected statistics
+	 * are in the same order as with sequential execution.
+	 *
+	 * @param incremental   whether the statistics handler is updated incrementally
+	 * @param numThreads    the number of threads to use
+	 * @return              null if successfully run, otherwise error message
+	 */
+	protected String runParallel(boolean incremental, int numThreads) {
+		String                      result;
+		Instances                   dataset;
+		List<Cell>                  cells;
+		Cell                        cell;
+		List<EvaluatorJob>          jobs;
+		Map<Instances,Integer>      open;
+		int                         pending;
+		int                         i;
+		Task                        task;
+
+		result = handleError(m_Evaluator, m_Evaluator.initialize());
+		if (result != null) {
+			m_Running = false;
+			return result;
 		}
-		if (!m_Running) {
-			if (result == null)
-				result = "Experiment interrupted!";
-			else
-				result = "Experiment interrupted: " + result;
+
+		cells      = new ArrayList<>();
+		open       = new IdentityHashMap<>();
+		pending    = 0;
+		m_Finished = new LinkedBlockingQueue<>();
+		m_Executor = new ForkJoinPool(numThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+
+		try {
+			while (m_Running && !m_Stopping) {
+				// submit the jobs of the next dataset(s)
+				while ((open.size() < m_MaxDatasets) && m_DatasetProvider.hasNext()) {
+					debug("pre: next-dataset");
+					dataset = m_DatasetProvider.next();
+					debug("post: next-dataset");
+					if (dataset == null) {
+						result = "Failed to obtain next dataset!";
+						log(result);
+						m_Running = false;
+						break;
+					}
+					log("Using dataset: " + dataset.relationName());
+
+					for (MultiLabelClassifier classifier: m_Classifiers) {
+						// evaluation required?
+						if (incremental) {
+							if (!((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).requires(classifier, dataset)) {
+								log("Already present, skipping: " + Utils.toCommandLine(classifier) + " --> " + dataset.relationName());
+								cell = new Cell(dataset, 0);
+								cell.add(((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).retrieve(classifier, dataset));
+								cells.add(cell);
+								m_Statistics.addAll(cell.getStatistics());
+								notifyStatisticsNotificationListeners(cell.getStatistics());
+								continue;
+							}
+						}
+
+						try {
+							classifier = (MultiLabelClassifier) AbstractClassifier.makeCopy(classifier);
+						}
+						catch (Exception e) {
+							result = handleException("Failed to create copy of classifier: " + classifier.getClass().getName(), e);
+							log(result);
+							m_Running = false;
+							break;
+						}
+
+						// notify listeners
+						notifyIterationNotificationListeners(classifier, dataset);
+						log("Using classifier: " + OptionUtils.toCommandLine(classifier));
+
+						jobs = createJobs(classifier, dataset);
+						cell = new Cell(dataset, jobs.size());
+						cells.add(cell);
+						if (jobs.isEmpty()) {
+							handleStatistics(cell, incremental);
+							continue;
+						}
+						open.put(dataset, open.containsKey(dataset) ? open.get(dataset) + 1 : 1);
+						for (i = 0; i < jobs.size(); i++) {
+							m_Executor.execute(new Task(cell, i, jobs.get(i), m_Finished));
+							pending++;
+						}
+					}
+					if (!m_Running || m_Stopping)
+						break;
+				}
+				if (!m_Running || m_Stopping || (pending == 0))
+					break;
+
+				// wait for the next job to finish
+				try {
+					task = m_Finished.take();
+				}
+				catch (InterruptedException e) {
+					break;
+				}
+				if (task.getCell() == null)
+					break;
+				pending--;
+				if (task.getError() != null) {
+					result = handleException("Failed to evaluate dataset '" + task.getCell().getDataset().relationName() + "'", task.getError());
+					log(result);
+					m_Running = false;
+					break;
+				}
+				// (the cell lets go of the dataset once finished)
+				dataset = task.getCell().getDataset();
+				if (task.getCell().finished(task.getIndex(), task.getStatistics())) {
+					handleStatistics(task.getCell(), incremental);
+					if (open.get(dataset) == 1)
+						open.remove(dataset);
+					else
+						open.put(dataset, open.get(dataset) - 1);
+				}
+			}
+		}
+		finally {
+			m_Executor.shutdownNow();
+			m_Executor = null;
+			m_Finished = null;
 		}
 
-		if (result != null)
-			log(result);
+		// same order as sequential execution
+		if (m_Running && !m_Stopping) {
+			m_Statistics.clear();
+			for (Cell c: cells)
+				m_Statistics.addAll(c.getStatistics());
+		}
 
-		m_Running  = false;
-		m_Stopping = false;
+		return result;
+	}
 
-		debug("post: run");
+	/**
+	 * Creates the jobs for evaluating the classifier on the dataset. If the evaluator is not splittable,
+	 * a single job evaluates with a copy of the evaluator.
+	 *
+	 * @param classifier    the classifier to evaluate
+	 * @param dataset       the dataset to evaluate on
+	 * @return              the jobs
+	 */
+	protected List<EvaluatorJob> createJobs(final MultiLabelClassifier classifier, final Instances dataset) {
+		List<EvaluatorJob>      result;
+		final Evaluator         evaluator;
+
+		if (m_Evaluator instanceof SplittableEvaluator)
+			return ((SplittableEvaluator) m_Evaluator).createJobs(classifier, dataset);
+
+		evaluator = (Evaluator) OptionUtils.shallowCopy(m_Evaluator);
+		for (LogListener l: getLogListeners())
+			evaluator.addLogListener(l);
+		evaluator.initialize();
+		result = new ArrayList<>();
+		result.add(new EvaluatorJob() {
+			protected List<EvaluationStatistics> doCall() throws Exception {
+				return evaluator.evaluate(classifier, dataset);
+			}
+		});
 
 		return result;
 	}
 
+	/**
+	 * Adds the statistics of a finished combination of dataset and classifier, and passes them on.
+	 *
+	 * @param cell          the finished combination
+	 * @param incremental   whether the statistics handler is updated incrementally
+	 */
+	protected void handleStatistics(Cell cell, boolean incremental) {
+		m_Statistics.addAll(cell.getStatistics());
+		if (incremental)
+			((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).append(cell.getStatistics());
+		notifyStatisticsNotificationListeners(cell.getStatistics());
+	}
+
 	/**
 	 * Returns whether the experiment is running.
 	 *
@@ -624,6 +934,13 @@ public class DefaultExperiment
 
 		m_Evaluator.stop();
 
+		ExecutorService executor = m_Executor;
+		BlockingQueue<Task> finished = m_Finished;
+		if (executor != null)
+			executor.shutdownNow();
+		if (finished != null)
+			finished.add(new Task(null, -1, null, null));
+
 		debug("post: stop");
 	}
 
@@ -678,4 +995,176 @@ public class DefaultExperiment
 	public List<EvaluationStatistics> getStatistics() {
 		return m_Statistics;
 	}
+
+	/**
+	 * The jobs of one combination of dataset and classifier (parallel execution).
+	 */
+	protected static class Cell {
+
+		/** the dataset (only while jobs are pending, so that it can be freed once they have finished). */
+		protected Instances m_Dataset;
+
+		/** the statistics of each job. */
+		protected List<List<EvaluationStatistics>> m_Statistics;
+
+		/** the number of jobs that have not finished yet. */
+		protected int m_Remaining;
+
+		/** the statistics, once all jobs have finished. */
+		protected List<EvaluationStatistics> m_All;
+
+		/**
+		 * Initializes the combination.
+		 *
+		 * @param dataset   the dataset
+		 * @param numJobs   the number of jobs
+		 */
+		public Cell(Instances dataset, int numJobs) {
+			m_Dataset    = (numJobs > 0) ? dataset : null;
+			m_Statistics = new ArrayList<>(Collections.<List<EvaluationStatistics>>nCopies(numJobs, null));
+			m_Remaining  = numJobs;
+			m_All        = new ArrayList<>();
+		}
+
+		/**
+		 * Returns the dataset.
+		 *
+		 * @return          the dataset, null once all jobs have finished
+		 */
+		public Instances getDataset() {
+			return m_Dataset;
+		}
+
+		/**
+		 * Adds statistics directly.
+		 *
+		 * @param stats     the statistics, ignored if null
+		 */
+		public void add(List<EvaluationStatistics> stats) {
+			if (stats != null)
+				m_All.addAll(stats);
+		}
+
+		/**
+		 * Records the statistics of a finished job.
+		 *
+		 * @param index     the index of the job
+		 * @param stats     the statistics of the job, can be null
+		 * @return          true if all jobs have finished now
+		 */
+		public boolean finished(int index, List<EvaluationStatistics> stats) {
+			m_Statistics.set(index, stats);
+			m_Remaining--;
+			if (m_Remaining > 0)
+				return false;
+			// in the order of the jobs
+			for (List<EvaluationStatistics> s: m_Statistics)
+				add(s);
+			m_Statistics = null;
+			m_Dataset    = null;
+			return true;
+		}
+
+		/**
+		 * Returns the statistics (of all jobs, once finished).
+		 *
+		 * @return          the statistics
+		 */
+		public List<EvaluationStatistics> getStatistics() {
+			return m_All;
+		}
+	}
+
+	/**
+	 * Executes a job and reports back once finished (parallel execution).
+	 */
+	protected static class Task
+		implements Runnable {
+
+		/** the combination the job belongs to (null to signal a stop). */
+		protected Cell m_Cell;
+
+		/** the index of the job. */
+		protected int m_Index;
+
+		/** the job. */
+		protected EvaluatorJob m_Job;
+
+		/** the queue of finished tasks. */
+		protected BlockingQueue<Task> m_Finished;
+
+		/** the statistics generated by the job. */
+		protected List<EvaluationStatistics> m_Statistics;
+
+		/** the error, if the job failed. */
+		protected Throwable m_Error;
+
+		/**
+		 * Initializes the task.
+		 *
+		 * @param cell      the combination the job belongs to
+		 * @param index     the index of the job
+		 * @param job       the job
+		 * @param finished  the queue of finished tasks
+		 */
+		public Task(Cell cell, int index, EvaluatorJob job, BlockingQueue<Task> finished) {
+			m_Cell     = cell;
+			m_Index    = index;
+			m_Job      = job;
+			m_Finished = finished;
+		}
+
+		/**
+		 * Executes the job and adds the task to the queue of finished tasks.
+		 */
+		@Override
+		public void run() {
+			try {
+				m_Statistics = m_Job.call();
+			}
+			catch (Throwable t) {
+				m_Error = t;
+			}
+			finally {
+				m_Job = null;
+				m_Finished.add(this);
+			}
+		}
+
+		/**
+		 * Returns the combination the job belongs to.
+		 *
+		 * @return          the combination, null if the task signals a stop
+		 */
+		public Cell getCell() {
+			return m_Cell;
+		}
+
+		/**
+		 * Returns the index of the job.
+		 *
+		 * @return          the index
+		 */
+		public int getIndex() {
+			return m_Index;
+		}
+
+		/**
+		 * Returns the statistics generated by the job.
+		 *
+		 * @return          the statistics, can be null
+		 */
+		public List<EvaluationStatistics> getStatistics() {
+			return m_Statistics;
+		}
+
+		/**
+		 * Returns the error, if the job failed.
+		 *
+		 * @return          the error, null if successful
+		 */
+		public Throwable getError() {
+			return m_Error;
+		}
+	}
 }
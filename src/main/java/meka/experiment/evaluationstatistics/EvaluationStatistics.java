@@ -90,9 +90,10 @@ public class EvaluationStatistics
 				if (result.vals.get(key) instanceof Number)
 					put(key, (Number) result.vals.get(key));
 			}
+			// (read from the output directly, so that Lazy measurements, e.g., curve data, are not computed)
 			for (String key : result.availableMetrics()) {
-				if (result.getMeasurement(key) instanceof Number)
-					put(key, (Number) result.getMeasurement(key));
+				if (result.output.get(key) instanceof Number)
+					put(key, (Number) result.output.get(key));
 			}
 		}
 	}
@@ -22,6 +22,7 @@ package meka.experiment.evaluators;
 
 import meka.classifiers.multilabel.Evaluation;
 import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.Folds;
 import meka.core.OptionUtils;
 import meka.core.Result;
 import meka.core.ThreadLimiter;
@@ -36,14 +37,15 @@ import java.util.*;
 import java.util.concurrent.*;
 
 /**
- * Evaluates the classifier using cross-validation. Order can be preserved.
+ * Evaluates the classifier using cross-validation. Order can be preserved, and folds can be stratified.
+ * The folds are kept as indices into the dataset, and each fold's train/test sets are only built when it is evaluated.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  * @version $Revision$
  */
 public class CrossValidation
   extends AbstractEvaluator
-  implements Randomizable, ThreadLimiter {
+  implements Randomizable, ThreadLimiter, SplittableEvaluator {
 
 	private static final long serialVersionUID = 6318297857792961890L;
 
@@ -56,6 +58,9 @@ public class CrossValidation
 	/** whether to preserve the order. */
 	protected boolean m_PreserveOrder = false;
 
+	/** whether to stratify the folds. */
+	protected boolean m_Stratify = false;
+
 	/** the seed value. */
 	protected int m_Seed = getDefaultSeed();
 
@@ -80,7 +85,7 @@ public class CrossValidation
 	 * @return      the description
 	 */
 	public String globalInfo() {
-		return "Evaluates the classifier using cross-validation. Order can be preserved.";
+		return "Evaluates the classifier using cross-validation. Order can be preserved, and folds can be stratified (iterative stratification).";
 	}
 
 	/**
@@ -149,6 +154,33 @@ public class CrossValidation
 		return "If enabled, no randomization is occurring and the order in the data is preserved.";
 	}
 
+	/**
+	 * Sets whether to assign the instances to the folds by iterative stratification.
+	 *
+	 * @param value true if to stratify
+	 */
+	public void setStratify(boolean value) {
+		m_Stratify = value;
+	}
+
+	/**
+	 * Returns whether to assign the instances to the folds by iterative stratification.
+	 *
+	 * @return true if to stratify
+	 */
+	public boolean getStratify() {
+		return m_Stratify;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String stratifyTipText() {
+		return "If enabled, the instances are assigned to the folds by iterative stratification, so that each fold has about the same proportion of each label.";
+	}
+
 	/**
 	 * Gets the default seed for the random number generations
 	 *
@@ -312,6 +344,7 @@ public class CrossValidation
 		OptionUtils.add(result, super.listOptions());
 		OptionUtils.addOption(result, numFoldsTipText(), "" + getDefaultNumFolds(), 'F');
 		OptionUtils.addFlag(result, preserveOrderTipText(), 'O');
+		OptionUtils.addFlag(result, stratifyTipText(), "stratify");
 		OptionUtils.addOption(result, seedTipText(), "" + getDefaultSeed(), 'S');
 		OptionUtils.addOption(result, thresholdTipText(), "" + getDefaultThreshold(), 'T');
 		OptionUtils.addOption(result, verbosityTipText(), "" + getDefaultVerbosity(), 'V');
@@ -329,6 +362,7 @@ public class CrossValidation
 	public void setOptions(String[] options) throws Exception {
 		setNumFolds(OptionUtils.parse(options, 'F', getDefaultNumFolds()));
 		setPreserveOrder(Utils.getFlag('O', options));
+		setStratify(Utils.getFlag("stratify", options));
 		setSeed(OptionUtils.parse(options, 'S', getDefaultSeed()));
 		setThreshold(OptionUtils.parse(options, 'T', getDefaultThreshold()));
 		setVerbosity(OptionUtils.parse(options, 'V', getDefaultVerbosity()));
@@ -347,6 +381,7 @@ public class CrossValidation
 		OptionUtils.add(result, super.getOptions());
 		OptionUtils.add(result, 'F', getNumFolds());
 		OptionUtils.add(result, 'O', getPreserveOrder());
+		OptionUtils.add(result, "stratify", getStratify());
 		OptionUtils.add(result, 'S', getSeed());
 		OptionUtils.add(result, 'T', getThreshold());
 		OptionUtils.add(result, 'V', getVerbosity());
@@ -354,6 +389,20 @@ public class CrossValidation
 		return OptionUtils.toArray(result);
 	}
 
+	/**
+	 * Assigns the instances of the dataset to the folds.
+	 *
+	 * @param dataset       the dataset to evaluate on
+	 * @param rand          the random number generator
+	 * @return              the folds
+	 */
+	protected Folds createFolds(Instances dataset, Random rand) {
+		if (m_Stratify)
+			return Folds.stratified(dataset, m_NumFolds, m_PreserveOrder ? null : rand);
+		else
+			return new Folds(dataset.numInstances(), m_NumFolds, m_PreserveOrder ? null : rand);
+	}
+
 	/**
 	 * Returns the evaluation statistics generated for the dataset (sequential execution).
 	 *
@@ -370,24 +419,22 @@ public class CrossValidation
 		int                         i;
 		Random                      rand;
 		MultiLabelClassifier        current;
-		Instances                   data;
+		Folds                       folds;
 
 		result = new ArrayList<>();
 		rand   = new Random(m_Seed);
-		data   = new Instances(dataset);
-		if (!m_PreserveOrder)
-			data.randomize(rand);
+		folds  = createFolds(dataset, rand);
 		for (i = 1; i <= m_NumFolds; i++) {
 			log("Fold: " + i);
 			if (m_PreserveOrder)
-				train = data.trainCV(m_NumFolds, i - 1);
+				train = folds.train(dataset, i - 1);
 			else
-				train = data.trainCV(m_NumFolds, i - 1, rand);
-			test = data.testCV(m_NumFolds, i - 1);
+				train = folds.train(dataset, i - 1, rand);
+			test = folds.test(dataset, i - 1);
 			try {
 				current = (MultiLabelClassifier) OptionUtils.shallowCopy(classifier);
 				res = Evaluation.evaluateModel(current, train, test, m_Threshold, m_Verbosity);
-				stats = new EvaluationStatistics(classifier, data, res);
+				stats = new EvaluationStatistics(classifier, dataset, res);
 				stats.put(KEY_FOLD, i);
 				result.add(stats);
 			}
@@ -408,45 +455,39 @@ public class CrossValidation
 	}
 
 	/**
-	 * Returns the evaluation statistics generated for the dataset (parallel execution).
+	 * Creates one job per fold. The folds (and the random numbers) are drawn here, in fold order,
+	 * but each job only builds its train/test sets when it is executed.
 	 *
 	 * @param classifier    the classifier to evaluate
 	 * @param dataset       the dataset to evaluate on
-	 * @return              the statistics
+	 * @return              the jobs
 	 */
-	protected List<EvaluationStatistics> evaluateParallel(final MultiLabelClassifier classifier, final Instances dataset) {
-		List<EvaluationStatistics>      result;
-		ArrayList<EvaluatorJob>	        jobs;
-		EvaluatorJob		            job;
-		int                             i;
-		Random                          rand;
-		Instances                       data;
+	public List<EvaluatorJob> createJobs(final MultiLabelClassifier classifier, final Instances dataset) {
+		List<EvaluatorJob>      result;
+		int                     i;
+		Random                  rand;
+		Folds                   folds;
 
 		result = new ArrayList<>();
-
-		debug("pre: create jobs");
-		jobs = new ArrayList<>();
-		rand = new Random(m_Seed);
-		data = new Instances(dataset);
-		if (!m_PreserveOrder)
-			data.randomize(rand);
+		rand   = new Random(m_Seed);
+		folds  = createFolds(dataset, rand);
 		for (i = 1; i <= m_NumFolds; i++) {
 			final int index = i;
-			final Instances train;
-			final Instances test;
+			final int[] train;
+			final int[] test;
 			final MultiLabelClassifier current;
 			if (m_PreserveOrder)
-				train = data.trainCV(m_NumFolds, index - 1);
+				train = folds.getTrain(index - 1);
 			else
-				train = data.trainCV(m_NumFolds, index - 1, rand);
-			test = data.testCV(m_NumFolds, index - 1);
+				train = folds.getTrain(index - 1, rand);
+			test = folds.getTest(index - 1);
 			current = (MultiLabelClassifier) OptionUtils.shallowCopy(classifier);
-			job = new EvaluatorJob() {
+			result.add(new EvaluatorJob() {
 				protected List<EvaluationStatistics> doCall() throws Exception {
 					List<EvaluationStatistics> result = new ArrayList<>();
 					log("Executing fold #" + index + "...");
 					try {
-						Result res = Evaluation.evaluateModel(current, train, test, m_Threshold, m_Verbosity);
+						Result res = Evaluation.evaluateModel(current, Folds.subset(dataset, train), Folds.subset(dataset, test), m_Threshold, m_Verbosity);
 						EvaluationStatistics stats = new EvaluationStatistics(classifier, dataset, res);
 						stats.put(KEY_FOLD, index);
 						result.add(stats);
@@ -458,44 +499,44 @@ public class CrossValidation
 					log("...finished fold #" + index);
 					return result;
 				}
-			};
-			jobs.add(job);
+			});
 		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the evaluation statistics generated for the dataset (parallel execution).
+	 *
+	 * @param classifier    the classifier to evaluate
+	 * @param dataset       the dataset to evaluate on
+	 * @return              the statistics
+	 */
+	protected List<EvaluationStatistics> evaluateParallel(final MultiLabelClassifier classifier, final Instances dataset) {
+		List<EvaluationStatistics>      result;
+		List<EvaluatorJob>              jobs;
+		int                             i;
+
+		result = new ArrayList<>();
+
+		debug("pre: create jobs");
+		jobs = createJobs(classifier, dataset);
 		debug("post: create jobs");
 
-		// execute jobs
+		// execute jobs (and wait for them to finish)
 		m_Executor = Executors.newFixedThreadPool(m_ActualNumThreads);
-		debug("pre: submit");
+		debug("pre: execute");
 		try {
-			for (i = 0; i < jobs.size(); i++)
-				m_Executor.submit(jobs.get(i));
-		}
-		catch (RejectedExecutionException e) {
-			// ignored
+			ThreadUtils.executeAll(jobs, m_Executor);
 		}
 		catch (Exception e) {
-			handleException("Failed to start up jobs", e);
+			if (!m_Stopped)
+				handleException("Failed to execute jobs", e);
 		}
-		debug("post: submit");
-
-		debug("pre: shutdown");
-		m_Executor.shutdown();
-		debug("post: shutdown");
-
-		// wait for threads to finish
-		debug("pre: wait");
-		while (!m_Executor.isTerminated()) {
-			try {
-				m_Executor.awaitTermination(100, TimeUnit.MILLISECONDS);
-			}
-			catch (InterruptedException e) {
-				// ignored
-			}
-			catch (Exception e) {
-				handleException("Failed to await termination", e);
-			}
+		finally {
+			m_Executor.shutdownNow();
 		}
-		debug("post: wait");
+		debug("post: execute");
 
 		// collect results
 		debug("pre: collect");
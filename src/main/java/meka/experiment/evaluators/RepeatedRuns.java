@@ -36,8 +36,6 @@ import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Repeatedly executes the base evaluator.
@@ -47,7 +45,7 @@ import java.util.concurrent.TimeUnit;
  */
 public class RepeatedRuns
 		extends AbstractMetaEvaluator
-		implements ThreadLimiter {
+		implements ThreadLimiter, SplittableEvaluator {
 
 	private static final long serialVersionUID = -1230107553603089463L;
 
@@ -282,7 +280,47 @@ public class RepeatedRuns
 	}
 
 	/**
-	 * Executes the runs in sequential order.
+	 * Creates the jobs for all runs, each run using its own copy of the base evaluator.
+	 * If the base evaluator is splittable, its jobs (e.g., the folds) are used, otherwise there is one job per run.
+	 *
+	 * @param classifier    the classifier to evaluate
+	 * @param dataset       the dataset to evaluate on
+	 * @return              the jobs
+	 */
+	public List<EvaluatorJob> createJobs(final MultiLabelClassifier classifier, final Instances dataset) {
+		List<EvaluatorJob>      result;
+		int                     i;
+
+		result = new ArrayList<>();
+		for (i = m_LowerRuns; i <= m_UpperRuns; i++) {
+			final int index = i;
+			final Evaluator evaluator = (Evaluator) OptionUtils.shallowCopy(m_Evaluator);
+			for (LogListener l: getLogListeners())
+				evaluator.addLogListener(l);
+			if (evaluator instanceof Randomizable)
+				((Randomizable) evaluator).setSeed(index);
+			evaluator.initialize();
+			if (evaluator instanceof SplittableEvaluator) {
+				for (EvaluatorJob job: ((SplittableEvaluator) evaluator).createJobs(classifier, dataset))
+					result.add(new RunJob(job, index));
+			}
+			else {
+				result.add(new RunJob(new EvaluatorJob() {
+					protected List<EvaluationStatistics> doCall() throws Exception {
+						log("Executing run #" + index + "...");
+						List<EvaluationStatistics> stats = evaluator.evaluate(classifier, dataset);
+						log("...finished run #" + index + ((stats == null) ? " with error" : ""));
+						return stats;
+					}
+				}, index));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Executes the runs in parallel.
 	 *
 	 * @param classifier    the classifier to evaluate
 	 * @param dataset       the dataset to evaluate on
@@ -290,69 +328,29 @@ public class RepeatedRuns
 	 */
 	protected List<EvaluationStatistics> evaluateParallel(final MultiLabelClassifier classifier, final Instances dataset) {
 		List<EvaluationStatistics>      result;
-		ArrayList<EvaluatorJob>	        jobs;
-		EvaluatorJob		            job;
+		List<EvaluatorJob>              jobs;
 		int                             i;
 
 		result = new ArrayList<>();
 
 		debug("pre: create jobs");
-		jobs = new ArrayList<>();
-		for (i = m_LowerRuns; i <= m_UpperRuns; i++) {
-			final int index = i;
-			job = new EvaluatorJob() {
-				protected List<EvaluationStatistics> doCall() throws Exception {
-					log("Executing run #" + index + "...");
-					Evaluator evaluator = (Evaluator) OptionUtils.shallowCopy(m_Evaluator);
-					for (LogListener l: m_LogListeners)
-						evaluator.addLogListener(l);
-					if (evaluator instanceof Randomizable)
-						((Randomizable) evaluator).setSeed(index);
-					evaluator.initialize();
-					List<EvaluationStatistics> stats = m_Evaluator.evaluate(classifier, dataset);
-					for (LogListener l: m_LogListeners)
-						evaluator.removeLogListener(l);
-					log("...finished run #" + index + ((stats == null) ? "" : " with error"));
-					return stats;
-				}
-			};
-			jobs.add(job);
-		}
+		jobs = createJobs(classifier, dataset);
 		debug("post: create jobs");
 
-		// execute jobs
+		// execute jobs (and wait for them to finish)
 		m_Executor = Executors.newFixedThreadPool(m_ActualNumThreads);
-		debug("pre: submit");
+		debug("pre: execute");
 		try {
-			for (i = 0; i < jobs.size(); i++)
-				m_Executor.submit(jobs.get(i));
-		}
-		catch (RejectedExecutionException e) {
-			// ignored
+			ThreadUtils.executeAll(jobs, m_Executor);
 		}
 		catch (Exception e) {
-			handleException("Failed to start up jobs", e);
+			if (!m_Stopped)
+				handleException("Failed to execute jobs", e);
 		}
-		debug("post: submit");
-
-		debug("pre: shutdown");
-		m_Executor.shutdown();
-		debug("post: shutdown");
-
-		// wait for threads to finish
-		debug("pre: wait");
-		while (!m_Executor.isTerminated()) {
-			try {
-				m_Executor.awaitTermination(100, TimeUnit.MILLISECONDS);
-			}
-			catch (InterruptedException e) {
-				// ignored
-			}
-			catch (Exception e) {
-				handleException("Failed to await termination", e);
-			}
+		finally {
+			m_Executor.shutdownNow();
 		}
-		debug("post: wait");
+		debug("post: execute");
 
 		// collect results
 		debug("pre: collect");
@@ -400,4 +398,47 @@ public class RepeatedRuns
 		}
 		super.stop();
 	}
+
+	/**
+	 * Job that adds the run number to the statistics of a job of the base evaluator.
+	 */
+	protected static class RunJob
+		extends EvaluatorJob {
+
+		/** the job of the base evaluator. */
+		protected EvaluatorJob m_Job;
+
+		/** the run. */
+		protected int m_Run;
+
+		/**
+		 * Initializes the job.
+		 *
+		 * @param job       the job of the base evaluator
+		 * @param run       the run
+		 */
+		public RunJob(EvaluatorJob job, int run) {
+			m_Job = job;
+			m_Run = run;
+		}
+
+		/**
+		 * Executes the job of the base evaluator and adds the run number.
+		 *
+		 * @return              the generated results
+		 * @throws Exception    if evaluation fails
+		 */
+		@Override
+		protected List<EvaluationStatistics> doCall() throws Exception {
+			List<EvaluationStatistics> result = new ArrayList<>();
+			List<EvaluationStatistics> stats = m_Job.call();
+			if (stats != null) {
+				for (EvaluationStatistics stat: stats) {
+					stat.put(KEY_RUN, m_Run);
+					result.add(stat);
+				}
+			}
+			return result;
+		}
+	}
 }
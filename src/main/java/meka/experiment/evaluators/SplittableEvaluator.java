@@ -0,0 +1,47 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SplittableEvaluator.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluators;
+
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import weka.core.Instances;
+
+import java.util.List;
+
+/**
+ * Interface for evaluators whose evaluation consists of independent jobs (e.g., folds or runs),
+ * which can then be scheduled by the caller (e.g., together with the jobs of other classifiers and datasets).
+ *
+ * @version October 2026
+ */
+public interface SplittableEvaluator
+  extends Evaluator {
+
+	/**
+	 * Creates the jobs that make up the evaluation of the classifier on the dataset.
+	 * The jobs can be executed in any order and concurrently (they only read the classifier and the dataset);
+	 * their results, concatenated in the order of the jobs, are the statistics that #evaluate would return.
+	 *
+	 * @param classifier    the classifier to evaluate
+	 * @param dataset       the dataset to evaluate on
+	 * @return              the jobs
+	 */
+	public List<EvaluatorJob> createJobs(MultiLabelClassifier classifier, Instances dataset);
+}
@@ -165,7 +165,7 @@ public class DBM extends RBM {
 
 	@Override
 	public double train(double X_[][]) throws Exception {
-		return train(X_,0);
+		return train(X_,m_BatchSize);
 	}
 
 	@Override
@@ -178,6 +178,9 @@ public class DBM extends RBM {
 		for(int i = 0; i < N; i++) {
 			rbm[i] = new RBM(this.getOptions()); // same options as this instantiation
 			rbm[i].setH(h[i]);					 // but different number of hidden units
+			rbm[i].setExecutor(m_Executor);
+			rbm[i].setShuffle(m_Shuffle);
+			rbm[i].setPersistent(m_Persistent);
 			if (batchSize == 0)
 				rbm[i].train(X_); 					 
 			else
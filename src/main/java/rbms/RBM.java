@@ -16,10 +16,13 @@
 package rbms;
 
 import Jama.Matrix;
+import meka.core.A;
+import meka.core.DenseMatrix;
 import meka.core.MatrixUtils;
 import weka.core.*;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * RBM.java - Restricted Boltzmann Machine.
@@ -33,6 +36,7 @@ import java.util.*;
  * RBM rbm = new RBM();
  * rbm.setOptions("-E 100 -H 10 -r 0.1 -m 0.8"); // to build 10 hidden units, over 100 epochs, with learning rate 0.1, momentum 0.8
  * rbm.train(X,10);                              // train in batches of 10
+ * rbm.setShuffle(true);                         // ... (or in batches drawn afresh at each epoch)
  * Z = rbm.getZ(X);                              // get output
  * ============== UPDATING (one epoch) =========
  * rbm.update(xnew);
@@ -40,6 +44,10 @@ import java.util.*;
  * z = rbm.getz(xnew);
  * </verbatim>
  * Note: should be binary for hidden states, can be probabilities for visible states.
+ * <br>
+ * Training works on flat copies of the weights and on buffers for each phase of CD, which are reused from batch to batch;
+ * with persistent CD (PCD), the negative phase continues the same Gibbs chains from one update to the next, rather than
+ * starting from the data of the batch.
  *
  * @author Jesse Read (jesse@tsc.uc3m.es)
  * @version April 2013
@@ -52,13 +60,25 @@ public class RBM {
 	protected int m_E = 1000;
 	protected int m_H = 10;
 	private boolean m_V = false;						// cut out of var(10) < 0.0001
-	private int batch_size = 0; 						// @todo implement this option (with CLI option)
+	protected int m_BatchSize = 0; 						// the batch size for train(X), 0 for a single batch of all instances
+	protected boolean m_Shuffle = false;				// draw the batches afresh (in a random order) at each epoch
+	protected boolean m_Persistent = false;				// persistent CD: keep the negative chains running between updates
 
 	protected Matrix W = null;							// the weight matrix
 	protected Matrix dW_ = null;						// used for momentum
 
 	protected Random m_R = new Random(0);		 			// for random init. of matrices and sampling 
 
+	protected transient ExecutorService m_Executor = null;	// for computing the matrix products in parallel (if not null)
+
+	protected transient DenseMatrix m_Wd = null;		// flat copies of W and dW_, while training
+	protected transient DenseMatrix m_dWd = null;
+	protected transient DenseMatrix m_Pos = null;		// the positive and negative energies of a batch
+	protected transient DenseMatrix m_Neg = null;
+	protected transient Phase m_Batch = null;			// buffers for a full batch, the last (smaller) batch of an epoch, and the persistent chains
+	protected transient Phase m_LastBatch = null;
+	protected transient Phase m_Chains = null;
+
 	/**
 	 * RBM - Create an RBM with default options.
 	 */
@@ -115,9 +135,8 @@ public class RBM {
 	 * @return	z (without bias)
 	 */
 	public double[] prob_z(double x_[]) {
-		Matrix x = new Matrix(MatrixUtils.addBias(x_),1);
-		double z[] = MatrixUtils.sigma(x.times(W).getArray()[0]);
-		return MatrixUtils.removeBias(z);
+		double z[] = MatrixUtils.multiply(new double[][]{MatrixUtils.addBias(x_)}, W.getArray(), m_Executor)[0];
+		return MatrixUtils.removeBias(MatrixUtils.sigma(z));
 	}
 
 	/**
@@ -138,7 +157,7 @@ public class RBM {
 	 * @return	P(Z|X) 
 	 */
 	public Matrix prob_Z(Matrix X) {
-		Matrix P_Z = MatrixUtils.sigma( X.times(W) );     // (this is the activation function)
+		Matrix P_Z = new Matrix(MatrixUtils.sigmaEquals(MatrixUtils.multiply(X.getArray(), W.getArray(), m_Executor)));     // (this is the activation function)
 		MatrixUtils.fillCol(P_Z.getArray(), 0, 1.0); 	  	  // fix bias ... set first col to 1.0
 		return P_Z;
 	}
@@ -205,9 +224,8 @@ public class RBM {
 	 * @return	x (without bias)
 	 */
 	public double[] prob_x(double z_[]) {
-		Matrix z = new Matrix(MatrixUtils.addBias(z_),1);
-		double x[] = MatrixUtils.sigma(z.times(W.transpose()).getArray()[0]);
-		return MatrixUtils.removeBias(x);
+		double x[] = MatrixUtils.multiplyTranspose(new double[][]{MatrixUtils.addBias(z_)}, W.getArray(), m_Executor)[0];
+		return MatrixUtils.removeBias(MatrixUtils.sigma(x));
 	}
 
 	/**
@@ -217,7 +235,7 @@ public class RBM {
 	 * @return	P(X|Z) 
 	 */
 	public Matrix prob_X(Matrix Z) {
-		Matrix X = new Matrix(MatrixUtils.sigma(Z.times(W.transpose()).getArray()));   // (this is the activation function)
+		Matrix X = new Matrix(MatrixUtils.sigmaEquals(MatrixUtils.multiplyTranspose(Z.getArray(), W.getArray(), m_Executor)));   // (this is the activation function)
 		MatrixUtils.fillCol(X.getArray(), 0, 1.0);											// fix bias - set first col to 1.0
 		return X;
 	}
@@ -331,107 +349,255 @@ public class RBM {
 	}
 
 	/**
-	 * Train - Setup and train the RBM on X, over m_E epochs.
+	 * Train - Setup and train the RBM on X, over m_E epochs (in batches of m_BatchSize, if set).
 	 * @param	X_	X
 	 * @return	the error (@TODO unnecessary)
 	 */
 	public double train(double X_[][]) throws Exception {
+		return train(X_,m_BatchSize);
+	}
+
+	/**
+	 * Train - Setup and batch-train the RBM on X.
+	 * The batches are taken in the order of X, unless m_Shuffle is set (then they are drawn afresh at each epoch, with m_R).
+	 * <br>
+	 * TODO, divide gradient by the size of the batch! (doing already? .. no)
+	 * @param	X_			X
+	 * @param	batchSize	the batch size (0 for a single batch)
+	 */
+	public double train(double X_[][], int batchSize) throws Exception {
 
 		initWeights(X_);
 
-		Matrix X = new Matrix(MatrixUtils.addBias(X_));
+		int N = X_.length;					// N
+		int N_n = (batchSize <= 0) ? 1 : (int)Math.ceil(N*1./batchSize);// Number of batches
+
+		return train(X_, batchSize, 1./N_n, m_Shuffle ? m_R : null);
+	}
+
+	/**
+	 * Train - Setup and batch-train the RBM on X, with the batches drawn afresh (in a random order) at each epoch.
+	 * @param	X_			X
+	 * @param	batchSize	the batch size
+	 * @param	r			the randomness
+	 */
+	public double train(double X_[][], int batchSize, Random r) throws Exception {
+
+		initWeights(X_);
+
+		return train(X_, batchSize, 1., r);
+	}
+
+	/**
+	 * Train - Carry out m_E epochs of CD on the (already initialized) W, in batches.
+	 * <br>
+	 * The training is carried out on flat copies of W and dW_ (copied back at the end), and on buffers for each phase,
+	 * which are reused from batch to batch, rather than with a new Jama Matrix for each step of each update.
+	 * @param	X_			X (without bias)
+	 * @param	batchSize	the batch size (0 for a single batch)
+	 * @param	s			multiply the gradient by this scalar
+	 * @param	r			to shuffle the instances into new batches at each epoch (null to keep them in order)
+	 * @return	the error, if m_V (and there is a single batch)
+	 */
+	protected double train(double X_[][], int batchSize, double s, Random r) {
+
+		int N = X_.length;
+		if (batchSize <= 0 || batchSize > N)
+			batchSize = N;
 
+		m_Wd = new DenseMatrix(W.getArray());
+		m_dWd = new DenseMatrix(dW_.getArray());
+		m_Pos = new DenseMatrix(m_Wd.rows, m_Wd.cols);
+		m_Neg = new DenseMatrix(m_Wd.rows, m_Wd.cols);
+		m_Chains = null;
+
+		int order[] = A.make_sequence(N);
 		double _error = Double.MAX_VALUE; // prev error , necessary only when using m_V
 
 		// TRAIN FOR m_E EPOCHS.
 
 		for(int e = 0; e < m_E; e++) {
 
-			// BREAK OUT IF THE GRADIENT IS POSITIVE
-			if (m_V) { 
-				double err_now = calculateError(X); // Retrieve error
-				if (_error < err_now) {
-					System.out.println("broken out @"+e);
-					break;
+			if (r != null)
+				A.shuffle(order, r);
+
+			for(int start = 0; start < N; start += batchSize) {
+				Phase batch = phase(Math.min(batchSize, N - start));
+				batch.fill(X_, order, start);
+
+				if (m_Persistent && m_Chains == null) {
+					// start the chains from the first batch
+					m_Chains = new Phase(batch.b, m_Wd.rows, m_Wd.cols);
+					System.arraycopy(batch.X.data, 0, m_Chains.X.data, 0, batch.X.data.length);
 				}
-				_error = err_now;
+
+				positive(batch);
+				negative(batch);
+
+				// BREAK OUT IF THE GRADIENT IS POSITIVE
+				if (m_V && batchSize == N) {
+					double err_now = batch.error(); // Retrieve error
+					if (_error < err_now) {
+						System.out.println("broken out @"+e);
+						e = m_E;
+						break;
+					}
+					_error = err_now;
+				}
+
+				/*
+				 * The update
+				 */
+				update(batch, s);
 			}
+		}
 
-			/*
-			 * The update
-			 */
-			update(X);
+		// copy back the weights
+		double W_[][] = W.getArray();
+		double dW__[][] = dW_.getArray();
+		for(int j = 0; j < W_.length; j++) {
+			System.arraycopy(m_Wd.data, j * m_Wd.cols, W_[j], 0, m_Wd.cols);
+			System.arraycopy(m_dWd.data, j * m_dWd.cols, dW__[j], 0, m_dWd.cols);
 		}
+		m_Wd = m_dWd = m_Pos = m_Neg = null;
+		m_Batch = m_LastBatch = m_Chains = null;
 
 		return _error;
 	}
 
 	/**
-	 * Train - Setup and batch-train the RBM on X.
-	 * <br>
-	 * TODO, above function train(X_) could really be trained with train(X_,N), so, should share code with train(X)
-	 * <br>
-	 * TODO, divide gradient by the size of the batch! (doing already? .. no)
-	 * @param	X_			X
-	 * @param	batchSize	the batch size
+	 * Phase - the buffers for one phase of CD on a batch of b instances (all with bias column).
 	 */
-	public double train(double X_[][], int batchSize) throws Exception {
+	protected static class Phase {
 
-		initWeights(X_);
+		/** the number of instances */
+		final int b;
 
-		X_ = MatrixUtils.addBias(X_);
+		/** the visible units (the data, or the state of the chains) */
+		final DenseMatrix X;
 
-		int N = X_.length;					// N
-		if (batchSize == N)
-			return train(X_);
-		int N_n = (int)Math.ceil(N*1./batchSize);// Number of batches
-
-		Matrix X_n[] = new Matrix[N_n];
-		for(int n = 0,i = 0; n < N; n+=batchSize,i++) {
-			// @TODO, could save some small-time memory/speed here
-			X_n[i] = new Matrix(Arrays.copyOfRange(X_,n,Math.min(n+batchSize,N)));
+		/** the hidden units, up from X */
+		final DenseMatrix Z;
+
+		/** the visible units, down from Z */
+		final DenseMatrix X_1;
+
+		/** the hidden units, up again from X_1 */
+		final DenseMatrix Z_1;
+
+		Phase(int b, int d, int h) {
+			this.b = b;
+			X = new DenseMatrix(b, d);
+			Z = new DenseMatrix(b, h);
+			X_1 = new DenseMatrix(b, d);
+			Z_1 = new DenseMatrix(b, h);
 		}
 
-		for(int e = 0; e < m_E; e++) {
+		/** copy the instances order[start], ..., order[start+b-1] of X_ into X (with bias) */
+		void fill(double X_[][], int order[], int start) {
+			for(int i = 0; i < b; i++) {
+				X.data[i * X.cols] = 1.0;
+				System.arraycopy(X_[order[start + i]], 0, X.data, i * X.cols + 1, X.cols - 1);
+			}
+		}
 
-			// @TODO could be random, see function below
-			for(Matrix X : X_n) {
-				update(X, 1./N_n);
+		/** the mean squared error between X and its reconstruction X_1 */
+		double error() {
+			double error = 0;
+			for(int i = 0; i < b; i++) {
+				double squaredError = 0;
+				for(int j = i * X.cols; j < (i + 1) * X.cols; j++) {
+					squaredError += (X.data[j] - X_1.data[j]) * (X.data[j] - X_1.data[j]);
+				}
+				error += squaredError;
 			}
+			return error / b;
 		}
+	}
 
-		return 1.0;
+	/** The buffers for a batch of b instances */
+	private Phase phase(int b) {
+		if (m_Batch == null || m_Batch.b == b) {
+			if (m_Batch == null)
+				m_Batch = new Phase(b, m_Wd.rows, m_Wd.cols);
+			return m_Batch;
+		}
+		if (m_LastBatch == null || m_LastBatch.b != b)
+			m_LastBatch = new Phase(b, m_Wd.rows, m_Wd.cols);
+		return m_LastBatch;
 	}
 
 	/**
-	 * Train - Setup and batch-train the RBM on X, with some random sampling involved.
-	 * <br>
-	 * TODO should share code with train(X)
-	 * @param	X_			X
-	 * @param	batchSize	the batch size
-	 * @param	r			the randomness
+	 * Hidden Activation Probability - Z = P(Z|X) on the flat weights, with the bias column of Z set to 1.
 	 */
-	public double train(double X_[][], int batchSize, Random r) throws Exception {
-
-		initWeights(X_);
-
-		X_ = MatrixUtils.addBias(X_);
-		int N = X_.length;					// N
-		int N_n = (int)Math.ceil(N*1./batchSize);// Number of batches
+	protected void prob_Z(DenseMatrix X, DenseMatrix Z) {
+		MatrixUtils.sigmaEquals(MatrixUtils.multiply(X, m_Wd, Z, m_Executor));
+		for(int i = 0; i < Z.rows; i++) {
+			Z.data[i * Z.cols] = 1.0;
+		}
+	}
 
-		// @TODO select the batches randomly at each epoch
-		Matrix X_n[] = new Matrix[N_n];
-		for(int n = 0,i = 0; n < N; n+=batchSize,i++) {
-			X_n[i] = new Matrix(Arrays.copyOfRange(X_,n,Math.min(n+batchSize,N)));
+	/**
+	 * Visible Activation Probability - X = P(X|Z) on the flat weights, with the bias column of X set to 1.
+	 */
+	protected void prob_X(DenseMatrix Z, DenseMatrix X) {
+		MatrixUtils.sigmaEquals(MatrixUtils.multiplyTranspose(Z, m_Wd, X, m_Executor));
+		for(int i = 0; i < X.rows; i++) {
+			X.data[i * X.cols] = 1.0;
 		}
+	}
 
-		for(int e = 0; e < m_E; e++) {
-			for(int i = 0; i < N_n; i++) {
-				update(X_n[r.nextInt(N_n)]);
+	/**
+	 * Positive Phase - Z = P(Z|X) on the batch, and the positive energy X' * Z.
+	 */
+	protected void positive(Phase batch) {
+		prob_Z(batch.X, batch.Z);
+		MatrixUtils.transposeMultiply(batch.X, batch.Z, m_Pos, m_Executor);
+	}
+
+	/**
+	 * Negative Phase - the negative energy X_1' * P(Z|X_1), where X_1 goes down from Z of the batch (CD-1), or,
+	 * if m_Persistent, one step of Gibbs sampling further along the chains.
+	 */
+	protected void negative(Phase batch) {
+		if (m_Persistent) {
+			Phase c = m_Chains;
+			prob_Z(c.X, c.Z);
+			for(int k = 0; k < c.Z.data.length; k++) {
+				c.Z.data[k] = (c.Z.data[k] > m_R.nextDouble()) ? 1.0 : 0.0;		// sample up
 			}
+			prob_X(c.Z, c.X_1);													// go down
+			prob_Z(c.X_1, c.Z_1);												// go back up again
+			MatrixUtils.transposeMultiply(c.X_1, c.Z_1, m_Neg, m_Executor);
+			System.arraycopy(c.X_1.data, 0, c.X.data, 0, c.X.data.length);		// the chains continue from here
+			if (m_V)
+				prob_X(batch.Z, batch.X_1);										// (for the error only)
+		}
+		else {
+			prob_X(batch.Z, batch.X_1);											// go down
+			prob_Z(batch.X_1, batch.Z_1);										// go back up again
+			MatrixUtils.transposeMultiply(batch.X_1, batch.Z_1, m_Neg, m_Executor);
 		}
+	}
 
-		return 1.0;
+	/**
+	 * Update - update the flat weights with the contrastive divergence of the phases just run on the batch.
+	 * As update(Matrix,double), with COST and MOMENTUM.
+	 * @param	s	multiply the gradient by this scalar
+	 */
+	protected void update(Phase batch, double s) {
+		double pos[] = m_Pos.data;
+		double neg[] = m_Neg.data;
+		double w[] = m_Wd.data;
+		double d[] = m_dWd.data;
+		double n_pos = 1./batch.b;
+		double n_neg = m_Persistent ? 1./m_Chains.b : n_pos;
+		for(int k = 0; k < w.length; k++) {
+			double CD = m_Persistent ? pos[k] * n_pos - neg[k] * n_neg : (pos[k] - neg[k]) * n_pos;
+			double dW = ((CD - w[k] * COST) * LEARNING_RATE) * s;
+			w[k] = w[k] + (dW + d[k] * MOMENTUM);
+			d[k] = dW;
+		}
 	}
 
 	/**
@@ -478,13 +644,13 @@ public class RBM {
 
 		// POSITIVE
 		Matrix Z_0 = prob_Z(X_0);                                             // sample up                              		
-		Matrix E_pos = X_0.transpose().times(Z_0);								// positive energy, H_1 * V_1
+		Matrix E_pos = new Matrix(MatrixUtils.transposeMultiply(X_0.getArray(), Z_0.getArray(), m_Executor));								// positive energy, H_1 * V_1
 
 		// NEGATIVE
 		Matrix X_1 = prob_X(Z_0);												// go down -- can either sample down 
 		//Matrix X_1 = Mat.threshold(prob_X(Z_0),0.5);							// ... or just go down
 		Matrix pZ_1 = prob_Z(X_1);                               				// go back up again
-		Matrix E_neg = X_1.transpose().times(pZ_1);								// negative energy, P(Z_1) * X_1
+		Matrix E_neg = new Matrix(MatrixUtils.transposeMultiply(X_1.getArray(), pZ_1.getArray(), m_Executor));								// negative energy, P(Z_1) * X_1
 
 		// CALCULATE ERROR (Optional!)
 		//double _Err = Mat.meanSquaredError(X_0.getArray(),X_1.getArray());			// @note: this take some milliseconds to calculate
@@ -504,13 +670,13 @@ public class RBM {
 
 		// POSITIVE
 		Matrix Z_0 = sample_Z(X_0);                                             // sample up                              		
-		Matrix E_pos = X_0.transpose().times(Z_0);								// positive energy, H_1 * V_1
+		Matrix E_pos = new Matrix(MatrixUtils.transposeMultiply(X_0.getArray(), Z_0.getArray(), m_Executor));								// positive energy, H_1 * V_1
 
 		// NEGATIVE
 		Matrix X_1 = sample_X(Z_0);												// go down -- can either sample down 
 		//Matrix X_1 = Mat.threshold(prob_X(Z_0),0.5);							// ... or just go down
 		Matrix pZ_1 = prob_Z(X_1);                               				// go back up again
-		Matrix E_neg = X_1.transpose().times(pZ_1);								// negative energy, P(Z_1) * X_1
+		Matrix E_neg = new Matrix(MatrixUtils.transposeMultiply(X_1.getArray(), pZ_1.getArray(), m_Executor));								// negative energy, P(Z_1) * X_1
 
 		// CALCULATE ERROR (Optional!)
 		double _Err = MatrixUtils.meanSquaredError(X_0.getArray(), X_1.getArray());			// @note: this take some milliseconds to calculate
@@ -572,6 +738,54 @@ public class RBM {
 		m_R = new Random(seed);
 	}
 
+	/**
+	 * SetBatchSize - the batch size for train(X) (0 for a single batch of all instances).
+	 */
+	public void setBatchSize(int n) {
+		if (n >= 0)
+			m_BatchSize = n;
+		else
+			System.err.println("Batch size must be >= 0, provided: " + n);
+	}
+
+	public int getBatchSize() {
+		return m_BatchSize;
+	}
+
+	/**
+	 * SetShuffle - draw the batches afresh, in a random order, at each epoch (rather than taking them in the order of the data).
+	 */
+	public void setShuffle(boolean shuffle) {
+		m_Shuffle = shuffle;
+	}
+
+	public boolean getShuffle() {
+		return m_Shuffle;
+	}
+
+	/**
+	 * SetPersistent - use persistent contrastive divergence (PCD), where the negative phase continues the same chains
+	 * (one per instance of a batch) from one update to the next.
+	 */
+	public void setPersistent(boolean persistent) {
+		m_Persistent = persistent;
+	}
+
+	public boolean getPersistent() {
+		return m_Persistent;
+	}
+
+	/**
+	 * SetExecutor - compute the matrix products in parallel with this executor (null to compute them in the calling thread).
+	 */
+	public void setExecutor(ExecutorService executor) {
+		m_Executor = executor;
+	}
+
+	public ExecutorService getExecutor() {
+		return m_Executor;
+	}
+
 	/* *********************************************************************************
 	 * Get Weight Matrix(es)
 	 **********************************************************************************/
@@ -22,7 +22,15 @@ package meka.classifiers.multilabel;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.AbstractMekaClassifierTest;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Tests BPNN. Run from the command line with:<p/>
@@ -53,6 +61,101 @@ public class BPNNTest
     return new BPNN();
   }
 
+  /**
+   * A BPNN that computes its matrix products with a pool of 4 threads, whatever the number of processors.
+   */
+  protected static class PooledBPNN
+    extends BPNN {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient ThreadPoolExecutor m_Pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+
+    @Override
+    protected synchronized ExecutorService getExecutor() {
+      return m_Pool;
+    }
+  }
+
+  protected static Instances load() throws Exception {
+    Instances D = loadData("src/test/resources/Music-train.arff");
+    MLUtils.prepareData(D);
+    return D;
+  }
+
+  /** A network of H hidden units, with the initial weights of seed 0 */
+  protected static BPNN network(BPNN h, Instances D, int H, double rate, int b) throws Exception {
+    h.setLearningRate(rate);
+    h.setMiniBatchSize(b);
+    h.r = new Random(0);
+    h.initWeights(D.numAttributes() - D.classIndex(), D.classIndex(), new int[]{H});
+    return h;
+  }
+
+  /**
+   * A mini-batch of all the instances, with the gradient averaged over them, takes the same steps as full-batch
+   * back propagation (with the gradient summed over them, at a learning rate N times smaller), up to rounding.
+   */
+  public void testFullMiniBatch() throws Exception {
+    Instances D = load();
+    double X[][] = MLUtils.getXfromD(D);
+    double Y[][] = MLUtils.getYfromD(D);
+    int N = X.length;
+    BPNN batches = network(new BPNN(), D, 10, 0.5, N);
+    BPNN full = network(new BPNN(), D, 10, 0.5 / N, 1);
+    batches.train(X, Y, 5);
+    for (int e = 0; e < 5; e++)
+      full.backPropagate(X, Y);
+    for (int l = 0; l < full.W.length; l++) {
+      double expected[][] = full.W[l].getArray();
+      double actual[][] = batches.W[l].getArray();
+      for (int i = 0; i < expected.length; i++) {
+        for (int j = 0; j < expected[i].length; j++)
+          assertEquals("W[" + l + "][" + i + "][" + j + "]", expected[i][j], actual[i][j], 1e-12);
+      }
+    }
+    // (the weights did move)
+    assertFalse(Arrays.deepEquals(full.W[0].getArray(), network(new BPNN(), D, 10, 0.5, N).W[0].getArray()));
+  }
+
+  /**
+   * Training in mini-batches reduces the error on the training data.
+   */
+  public void testMiniBatchesError() throws Exception {
+    Instances D = load();
+    double X[][] = MLUtils.getXfromD(D);
+    double Y[][] = MLUtils.getYfromD(D);
+    BPNN h = network(new BPNN(), D, 10, 0.1, 16);
+    double first = h.update(X, Y);
+    double last = first;
+    for (int e = 0; e < 30; e++)
+      last = h.update(X, Y);
+    assertTrue(first + " > " + last, last < first);
+  }
+
+  /**
+   * The mini-batches give the same weights (exactly) whether their products are computed sequentially or in
+   * parallel.
+   */
+  public void testMiniBatchesThreads() throws Exception {
+    Instances D = load();
+    double X[][] = MLUtils.getXfromD(D);
+    double Y[][] = MLUtils.getYfromD(D);
+    BPNN sequential = network(new BPNN(), D, 32, 0.1, 64);
+    PooledBPNN pooled = (PooledBPNN) network(new PooledBPNN(), D, 32, 0.1, 64);
+    try {
+      sequential.train(X, Y, 3);
+      pooled.train(X, Y, 3);
+      // (the batches are large enough for the products to be split over the threads)
+      assertTrue(pooled.m_Pool.getCompletedTaskCount() > 0);
+      for (int l = 0; l < sequential.W.length; l++)
+        assertTrue("W[" + l + "]", Arrays.deepEquals(sequential.W[l].getArray(), pooled.W[l].getArray()));
+    }
+    finally {
+      pooled.m_Pool.shutdownNow();
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(BPNNTest.class);
   }
@@ -21,9 +21,12 @@ package meka.classifiers.multilabel;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
 import weka.core.Instances;
 
+import java.util.Arrays;
+
 /**
  * Tests BR. Run from the command line with:<p/>
  * java meka.classifiers.multilabel.BRTest
@@ -65,6 +68,21 @@ public class BRTest
 	  //Assert.assertEquals("Result 1", D.classIndex(), 3);
   }
 
+  /**
+   * Training with several threads must give the same models as sequential training.
+   */
+  public void testNumThreads() throws Exception {
+    Instances D = loadData("src/test/resources/Music.arff");
+    MLUtils.prepareData(D);
+    BR seq = new BR();
+    seq.buildClassifier(D);
+    BR par = new BR();
+    par.setNumThreads(4);
+    par.buildClassifier(D);
+    for (int i = 0; i < D.numInstances(); i++)
+      assertTrue("Instance " + i, Arrays.equals(seq.distributionForInstance(D.instance(i)), par.distributionForInstance(D.instance(i))));
+  }
+
   public static Test suite() {
     return new TestSuite(BRTest.class);
   }
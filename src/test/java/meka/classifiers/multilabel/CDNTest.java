@@ -22,7 +22,17 @@ package meka.classifiers.multilabel;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.AbstractMekaClassifierTest;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tests CDN. Run from the command line with:<p/>
@@ -53,6 +63,146 @@ public class CDNTest
     return new CDN();
   }
 
+  /**
+   * A CDN that runs its chains (and batches of instances) with a pool of 4 threads, whatever the number of
+   * processors, and counts its Gibbs steps.
+   */
+  protected static class PooledCDN
+    extends CDN {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient ThreadPoolExecutor m_Pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+
+    protected transient AtomicLong m_Steps = new AtomicLong();
+
+    @Override
+    protected double sample(Instance x, double y[], int j, Random r) throws Exception {
+      m_Steps.incrementAndGet();
+      return super.sample(x, y, j, r);
+    }
+
+    @Override
+    protected boolean isMultiThreaded() {
+      return m_NumThreads > 1;
+    }
+
+    @Override
+    protected synchronized ExecutorService getExecutor() {
+      return m_Pool;
+    }
+  }
+
+  protected static Instances load(String file) throws Exception {
+    Instances D = loadData("src/test/resources/" + file);
+    MLUtils.prepareData(D);
+    return D;
+  }
+
+  protected static CDN build(CDN h, int chains, double maxRHat, int numThreads) throws Exception {
+    h.setI(100);
+    h.setIc(20);
+    h.setChains(chains);
+    h.setMaxRHat(maxRHat);
+    h.setNumThreads(numThreads);
+    h.buildClassifier(load("Music-train.arff"));
+    return h;
+  }
+
+  /**
+   * The marginals of several chains are the average of those of each chain on its own.
+   */
+  public void testChains() throws Exception {
+    Instances test = load("Music-test.arff");
+    CDN h = build(new CDN(), 3, 0.0, 1);
+    int L = test.classIndex();
+    for (int i = 0; i < 10; i++) {
+      Instance x = test.instance(i);
+      double y[] = h.gibbs(x, new Random[]{new Random(1), new Random(2), new Random(3)}, false);
+      double mean[] = new double[L];
+      for (int c = 1; c <= 3; c++) {
+        double y_c[] = h.gibbs(x, new Random[]{new Random(c)}, false);
+        for (int j = 0; j < L; j++)
+          mean[j] += y_c[j] / 3;
+      }
+      for (int j = 0; j < L; j++)
+        assertEquals("instance " + i + ", label " + j, mean[j], y[j], 1e-12);
+    }
+  }
+
+  /**
+   * R-hat is 1 for chains that agree, and infinite for chains stuck on different values.
+   */
+  public void testRHat() throws Exception {
+    CDN h = new CDN();
+    Instance x = load("Music-test.arff").instance(0);
+    int n = 10;
+    CDN.Chain chains[] = new CDN.Chain[]{h.new Chain(x, 2, null), h.new Chain(x, 2, null)};
+    for (CDN.Chain c : chains) {
+      // label 0 is 1 half the time, label 1 never
+      c.sum[0] = n / 2;
+      c.sumSq[0] = n / 2;
+    }
+    assertEquals(1.0, CDN.rHat(chains, n), 1e-12);
+    chains[1].sum[1] = n;
+    chains[1].sumSq[1] = n;
+    assertEquals(Double.POSITIVE_INFINITY, CDN.rHat(chains, n));
+  }
+
+  /**
+   * Once the chains have converged, the burn in stops: the chains sweep the burn in block and the collection only.
+   */
+  public void testConvergence() throws Exception {
+    Instances test = load("Music-test.arff");
+    int L = test.classIndex();
+    PooledCDN h = (PooledCDN) build(new PooledCDN(), 3, 0.0, 1);
+    PooledCDN converged = (PooledCDN) build(new PooledCDN(), 3, Double.MAX_VALUE, 1);
+    try {
+      h.m_Steps.set(0);
+      h.distributionForInstance(test.instance(0));
+      assertEquals(100L * L * 3, h.m_Steps.get());
+      converged.m_Steps.set(0);
+      converged.distributionForInstance(test.instance(0));
+      assertEquals(2L * 19 * L * 3, converged.m_Steps.get());
+    }
+    finally {
+      h.m_Pool.shutdownNow();
+      converged.m_Pool.shutdownNow();
+    }
+  }
+
+  /**
+   * The chains give the same marginals whether they run sequentially or with a pool of threads, for single instances
+   * and for batches, and leave the instances unmodified.
+   */
+  public void testChainsThreads() throws Exception {
+    Instances test = load("Music-test.arff");
+    String before = test.toString();
+    CDN sequential = build(new CDN(), 3, 1.1, 1);
+    double expected[][] = new double[test.numInstances()][];
+    for (int i = 0; i < test.numInstances(); i++)
+      expected[i] = sequential.distributionForInstance(test.instance(i));
+
+    PooledCDN pooled = (PooledCDN) build(new PooledCDN(), 3, 1.1, 4);
+    try {
+      for (int i = 0; i < test.numInstances(); i++)
+        assertTrue("instance " + i, Arrays.equals(expected[i], pooled.distributionForInstance(test.instance(i))));
+      long jobs = pooled.m_Pool.getCompletedTaskCount();
+      assertTrue(jobs > 0);
+
+      assertTrue(pooled.implementsMoreEfficientBatchPrediction());
+      pooled.buildClassifier(load("Music-train.arff"));
+      double actual[][] = pooled.distributionsForInstances(test);
+      for (int i = 0; i < test.numInstances(); i++)
+        assertTrue("instance " + i, Arrays.equals(expected[i], actual[i]));
+      assertTrue(pooled.m_Pool.getCompletedTaskCount() > jobs);
+    }
+    finally {
+      pooled.m_Pool.shutdownNow();
+    }
+    assertEquals(before, test.toString());
+  }
+
   public static Test suite() {
     return new TestSuite(CDNTest.class);
   }
@@ -18,6 +18,7 @@ package meka.classifiers.multilabel;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import meka.classifiers.multilabel.incremental.BRUpdateable;
 import meka.classifiers.multilabel.incremental.CCUpdateable;
 import meka.classifiers.incremental.IncrementalEvaluation;
 import meka.classifiers.multilabel.incremental.meta.BaggingMLUpdateable;
@@ -29,8 +30,11 @@ import weka.classifiers.functions.Logistic;
 import weka.classifiers.functions.SMO;
 import weka.classifiers.lazy.IBk;
 import weka.core.Instances;
+import weka.core.converters.ArffSaver;
 import weka.core.converters.ConverterUtils.DataSource;
 
+import java.io.File;
+
 /**
  * EvaluationTests. Run from the command line with:<p/>
  * java meka.classifiers.multilabel.EvaluationTests
@@ -155,6 +159,35 @@ public class EvaluationTests extends TestCase {
 		// compare with non-ss
 	}
 
+	/**
+	 * Streaming evaluation writes each sample out as it is taken, and keeps only the final (cumulative) metrics.
+	 */
+	public void testStreamingSamples() throws Exception {
+		Instances D = loadInstances("Music.arff");
+		int w = 50;
+		File file = File.createTempFile("samples", ".arff");
+		file.deleteOnExit();
+		ArffSaver saver = new ArffSaver();
+		saver.setFile(file);
+		Result r = IncrementalEvaluation.evaluateModelPrequentialStreaming(new BRUpdateable(), D, w, 1.0, "0.5", "3", 0.99, saver);
+		assertNull(r.getMeasurement("Results sampled over time"));
+		assertEquals((double)(D.numInstances() - w), r.vals.get("Total instances tested"));
+
+		// one sample per window (after the initial one)
+		Instances samples = DataSource.read(file.getPath());
+		int n = (D.numInstances() - w) / w;
+		assertEquals(n, samples.numInstances());
+		for (int i = 0; i < n; i++) {
+			assertEquals(i + 1.0, samples.instance(i).value(samples.attribute("Samples")), 0.0);
+			assertEquals((i + 1.0) * w - 1, samples.instance(i).value(samples.attribute("Instances")), 0.0);
+		}
+		assertNotNull(samples.attribute("Accuracy (sliding window)"));
+
+		// (the same, without a saver)
+		Result r_ = IncrementalEvaluation.evaluateModelPrequentialStreaming(new BRUpdateable(), D, w, 1.0, "0.5", "3", 0.99, null);
+		assertEquals(r.getMeasurement("Accuracy"), r_.getMeasurement("Accuracy"));
+	}
+
 	// TESTS
 	public void testMetrics() {
 		double log_loss_L = 0.0;
@@ -23,6 +23,13 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.AbstractMekaClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Tests MCC. Run from the command line with:<p/>
@@ -53,6 +60,131 @@ public class MCCTest
     return new MCC();
   }
 
+  /**
+   * The default setup, and one that searches the chain space (and samples).
+   *
+   * @return the setups
+   */
+  @Override
+  protected MultiLabelClassifier[] getRegressionSetups() {
+    MCC search = new MCC();
+    search.setChainIterations(5);
+    return new MultiLabelClassifier[]{new MCC(), search};
+  }
+
+  @Override
+  protected String[] getRegressionTrainFiles() {
+    return new String[]{"Music-train.arff", "Music-train.arff"};
+  }
+
+  @Override
+  protected String[] getRegressionTestFiles() {
+    return new String[]{"Music-test.arff", "Music-test.arff"};
+  }
+
+  /**
+   * An MCC that rates its candidate chains, and draws its samples, with a pool of 4 threads, whatever the number
+   * of processors.
+   */
+  protected static class PooledMCC
+    extends MCC {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient ExecutorService m_Pool = Executors.newFixedThreadPool(4);
+
+    @Override
+    protected int getActualNumThreads(int max) {
+      return Math.min(4, max);
+    }
+
+    @Override
+    protected synchronized ExecutorService getExecutor() {
+      return m_Pool;
+    }
+  }
+
+  protected static Instances load(String file) throws Exception {
+    Instances D = loadData("src/test/resources/" + file);
+    meka.core.MLUtils.prepareData(D);
+    return D;
+  }
+
+  protected static double[][] predictions(MCC h, Instances test) throws Exception {
+    double y[][] = new double[test.numInstances()][];
+    for (int i = 0; i < test.numInstances(); i++)
+      y[i] = h.distributionForInstance(test.instance(i));
+    return y;
+  }
+
+  /**
+   * The chain found by the search (with the candidates rated in parallel) and the predictions do not depend on the
+   * number of threads; with several sample streams, the predictions are reproducible.
+   */
+  public void testChainSearchThreads() throws Exception {
+    Instances train = load("Music-train.arff");
+    Instances test = load("Music-test.arff");
+    MCC sequential = new MCC();
+    sequential.setChainIterations(7);
+    sequential.setInferenceIterations(0);
+    sequential.buildClassifier(train);
+    PooledMCC pooled = new PooledMCC();
+    try {
+      pooled.setChainIterations(7);
+      pooled.setInferenceIterations(0);
+      pooled.buildClassifier(train);
+      assertTrue(Arrays.equals(sequential.retrieveChain(), pooled.retrieveChain()));
+      // (the search moved away from the initial chain)
+      assertFalse(Arrays.equals(new int[]{0, 1, 2, 3, 4, 5}, sequential.retrieveChain()));
+      double expected[][] = predictions(sequential, test);
+      double actual[][] = predictions(pooled, test);
+      for (int i = 0; i < test.numInstances(); i++)
+        assertTrue("instance " + i, Arrays.equals(expected[i], actual[i]));
+
+      // the sample streams are seeded in turn, so the predictions do not depend on the scheduling of the threads
+      pooled.setInferenceIterations(20);
+      pooled.buildClassifier(train);
+      expected = predictions(pooled, test);
+      pooled.buildClassifier(train);
+      actual = predictions(pooled, test);
+      for (int i = 0; i < test.numInstances(); i++)
+        assertTrue("instance " + i, Arrays.equals(expected[i], actual[i]));
+    }
+    finally {
+      pooled.m_Pool.shutdownNow();
+    }
+  }
+
+  /**
+   * The sampler (which evaluates each node once per chain prefix) draws the same samples, with the same
+   * probabilities, as CC's sampleForInstanceFast (which evaluates every node for each sample).
+   */
+  public void testSampler() throws Exception {
+    Instances train = load("Music-train.arff");
+    Instances test = load("Music-test.arff");
+    MCC h = new MCC();
+    h.buildClassifier(train);
+    int L = train.classIndex();
+    int n = 50;
+    for (int i = 0; i < 20; i++) {
+      Instance x = test.instance(i);
+      MCC.Sampler sampler = new MCC.Sampler(h.nodes, h.retrieveChain(), h.getTransformTemplates(x));
+      Instance t_[] = h.getTransformTemplates(x);
+      Random r1 = new Random(i);
+      Random r2 = new Random(i);
+      double p[] = new double[L];
+      for (int t = 0; t < n; t++) {
+        double y1[] = sampler.sample(r1, p);
+        double y2[] = h.sampleForInstanceFast(t_, r2);
+        assertTrue("instance " + i + ", sample " + t, Arrays.equals(y2, y1));
+        assertTrue("instance " + i + ", sample " + t, Arrays.equals(h.confidences, p));
+      }
+      // (at least the first node, at most every node of every sample)
+      assertTrue(sampler.evaluations >= L);
+      assertTrue(sampler.evaluations < (long) n * L);
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(MCCTest.class);
   }
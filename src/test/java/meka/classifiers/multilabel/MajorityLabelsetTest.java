@@ -22,7 +22,11 @@ package meka.classifiers.multilabel;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.AbstractMekaClassifierTest;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.Arrays;
 
 /**
  * Tests MajorityLabelset. Run from the command line with:<p/>
@@ -53,6 +57,23 @@ public class MajorityLabelsetTest
     return new MajorityLabelset();
   }
 
+  /**
+   * With a capacity of enough combinations (10 of 27), the most frequent one is still predicted; a negative capacity
+   * is ignored.
+   */
+  public void testCapacity() throws Exception {
+    Instances D = loadData("src/test/resources/Music.arff");
+    MLUtils.prepareData(D);
+    MajorityLabelset exact = new MajorityLabelset();
+    exact.buildClassifier(D);
+    MajorityLabelset h = new MajorityLabelset();
+    h.setCapacity(10);
+    h.setCapacity(-1);
+    assertEquals(10, h.getCapacity());
+    h.buildClassifier(D);
+    assertTrue(Arrays.equals(exact.distributionForInstance(D.instance(0)), h.distributionForInstance(D.instance(0))));
+  }
+
   public static Test suite() {
     return new TestSuite(MajorityLabelsetTest.class);
   }
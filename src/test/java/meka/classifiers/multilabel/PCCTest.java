@@ -21,7 +21,13 @@ package meka.classifiers.multilabel;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import meka.core.A;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
 
 /**
  * Tests PCC. Run from the command line with:<p/>
@@ -52,6 +58,57 @@ public class PCCTest
     return new PCC();
   }
 
+  /**
+   * Exact search must find the same path as enumerating all paths (the first most probable one).
+   */
+  public void testSearch() throws Exception {
+    Instances D = loadData("src/test/resources/Music.arff");
+    MLUtils.prepareData(D);
+    int L = D.classIndex();
+    PCC h = new PCC();
+    h.buildClassifier(D.trainCV(3, 0));
+    Instances test = D.testCV(3, 0);
+    for (int i = 0; i < test.numInstances(); i++) {
+      Instance x = test.instance(i);
+      // enumerate all paths, y_1 varying fastest
+      double y[] = new double[L];
+      double p[] = new double[L];
+      double w = 0.0;
+      for (int c = 0; c < (1 << L); c++) {
+        double y_[] = new double[L];
+        for (int j = 0; j < L; j++)
+          y_[j] = (c >> j) & 1;
+        double p_[] = h.probabilityForInstance(x, y_);
+        if (A.product(p_) > w) {
+          y = y_;
+          p = p_;
+          w = A.product(p_);
+        }
+      }
+      double expected[] = new double[L];
+      for (int j = 0; j < L; j++)
+        expected[j] = (y[j] == 1.0) ? p[j] : 1.0 - p[j];
+      h.setBestFirst(false);
+      assertTrue("Instance " + i, Arrays.equals(expected, h.distributionForInstance(x)));
+      assertTrue(h.search(x).evaluations < (1 << L) * L);
+      h.setBestFirst(true);
+      assertTrue("Instance " + i, Arrays.equals(expected, h.distributionForInstance(x)));
+      h.setBestFirst(false);
+    }
+  }
+
+  /**
+   * A negative beam width is ignored (as the other numeric options of the classifiers are).
+   */
+  public void testInvalidBeamWidth() {
+    PCC h = new PCC();
+    h.setBeamWidth(-1);
+    assertEquals(0, h.getBeamWidth());
+    h.setBeamWidth(3);
+    h.setBeamWidth(-1);
+    assertEquals(3, h.getBeamWidth());
+  }
+
   public static Test suite() {
     return new TestSuite(PCCTest.class);
   }
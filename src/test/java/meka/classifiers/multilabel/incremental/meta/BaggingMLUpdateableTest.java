@@ -22,7 +22,18 @@ package meka.classifiers.multilabel.incremental.meta;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.multilabel.AbstractMultiLabelClassifierTest;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Tests BRUpdateable. Run from the command line with:<p/>
@@ -52,6 +63,137 @@ public class BaggingMLUpdateableTest
     return new BaggingMLUpdateable();
   }
 
+  protected static Instances loadPrepared(String file) throws Exception {
+    Instances D = loadData("src/test/resources/" + file);
+    MLUtils.prepareData(D);
+    return D;
+  }
+
+  /**
+   * A BaggingMLUpdateable that updates (and queries) its members with a pool of 4 threads, whatever the number of
+   * processors.
+   */
+  protected static class PooledBaggingMLUpdateable
+    extends BaggingMLUpdateable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient ThreadPoolExecutor m_Pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+
+    @Override
+    protected int getActualNumThreads() {
+      return Math.min(4, m_NumIterations);
+    }
+
+    @Override
+    protected synchronized ExecutorService getExecutor() {
+      return m_Pool;
+    }
+  }
+
+  protected static double[][] predictions(BaggingMLUpdateable h, Instances test) throws Exception {
+    double y[][] = new double[test.numInstances()][];
+    for (int i = 0; i < test.numInstances(); i++)
+      y[i] = h.distributionForInstance(test.instance(i));
+    return y;
+  }
+
+  protected static void assertEquals(String message, double expected[][], double actual[][]) {
+    for (int i = 0; i < expected.length; i++)
+      assertTrue(message + ", instance " + i, Arrays.equals(expected[i], actual[i]));
+  }
+
+  /**
+   * Trains the ensemble on the first 52 instances of D, updates it with the rest (changing each instance once it has
+   * been passed on), and flushes it.
+   *
+   * @return the predictions for test
+   */
+  protected static double[][] predictions(BaggingMLUpdateable h, Instances D, Instances test) throws Exception {
+    // (439 updates, i.e., 62 batches of 7 and 5 instances left to flush)
+    h.buildClassifier(new Instances(D, 0, 52));
+    for (int i = 52; i < D.numInstances(); i++) {
+      Instance x = (Instance) D.instance(i).copy();
+      h.updateClassifier(x);
+      x.setValue(0, 1.0 - x.value(0));
+    }
+    assertEquals((D.numInstances() - 52) % h.getUpdateBatchSize(), h.m_Pending.size());
+    h.flushUpdates();
+    assertTrue(h.m_Pending.isEmpty());
+    return predictions(h, test);
+  }
+
+  /**
+   * The members only learn from the instances of a micro-batch once it is complete (or flushed), and then as they would
+   * have one by one.
+   */
+  public void testMicroBatches() throws Exception {
+    Instances D = loadPrepared("Music-train.arff");
+    Instances test = loadPrepared("Music-test.arff");
+    BaggingMLUpdateable h = new BaggingMLUpdateable();
+    h.setUpdateBatchSize(7);
+    h.setUpdateBatchSize(0);
+    assertEquals(7, h.getUpdateBatchSize());
+    h.buildClassifier(new Instances(D, 0, 52));
+    double built[][] = predictions(h, test);
+    for (int i = 52; i < 58; i++)
+      h.updateClassifier(D.instance(i));
+    assertEquals(6, h.m_Pending.size());
+    assertEquals("pending", built, predictions(h, test));
+    h.updateClassifier(D.instance(58));
+    assertTrue(h.m_Pending.isEmpty());
+    assertFalse(Arrays.deepEquals(built, predictions(h, test)));
+
+    // once flushed, the ensemble is the same as when updated with each instance
+    BaggingMLUpdateable single = new BaggingMLUpdateable();
+    BaggingMLUpdateable batches = new BaggingMLUpdateable();
+    batches.setUpdateBatchSize(7);
+    assertEquals("batch size 7", predictions(single, D, test), predictions(batches, D, test));
+  }
+
+  /**
+   * The members are updated (and queried) in parallel, and the ensemble is the same (exactly) as when updated
+   * sequentially.
+   */
+  public void testMicroBatchesThreads() throws Exception {
+    Instances D = loadPrepared("Music-train.arff");
+    Instances test = loadPrepared("Music-test.arff");
+    BaggingMLUpdateable sequential = new BaggingMLUpdateable();
+    sequential.setUpdateBatchSize(7);
+    double expected[][] = predictions(sequential, D, test);
+    for (int batch : new int[]{1, 7}) {
+      PooledBaggingMLUpdateable pooled = new PooledBaggingMLUpdateable();
+      try {
+        pooled.setUpdateBatchSize(batch);
+        assertEquals("batch size " + batch, expected, predictions(pooled, D, test));
+        assertTrue(pooled.m_Pool.getCompletedTaskCount() > 0);
+      }
+      finally {
+        pooled.m_Pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Models saved before micro-batching (without the pending lists) can still be updated.
+   */
+  public void testOldModel() throws Exception {
+    Instances D = loadPrepared("Music-train.arff");
+    BaggingMLUpdateable h = new BaggingMLUpdateable();
+    h.buildClassifier(new Instances(D, 0, 50));
+    h.m_Pending = null;
+    h.m_PendingWeights = null;
+    h.m_UpdateBatchSize = 0;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SerializationHelper.write(out, h);
+    BaggingMLUpdateable h_ = (BaggingMLUpdateable) SerializationHelper.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(1, h_.getUpdateBatchSize());
+    for (int i = 50; i < 60; i++)
+      h_.updateClassifier(D.instance(i));
+    assertTrue(h_.m_Pending.isEmpty());
+    h_.flushUpdates();
+  }
+
   public static Test suite() {
     return new TestSuite(BaggingMLUpdateableTest.class);
   }
@@ -22,7 +22,16 @@ package meka.classifiers.multilabel.meta;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.multilabel.AbstractMultiLabelClassifierTest;
+import meka.core.MLUtils;
+import rbms.DBM;
+import rbms.RBM;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Tests DeepML. Run from the command line with:<p/>
@@ -53,6 +62,84 @@ public class DeepMLTest
     return new DeepML();
   }
 
+  /**
+   * A DeepML whose RBMs compute their matrix products with a pool of 4 threads, whatever the number of processors.
+   */
+  protected static class PooledDeepML
+    extends DeepML {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient ThreadPoolExecutor m_Pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+
+    @Override
+    protected synchronized ExecutorService getExecutor() {
+      return m_Pool;
+    }
+  }
+
+  protected static Instances load(String file) throws Exception {
+    Instances D = loadData("src/test/resources/" + file);
+    MLUtils.prepareData(D);
+    return D;
+  }
+
+  protected static DeepML build(DeepML h, boolean shuffle, boolean persistent) throws Exception {
+    h.setE(20);
+    h.setH(30);
+    h.setShuffle(shuffle);
+    h.setPersistent(persistent);
+    h.buildClassifier(load("Music-train.arff"));
+    return h;
+  }
+
+  protected static RBM[] rbms(DeepML h) {
+    return ((DBM) h.dbm).getRBMs();
+  }
+
+  /**
+   * Shuffling and persistent CD reach each RBM of the DBM, and each gives another model.
+   */
+  public void testPersistent() throws Exception {
+    DeepML pcd = build(new DeepML(), true, true);
+    assertEquals(2, rbms(pcd).length);
+    for (RBM rbm : rbms(pcd)) {
+      assertTrue(rbm.getShuffle());
+      assertTrue(rbm.getPersistent());
+    }
+    DeepML cd = build(new DeepML(), true, false);
+    for (RBM rbm : rbms(cd))
+      assertFalse(rbm.getPersistent());
+    DeepML ordered = build(new DeepML(), false, true);
+    for (RBM rbm : rbms(ordered))
+      assertFalse(rbm.getShuffle());
+    for (int i = 0; i < 2; i++) {
+      assertFalse(Arrays.deepEquals(rbms(pcd)[i].getW().getArray(), rbms(cd)[i].getW().getArray()));
+      assertFalse(Arrays.deepEquals(rbms(pcd)[i].getW().getArray(), rbms(ordered)[i].getW().getArray()));
+    }
+  }
+
+  /**
+   * Persistent CD on shuffled batches gives the same model (exactly) whether the products are computed
+   * sequentially or in parallel.
+   */
+  public void testPersistentThreads() throws Exception {
+    Instances test = load("Music-test.arff");
+    DeepML sequential = build(new DeepML(), true, true);
+    PooledDeepML pooled = new PooledDeepML();
+    try {
+      build(pooled, true, true);
+      assertTrue(pooled.m_Pool.getCompletedTaskCount() > 0);
+      for (int i = 0; i < 2; i++)
+        assertTrue("RBM " + i, Arrays.deepEquals(rbms(sequential)[i].getW().getArray(), rbms(pooled)[i].getW().getArray()));
+      for (int i = 0; i < test.numInstances(); i++)
+        assertTrue("instance " + i, Arrays.equals(sequential.distributionForInstance(test.instance(i)), pooled.distributionForInstance(test.instance(i))));
+    }
+    finally {
+      pooled.m_Pool.shutdownNow();
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(DeepMLTest.class);
   }
@@ -22,7 +22,11 @@ package meka.classifiers.multilabel.meta;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import meka.classifiers.multilabel.AbstractMultiLabelClassifierTest;
+import meka.core.MLUtils;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.Arrays;
 
 /**
  * Tests EnsembleML. Run from the command line with:<p/>
@@ -53,6 +57,21 @@ public class EnsembleMLTest
     return new EnsembleML();
   }
 
+  /**
+   * The ensemble must not depend on the number of threads used for building and querying it.
+   */
+  public void testNumThreads() throws Exception {
+    Instances D = loadData("src/test/resources/Music.arff");
+    MLUtils.prepareData(D);
+    EnsembleML seq = new EnsembleML();
+    seq.buildClassifier(D);
+    EnsembleML par = new EnsembleML();
+    par.setNumThreads(4);
+    par.buildClassifier(D);
+    for (int i = 0; i < D.numInstances(); i++)
+      assertTrue("Instance " + i, Arrays.equals(seq.distributionForInstance(D.instance(i)), par.distributionForInstance(D.instance(i))));
+  }
+
   public static Test suite() {
     return new TestSuite(EnsembleMLTest.class);
   }
@@ -0,0 +1,315 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.classifiers.multilabel.neurofuzzy;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.MLUtils;
+import meka.core.ThreadUtils;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pins the predictions of the (sparse) ARAM networks, and tests the activation kernel they share.
+ * The reference predictions (ARAMNetworks.ref) were made by the networks before they shared ARAMKernel.
+ *
+ * @version October 2026
+ */
+public class ARAMNetworksTest
+  extends TestCase {
+
+  /** the networks whose predictions are pinned */
+  protected static final String[] NETWORKS = {"ARAMNetwork", "ARAMNetworkSparse", "ARAMNetworkSparseH", "ARAMNetworkSparseHT", "ARAMNetworkSparseV"};
+
+  public ARAMNetworksTest(String name) {
+    super(name);
+  }
+
+  protected static Instances loadData(String file) throws Exception {
+    Instances D = new Instances(new FileReader("src/test/resources/" + file));
+    MLUtils.prepareData(D);
+    return D;
+  }
+
+  /** a copy of D with sparse instances */
+  protected static Instances toSparse(Instances D) {
+    Instances S = new Instances(D, D.numInstances());
+    for (int i = 0; i < D.numInstances(); i++)
+      S.add(new SparseInstance(D.instance(i)));
+    return S;
+  }
+
+  /** the predictions of h (trained on train) for test, one line each, as in ARAMNetworks.ref */
+  protected static List<String> predict(String name, MultiLabelClassifier h, boolean sparse, Instances train, Instances test) throws Exception {
+    if (sparse) {
+      train = toSparse(train);
+      test = toSparse(test);
+    }
+    h.buildClassifier(train);
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < test.numInstances(); i++) {
+      StringBuilder line = new StringBuilder(name + (sparse ? " sparse " : " dense ") + i);
+      for (double v : h.distributionForInstance(test.instance(i)))
+        line.append(' ').append(Double.toString(v));
+      lines.add(line.toString());
+    }
+    return lines;
+  }
+
+  protected static List<String> reference() throws Exception {
+    List<String> lines = new ArrayList<String>();
+    BufferedReader reader = new BufferedReader(new FileReader("src/test/resources/meka/classifiers/multilabel/neurofuzzy/ARAMNetworks.ref"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null)
+        lines.add(line);
+    }
+    finally {
+      reader.close();
+    }
+    return lines;
+  }
+
+  public void testPredictions() throws Exception {
+    Instances train = loadData("Music-train.arff");
+    Instances test = loadData("Music-test.arff");
+    List<String> actual = new ArrayList<String>();
+    for (String name : NETWORKS) {
+      for (boolean sparse : new boolean[]{false, true}) {
+        MultiLabelClassifier h = (MultiLabelClassifier) Class.forName(getClass().getPackage().getName() + "." + name).newInstance();
+        actual.addAll(predict(name, h, sparse, train, test));
+      }
+    }
+    List<String> expected = reference();
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++)
+      assertEquals(expected.get(i), actual.get(i));
+  }
+
+  /** the positions of the first n values, in descending order of value (ties by position) */
+  protected static List<Integer> sorted(final double values[], int n) {
+    List<Integer> order = new ArrayList<Integer>();
+    for (int i = 0; i < n; i++)
+      order.add(i);
+    // (stable)
+    Collections.sort(order, new Comparator<Integer>() {
+      public int compare(Integer a, Integer b) {
+        return Double.compare(values[b], values[a]);
+      }
+    });
+    return order;
+  }
+
+  public void testRankingAndWinners() {
+    Random r = new Random(1);
+    for (int t = 0; t < 200; t++) {
+      int n = 1 + r.nextInt(40);
+      double act[] = new double[n + r.nextInt(3)];
+      for (int i = 0; i < act.length; i++)
+        // (plenty of ties)
+        act[i] = (r.nextInt(3) == 0) ? r.nextInt(4) / 4.0 + 0.25 : r.nextDouble() + 0.01;
+      List<Integer> order = sorted(act, n);
+
+      ARAMKernel.Ranking ranking = new ARAMKernel.Ranking(act, n);
+      for (int i = 0; i < n; i++)
+        assertEquals(order.get(i).intValue(), ranking.next());
+      assertFalse(ranking.hasNext());
+
+      int rank = r.nextInt(n);
+      assertEquals(act[order.get(rank)], ARAMKernel.select(act, n, rank), 0.0);
+
+      // the best, and those after it whose relative drop is within threshold times the spread
+      double threshold = r.nextDouble() * 0.1;
+      double s0 = act[order.get(0)];
+      double diff = s0 - act[order.get(rank)];
+      List<Integer> expected = new ArrayList<Integer>();
+      expected.add(order.get(0));
+      for (int i = 1; i < n && (s0 - act[order.get(i)]) / s0 <= threshold * diff; i++)
+        expected.add(order.get(i));
+      int winners[] = ARAMKernel.winners(act, n, rank, threshold);
+      assertEquals(expected.size(), winners.length);
+      for (int i = 0; i < winners.length; i++)
+        assertEquals(expected.get(i).intValue(), winners[i]);
+    }
+  }
+
+  public void testFuzzyAnd() {
+    Random r = new Random(2);
+    for (int t = 0; t < 200; t++) {
+      int F = 1 + r.nextInt(20);
+      // sparse features, some of them explicitly 0
+      double x[] = new double[F];
+      int idx[] = new int[F];
+      double val[] = new double[F];
+      int n = 0;
+      for (int j = 0; j < F; j++) {
+        if (r.nextInt(3) == 0)
+          continue;
+        x[j] = (r.nextInt(5) == 0) ? 0.0 : r.nextDouble();
+        idx[n] = j;
+        val[n++] = x[j];
+      }
+      // sparse weights, over the features and their complements
+      SparseArray w = new SparseArray();
+      double w_[] = new double[2 * F];
+      for (int j = 0; j < 2 * F; j++) {
+        if (r.nextInt(2) == 0) {
+          w_[j] = r.nextDouble();
+          w.put(j, w_[j]);
+        }
+      }
+      // complement-coded, with the weights of the complements stored as 1 - weight
+      double xc[] = new double[2 * F];
+      double wc[] = new double[2 * F];
+      for (int j = 0; j < F; j++) {
+        xc[j] = x[j];
+        xc[F + j] = 1 - x[j];
+        wc[j] = w_[j];
+        wc[F + j] = 1 - w_[F + j];
+      }
+      double expected = 0;
+      for (int j = 0; j < 2 * F; j++)
+        expected += Math.min(xc[j], wc[j]);
+      assertEquals(expected, ARAMKernel.fuzzyAnd(xc, wc), 1e-12);
+      assertEquals(expected, ARAMKernel.fuzzyAnd(x, w, F), 1e-12);
+      assertEquals(expected, ARAMKernel.fuzzyAnd(idx, val, n, w, F), 1e-12);
+      double sum = 0;
+      for (double v : wc)
+        sum += v;
+      assertEquals(expected / (0.1 + sum), ARAMKernel.choice(xc, wc, 0.1), 1e-12);
+    }
+  }
+
+  /**
+   * The activations through the index (-I), as kept up to date with the categories, must agree with the exhaustive ones.
+   */
+  public void testIndexedActivations() throws Exception {
+    Instances train = toSparse(loadData("Music-train.arff"));
+    Instances test = toSparse(loadData("Music-test.arff"));
+    ARAMNetworkSparseV exhaustive = new ARAMNetworkSparseV();
+    exhaustive.buildClassifier(train);
+    // the index is built at the first prediction (half way through), and then updated with the remaining instances
+    ARAMNetworkSparseV indexed = new ARAMNetworkSparseV();
+    indexed.setOptions(new String[]{"-I"});
+    assertTrue(indexed.getUseIndex());
+    int half = train.numInstances() / 2;
+    indexed.buildClassifier(new Instances(train, 0, half));
+    assertNull(indexed.index);
+    indexed.distributionForInstance(test.instance(0));
+    assertNotNull(indexed.index);
+    for (int i = half; i < train.numInstances(); i++)
+      indexed.updateClassifier(train.instance(i));
+    assertEquals(exhaustive.numCategories, indexed.numCategories);
+
+    int C = indexed.numCategories - 1;
+    int L = indexed.snumClasses;
+    for (int i = 0; i < test.numInstances(); i++) {
+      Instance x = test.instance(i);
+      int n = x.numValues();
+      int idx[] = new int[n];
+      double val[] = new double[n];
+      for (int t = 0; t < n; t++) {
+        idx[t] = x.index(t) - L;
+        val[t] = x.valueSparse(t);
+      }
+      double act[] = indexed.index.activate(idx, val, n, indexed.weightsA, indexed.sweightsA, indexed.alpha, C);
+      for (int c = 0; c < C; c++) {
+        double expected = ARAMKernel.fuzzyAnd(idx, val, n, indexed.weightsA[c], indexed.snumFeatures) / (indexed.alpha + indexed.sweightsA[c]);
+        assertEquals("Instance " + i + ", category " + c, expected, act[c], 1e-12);
+      }
+      double y[] = exhaustive.distributionForInstance(x);
+      double y_[] = indexed.distributionForInstance(x);
+      for (int j = 0; j < y.length; j++)
+        assertEquals("Instance " + i + ", label " + j, y[j], y_[j], 1e-9);
+    }
+  }
+
+  /**
+   * Threaded batch predictions (distributionForInstanceM, and predictions made side by side from a pool of threads,
+   * whatever the number of processors) must be the same as the sequential ones.
+   */
+  public void testThreadedPredictions() throws Exception {
+    Instances train = toSparse(loadData("Music-train.arff"));
+    final Instances test = toSparse(loadData("Music-test.arff"));
+    List<ARAMNetworkClass> networks = new ArrayList<ARAMNetworkClass>();
+    for (String name : NETWORKS)
+      networks.add((ARAMNetworkClass) Class.forName(getClass().getPackage().getName() + "." + name).newInstance());
+    ARAMNetworkSparseV indexed = new ARAMNetworkSparseV();
+    indexed.setUseIndex(true);
+    networks.add(indexed);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (final ARAMNetworkClass h : networks) {
+        String name = h.getClass().getSimpleName() + (h == indexed ? " -I" : "");
+        h.buildClassifier(train);
+        h.setThreaded(false);
+        double sequential[][] = h.distributionForInstanceM(test);
+        h.setThreaded(true);
+        double threaded[][] = h.distributionForInstanceM(test);
+
+        // (each thread takes every 4th instance, so neighbouring instances are predicted at the same time)
+        final double concurrent[][] = new double[test.numInstances()][];
+        List<Callable<Object>> jobs = new ArrayList<Callable<Object>>();
+        for (int t = 0; t < 4; t++) {
+          final int first = t;
+          jobs.add(new Callable<Object>() {
+            public Object call() throws Exception {
+              for (int i = first; i < test.numInstances(); i += 4)
+                concurrent[i] = h.distributionForInstance(test.instance(i));
+              return null;
+            }
+          });
+        }
+        ThreadUtils.executeAll(jobs, executor);
+
+        assertEquals(test.numInstances(), sequential.length);
+        for (int i = 0; i < test.numInstances(); i++) {
+          assertTrue(name + ", instance " + i, Arrays.equals(sequential[i], threaded[i]));
+          assertTrue(name + ", instance " + i, Arrays.equals(sequential[i], concurrent[i]));
+        }
+        assertNotNull(h.getneuronsactivated());
+        assertEquals(h.getneuronsactivated().length, h.getneuronsactivity().length);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public static Test suite() {
+    return new TestSuite(ARAMNetworksTest.class);
+  }
+
+  public static void main(String[] args){
+    junit.textui.TestRunner.run(suite());
+  }
+}
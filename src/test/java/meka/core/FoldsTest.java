@@ -0,0 +1,113 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+import java.io.FileReader;
+import java.util.Random;
+
+/**
+ * Tests the fold indices against Instances.trainCV/testCV, and the stratified folds.
+ *
+ * @version October 2026
+ */
+public class FoldsTest
+    extends TestCase {
+
+    public FoldsTest(String name) {
+        super(name);
+    }
+
+    protected Instances loadData() throws Exception {
+        Instances D = new Instances(new FileReader("src/test/resources/Music.arff"));
+        MLUtils.prepareData(D);
+        return D;
+    }
+
+    protected void assertSame(Instances expected, Instances actual) {
+        assertEquals(expected.numInstances(), actual.numInstances());
+        for (int i = 0; i < expected.numInstances(); i++)
+            assertEquals("Instance " + i, expected.instance(i).toString(), actual.instance(i).toString());
+    }
+
+    public void testTrainCV() throws Exception {
+        Instances D = loadData();
+        for (int numFolds : new int[]{2, 3, 10}) {
+            // original order
+            Folds folds = new Folds(D.numInstances(), numFolds);
+            for (int k = 0; k < numFolds; k++) {
+                assertSame(D.trainCV(numFolds, k), folds.train(D, k));
+                assertSame(D.testCV(numFolds, k), folds.test(D, k));
+            }
+            // randomized, consuming the random numbers in the same way
+            Random r1 = new Random(numFolds);
+            Random r2 = new Random(numFolds);
+            Instances data = new Instances(D);
+            data.randomize(r1);
+            folds = new Folds(D.numInstances(), numFolds, r2);
+            for (int k = 0; k < numFolds; k++) {
+                assertSame(data.trainCV(numFolds, k, r1), folds.train(D, k, r2));
+                assertSame(data.testCV(numFolds, k), folds.test(D, k));
+            }
+        }
+    }
+
+    public void testStratified() throws Exception {
+        Instances D = loadData();
+        int N = D.numInstances();
+        int L = D.classIndex();
+        int numFolds = 5;
+        for (Random r : new Random[]{null, new Random(1)}) {
+            Folds folds = Folds.stratified(D, numFolds, r);
+            assertEquals(numFolds, folds.numFolds());
+            boolean seen[] = new boolean[N];
+            for (int k = 0; k < numFolds; k++) {
+                int test[] = folds.getTest(k);
+                // about N/numFolds instances per fold
+                assertTrue(Math.abs(test.length - (double) N / numFolds) <= L);
+                for (int i : test) {
+                    assertFalse(seen[i]);
+                    seen[i] = true;
+                }
+                assertEquals(N, test.length + folds.getTrain(k).length);
+                // each label is spread evenly
+                for (int j = 0; j < L; j++) {
+                    int all = 0;
+                    for (int i = 0; i < N; i++)
+                        all += (int) D.instance(i).value(j);
+                    int in = 0;
+                    for (int i : test)
+                        in += (int) D.instance(i).value(j);
+                    assertTrue("Label " + j, Math.abs(in - (double) all / numFolds) <= 1.0);
+                }
+            }
+            for (int i = 0; i < N; i++)
+                assertTrue(seen[i]);
+        }
+    }
+
+    public static Test suite() {
+        return new TestSuite(FoldsTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.SMO;
+import weka.classifiers.lazy.IBk;
+import weka.classifiers.trees.J48;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.util.Arrays;
+
+/**
+ * Tests InstancesView against the filtered copies of F.keepLabels.
+ *
+ * @version October 2026
+ */
+public class InstancesViewTest
+    extends TestCase {
+
+    public InstancesViewTest(String name) {
+        super(name);
+    }
+
+    protected Instances loadData() throws Exception {
+        Instances D = new Instances(new FileReader("src/test/resources/Music.arff"));
+        MLUtils.prepareData(D);
+        return D;
+    }
+
+    protected static void assertSameData(Instances expected, Instances actual) {
+        assertTrue(expected.equalHeadersMsg(actual), expected.equalHeaders(actual));
+        assertEquals(expected.numInstances(), actual.numInstances());
+        for (int i = 0; i < expected.numInstances(); i++) {
+            assertEquals("Weight of " + i, expected.instance(i).weight(), actual.instance(i).weight(), 0.0);
+            assertTrue("Instance " + i, Arrays.equals(expected.instance(i).toDoubleArray(), actual.instance(i).toDoubleArray()));
+        }
+    }
+
+    public void testKeepLabels() throws Exception {
+        Instances D = loadData();
+        int L = D.classIndex();
+        int[][] keep = {{0}, {L - 1}, {1, 3}};
+        for (int[] j : keep) {
+            Instances V = InstancesView.keepLabels(D, L, j);
+            assertTrue(V instanceof InstancesView);
+            assertSameData(F.keepLabels(D, L, j), V);
+            for (int a = 0; a < V.numAttributes(); a++)
+                assertEquals(F.keepLabels(D, L, j).instance(5).value(a), V.instance(5).value(V.attribute(a)), 0.0);
+        }
+    }
+
+    public void testCopyOnWrite() throws Exception {
+        Instances D = loadData();
+        // (a snapshot of the values, as new Instances(D) would share their arrays)
+        double[][] values = new double[D.numInstances()][];
+        for (int i = 0; i < D.numInstances(); i++)
+            values[i] = D.instance(i).toDoubleArray();
+        int L = D.classIndex();
+        Instances V = InstancesView.keepLabels(D, L, new int[]{2});
+        V.setClassIndex(0);
+
+        Instance x = V.instance(0);
+        double y = x.classValue();
+        x.setClassMissing();
+        x.setValue(1, 123.0);
+        x.setWeight(2.0);
+        assertTrue(x.classIsMissing());
+        assertEquals(123.0, x.value(1), 0.0);
+
+        Instance c = (Instance) V.instance(1).copy();
+        assertTrue(c instanceof DenseInstance);
+        c.setValue(0, 1.0 - c.value(0));
+
+        V.deleteWithMissingClass();
+        assertEquals(D.numInstances() - 1, V.numInstances());
+
+        // the original data is unchanged
+        assertEquals(values.length, D.numInstances());
+        for (int i = 0; i < D.numInstances(); i++) {
+            assertTrue("Instance " + i, Arrays.equals(values[i], D.instance(i).toDoubleArray()));
+            assertEquals(1.0, D.instance(i).weight(), 0.0);
+        }
+        assertEquals(y, D.instance(0).value(2), 0.0);
+    }
+
+    public void testSerialization() throws Exception {
+        Instances D = loadData();
+        Instances V = InstancesView.keepLabels(D, D.classIndex(), new int[]{0});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializationHelper.write(out, V);
+        Instances V_ = (Instances) SerializationHelper.read(new ByteArrayInputStream(out.toByteArray()));
+        assertSameData(V, V_);
+    }
+
+    /**
+     * Models trained on the view must be the same as those trained on the copy.
+     */
+    public void testModels() throws Exception {
+        Instances D = loadData();
+        int L = D.classIndex();
+        Classifier[] classifiers = {new J48(), new SMO(), new IBk(3)};
+        for (Classifier h : classifiers) {
+            for (int j = 0; j < 3; j++) {
+                Instances D_j = F.keepLabels(D, L, new int[]{j});
+                D_j.setClassIndex(0);
+                Instances V_j = InstancesView.keepLabels(D, L, new int[]{j});
+                V_j.setClassIndex(0);
+                Classifier h1 = AbstractClassifier.makeCopy(h);
+                h1.buildClassifier(D_j);
+                Classifier h2 = AbstractClassifier.makeCopy(h);
+                h2.buildClassifier(V_j);
+                for (int i = 0; i < D_j.numInstances(); i++)
+                    assertTrue(h.getClass().getName() + ", label " + j + ", instance " + i,
+                        Arrays.equals(h1.distributionForInstance(D_j.instance(i)), h2.distributionForInstance(D_j.instance(i))));
+            }
+        }
+    }
+
+    public static Test suite() {
+        return new TestSuite(InstancesViewTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Tests the sparse statistics of LabelMatrix (and the single-pair ones of StatUtils) against the dense computations (over
+ * every label pair of every instance) that StatUtils used to make, which they should match exactly.
+ *
+ * @version October 2026
+ */
+public class LabelMatrixTest
+    extends TestCase {
+
+    public LabelMatrixTest(String name) {
+        super(name);
+    }
+
+    /** a multi-target dataset of L labels with 3 values each (and a feature), sparse or not */
+    protected Instances makeData(int N, int L, boolean sparse, Random r) {
+        ArrayList<Attribute> atts = new ArrayList<Attribute>();
+        for (int j = 0; j < L; j++)
+            atts.add(new Attribute("y" + j, Arrays.asList("0", "1", "2")));
+        atts.add(new Attribute("x"));
+        Instances D = new Instances("MT", atts, N);
+        D.setClassIndex(L);
+        for (int i = 0; i < N; i++) {
+            double x[] = new double[L + 1];
+            for (int j = 0; j < L; j++)
+                x[j] = (r.nextDouble() < 0.3) ? r.nextInt(3) : 0;
+            x[L] = r.nextGaussian();
+            D.add(sparse ? new SparseInstance(1.0, x) : new DenseInstance(1.0, x));
+        }
+        return D;
+    }
+
+    protected void assertSame(double expected[][], double actual[][]) {
+        assertEquals(expected.length, actual.length);
+        for (int j = 0; j < expected.length; j++)
+            assertTrue("Row " + j, Arrays.equals(expected[j], actual[j]));
+    }
+
+    /** the checks, against the dense computations on the label matrix Y */
+    protected void check(Instances D, LabelMatrix M) {
+        int L = D.classIndex();
+        int N = D.numInstances();
+        double Y[][] = MLUtils.getYfromD(D);
+        int C[][] = new int[L][L];
+        int C_[][] = new int[L][L];
+        double I[][] = new double[L][L];
+        double X[][] = new double[L][L];
+        double F[][] = new double[L][L];
+        for (int j = 0; j < L; j++) {
+            for (int i = 0; i < N; i++) {
+                C[j][j] += (int) Y[i][j];
+                C_[j][j] += (Y[i][j] > 0.) ? 1 : 0;
+            }
+            for (int k = j + 1; k < L; k++) {
+                for (int i = 0; i < N; i++) {
+                    C[j][k] += (Y[i][j] + Y[i][k] >= 2.0) ? 1 : 0;
+                    C_[j][k] += (Y[i][j] > 0. && Y[i][k] > 0.) ? 1 : 0;
+                }
+                int V_j = D.attribute(j).numValues();
+                int V_k = D.attribute(k).numValues();
+                double JOINT[][] = new double[V_j][V_k];
+                for (int i = 0; i < N; i++)
+                    JOINT[(int) Y[i][j]][(int) Y[i][k]] += (1.0 / (double) N);
+                assertSame(JOINT, M.jPMF(j, k));
+                assertSame(JOINT, StatUtils.jPMF(D, j, k));
+                for (int x = 0; x < V_j; x++) {
+                    double p_x = StatUtils.p(Y, j, x);
+                    for (int y = 0; y < V_k; y++) {
+                        double p_y = StatUtils.p(Y, k, y);
+                        double p_xy = StatUtils.P(Y, j, x, k, y);
+                        I[j][k] += p_xy * Math.log(p_xy / (p_x * p_y));
+                    }
+                }
+                for (int j_ = 0; j_ < 2; j_++) {
+                    for (int k_ = 0; k_ < 2; k_++) {
+                        double E = StatUtils.p(Y, j, j_) * StatUtils.p(Y, k, k_);
+                        double O = StatUtils.P(Y, j, j_, k, k_);
+                        X[j][k] += (((O - E) * (O - E)) / E);
+                    }
+                }
+                assertEquals(I[j][k], StatUtils.I(D, j, k), 0.0);
+                assertEquals(X[j][k], StatUtils.chi2(D, j, k), 0.0);
+                F[j][k] = Math.abs(1. - (StatUtils.p(Y, j, 1) * StatUtils.p(Y, k, 1)) / StatUtils.P(Y, j, 1, k, 1));
+            }
+        }
+        assertTrue(Arrays.deepEquals(C, M.getC()));
+        assertTrue(Arrays.deepEquals(C_, M.getApproxC()));
+        assertSame(I, M.I());
+        assertSame(X, M.chi2());
+        assertSame(F, M.F());
+    }
+
+    public void testMultiTarget() throws Exception {
+        Random r = new Random(1);
+        ExecutorService executor = ThreadUtils.newExecutor(3);
+        for (boolean sparse : new boolean[]{false, true}) {
+            Instances D = makeData(200, 7, sparse, r);
+            check(D, new LabelMatrix(D));
+            LabelMatrix M = new LabelMatrix(D);
+            M.countCooccurrences(executor);
+            check(D, M);
+        }
+        executor.shutdown();
+    }
+
+    public void testMultiLabel() throws Exception {
+        Instances D = new Instances(new FileReader("src/test/resources/Music.arff"));
+        MLUtils.prepareData(D);
+        check(D, new LabelMatrix(D));
+        // the co-occurrences, against those of the label combinations
+        int L = D.classIndex();
+        int expected[][] = new int[L][L];
+        HashMap<LabelSet, Integer> map = PSUtils.countCombinationsSparse(D, L);
+        for (LabelSet y : map.keySet()) {
+            int c = map.get(y);
+            for (int j = 0; j < y.indices.length; j++) {
+                expected[y.indices[j]][y.indices[j]] += c;
+                for (int k = j + 1; k < y.indices.length; k++)
+                    expected[y.indices[j]][y.indices[k]] += c;
+            }
+        }
+        assertTrue(Arrays.deepEquals(expected, new LabelMatrix(D).getApproxC()));
+    }
+
+    public static Test suite() {
+        return new TestSuite(LabelMatrixTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tests the exact counts of LabelSetCounter against PSUtils.countCombinationsSparse, and the bounds of its Space-Saving counts.
+ *
+ * @version October 2026
+ */
+public class LabelSetCounterTest
+    extends TestCase {
+
+    public LabelSetCounterTest(String name) {
+        super(name);
+    }
+
+    protected Instances loadData() throws Exception {
+        Instances D = new Instances(new FileReader("src/test/resources/Music.arff"));
+        MLUtils.prepareData(D);
+        return D;
+    }
+
+    public void testExact() throws Exception {
+        Instances D = loadData();
+        int L = D.classIndex();
+        LabelSetCounter counter = new LabelSetCounter();
+        for (int i = 0; i < D.numInstances(); i++)
+            counter.add(LabelSetCounter.encode(D.instance(i), L), 1.0);
+        HashMap<LabelSet, Integer> expected = PSUtils.countCombinationsSparse(D, L);
+        HashMap<LabelSet, Integer> actual = counter.toHashMap();
+        assertEquals(expected, actual);
+        assertEquals(new ArrayList<LabelSet>(expected.keySet()), new ArrayList<LabelSet>(actual.keySet()));
+        assertEquals((double) D.numInstances(), counter.total());
+
+        // the top k, against sorting all counts
+        List<LabelSet> top = counter.top(5);
+        assertEquals(5, top.size());
+        assertEquals(counter.max(), top.get(0));
+        List<Integer> counts = new ArrayList<Integer>(expected.values());
+        Collections.sort(counts, Collections.reverseOrder());
+        for (int k = 0; k < top.size(); k++)
+            assertEquals((double) counts.get(k), counter.count(top.get(k)));
+    }
+
+    public void testSpaceSaving() throws Exception {
+        Instances D = loadData();
+        int L = D.classIndex();
+        int capacity = 8;
+        LabelSetCounter counter = new LabelSetCounter(capacity);
+        for (int i = 0; i < D.numInstances(); i++)
+            counter.add(LabelSetCounter.encode(D.instance(i), L), 1.0);
+        assertEquals(capacity, counter.size());
+        HashMap<LabelSet, Integer> exact = PSUtils.countCombinationsSparse(D, L);
+        for (LabelSet y : exact.keySet()) {
+            int c = exact.get(y);
+            if (counter.contains(y)) {
+                // overestimates, by at most the error
+                assertTrue(counter.count(y) >= c);
+                assertTrue(counter.count(y) - counter.error(y) <= c);
+            }
+            else {
+                // any combination more frequent than N/capacity is monitored
+                assertTrue(c <= D.numInstances() / capacity);
+            }
+        }
+    }
+
+    public void testEncode() {
+        // a multi-target label vector
+        double y[] = new double[]{0, 2, 1, 0, 3, 1.7};
+        LabelSet s = LabelSetCounter.encode(new DenseInstance(1.0, y), 5);
+        assertTrue(Arrays.equals(new int[]{2, 1 + 5, 4 + 10}, s.indices));
+        assertTrue(Arrays.equals(Arrays.copyOf(y, 5), LabelSetCounter.decode(s, 5)));
+    }
+
+    public static Test suite() {
+        return new TestSuite(LabelSetCounterTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
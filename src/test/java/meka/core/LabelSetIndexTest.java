@@ -0,0 +1,83 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tests the subset queries of LabelSetIndex (and LabelSet#subsetof) against scanning all labelsets with LabelSet#subset.
+ *
+ * @version October 2026
+ */
+public class LabelSetIndexTest
+    extends TestCase {
+
+    public LabelSetIndexTest(String name) {
+        super(name);
+    }
+
+    protected HashMap<LabelSet, Integer> loadCombinations() throws Exception {
+        Instances D = new Instances(new FileReader("src/test/resources/Music.arff"));
+        MLUtils.prepareData(D);
+        return PSUtils.countCombinationsSparse(D, D.classIndex());
+    }
+
+    public void testSubsetof() {
+        LabelSet a = new LabelSet(new int[]{1, 3});
+        LabelSet b = new LabelSet(new int[]{0, 1, 3, 70});
+        assertEquals(LabelSet.subset(a.indices, b.indices), a.subsetof(b));
+        assertEquals(LabelSet.subset(b.indices, a.indices), b.subsetof(a));
+        assertEquals(a, new LabelSet(new int[]{1, 3}));
+        assertEquals(a.hashCode(), new LabelSet(new int[]{1, 3}).hashCode());
+        assertFalse(a.equals(b));
+    }
+
+    public void testSubsets() throws Exception {
+        HashMap<LabelSet, Integer> map = loadCombinations();
+        LabelSetIndex index = new LabelSetIndex(map.keySet());
+        assertEquals(map.size(), index.size());
+        List<LabelSet> queries = new ArrayList<LabelSet>(map.keySet());
+        queries.add(new LabelSet(new int[]{0, 1, 2, 3, 4, 5}));
+        queries.add(new LabelSet(new int[]{}));
+        for (LabelSet y : queries) {
+            List<LabelSet> expected = new ArrayList<LabelSet>();
+            for (LabelSet s : map.keySet()) {
+                if (LabelSet.subset(s.indices, y.indices) > 0)
+                    expected.add(s);
+            }
+            assertEquals(Arrays.toString(y.indices), expected, index.subsets(y));
+            assertEquals(Arrays.toString(y.indices), PSUtils.getSortedSubsets(y, map.keySet(), new LabelSetComparator(map)),
+                PSUtils.getSortedSubsets(y, index, new LabelSetComparator(map)));
+        }
+    }
+
+    public static Test suite() {
+        return new TestSuite(LabelSetIndexTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import Jama.Matrix;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Tests the blocked (and parallel) matrix products against those of Jama, which they should match exactly.
+ *
+ * @version October 2026
+ */
+public class MatrixUtilsTest
+    extends TestCase {
+
+    public MatrixUtilsTest(String name) {
+        super(name);
+    }
+
+    protected void assertSame(Matrix expected, double actual[][]) {
+        double E[][] = expected.getArray();
+        assertEquals(E.length, actual.length);
+        for (int i = 0; i < E.length; i++)
+            assertTrue("Row " + i, Arrays.equals(E[i], actual[i]));
+    }
+
+    public void testProducts() throws Exception {
+        Random r = new Random(1);
+        ExecutorService executor = ThreadUtils.newExecutor(3);
+        // small, odd-sized (not multiples of the block size), and large enough to be split over threads
+        int dims[][] = new int[][]{{1, 1, 1}, {3, 5, 2}, {1, 70, 130}, {131, 67, 129}, {200, 150, 90}};
+        for (int d[] : dims) {
+            Matrix A = MatrixUtils.randomn(d[0], d[1], r);
+            Matrix B = MatrixUtils.randomn(d[1], d[2], r);
+            Matrix At = A.transpose();
+            Matrix Bt = B.transpose();
+            for (ExecutorService e : new ExecutorService[]{null, executor}) {
+                assertSame(A.times(B), MatrixUtils.multiply(A.getArray(), B.getArray(), e));
+                assertSame(A.times(B), MatrixUtils.transposeMultiply(At.getArray(), B.getArray(), e));
+                assertSame(A.times(B), MatrixUtils.multiplyTranspose(A.getArray(), Bt.getArray(), e));
+                // (the DenseMatrix kernels, which the double[][] ones mirror)
+                assertSame(A.times(B), MatrixUtils.multiply(new DenseMatrix(A.getArray()), new DenseMatrix(B.getArray()), e).toArray());
+                assertSame(A.times(B), MatrixUtils.transposeMultiply(new DenseMatrix(At.getArray()), new DenseMatrix(B.getArray()), e).toArray());
+                assertSame(A.times(B), MatrixUtils.multiplyTranspose(new DenseMatrix(A.getArray()), new DenseMatrix(Bt.getArray()), e).toArray());
+            }
+        }
+    }
+
+    public void testExecutorThreads() {
+        assertEquals(3, ThreadUtils.getNumThreads(ThreadUtils.newExecutor(3)));
+        ExecutorService cached = java.util.concurrent.Executors.newCachedThreadPool();
+        assertEquals(ThreadUtils.getAvailableProcessors(), ThreadUtils.getNumThreads(cached));
+        cached.shutdown();
+    }
+
+    public void testBias() {
+        double M[][] = new double[][]{{2, 3}, {4, 5}};
+        double C[][] = MatrixUtils.addBias(M, null);
+        assertTrue(Arrays.deepEquals(MatrixUtils.addBias(M), C));
+        assertSame(C, MatrixUtils.addBias(M, C));
+        assertTrue(Arrays.deepEquals(M, MatrixUtils.removeBias(C, null)));
+        DenseMatrix D = MatrixUtils.addBias(new DenseMatrix(M));
+        assertTrue(Arrays.deepEquals(C, D.toArray()));
+        assertTrue(Arrays.deepEquals(M, MatrixUtils.removeBias(D).toArray()));
+        assertTrue(Arrays.deepEquals(MatrixUtils.sigma(C), MatrixUtils.sigmaEquals(MatrixUtils.copy(C))));
+        assertTrue(Arrays.deepEquals(MatrixUtils.sigma(C), MatrixUtils.sigmaEquals(new DenseMatrix(C)).toArray()));
+    }
+
+    public static Test suite() {
+        return new TestSuite(MatrixUtilsTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
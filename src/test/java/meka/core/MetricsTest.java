@@ -1325,6 +1325,251 @@ public class MetricsTest
 
     
     
+    /**
+     * Tests that the single-pass MetricAccumulator gives exactly the values of the
+     * reference implementations, also with missing values and ties.
+     */
+    public void testMetricAccumulator(){
+        for(TestMetricObject tmo : tmos){
+            assertAccumulator(tmo.real, tmo.predInt, tmo.pred);
+        }
+        java.util.Random r = new java.util.Random(1);
+        for(int n = 0; n < 20; n++){
+            int N = 1 + r.nextInt(50);
+            int L = 1 + r.nextInt(8);
+            int[][] real = new int[N][L];
+            double[][] pred = new double[N][L];
+            for(int i = 0; i < N; i++){
+                for(int j = 0; j < L; j++){
+                    real[i][j] = (r.nextInt(5) == 0) ? -1 : r.nextInt(2);
+                    pred[i][j] = (r.nextInt(4) == 0) ? r.nextInt(3) / 2.0 : r.nextDouble();
+                }
+            }
+            assertAccumulator(real, ThresholdUtils.threshold(pred, 0.5), pred);
+        }
+    }
+
+    private void assertAccumulator(int[][] real, int[][] predInt, double[][] pred){
+        int N = real.length;
+        int L = real[0].length;
+        MetricAccumulator m = MetricAccumulator.accumulate(real, predInt, pred, 5, ThreadUtils.SEQUENTIAL);
+        assertEquals(Metrics.P_Accuracy(real, predInt), m.P_Accuracy(), 0.0);
+        assertEquals(Metrics.P_Hamming(real, predInt), m.P_Hamming(), 0.0);
+        assertEquals(Metrics.P_ExactMatch(real, predInt), m.P_ExactMatch(), 0.0);
+        assertEquals(Metrics.L_Hamming(real, predInt), m.L_Hamming(), 0.0);
+        assertEquals(Metrics.L_ZeroOne(real, predInt), m.L_ZeroOne(), 0.0);
+        assertEquals(Metrics.P_Harmonic(real, predInt), m.P_Harmonic(), 0.0);
+        assertEquals(Metrics.L_OneError(real, pred), m.L_OneError(), 0.0);
+        assertEquals(Metrics.L_RankLoss(real, pred), m.L_RankLoss(), 0.0);
+        assertEquals(Metrics.P_AveragePrecision(real, pred), m.P_AveragePrecision(), 0.0);
+        assertEquals(Metrics.L_LogLossL(real, pred), m.L_LogLossL(), 0.0);
+        assertEquals(Metrics.L_LogLossD(real, pred), m.L_LogLossD(), 0.0);
+        assertEquals(Metrics.P_PrecisionMicro(real, predInt), m.P_PrecisionMicro(), 0.0);
+        assertEquals(Metrics.P_RecallMicro(real, predInt), m.P_RecallMicro(), 0.0);
+        assertEquals(Metrics.P_PrecisionMacro(real, predInt), m.P_PrecisionMacro(), 0.0);
+        assertEquals(Metrics.P_RecallMacro(real, predInt), m.P_RecallMacro(), 0.0);
+        assertEquals(Metrics.P_FmicroAvg(real, predInt), m.P_FmicroAvg(), 0.0);
+        assertEquals(Metrics.P_FmacroAvgD(real, predInt), m.P_FmacroAvgD(), 0.0);
+        assertEquals(Metrics.P_FmacroAvgL(real, predInt), m.P_FmacroAvgL(), 0.0);
+        assertEquals(Metrics.L_LevenshteinDistance(real, predInt), m.L_LevenshteinDistance(), 0.0);
+        assertEquals(MLUtils.emptyVectors(predInt), m.emptyVectorsPredicted(), 0.0);
+        assertEquals(MLUtils.labelCardinality(real), m.labelCardinality(), 0.0);
+        assertEquals(MLUtils.labelCardinality(predInt), m.labelCardinalityPredicted(), 0.0);
+        for(int j = 0; j < L; j++){
+            assertEquals(Metrics.P_Hamming(real, predInt, j), m.P_Hamming(j), 0.0);
+            assertEquals(Metrics.P_Harmonic(real, predInt, j), m.P_Harmonic(j), 0.0);
+            assertEquals(Metrics.P_Precision(real, predInt, j), m.P_Precision(j), 0.0);
+            assertEquals(Metrics.P_Recall(real, predInt, j), m.P_Recall(j), 0.0);
+            assertEquals(MLUtils.labelCardinality(real, j), m.labelCardinality(j), 0.0);
+            assertEquals(MLUtils.labelCardinality(predInt, j), m.labelCardinalityPredicted(j), 0.0);
+        }
+        // merged from two blocks: the same, up to rounding
+        int n = 0;
+        for(int i = 0; i < N; i++){
+            if (!Metrics.allMissing(real[i]))
+                n++;
+        }
+        MetricAccumulator m1 = new MetricAccumulator(n, L, 5);
+        MetricAccumulator m2 = new MetricAccumulator(n, L, 5);
+        m1.addAll(real, predInt, pred, 0, N / 2);
+        m2.addAll(real, predInt, pred, N / 2, N);
+        m1.merge(m2);
+        assertEquals(m.P_Accuracy(), m1.P_Accuracy(), 0.00000001);
+        assertEquals(m.L_RankLoss(), m1.L_RankLoss(), 0.00000001);
+        assertEquals(m.L_LogLossD(), m1.L_LogLossD(), 0.00000001);
+        assertEquals(m.P_FmacroAvgL(), m1.P_FmacroAvgL(), 0.00000001);
+    }
+
+    /**
+     * Tests that the statistics read from a PredictionStore in place are exactly those of the matrices copied out of it.
+     */
+    public void testStoreStats(){
+        java.util.Random r = new java.util.Random(3);
+        for(int n = 0; n < 10; n++){
+            int N = 1 + r.nextInt(60);
+            int L = 1 + r.nextInt(6);
+            int[][] real = new int[N][L];
+            int[][] realMT = new int[N][L];
+            double[][] pred = new double[N][L];
+            PredictionStore s = new PredictionStore(L);
+            PredictionStore sMT = new PredictionStore(L);
+            for(int i = 0; i < N; i++){
+                for(int j = 0; j < L; j++){
+                    real[i][j] = (r.nextInt(5) == 0) ? -1 : r.nextInt(2);
+                    realMT[i][j] = (r.nextInt(5) == 0) ? -1 : r.nextInt(3);
+                    pred[i][j] = (r.nextInt(4) == 0) ? r.nextInt(3) / 2.0 : r.nextDouble();
+                }
+                s.add(pred[i], real[i]);
+                sMT.add(pred[i], realMT[i]);
+            }
+            double[] t = new double[L];
+            for(int j = 0; j < L; j++)
+                t[j] = r.nextDouble();
+            for(String vop : new String[]{"1", "6"}){
+                assertSameStats(MLEvalUtils.getMLStats(pred, real, t, vop), MLEvalUtils.getMLStats(s, t, vop));
+                assertSameStats(MLEvalUtils.getMTStats(pred, realMT, vop), MLEvalUtils.getMTStats(sMT, vop));
+            }
+        }
+    }
+
+    /**
+     * Tests that the (deprecated) row lists of a Result hold what was added to it.
+     */
+    @SuppressWarnings("deprecation")
+    public void testResultRows(){
+        java.util.Random r = new java.util.Random(4);
+        int N = 20, L = 3;
+        Result result = new Result(L);
+        assertEquals(0, result.getPredictions().size());
+        assertEquals(0, result.getActuals().size());
+        double[][] pred = new double[N][L];
+        int[][] real = new int[N][L];
+        for(int i = 0; i < N; i++){
+            double[] x = new double[L + 1];
+            for(int j = 0; j < L; j++){
+                pred[i][j] = r.nextDouble();
+                real[i][j] = r.nextInt(2);
+                x[j] = real[i][j];
+            }
+            result.addResult(pred[i], new weka.core.DenseInstance(1.0, x));
+        }
+        ArrayList<double[]> predictions = result.getPredictions();
+        ArrayList<int[]> actuals = result.getActuals();
+        assertEquals(N, predictions.size());
+        assertEquals(N, actuals.size());
+        for(int i = 0; i < N; i++){
+            assertTrue(Arrays.equals(pred[i], predictions.get(i)));
+            assertTrue(Arrays.equals(real[i], actuals.get(i)));
+        }
+    }
+
+    /**
+     * Tests that the statistics gathered from a PredictionStore with several threads (blocks of rows, and labels, in parallel) are exactly those gathered sequentially.
+     */
+    public void testStoreStatsThreaded(){
+        java.util.Random r = new java.util.Random(5);
+        int N = 3 * MetricAccumulator.BLOCK_SIZE + 17;
+        int L = 5;
+        PredictionStore s = new PredictionStore(L);
+        for(int i = 0; i < N; i++){
+            int[] y = new int[L];
+            double[] p = new double[L];
+            for(int j = 0; j < L; j++){
+                y[j] = (r.nextInt(20) == 0) ? -1 : r.nextInt(2);
+                p[j] = r.nextDouble();
+            }
+            s.add(p, y);
+        }
+        double[] t = {0.5, 0.3, 0.7, 0.5, 0.1};
+        // (exactly: sequentially too, the rows are accumulated in the same blocks, merged in the same order)
+        java.util.HashMap<String,Object> sequential = MLEvalUtils.getMLStats(s, t, "6", ThreadUtils.SEQUENTIAL);
+        assertSameStats(MLEvalUtils.getMLStats(s, t, "6"), sequential);
+        for(int numThreads : new int[]{2, 4, ThreadUtils.ALL})
+            assertSameStats(sequential, MLEvalUtils.getMLStats(s, t, "6", numThreads));
+
+        // the blocks, accumulated and merged by hand
+        int n = 0;
+        for(int i = 0; i < N; i++)
+            if (!s.allMissing(i))
+                n++;
+        MetricAccumulator merged = null;
+        for(int from = 0; from < N; from += MetricAccumulator.BLOCK_SIZE){
+            MetricAccumulator b = new MetricAccumulator(n, L, 6);
+            b.addAll(s, t, from, Math.min(N, from + MetricAccumulator.BLOCK_SIZE));
+            if (merged == null)
+                merged = b;
+            else
+                merged.merge(b);
+        }
+        for(int numThreads : new int[]{ThreadUtils.SEQUENTIAL, 4}){
+            MetricAccumulator a = MetricAccumulator.accumulate(s, t, 6, numThreads);
+            assertEquals(merged.P_Accuracy(), a.P_Accuracy(), 0.0);
+            assertEquals(merged.P_Hamming(), a.P_Hamming(), 0.0);
+            assertEquals(merged.P_Harmonic(), a.P_Harmonic(), 0.0);
+            assertEquals(merged.P_AveragePrecision(), a.P_AveragePrecision(), 0.0);
+            assertEquals(merged.L_RankLoss(), a.L_RankLoss(), 0.0);
+            assertEquals(merged.L_LogLossD(), a.L_LogLossD(), 0.0);
+            assertEquals(merged.L_LevenshteinDistance(), a.L_LevenshteinDistance(), 0.0);
+        }
+    }
+
+    private void assertSameStats(java.util.HashMap<String,Object> expected, java.util.HashMap<String,Object> actual){
+        assertSameStats(expected, actual, 0.0);
+    }
+
+    private void assertSameStats(java.util.HashMap<String,Object> expected, java.util.HashMap<String,Object> actual, double delta){
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()));
+        for(String key : expected.keySet()){
+            Object e = expected.get(key);
+            Object a = actual.get(key);
+            if (e instanceof Result.Lazy){
+                e = ((Result.Lazy)e).get();
+                a = ((Result.Lazy)a).get();
+            }
+            if (e instanceof Double)
+                assertEquals(key, (Double)e, (Double)a, delta);
+            else if (e instanceof double[]){
+                assertEquals(key, ((double[])e).length, ((double[])a).length);
+                for(int j = 0; j < ((double[])e).length; j++)
+                    assertEquals(key, ((double[])e)[j], ((double[])a)[j], delta);
+            }
+            else if (e instanceof int[])
+                assertTrue(key, Arrays.equals((int[])e, (int[])a));
+            else if (e instanceof Object[])
+                assertEquals(key, Arrays.toString((Object[])e), Arrays.toString((Object[])a));
+            else
+                assertEquals(key, String.valueOf(e), String.valueOf(a));
+        }
+    }
+
+    /**
+     * Tests that the sort-based Curve gives exactly the curves and areas of Weka's ThresholdCurve.
+     */
+    public void testCurve(){
+        java.util.Random r = new java.util.Random(2);
+        for(int n = 0; n < 50; n++){
+            int N = 1 + r.nextInt(100);
+            int[] y = new int[N];
+            double[] p = new double[N];
+            for(int i = 0; i < N; i++){
+                y[i] = r.nextInt(2);
+                p[i] = (r.nextInt(3) == 0) ? r.nextInt(5) / 4.0 : r.nextDouble();
+            }
+            Instances expected = new ThresholdCurve().getCurve(MLUtils.toWekaPredictions(y, p));
+            Curve c = new Curve(y, p);
+            assertEquals(ThresholdCurve.getROCArea(expected), c.getROCArea(), 0.0);
+            assertEquals(ThresholdCurve.getPRCArea(expected), c.getPRCArea(), 0.0);
+            assertEquals(expected.toString(), c.toInstances().toString());
+            // a fine histogram comes close
+            Curve.Histogram h = new Curve.Histogram(100000);
+            for(int i = 0; i < N; i++){
+                h.add(y[i], p[i]);
+            }
+            if (!Double.isNaN(c.getROCArea()))
+                assertEquals(c.getROCArea(), h.toCurve().getROCArea(), 0.05);
+        }
+    }
+
     private class TestMetricObject{
 
         public double[][] pred;
@@ -0,0 +1,149 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the streaming metrics against Metrics: over all rows, over the last rows, and faded.
+ *
+ * @version October 2026
+ */
+public class StreamingMetricsTest
+    extends TestCase {
+
+    public StreamingMetricsTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Random true values (with some missing, and some rows all missing) and predictions.
+     */
+    private static int[][][] randomRows(Random r, int N, int L) {
+        int[][] Y = new int[N][L];
+        int[][] Ypred = new int[N][L];
+        for (int i = 0; i < N; i++) {
+            boolean allMissing = r.nextInt(20) == 0;
+            for (int j = 0; j < L; j++) {
+                Y[i][j] = (allMissing || r.nextInt(10) == 0) ? -1 : r.nextInt(2);
+                Ypred[i][j] = r.nextInt(2);
+            }
+        }
+        return new int[][][]{Y, Ypred};
+    }
+
+    public void testCumulative() throws Exception {
+        Random r = new Random(1);
+        for (int n = 0; n < 50; n++) {
+            int N = 1 + r.nextInt(100);
+            int L = 1 + r.nextInt(8);
+            int[][][] rows = randomRows(r, N, L);
+            int[][] Y = rows[0], Ypred = rows[1];
+            StreamingMetrics m = new StreamingMetrics(L);
+            for (int i = 0; i < N; i++)
+                m.add(Y[i], Ypred[i]);
+            assertEquals(N, m.numRows());
+            assertEquals(Metrics.P_Hamming(Y, Ypred), m.P_Hamming(), 0.0);
+            assertEquals(Metrics.P_ExactMatch(Y, Ypred), m.P_ExactMatch(), 0.0);
+            assertEquals(Metrics.P_Accuracy(Y, Ypred), m.P_Accuracy(), 0.0);
+            assertEquals(Metrics.P_FmicroAvg(Y, Ypred), m.P_FmicroAvg(), 0.0);
+            assertEquals(Metrics.P_FmacroAvgL(Y, Ypred), m.P_FmacroAvgL(), 0.0);
+        }
+    }
+
+    public void testSlidingWindow() throws Exception {
+        Random r = new Random(2);
+        for (int n = 0; n < 20; n++) {
+            int N = 1 + r.nextInt(200);
+            int L = 1 + r.nextInt(8);
+            int W = 1 + r.nextInt(30);
+            int[][][] rows = randomRows(r, N, L);
+            int[][] Y = rows[0], Ypred = rows[1];
+            StreamingMetrics m = new StreamingMetrics(L, W);
+            for (int i = 0; i < N; i++) {
+                m.add(Y[i], Ypred[i]);
+                int from = Math.max(0, i + 1 - W);
+                int[][] Y_ = Arrays.copyOfRange(Y, from, i + 1);
+                int[][] Ypred_ = Arrays.copyOfRange(Ypred, from, i + 1);
+                assertEquals(Metrics.P_Hamming(Y_, Ypred_), m.P_Hamming(), 1e-12);
+                assertEquals(Metrics.P_ExactMatch(Y_, Ypred_), m.P_ExactMatch(), 1e-12);
+                assertEquals(Metrics.P_Accuracy(Y_, Ypred_), m.P_Accuracy(), 1e-12);
+                assertEquals(Metrics.P_FmicroAvg(Y_, Ypred_), m.P_FmicroAvg(), 0.0);
+                assertEquals(Metrics.P_FmacroAvgL(Y_, Ypred_), m.P_FmacroAvgL(), 0.0);
+            }
+        }
+    }
+
+    public void testFadingFactor() throws Exception {
+        Random r = new Random(3);
+        double alpha = 0.9;
+        int N = 150;
+        int L = 5;
+        int[][][] rows = randomRows(r, N, L);
+        int[][] Y = rows[0], Ypred = rows[1];
+        StreamingMetrics m = new StreamingMetrics(L, alpha);
+        for (int i = 0; i < N; i++)
+            m.add(Y[i], Ypred[i]);
+
+        // the weighted sums, from scratch
+        double n = 0, ham = 0, zeroOne = 0, acc = 0;
+        double[] TP = new double[L], FP = new double[L], FN = new double[L];
+        for (int i = 0; i < N; i++) {
+            double w = Math.pow(alpha, N - 1 - i);
+            int[][] aligned = Metrics.align(Y[i], Ypred[i]);
+            if (aligned[0].length == 0)
+                continue;
+            n += w;
+            ham += w * Metrics.L_Hamming(Y[i], Ypred[i]);
+            zeroOne += w * Metrics.L_ZeroOne(Y[i], Ypred[i]);
+            acc += w * Metrics.P_Accuracy(Y[i], Ypred[i]);
+            for (int j = 0; j < L; j++) {
+                if (Y[i][j] == 1 && Ypred[i][j] == 1)
+                    TP[j] += w;
+                else if (Y[i][j] == 0 && Ypred[i][j] == 1)
+                    FP[j] += w;
+                else if (Y[i][j] == 1 && Ypred[i][j] == 0)
+                    FN[j] += w;
+            }
+        }
+        assertEquals(n, m.size(), 1e-9);
+        assertEquals(1. - ham / n, m.P_Hamming(), 1e-9);
+        assertEquals(1. - zeroOne / n, m.P_ExactMatch(), 1e-9);
+        assertEquals(acc / n, m.P_Accuracy(), 1e-9);
+        double tp = 0, fp = 0, fn = 0, F = 0;
+        for (int j = 0; j < L; j++) {
+            tp += TP[j];
+            fp += FP[j];
+            fn += FN[j];
+            F += 2 * TP[j] / (2 * TP[j] + FP[j] + FN[j]);
+        }
+        assertEquals(2 * tp / (2 * tp + fp + fn), m.P_FmicroAvg(), 1e-9);
+        assertEquals(F / L, m.P_FmacroAvgL(), 1e-9);
+    }
+
+    public static Test suite() {
+        return new TestSuite(StreamingMetricsTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
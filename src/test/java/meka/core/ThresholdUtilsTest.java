@@ -0,0 +1,137 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Tests the PCut threshold calibration against the (sort-based) definition.
+ *
+ * @version October 2026
+ */
+public class ThresholdUtilsTest
+    extends TestCase {
+
+    public ThresholdUtilsTest(String name) {
+        super(name);
+    }
+
+    /**
+     * The calibration as originally defined: sort all confidences.
+     */
+    private static double sortedPCut(ArrayList<double[]> Y, double LC_train) {
+        if (Y.size() <= 0)
+            return 0.5;
+        int N = Y.size();
+        ArrayList<Double> big = new ArrayList<Double>();
+        for (double y[] : Y) {
+            for (double y_ : y) {
+                big.add(y_);
+            }
+        }
+        Collections.sort(big);
+        int i = big.size() - (int) Math.round(LC_train * (double) N);
+        if (N == big.size()) {
+            if (i + 1 == N)
+                return (big.get(N - 2) + big.get(N - 1)) / 2.0;
+            if (i + 1 >= N)
+                return 1.0;
+            else
+                return Math.max(((big.get(i) + big.get(i + 1)) / 2.0), 0.00001);
+        }
+        if (i == big.size() || i + 1 == big.size()) {
+            return Math.max((big.get(big.size() - 2) + big.get(big.size() - 1)) / 2.0, 0.00001);
+        }
+        return Math.max((big.get(i) + big.get(Math.max(i + 1, N - 1))) / 2.0, 0.00001);
+    }
+
+    public void testCalibrateThreshold() throws Exception {
+        Random r = new Random(3);
+        for (int n = 0; n < 200; n++) {
+            int N = 2 + r.nextInt(60);
+            int L = 1 + r.nextInt(6);
+            double[][] Y = new double[N][L];
+            Result result = new Result(N, L);
+            for (int i = 0; i < N; i++) {
+                for (int j = 0; j < L; j++) {
+                    // plenty of ties
+                    Y[i][j] = (r.nextInt(3) == 0) ? r.nextInt(4) / 4.0 : r.nextDouble();
+                }
+                result.addResult(Y[i], new weka.core.DenseInstance(1.0, new double[L]));
+            }
+            ArrayList<double[]> list = new ArrayList<double[]>(Arrays.asList(Y));
+
+            // PCut1
+            double LC = r.nextDouble() * L;
+            double expected = sortedPCut(list, LC);
+            assertEquals(expected, ThresholdUtils.calibrateThreshold(list, LC), 0.0);
+            assertEquals(expected, ThresholdUtils.calibrateThreshold(Y, LC), 0.0);
+            assertEquals(expected, ThresholdUtils.calibrateThreshold(result, LC), 0.0);
+
+            // PCutL
+            double[] LCs = new double[L];
+            double[] t = new double[L];
+            for (int j = 0; j < L; j++) {
+                LCs[j] = r.nextDouble();
+                ArrayList<double[]> col = new ArrayList<double[]>();
+                for (int i = 0; i < N; i++) {
+                    col.add(new double[]{Y[i][j]});
+                }
+                t[j] = sortedPCut(col, LCs[j]);
+            }
+            assertTrue(Arrays.equals(t, ThresholdUtils.calibrateThresholds(list, LCs)));
+            assertTrue(Arrays.equals(t, ThresholdUtils.calibrateThresholds(result, LCs, 1)));
+            assertTrue(Arrays.equals(t, ThresholdUtils.calibrateThresholds(result, LCs, 4)));
+        }
+    }
+
+    /**
+     * The label cardinalities that PCut is calibrated with in incremental evaluation, read from the store,
+     * must be those of the true values copied out of it.
+     */
+    public void testStoreLabelCardinalities() throws Exception {
+        Random r = new Random(2);
+        for (int n = 0; n < 10; n++) {
+            int N = 1 + r.nextInt(40);
+            int L = 1 + r.nextInt(5);
+            PredictionStore s = new PredictionStore(L);
+            for (int i = 0; i < N; i++) {
+                int[] y = new int[L];
+                for (int j = 0; j < L; j++)
+                    y[j] = (r.nextInt(3) == 0) ? 1 : 0;
+                s.add(new double[L], y);
+            }
+            int[][] Y = s.getAllTrue();
+            assertEquals(MLUtils.labelCardinality(Y), MLUtils.labelCardinality(s), 0.0);
+            assertTrue(Arrays.equals(MLUtils.labelCardinalities(Y), MLUtils.labelCardinalities(s)));
+        }
+    }
+
+    public static Test suite() {
+        return new TestSuite(ThresholdUtilsTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
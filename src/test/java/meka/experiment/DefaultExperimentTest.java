@@ -0,0 +1,85 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.experiment;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import meka.experiment.evaluationstatistics.EvaluationStatistics;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the cells (combinations of dataset and classifier) of the parallel execution of DefaultExperiment.
+ *
+ * @version October 2026
+ */
+public class DefaultExperimentTest
+    extends TestCase {
+
+    public DefaultExperimentTest(String name) {
+        super(name);
+    }
+
+    protected static List<EvaluationStatistics> statistics(String relation, int n) {
+        List<EvaluationStatistics> stats = new ArrayList<EvaluationStatistics>();
+        for (int i = 0; i < n; i++)
+            stats.add(new EvaluationStatistics(null, relation, null));
+        return stats;
+    }
+
+    /**
+     * The statistics come in the order of the jobs, whatever the order they finish in, and a finished cell no longer
+     * references its dataset (so that it can be freed while the experiment goes on).
+     */
+    public void testCell() {
+        Instances D = new Instances("D", new ArrayList<Attribute>(Arrays.asList(new Attribute("a"))), 0);
+        DefaultExperiment.Cell cell = new DefaultExperiment.Cell(D, 3);
+        List<EvaluationStatistics> s0 = statistics("D", 2);
+        List<EvaluationStatistics> s2 = statistics("D", 1);
+
+        assertFalse(cell.finished(2, s2));
+        assertSame(D, cell.getDataset());
+        assertFalse(cell.finished(1, null));
+        assertSame(D, cell.getDataset());
+        assertTrue(cell.finished(0, s0));
+        assertNull(cell.getDataset());
+
+        List<EvaluationStatistics> expected = new ArrayList<EvaluationStatistics>(s0);
+        expected.addAll(s2);
+        assertEquals(expected.size(), cell.getStatistics().size());
+        for (int i = 0; i < expected.size(); i++)
+            assertSame(expected.get(i), cell.getStatistics().get(i));
+
+        // (without jobs, there is nothing to keep the dataset for)
+        cell = new DefaultExperiment.Cell(D, 0);
+        cell.add(statistics("D", 1));
+        assertNull(cell.getDataset());
+        assertEquals(1, cell.getStatistics().size());
+    }
+
+    public static Test suite() {
+        return new TestSuite(DefaultExperimentTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rbms;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the batches and the persistent chains that RBM training goes through (DeepMLTest checks the resulting models).
+ *
+ * @version October 2026
+ */
+public class RBMTest
+    extends TestCase {
+
+    public RBMTest(String name) {
+        super(name);
+    }
+
+    /**
+     * An RBM that records the data of each batch, and checks that the persistent chains continue from update to update.
+     */
+    protected static class RecordingRBM extends RBM {
+
+        /** the data of each batch (with bias), in the order of the updates */
+        protected List<double[]> m_Batches = new ArrayList<double[]>();
+
+        /** the chains, and their state, as the last update left them */
+        protected Phase m_LastChains = null;
+        protected double m_LastState[] = null;
+
+        /** the number of updates that continued the chains of the previous one */
+        protected int m_Continued = 0;
+
+        @Override
+        protected void positive(Phase batch) {
+            m_Batches.add(batch.X.data.clone());
+            super.positive(batch);
+        }
+
+        @Override
+        protected void negative(Phase batch) {
+            if (m_Persistent) {
+                if (m_LastChains == null) {
+                    // the chains start from the first batch
+                    assertTrue(Arrays.equals(batch.X.data, m_Chains.X.data));
+                }
+                else {
+                    // ... and are then neither restarted, nor reset to the batch
+                    assertSame(m_LastChains, m_Chains);
+                    assertTrue(Arrays.equals(m_LastState, m_Chains.X.data));
+                    assertFalse(Arrays.equals(batch.X.data, m_Chains.X.data));
+                    m_Continued++;
+                }
+            }
+            super.negative(batch);
+            if (m_Persistent) {
+                m_LastChains = m_Chains;
+                m_LastState = m_Chains.X.data.clone();
+            }
+        }
+    }
+
+    protected static double[][] data(int N, int d) {
+        Random r = new Random(1);
+        double X[][] = new double[N][d];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < d; j++)
+                X[i][j] = r.nextInt(2);
+        return X;
+    }
+
+    protected static RecordingRBM train(double X[][], boolean shuffle, boolean persistent) throws Exception {
+        RecordingRBM rbm = new RecordingRBM();
+        rbm.setE(4);
+        rbm.setH(5);
+        rbm.setBatchSize(7);
+        rbm.setShuffle(shuffle);
+        rbm.setPersistent(persistent);
+        rbm.train(X);
+        return rbm;
+    }
+
+    /** The rows (with bias) of the batches of one epoch, sorted */
+    protected static List<String> rows(List<double[]> batches, int from, int to, int d) {
+        List<String> rows = new ArrayList<String>();
+        for (int b = from; b < to; b++)
+            for (int k = 0; k < batches.get(b).length; k += d + 1)
+                rows.add(Arrays.toString(Arrays.copyOfRange(batches.get(b), k, k + d + 1)));
+        java.util.Collections.sort(rows);
+        return rows;
+    }
+
+    public void testPersistentChains() throws Exception {
+        double X[][] = data(30, 6);
+        RecordingRBM rbm = train(X, false, true);
+        // 5 batches (of 7, 7, 7, 7 and 2) per epoch, and the chains continue through all but the first update
+        assertEquals(4 * 5, rbm.m_Batches.size());
+        assertEquals(4 * 5 - 1, rbm.m_Continued);
+        // (the chains are only kept while training)
+        assertNull(rbm.m_Chains);
+
+        // without PCD, there are no chains
+        rbm = train(X, false, false);
+        assertEquals(0, rbm.m_Continued);
+        assertNull(rbm.m_LastChains);
+    }
+
+    public void testShuffledBatches() throws Exception {
+        double X[][] = data(30, 6);
+        int d = X[0].length;
+        RecordingRBM ordered = train(X, false, false);
+        RecordingRBM shuffled = train(X, true, false);
+        assertEquals(ordered.m_Batches.size(), shuffled.m_Batches.size());
+
+        // the ordered batches are the same slices of X at every epoch
+        for (int b = 0; b < ordered.m_Batches.size(); b++) {
+            double batch[] = ordered.m_Batches.get(b);
+            int start = (b % 5) * 7;
+            for (int i = 0; i < batch.length / (d + 1); i++) {
+                assertEquals(1.0, batch[i * (d + 1)], 0.0);
+                assertTrue(Arrays.equals(X[start + i], Arrays.copyOfRange(batch, i * (d + 1) + 1, (i + 1) * (d + 1))));
+            }
+        }
+
+        // the shuffled batches cover all the instances at each epoch, but are drawn differently, from epoch to epoch
+        List<String> all = rows(ordered.m_Batches, 0, 5, d);
+        for (int e = 0; e < 4; e++) {
+            assertEquals(all, rows(shuffled.m_Batches, e * 5, (e + 1) * 5, d));
+            assertFalse(Arrays.equals(ordered.m_Batches.get(e * 5), shuffled.m_Batches.get(e * 5)));
+        }
+        assertFalse(Arrays.equals(shuffled.m_Batches.get(0), shuffled.m_Batches.get(5)));
+
+        // (and so give another model)
+        assertFalse(Arrays.deepEquals(ordered.getW().getArray(), shuffled.getW().getArray()));
+    }
+
+    public static Test suite() {
+        return new TestSuite(RBMTest.class);
+    }
+
+    public static void main(String[] args){
+        junit.textui.TestRunner.run(suite());
+    }
+}